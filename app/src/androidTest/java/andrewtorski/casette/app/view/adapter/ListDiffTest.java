@@ -0,0 +1,104 @@
+package andrewtorski.casette.app.view.adapter;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import andrewtorski.casette.app.model.CassetteModel;
+
+/**
+ * Tests that operations calculated by the ListDiff turn the old list into the new one.
+ */
+public class ListDiffTest extends AndroidTestCase {
+
+    private static final ListDiff.ItemComparator<CassetteModel> COMPARATOR =
+            new ListDiff.ItemComparator<CassetteModel>() {
+                @Override
+                public long getId(CassetteModel item) {
+                    return item.getId();
+                }
+
+                @Override
+                public boolean haveSameContent(CassetteModel oldItem, CassetteModel newItem) {
+                    return oldItem.getTitle().equals(newItem.getTitle());
+                }
+            };
+
+    public void test_calculate_sameListsGiveNoOperations() {
+        //  Arrange
+        List<CassetteModel> list = cassettes(1, 2, 3);
+
+        //  Act
+        ListDiff diff = ListDiff.calculate(list, cassettes(1, 2, 3), COMPARATOR);
+
+        //  Assert
+        assertEquals(0, diff.getOperationCount());
+    }
+
+    public void test_calculate_singleChangeIsReportedAlone() {
+        //  Arrange
+        List<CassetteModel> oldList = cassettes(1, 2, 3);
+        List<CassetteModel> newList = cassettes(1, 2, 3);
+        newList.get(1).setTitle("changed");
+
+        //  Act
+        List<String> operations = record(ListDiff.calculate(oldList, newList, COMPARATOR));
+
+        //  Assert
+        assertEquals(Arrays.asList("changed 1 1"), operations);
+    }
+
+    public void test_calculate_insertRemoveAndMove() {
+        //  Arrange
+        List<CassetteModel> oldList = cassettes(1, 2, 3, 4, 5);
+        List<CassetteModel> newList = cassettes(5, 1, 6, 7, 2, 4);
+
+        //  Act
+        List<String> operations = record(ListDiff.calculate(oldList, newList, COMPARATOR));
+
+        //  Assert
+        assertEquals(Arrays.asList("removed 2 1", "moved 3 0", "inserted 2 2"), operations);
+    }
+
+    //region Private helper methods
+
+    private static List<CassetteModel> cassettes(long... ids) {
+        List<CassetteModel> cassetteModels = new ArrayList<>();
+        for (long id : ids) {
+            cassetteModels.add(new CassetteModel(id, "title " + id, "", new Date(0), 0, false, "",
+                    null, 0));
+        }
+        return cassetteModels;
+    }
+
+    private static List<String> record(ListDiff diff) {
+        final List<String> operations = new ArrayList<>();
+        diff.dispatchTo(new ListDiff.UpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                operations.add("inserted " + position + " " + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                operations.add("removed " + position + " " + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                operations.add("moved " + fromPosition + " " + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                operations.add("changed " + position + " " + count);
+            }
+        });
+        return operations;
+    }
+
+    //endregion Private helper methods
+}
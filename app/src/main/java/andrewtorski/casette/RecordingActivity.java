@@ -3,12 +3,11 @@ package andrewtorski.casette;
 import android.animation.ValueAnimator;
 import android.app.Activity;
 import android.content.Context;
+import android.content.Intent;
 import android.graphics.Color;
 import android.graphics.drawable.GradientDrawable;
 import android.media.MediaPlayer;
-import android.media.MediaRecorder;
 import android.os.Bundle;
-import android.os.Environment;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -21,6 +20,11 @@ import android.widget.RelativeLayout;
 
 import java.io.IOException;
 
+import andrewtorski.casette.app.AndroidApplication;
+import andrewtorski.casette.app.service.CaptureService;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+
 
 public class RecordingActivity extends Activity {
 
@@ -35,10 +39,10 @@ public class RecordingActivity extends Activity {
     //  Audio capture
 
     private static final String LOG_TAG = "AudioRecordTest";
-    private static String mFileName = null;
+    private static final String INTENT_EXTRA_PARAM_CASSETTE_ID = "andrewtorski.cassette.INTENT_PARAM_CASSETTE_ID";
 
     private Button mRecordButton = null;
-    private MediaRecorder mRecorder = null;
+    private long mCassetteId = -1L;
 
     private Button mPlayButton = null;
     private MediaPlayer mPlayer = null;
@@ -47,14 +51,28 @@ public class RecordingActivity extends Activity {
     //  end of Audio capture
 
 
-    public RecordingActivity() {
-        mFileName = Environment.getExternalStorageDirectory().getAbsolutePath();
-        mFileName += "/casette.3gp";
+    /**
+     * Returns the Intent starting this Activity, which records into the Cassette of the provided
+     * id.
+     */
+    public static Intent getCallingIntent(Context context, long cassetteId) {
+        Intent intent = new Intent(context, RecordingActivity.class);
+        intent.putExtra(INTENT_EXTRA_PARAM_CASSETTE_ID, cassetteId);
+        return intent;
     }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+
+        mCassetteId = getIntent().getLongExtra(INTENT_EXTRA_PARAM_CASSETTE_ID, -1L);
+        if (mCassetteId < 0) {
+            //  A capture without a Cassette could not be persisted and would be deleted.
+            Log.e(LOG_TAG, "Started without a Cassette to record into.");
+            finish();
+            return;
+        }
+
         setContentView(R.layout.activity_recording);
 
         Button button = (Button) findViewById(R.id.record_button);
@@ -70,9 +88,12 @@ public class RecordingActivity extends Activity {
             public boolean onTouch(View v, MotionEvent event) {
                 if (event.getAction() == MotionEvent.ACTION_DOWN) {
                     recordButtonOnDown(v);
+                    onRecord(true);
                     return false;
-                } else if (event.getAction() == MotionEvent.ACTION_UP) {
+                } else if (event.getAction() == MotionEvent.ACTION_UP
+                        || event.getAction() == MotionEvent.ACTION_CANCEL) {
                     recordButtonOnUp(v);
+                    onRecord(false);
                     return false;
                 }
 
@@ -159,10 +180,18 @@ public class RecordingActivity extends Activity {
         }
     }
 
+    /**
+     * Plays the last Recording persisted into the Cassette.
+     */
     private void startPlaying() {
+        Recording recording = getLastRecording();
+        if (recording == null) {
+            Log.i(LOG_TAG, "Nothing was recorded into the Cassette yet.");
+            return;
+        }
         mPlayer = new MediaPlayer();
         try {
-            mPlayer.setDataSource(mFileName);
+            mPlayer.setDataSource(recording.getAudioFilePath());
             mPlayer.prepare();
             mPlayer.start();
         } catch (IOException e) {
@@ -171,40 +200,43 @@ public class RecordingActivity extends Activity {
     }
 
     private void stopPlaying() {
-        mPlayer.release();
-        mPlayer = null;
+        if (mPlayer != null) {
+            mPlayer.release();
+            mPlayer = null;
+        }
     }
 
-    private void startRecording() {
-        mRecorder = new MediaRecorder();
-        mRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
-        mRecorder.setOutputFormat(MediaRecorder.OutputFormat.THREE_GPP);
-        mRecorder.setOutputFile(mFileName);
-        mRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AMR_NB);
-
-        try {
-            mRecorder.prepare();
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "prepare() failed");
+    private Recording getLastRecording() {
+        Cassette cassette = ((AndroidApplication) getApplication()).getApplicationComponent()
+                .repositoryFacade().get(mCassetteId, true);
+        if (cassette == null || cassette.getRecordings() == null) {
+            return null;
+        }
+        Recording lastRecording = null;
+        for (Recording recording : cassette.getRecordings()) {
+            if (lastRecording == null
+                    || recording.getDateTimeOfRecording().after(lastRecording.getDateTimeOfRecording())) {
+                lastRecording = recording;
+            }
         }
+        return lastRecording;
+    }
 
-        mRecorder.start();
+    /**
+     * Capture runs in the CaptureService, so it is neither torn down when this Activity is paused
+     * nor has to prepare a recorder every time.
+     */
+    private void startRecording() {
+        CaptureService.startCapture(this, mCassetteId);
     }
 
     private void stopRecording() {
-        mRecorder.stop();
-        mRecorder.release();
-        mRecorder = null;
+        CaptureService.stopCapture(this);
     }
 
     @Override
     public void onPause() {
         super.onPause();
-        if (mRecorder != null) {
-            mRecorder.release();
-            mRecorder = null;
-        }
-
         if (mPlayer != null) {
             mPlayer.release();
             mPlayer = null;
@@ -1,22 +1,107 @@
 package andrewtorski.casette.app;
 
 import android.app.Application;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
 
 import andrewtorski.casette.app.di.components.ApplicationComponent;
 import andrewtorski.casette.app.di.components.DaggerApplicationComponent;
 import andrewtorski.casette.app.di.modules.ApplicationModule;
+import andrewtorski.cassette.domain.audio.ImaAdpcmWavStorageFormat;
+import andrewtorski.cassette.domain.capture.CaptureRecovery;
+import andrewtorski.cassette.domain.compile.CompileJobScheduler;
+import andrewtorski.cassette.domain.compile.CompiledCassetteCache;
+import andrewtorski.cassette.domain.storage.OrphanedAudioFileCollector;
+import andrewtorski.cassette.domain.streaming.CassetteStreamServer;
+import andrewtorski.cassette.domain.storage.StorageTieringJob;
+import andrewtorski.cassette.domain.usecase.CompileCassetteUseCase;
 
 /**
  * Android Main Application
  */
 public class AndroidApplication extends Application {
 
+    private static final String TAG = "AndroidApplication";
+
+    /**
+     * Name of the directory, inside application's external files directory, which holds audio
+     * files of Recordings.
+     */
+    public static final String RECORDINGS_DIRECTORY_NAME = "recordings";
+
+    /**
+     * Name of the directory, inside application's external files directory, which holds captures
+     * until they become Recordings.
+     */
+    public static final String CAPTURES_DIRECTORY_NAME = "captures";
+
+    /**
+     * Name of the directory, inside application's external files directory, which holds audio of
+     * captures whose Cassette was not found when they were recovered.
+     */
+    public static final String RECOVERED_DIRECTORY_NAME = "recovered";
+
+    /**
+     * Files younger than this are never collected, as their Recordings might not be persisted yet.
+     */
+    private static final long ORPHANED_AUDIO_FILE_GRACE_PERIOD_IN_MILLISECONDS = 24 * 60 * 60 * 1000;
+
+    private static final int ORPHANED_AUDIO_FILE_COLLECTOR_FILES_PER_SECOND = 50;
+
+    /**
+     * Recordings older than this are re-encoded into {@link ImaAdpcmWavStorageFormat}.
+     */
+    private static final long STORAGE_TIERING_MINIMAL_AGE_IN_MILLISECONDS = 90L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Name of the directory, inside application's external files directory, which holds compiled
+     * Cassettes.
+     */
+    public static final String COMPILED_DIRECTORY_NAME = "compiled";
+
+    private static final String COMPILE_JOURNAL_FILE_NAME = "compile.journal";
+
+    /**
+     * Compilation reads and writes whole Cassettes, more than two at a time only contend for
+     * storage.
+     */
+    private static final int MAXIMAL_RUNNING_COMPILE_JOBS = 2;
+
+    /**
+     * Number of bytes compiled Cassettes may take together before the least recently played ones
+     * are deleted.
+     */
+    private static final long COMPILED_CASSETTES_BYTE_BUDGET = 256L * 1024 * 1024;
+
+    /**
+     * Port of the CassetteStreamServer, above the range of well-known ports.
+     */
+    public static final int STREAM_SERVER_PORT = 8484;
+
+    /**
+     * Requests only read headers and the database, sending bytes is not done by these threads.
+     */
+    private static final int STREAM_SERVER_WORKER_THREADS = 2;
+
     private ApplicationComponent applicationComponent;
 
+    private CaptureRecovery captureRecovery;
+
+    private CompileJobScheduler compileJobScheduler;
+
+    private CompiledCassetteCache compiledCassetteCache;
+
+    private CassetteStreamServer cassetteStreamServer;
+
     @Override
     public void onCreate() {
         super.onCreate();
         this.initializeInjector();
+        this.startStorageMaintenance();
+        this.startCompileJobScheduler();
     }
 
     private void initializeInjector() {
@@ -26,7 +111,158 @@ public class AndroidApplication extends Application {
 
     }
 
+    /**
+     * Starts a low priority thread which first turns captures interrupted by a crash into
+     * Recordings, then re-encodes old Recordings into a smaller format and finally deletes audio
+     * files left behind by deleted or re-encoded Recordings.
+     * <p/>
+     * Re-encoding and collecting run only if the repositories provided are persistent, otherwise
+     * every audio file would look unreferenced after a restart.
+     */
+    private void startStorageMaintenance() {
+        File externalFilesDirectory = getExternalFilesDir(null);
+        if (externalFilesDirectory == null) {
+            //  External storage is not mounted, there is nothing to collect.
+            return;
+        }
+
+        File recordingsDirectory = new File(externalFilesDirectory, RECORDINGS_DIRECTORY_NAME);
+
+        //  Shared with the CaptureService, so that captures in progress are never recovered.
+        captureRecovery = new CaptureRecovery(
+                new File(externalFilesDirectory, CAPTURES_DIRECTORY_NAME),
+                recordingsDirectory,
+                new File(externalFilesDirectory, RECOVERED_DIRECTORY_NAME),
+                applicationComponent.repositoryFacade());
+
+        final StorageTieringJob tieringJob;
+        final OrphanedAudioFileCollector collector;
+        if (ApplicationModule.PROVIDES_PERSISTENT_REPOSITORIES) {
+            tieringJob = new StorageTieringJob(
+                    applicationComponent.recordingRepository(),
+                    new ImaAdpcmWavStorageFormat(),
+                    STORAGE_TIERING_MINIMAL_AGE_IN_MILLISECONDS);
+            collector = new OrphanedAudioFileCollector(
+                    recordingsDirectory,
+                    applicationComponent.recordingRepository(),
+                    ORPHANED_AUDIO_FILE_GRACE_PERIOD_IN_MILLISECONDS,
+                    ORPHANED_AUDIO_FILE_COLLECTOR_FILES_PER_SECOND);
+        } else {
+            tieringJob = null;
+            collector = null;
+        }
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                int recovered = captureRecovery.recoverAll().size();
+                if (recovered > 0) {
+                    Log.i(TAG, "Interrupted captures recovered: " + recovered);
+                }
+                for (File keptCaptureFile : captureRecovery.getKeptCaptureFiles()) {
+                    Log.w(TAG, "Capture of a missing cassette kept: " + keptCaptureFile.getPath());
+                }
+                if (tieringJob == null) {
+                    return;
+                }
+                try {
+                    long bytesSaved = tieringJob.run();
+                    Log.i(TAG, "Old recordings re-encoded, bytes saved: " + bytesSaved);
+                    long bytesReclaimed = collector.collect();
+                    Log.i(TAG, "Orphaned audio files collected, bytes reclaimed: " + bytesReclaimed);
+                } catch (InterruptedException e) {
+                    Log.i(TAG, "Storage maintenance was interrupted.");
+                }
+            }
+        }, "StorageMaintenance");
+        thread.start();
+    }
+
+    /**
+     * Starts compiling Cassettes in the background, resuming compilations interrupted when the
+     * process last died.
+     */
+    private void startCompileJobScheduler() {
+        File externalFilesDirectory = getExternalFilesDir(null);
+        if (externalFilesDirectory == null) {
+            return;
+        }
+        File compiledDirectory = new File(externalFilesDirectory, COMPILED_DIRECTORY_NAME);
+        compiledDirectory.mkdirs();
+
+        compileJobScheduler = new CompileJobScheduler(
+                new CompileCassetteUseCase(applicationComponent.repositoryFacade()),
+                compiledDirectory,
+                new File(getFilesDir(), COMPILE_JOURNAL_FILE_NAME),
+                MAXIMAL_RUNNING_COMPILE_JOBS);
+        compiledCassetteCache = new CompiledCassetteCache(applicationComponent.repositoryFacade(),
+                compileJobScheduler, COMPILED_CASSETTES_BYTE_BUDGET);
+        try {
+            int resumed = compileJobScheduler.start().size();
+            if (resumed > 0) {
+                Log.i(TAG, "Interrupted compilations resumed: " + resumed);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Compile journal could not be read.", e);
+        }
+    }
+
+    /**
+     * Starts serving Cassettes over HTTP to other devices on the network. The server is not
+     * started with the application, only when the user asks for it.
+     * <p/>
+     * The server listens on all interfaces, but serves only requests under a path holding a
+     * token issued anew on every start, so only players the user hands the path to can play.
+     *
+     * @return Path under which Cassettes are served on {@link #STREAM_SERVER_PORT}.
+     * @throws IOException If the port could not be bound.
+     */
+    public synchronized String startCassetteStreamServer() throws IOException {
+        if (cassetteStreamServer == null) {
+            cassetteStreamServer = new CassetteStreamServer(applicationComponent.repositoryFacade(),
+                    null, STREAM_SERVER_PORT, STREAM_SERVER_WORKER_THREADS);
+        }
+        cassetteStreamServer.start();
+        //  The path is not logged, it grants access to every Cassette.
+        Log.i(TAG, "Cassette stream server listens on port " + cassetteStreamServer.getPort());
+        return cassetteStreamServer.getBasePath();
+    }
+
+    /**
+     * Stops serving Cassettes over HTTP, closing connections of players still streaming.
+     */
+    public synchronized void stopCassetteStreamServer() {
+        if (cassetteStreamServer != null) {
+            cassetteStreamServer.stop();
+        }
+    }
+
     public ApplicationComponent getApplicationComponent() {
         return this.applicationComponent;
     }
+
+    /**
+     * Returns the CaptureRecovery through which captures are turned into Recordings, or null if
+     * external storage was not mounted when the application started.
+     */
+    public CaptureRecovery getCaptureRecovery() {
+        return this.captureRecovery;
+    }
+
+    /**
+     * Returns the CompileJobScheduler through which Cassettes are compiled, or null if external
+     * storage was not mounted when the application started.
+     */
+    public CompileJobScheduler getCompileJobScheduler() {
+        return this.compileJobScheduler;
+    }
+
+    /**
+     * Returns the CompiledCassetteCache through which compiled Cassettes are played, or null if
+     * external storage was not mounted when the application started.
+     */
+    public CompiledCassetteCache getCompiledCassetteCache() {
+        return this.compiledCassetteCache;
+    }
 }
@@ -8,6 +8,7 @@ import andrewtorski.casette.app.di.modules.ApplicationModule;
 import andrewtorski.casette.app.view.activity.BaseActivity;
 import andrewtorski.cassette.domain.RepositoryFacade;
 import andrewtorski.cassette.domain.repository.CassetteRepository;
+import andrewtorski.cassette.domain.repository.RecordingRepository;
 import dagger.Component;
 
 /**
@@ -25,5 +26,7 @@ public interface ApplicationComponent {
     //Repos
     CassetteRepository cassetteRepository();
 
+    RecordingRepository recordingRepository();
+
     RepositoryFacade repositoryFacade();
 }
@@ -19,6 +19,14 @@ import dagger.Provides;
  */
 @Module
 public class ApplicationModule {
+
+    /**
+     * Whether the Cassette and Recording repositories provided keep their data between runs of
+     * the application. The in-memory test repositories start with sample data only, so nothing
+     * which deletes files unknown to the repositories may run while they are provided.
+     */
+    public static final boolean PROVIDES_PERSISTENT_REPOSITORIES = false;
+
     private final AndroidApplication application;
 
     public ApplicationModule(AndroidApplication application) {
@@ -43,13 +51,16 @@ public class ApplicationModule {
         return cassetteTestRepository;
     }
 
+    @Provides
+    @Singleton
     RecordingRepository provideTestRecordingRepository(RecordingTestRepository recordingTestRepository) {
         return recordingTestRepository;
     }
 
     @Provides
     @Singleton
-    RepositoryFacade provideRepositoryFacade() {
-        return new RepositoryFacade(new CassetteTestRepository(), new RecordingTestRepository());
+    RepositoryFacade provideRepositoryFacade(CassetteRepository cassetteRepository,
+                                             RecordingRepository recordingRepository) {
+        return new RepositoryFacade(cassetteRepository, recordingRepository);
     }
 }
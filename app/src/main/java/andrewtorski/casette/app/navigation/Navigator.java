@@ -6,6 +6,7 @@ import android.content.Intent;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import andrewtorski.casette.RecordingActivity;
 import andrewtorski.casette.app.view.activity.CassetteDetailActivity;
 import andrewtorski.casette.app.view.activity.ListCassettesActivity;
 
@@ -33,4 +34,13 @@ public class Navigator {
         Intent intent = CassetteDetailActivity.getCallingIntent(context, cassetteId);
         context.startActivity(intent);
     }
+
+    public void navigateToRecording(Context context, long cassetteId) {
+        if (context == null) {
+            return;
+        }
+
+        Intent intent = RecordingActivity.getCallingIntent(context, cassetteId);
+        context.startActivity(intent);
+    }
 }
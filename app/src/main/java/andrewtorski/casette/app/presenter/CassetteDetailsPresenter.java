@@ -1,5 +1,10 @@
 package andrewtorski.casette.app.presenter;
 
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -8,6 +13,9 @@ import andrewtorski.casette.app.model.RecordingModel;
 import andrewtorski.casette.app.model.mapper.CassetteModelDataMapper;
 import andrewtorski.casette.app.view.CassetteDetailsView;
 import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.repository.QueryObserver;
+import andrewtorski.cassette.domain.repository.Subscription;
 import andrewtorski.cassette.domain.usecase.CassetteDetailsUseCase;
 
 /**
@@ -44,6 +52,50 @@ public class CassetteDetailsPresenter implements Presenter {
      */
     private CassetteModelDataMapper mapper = new CassetteModelDataMapper();
 
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Subscriptions to the displayed Cassette and its Recordings, null when not observed.
+     */
+    private Subscription cassetteSubscription, recordingsSubscription;
+
+    /**
+     * Latest delivered Cassette and Recordings, the details are rendered once both arrived.
+     */
+    private Cassette observedCassette;
+    private List<Recording> observedRecordings;
+
+    private final QueryObserver<Cassette> cassetteObserver = new QueryObserver<Cassette>() {
+        @Override
+        public void onResult(final Cassette cassette) {
+            mainThreadHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (cassetteSubscription != null && cassette != null) {
+                        observedCassette = cassette;
+                        renderObservedCassette();
+                    }
+                }
+            });
+        }
+    };
+
+    private final QueryObserver<List<Recording>> recordingsObserver =
+            new QueryObserver<List<Recording>>() {
+                @Override
+                public void onResult(final List<Recording> recordings) {
+                    mainThreadHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (recordingsSubscription != null) {
+                                observedRecordings = recordings;
+                                renderObservedCassette();
+                            }
+                        }
+                    });
+                }
+            };
+
     //endregion Private fields
 
     //region Constructor
@@ -63,7 +115,7 @@ public class CassetteDetailsPresenter implements Presenter {
 
     public void initialize(long cassetteId) {
         this.cassetteId = cassetteId;
-        getCassetteDetails();
+        observeCassetteDetails();
     }
 
     public void getCassetteDetails() {
@@ -72,6 +124,36 @@ public class CassetteDetailsPresenter implements Presenter {
         cassetteDetailsView.renderCassetteAndRecordings(cassetteModel);
     }
 
+    /**
+     * Starts observing the displayed Cassette and its Recordings, unless observed already. The
+     * current details are delivered right away and again whenever they change.
+     */
+    private void observeCassetteDetails() {
+        if (cassetteSubscription == null) {
+            cassetteSubscription = this.useCase.observeCassette(cassetteId, cassetteObserver);
+            recordingsSubscription = this.useCase.observeRecordings(cassetteId, recordingsObserver);
+        }
+    }
+
+    private void stopObservingCassetteDetails() {
+        if (cassetteSubscription != null) {
+            cassetteSubscription.unsubscribe();
+            recordingsSubscription.unsubscribe();
+            cassetteSubscription = null;
+            recordingsSubscription = null;
+        }
+        mainThreadHandler.removeCallbacksAndMessages(null);
+    }
+
+    private void renderObservedCassette() {
+        if (cassetteDetailsView == null || observedCassette == null || observedRecordings == null) {
+            return;
+        }
+        observedCassette.setRecordings(observedRecordings);
+        cassetteModel = mapper.transform(observedCassette);
+        cassetteDetailsView.renderCassetteAndRecordings(cassetteModel);
+    }
+
     public void onRecordingClicked(RecordingModel recordingModel) {
         //  stub for clicked.
     }
@@ -86,7 +168,7 @@ public class CassetteDetailsPresenter implements Presenter {
      */
     @Override
     public void resume() {
-
+        observeCassetteDetails();
     }
 
     /**
@@ -95,7 +177,7 @@ public class CassetteDetailsPresenter implements Presenter {
      */
     @Override
     public void pause() {
-
+        stopObservingCassetteDetails();
     }
 
     /**
@@ -104,6 +186,7 @@ public class CassetteDetailsPresenter implements Presenter {
      */
     @Override
     public void destroy() {
+        stopObservingCassetteDetails();
         cassetteModel = null;
     }
 
@@ -1,9 +1,18 @@
 package andrewtorski.casette.app.presenter;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -14,6 +23,8 @@ import andrewtorski.casette.app.model.mapper.CassetteModelDataMapper;
 import andrewtorski.casette.app.view.ListCassettesView;
 import andrewtorski.cassette.domain.entity.Cassette;
 import andrewtorski.cassette.domain.exception.ErrorBundle;
+import andrewtorski.cassette.domain.repository.ChangeListener;
+import andrewtorski.cassette.domain.repository.ChangeSet;
 import andrewtorski.cassette.domain.usecase.ListCassettesUseCase;
 
 public class ListCassettesPresenter implements Presenter {
@@ -30,6 +41,42 @@ public class ListCassettesPresenter implements Presenter {
 
     private CassetteModelDataMapper mapper = new CassetteModelDataMapper();
 
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Reads changed Cassettes off the main thread, one change set after another, so that their
+     * patches are applied in order.
+     */
+    private final ExecutorService changeReader = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "CassetteListChanges");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+
+    /**
+     * Patches the displayed list when Cassettes change, instead of reloading all of them.
+     */
+    private final ChangeListener cassetteChangeListener = new ChangeListener() {
+        @Override
+        public void onChange(final ChangeSet changes) {
+            try {
+                changeReader.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        readChanges(changes);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                //  The presenter was destroyed meanwhile.
+            }
+        }
+    };
+
     //endregion Private fields
 
     //region Constructor
@@ -48,6 +95,7 @@ public class ListCassettesPresenter implements Presenter {
     }
 
     public void initialize() {
+        this.useCase.addChangeListener(cassetteChangeListener);
         this.loadCassetteList();
     }
 
@@ -87,10 +135,89 @@ public class ListCassettesPresenter implements Presenter {
     private void showCassettesCollectionInView(Collection<Cassette> cassetteCollection) {
         final Collection<CassetteModel> cassetteModels = this.mapper.transformCassettes(cassetteCollection);
         Log.d(TAG, "Was called showCassettesCollectionInView()");
+        this.cassetteModelList = new ArrayList<>(cassetteModels);
         //render cassettes in the view
         this.view.renderCassetteList(cassetteModels);
     }
 
+    /**
+     * Re-reads the Cassettes which were updated or created with a single repository read, on the
+     * thread of the change reader, and applies the changes on the main thread.
+     */
+    private void readChanges(final ChangeSet changes) {
+        long[] updatedIds = changes.getUpdatedIds(), createdIds = changes.getCreatedIds();
+        long[] changedIds = new long[updatedIds.length + createdIds.length];
+        System.arraycopy(updatedIds, 0, changedIds, 0, updatedIds.length);
+        System.arraycopy(createdIds, 0, changedIds, updatedIds.length, createdIds.length);
+
+        final Map<Long, CassetteModel> changedModels = new HashMap<>();
+        if (changedIds.length > 0) {
+            for (CassetteModel cassetteModel : this.mapper.transformCassettes(this.useCase.cassettes(changedIds))) {
+                changedModels.put(cassetteModel.getId(), cassetteModel);
+            }
+        }
+
+        mainThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                applyChanges(changes, changedModels);
+            }
+        });
+    }
+
+    /**
+     * Patches the displayed list with the provided models of the updated and created Cassettes
+     * and renders it.
+     */
+    private void applyChanges(ChangeSet changes, Map<Long, CassetteModel> changedModels) {
+        if (this.cassetteModelList == null || this.view == null) {
+            return;
+        }
+
+        for (long id : changes.getDeletedIds()) {
+            int index = indexOfCassetteModel(id);
+            if (index >= 0) {
+                this.cassetteModelList.remove(index);
+            }
+        }
+        for (long id : changes.getUpdatedIds()) {
+            replaceCassetteModel(id, changedModels.get(id));
+        }
+        for (long id : changes.getCreatedIds()) {
+            replaceCassetteModel(id, changedModels.get(id));
+        }
+        Log.d(TAG, "Applied " + changes.size() + " cassette changes.");
+
+        this.view.renderCassetteList(new ArrayList<>(this.cassetteModelList));
+    }
+
+    /**
+     * Replaces the model of the Cassette of provided id with the provided one, appending it if
+     * it was not listed and removing the listed one if the provided one is null, as the Cassette
+     * no longer exists.
+     */
+    private void replaceCassetteModel(long id, CassetteModel cassetteModel) {
+        int index = indexOfCassetteModel(id);
+        if (cassetteModel == null) {
+            if (index >= 0) {
+                this.cassetteModelList.remove(index);
+            }
+        } else if (index >= 0) {
+            this.cassetteModelList.set(index, cassetteModel);
+        } else {
+            this.cassetteModelList.add(cassetteModel);
+        }
+    }
+
+    private int indexOfCassetteModel(long id) {
+        for (int i = 0; i < this.cassetteModelList.size(); i++) {
+            if (this.cassetteModelList.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private void getUserList() {
         List<Cassette> cassetteList = this.useCase.cassettes();
         Log.d(TAG, "Retrieved cassettes.");
@@ -125,6 +252,9 @@ public class ListCassettesPresenter implements Presenter {
      */
     @Override
     public void destroy() {
+        this.useCase.removeChangeListener(cassetteChangeListener);
+        this.changeReader.shutdownNow();
+        this.mainThreadHandler.removeCallbacksAndMessages(null);
         this.cassetteModelList = null;
     }
 
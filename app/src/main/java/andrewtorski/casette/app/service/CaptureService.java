@@ -0,0 +1,247 @@
+package andrewtorski.casette.app.service;
+
+import android.app.Notification;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import andrewtorski.casette.R;
+import andrewtorski.casette.app.AndroidApplication;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.capture.CapturePipeline;
+import andrewtorski.cassette.domain.capture.CaptureRecovery;
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Foreground service which owns the microphone for as long as any capture might be requested.
+ * <p/>
+ * The AudioRecord is created and started once, when the service is created, and an audio thread
+ * keeps feeding its blocks to a {@link CapturePipeline}. Start and stop commands sent from any
+ * screen only mark the frame at which they were issued, so they take effect without the cost of
+ * preparing a recorder and are not affected by Activities being paused or recreated. Finished
+ * captures are persisted on a worker thread of their own.
+ * <p/>
+ * The microphone is kept warm for {@link #IDLE_TIMEOUT_IN_MILLISECONDS} after a capture stops,
+ * then the service stops itself, releasing it and removing its notification.
+ */
+public class CaptureService extends Service {
+
+    //region Private fields
+
+    private static final String TAG = "CAPTURE_SERVICE";
+
+    private static final String ACTION_START = "andrewtorski.cassette.ACTION_START_CAPTURE";
+    private static final String ACTION_STOP = "andrewtorski.cassette.ACTION_STOP_CAPTURE";
+
+    private static final String INTENT_EXTRA_PARAM_CASSETTE_ID = "andrewtorski.cassette.INTENT_PARAM_CASSETTE_ID";
+    private static final String INTENT_EXTRA_PARAM_NANO_TIME = "andrewtorski.cassette.INTENT_PARAM_NANO_TIME";
+
+    private static final int NOTIFICATION_ID = 1;
+
+    private static final PcmFormat FORMAT = new PcmFormat(16000, 1);
+
+    /**
+     * One second of audio is lost at most when the process is killed.
+     */
+    private static final int FRAMES_PER_SEGMENT = 16000;
+
+    private static final int FRAMES_PER_BLOCK = 320;
+
+    /**
+     * How long the service waits for the next capture after one stopped before it stops itself.
+     */
+    private static final long IDLE_TIMEOUT_IN_MILLISECONDS = 60 * 1000;
+
+    /**
+     * The AudioRecord buffers this much audio, so that a segment being forced to the disk on the
+     * audio thread never makes it drop samples.
+     */
+    private static final int AUDIO_RECORD_BUFFER_IN_MILLISECONDS = 2000;
+
+    private AudioRecord audioRecord;
+
+    private CapturePipeline pipeline;
+
+    private ExecutorService persistingExecutor;
+
+    private Thread audioThread;
+
+    private volatile boolean isRunning;
+
+    private final Handler handler = new Handler();
+
+    private final Runnable stopWhenIdle = new Runnable() {
+        @Override
+        public void run() {
+            Log.i(TAG, "No capture for a while, releasing the microphone.");
+            stopSelf();
+        }
+    };
+
+    //endregion Private fields
+
+    //region Commands
+
+    /**
+     * Starts capturing into the Cassette of the provided id, starting the service if needed.
+     */
+    public static void startCapture(Context context, long cassetteId) {
+        Intent intent = new Intent(context, CaptureService.class);
+        intent.setAction(ACTION_START);
+        intent.putExtra(INTENT_EXTRA_PARAM_CASSETTE_ID, cassetteId);
+        intent.putExtra(INTENT_EXTRA_PARAM_NANO_TIME, System.nanoTime());
+        context.startService(intent);
+    }
+
+    /**
+     * Stops the capture in progress. The service keeps the microphone warm for the next capture
+     * for a while, then stops itself.
+     */
+    public static void stopCapture(Context context) {
+        Intent intent = new Intent(context, CaptureService.class);
+        intent.setAction(ACTION_STOP);
+        intent.putExtra(INTENT_EXTRA_PARAM_NANO_TIME, System.nanoTime());
+        context.startService(intent);
+    }
+
+    /**
+     * Stops the capture in progress and releases the microphone.
+     */
+    public static void release(Context context) {
+        context.stopService(new Intent(context, CaptureService.class));
+    }
+
+    //endregion Commands
+
+    //region Service
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        CaptureRecovery captureRecovery = ((AndroidApplication) getApplication()).getCaptureRecovery();
+        if (captureRecovery == null) {
+            Log.e(TAG, "External storage is not mounted, nothing can be captured.");
+            stopSelf();
+            return;
+        }
+
+        int bufferSize = Math.max(
+                AudioRecord.getMinBufferSize(FORMAT.getSampleRate(), AudioFormat.CHANNEL_IN_MONO,
+                        AudioFormat.ENCODING_PCM_16BIT),
+                FORMAT.getSampleRate() * FORMAT.getFrameSize()
+                        * AUDIO_RECORD_BUFFER_IN_MILLISECONDS / 1000);
+        audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, FORMAT.getSampleRate(),
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT, bufferSize);
+        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+            Log.e(TAG, "Microphone could not be opened.");
+            audioRecord.release();
+            audioRecord = null;
+            stopSelf();
+            return;
+        }
+
+        persistingExecutor = Executors.newSingleThreadExecutor();
+        pipeline = new CapturePipeline(captureRecovery, FORMAT, FRAMES_PER_SEGMENT,
+                persistingExecutor, new CapturePipeline.Listener() {
+            @Override
+            public void onRecordingPersisted(Recording recording) {
+                Log.i(TAG, "Recording persisted: " + recording.getAudioFilePath());
+            }
+
+            @Override
+            public void onCaptureFailed(IOException e) {
+                Log.e(TAG, "Capture failed.", e);
+            }
+        });
+
+        startForeground(NOTIFICATION_ID, new Notification.Builder(this)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText(getString(R.string.notification_capture_service))
+                .setOngoing(true)
+                .build());
+
+        isRunning = true;
+        audioRecord.startRecording();
+        audioThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+                short[] block = new short[FRAMES_PER_BLOCK * FORMAT.getChannels()];
+                while (isRunning) {
+                    int read = audioRecord.read(block, 0, block.length);
+                    if (read > 0) {
+                        pipeline.process(block, 0, read / FORMAT.getChannels());
+                    }
+                }
+                pipeline.close();
+            }
+        }, "Capture");
+        audioThread.start();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (pipeline == null || intent == null || intent.getAction() == null) {
+            return START_NOT_STICKY;
+        }
+
+        long nanoTime = intent.getLongExtra(INTENT_EXTRA_PARAM_NANO_TIME, System.nanoTime());
+        if (ACTION_START.equals(intent.getAction())) {
+            long cassetteId = intent.getLongExtra(INTENT_EXTRA_PARAM_CASSETTE_ID, -1L);
+            if (cassetteId < 0) {
+                //  Without a Cassette the capture could not be persisted.
+                Log.e(TAG, "Capture requested without a Cassette, ignored.");
+                return START_NOT_STICKY;
+            }
+            handler.removeCallbacks(stopWhenIdle);
+            pipeline.start(cassetteId, pipeline.getFramePositionAt(nanoTime));
+        } else if (ACTION_STOP.equals(intent.getAction())) {
+            pipeline.stop(pipeline.getFramePositionAt(nanoTime));
+            handler.removeCallbacks(stopWhenIdle);
+            handler.postDelayed(stopWhenIdle, IDLE_TIMEOUT_IN_MILLISECONDS);
+        }
+
+        //  A capture cut short by the process being killed is recovered on the next start, there is
+        //  nothing to resume.
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacks(stopWhenIdle);
+        if (audioThread != null) {
+            isRunning = false;
+            audioRecord.stop();
+            try {
+                audioThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            audioRecord.release();
+            //  Lets the last capture be persisted, then the worker thread ends.
+            persistingExecutor.shutdown();
+            stopForeground(true);
+        }
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    //endregion Service
+}
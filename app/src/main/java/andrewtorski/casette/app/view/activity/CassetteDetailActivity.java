@@ -96,6 +96,11 @@ public class CassetteDetailActivity extends BaseActivity implements HasComponent
         // as you specify a parent activity in AndroidManifest.xml.
         int id = item.getItemId();
 
+        if (id == R.id.action_record) {
+            this.navigator.navigateToRecording(this, this.cassetteId);
+            return true;
+        }
+
         //noinspection SimplifiableIfStatement
         if (id == R.id.action_settings) {
             return true;
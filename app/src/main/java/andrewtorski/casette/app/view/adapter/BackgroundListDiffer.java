@@ -0,0 +1,154 @@
+package andrewtorski.casette.app.view.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Holds the list shown by an adapter and updates it by {@link ListDiff}, calculated on a
+ * background thread, so that refreshing a long list does not stall the main thread and only the
+ * rows which changed are rebound.
+ * <p/>
+ * All methods have to be called on the main thread. When lists are submitted faster than they
+ * are diffed, only the last one is shown.
+ */
+public class BackgroundListDiffer<T> {
+
+    //region Private fields
+
+    /**
+     * Shared by all adapters, one diff at a time is plenty.
+     */
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "ListDiff");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final RecyclerView.Adapter<?> adapter;
+    private final ListDiff.ItemComparator<T> comparator;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    private final ListDiff.UpdateCallback adapterCallback = new ListDiff.UpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            adapter.notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            adapter.notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            adapter.notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            adapter.notifyItemRangeChanged(position, count);
+        }
+    };
+
+    private List<T> list = Collections.emptyList();
+
+    /**
+     * Incremented by every submitted list, so that diffs of superseded lists are dropped.
+     */
+    private int generation;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the BackgroundListDiffer.
+     *
+     * @param adapter    Adapter to notify.
+     * @param comparator Comparator of the models of the adapter.
+     */
+    public BackgroundListDiffer(RecyclerView.Adapter<?> adapter, ListDiff.ItemComparator<T> comparator) {
+        this.adapter = adapter;
+        this.comparator = comparator;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Returns the list shown now.
+     */
+    public List<T> getList() {
+        return list;
+    }
+
+    /**
+     * Shows the provided list right away, rebinding every row.
+     */
+    public void replaceList(Collection<T> collection) {
+        generation++;
+        list = new ArrayList<>(collection);
+        adapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Shows the provided list once it was diffed against the list shown now. The collection is
+     * copied, so it may be modified afterwards.
+     */
+    public void submitList(Collection<T> collection) {
+        final int submittedGeneration = ++generation;
+        final List<T> oldList = list;
+        final List<T> newList = new ArrayList<>(collection);
+
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            //  Nothing to match, the whole range is inserted or removed.
+            list = newList;
+            if (!newList.isEmpty()) {
+                adapter.notifyItemRangeInserted(0, newList.size());
+            } else if (!oldList.isEmpty()) {
+                adapter.notifyItemRangeRemoved(0, oldList.size());
+            }
+            return;
+        }
+
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ListDiff diff = ListDiff.calculate(oldList, newList, comparator);
+                mainThreadHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (submittedGeneration != generation) {
+                            return;
+                        }
+                        list = newList;
+                        diff.dispatchTo(adapterCallback);
+                    }
+                });
+            }
+        });
+    }
+
+    //endregion Methods
+}
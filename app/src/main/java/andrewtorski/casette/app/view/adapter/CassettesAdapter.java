@@ -8,7 +8,6 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import java.util.Collection;
-import java.util.List;
 
 import andrewtorski.casette.R;
 import andrewtorski.casette.app.model.CassetteModel;
@@ -21,7 +20,25 @@ public class CassettesAdapter extends RecyclerView.Adapter<CassettesAdapter.Cass
 
     //region Private fields
 
-    private List<CassetteModel> cassetteModelList;
+    /**
+     * Cassettes are the same if their ids are, the content compared is what a card shows.
+     */
+    private static final ListDiff.ItemComparator<CassetteModel> COMPARATOR =
+            new ListDiff.ItemComparator<CassetteModel>() {
+                @Override
+                public long getId(CassetteModel item) {
+                    return item.getId();
+                }
+
+                @Override
+                public boolean haveSameContent(CassetteModel oldItem, CassetteModel newItem) {
+                    return equal(oldItem.getTitle(), newItem.getTitle())
+                            && equal(oldItem.getDescription(), newItem.getDescription());
+                }
+            };
+
+    private final BackgroundListDiffer<CassetteModel> differ =
+            new BackgroundListDiffer<>(this, COMPARATOR);
     private OnItemClickListener onItemClickListener;
 
     //endregion Private fields
@@ -47,7 +64,7 @@ public class CassettesAdapter extends RecyclerView.Adapter<CassettesAdapter.Cass
 
     @Override
     public void onBindViewHolder(CassetteViewHolder cassetteViewHolder, int i) {
-        final CassetteModel cassette = cassetteModelList.get(i);
+        final CassetteModel cassette = differ.getList().get(i);
         String title = cassette.getTitle(),
                 description = cassette.getDescription();
 
@@ -67,7 +84,7 @@ public class CassettesAdapter extends RecyclerView.Adapter<CassettesAdapter.Cass
 
     @Override
     public int getItemCount() {
-        return cassetteModelList.size();
+        return differ.getList().size();
     }
 
     //endregion RecyclerView.Adapter Methods
@@ -76,7 +93,16 @@ public class CassettesAdapter extends RecyclerView.Adapter<CassettesAdapter.Cass
 
     public void setCassetteModelList(Collection<CassetteModel> cassetteModelCollection) {
         validateCassetteCollection(cassetteModelCollection);
-        cassetteModelList = (List<CassetteModel>) cassetteModelCollection;
+        differ.replaceList(cassetteModelCollection);
+    }
+
+    /**
+     * Shows the provided Cassettes, rebinding only those which were inserted, moved or changed.
+     * The list is diffed against the one shown on a background thread.
+     */
+    public void updateCassetteModelList(Collection<CassetteModel> cassetteModelCollection) {
+        validateCassetteCollection(cassetteModelCollection);
+        differ.submitList(cassetteModelCollection);
     }
 
     private void validateCassetteCollection(Collection<CassetteModel> cassetteModelCollection) {
@@ -89,6 +115,10 @@ public class CassettesAdapter extends RecyclerView.Adapter<CassettesAdapter.Cass
         this.onItemClickListener = onItemClickListener;
     }
 
+    private static boolean equal(Object lhs, Object rhs) {
+        return lhs == null ? rhs == null : lhs.equals(rhs);
+    }
+
     //endregion Methods
 
     static class CassetteViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,241 @@
+package andrewtorski.casette.app.view.adapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operations which turn one list of models into another, as RecyclerView.Adapter notifications.
+ * <p/>
+ * Models are matched by id, so ids have to be unique within a list. Models whose id is only in
+ * the old list are removed, those whose id is only in the new list are inserted. Of the models in
+ * both lists, the longest run which keeps its relative order stays put and every other model is
+ * moved once. Models whose content differs are reported as changed at their new position.
+ * <p/>
+ * Calculation takes O(N log N) comparisons plus O(N) per moved or inserted model, which is why it
+ * is done off the main thread. Dispatching is cheap.
+ */
+public final class ListDiff {
+
+    /**
+     * Tells which models are the same and whether their content changed.
+     */
+    public interface ItemComparator<T> {
+        long getId(T item);
+
+        boolean haveSameContent(T oldItem, T newItem);
+    }
+
+    /**
+     * Receives the operations, in the order in which they have to be applied.
+     */
+    public interface UpdateCallback {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        void onChanged(int position, int count);
+    }
+
+    //region Private fields
+
+    private static final int INSERT = 0, REMOVE = 1, MOVE = 2, CHANGE = 3;
+
+    /**
+     * Operations as triples of type and two arguments.
+     */
+    private int[] operations = new int[24];
+    private int operationCount;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    private ListDiff() {
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Calculates operations which turn the old list into the new one.
+     *
+     * @param oldList    List shown now. Must not be modified during calculation.
+     * @param newList    List to be shown.
+     * @param comparator Comparator of the models.
+     * @return Calculated operations.
+     */
+    public static <T> ListDiff calculate(List<T> oldList, List<T> newList,
+                                         ItemComparator<T> comparator) {
+        ListDiff diff = new ListDiff();
+
+        Map<Long, Integer> newPositions = new HashMap<>(newList.size() * 2);
+        for (int i = 0; i < newList.size(); i++) {
+            newPositions.put(comparator.getId(newList.get(i)), i);
+        }
+
+        //  Removals go from the end, so that positions of those still to be removed do not shift.
+        List<Long> current = new ArrayList<>(oldList.size());
+        int[] kept = new int[oldList.size()];
+        int keptCount = 0;
+        for (int i = oldList.size() - 1; i >= 0; i--) {
+            Integer newPosition = newPositions.get(comparator.getId(oldList.get(i)));
+            if (newPosition == null) {
+                diff.add(REMOVE, i, 1);
+            }
+        }
+        for (int i = 0; i < oldList.size(); i++) {
+            long id = comparator.getId(oldList.get(i));
+            Integer newPosition = newPositions.get(id);
+            if (newPosition != null) {
+                current.add(id);
+                kept[keptCount++] = newPosition;
+            }
+        }
+
+        boolean[] isAnchor = new boolean[newList.size()];
+        for (int newPosition : longestIncreasingSubsequence(kept, keptCount)) {
+            isAnchor[newPosition] = true;
+        }
+
+        Map<Long, Integer> oldPositions = new HashMap<>(oldList.size() * 2);
+        for (int i = 0; i < oldList.size(); i++) {
+            oldPositions.put(comparator.getId(oldList.get(i)), i);
+        }
+
+        //  Every other model goes right after the one preceding it in the new list, which is in
+        //  its final place already, as models are placed in order of the new list.
+        for (int i = 0; i < newList.size(); i++) {
+            if (isAnchor[i]) {
+                continue;
+            }
+            long id = comparator.getId(newList.get(i));
+            int target = i == 0 ? 0 : current.indexOf(comparator.getId(newList.get(i - 1))) + 1;
+            if (!oldPositions.containsKey(id)) {
+                current.add(target, id);
+                diff.add(INSERT, target, 1);
+                continue;
+            }
+            int position = current.indexOf(id);
+            if (position < target) {
+                target--;
+            }
+            if (position != target) {
+                current.remove(position);
+                current.add(target, id);
+                diff.add(MOVE, position, target);
+            }
+        }
+
+        for (int i = 0; i < newList.size(); i++) {
+            T newItem = newList.get(i);
+            Integer oldPosition = oldPositions.get(comparator.getId(newItem));
+            if (oldPosition != null
+                    && !comparator.haveSameContent(oldList.get(oldPosition), newItem)) {
+                diff.add(CHANGE, i, 1);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Returns the number of operations, consecutive ones of one type counted as one.
+     */
+    public int getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * Passes the operations to the callback, in order.
+     */
+    public void dispatchTo(UpdateCallback callback) {
+        for (int i = 0; i < operationCount * 3; i += 3) {
+            int first = operations[i + 1], second = operations[i + 2];
+            switch (operations[i]) {
+                case INSERT:
+                    callback.onInserted(first, second);
+                    break;
+                case REMOVE:
+                    callback.onRemoved(first, second);
+                    break;
+                case MOVE:
+                    callback.onMoved(first, second);
+                    break;
+                default:
+                    callback.onChanged(first, second);
+                    break;
+            }
+        }
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    /**
+     * Appends the operation, merging it into the last one if both cover adjacent ranges.
+     */
+    private void add(int type, int first, int second) {
+        if (operationCount > 0 && type != MOVE) {
+            int last = (operationCount - 1) * 3;
+            if (operations[last] == type) {
+                int lastPosition = operations[last + 1], lastCount = operations[last + 2];
+                if ((type == INSERT || type == CHANGE) && first == lastPosition + lastCount) {
+                    operations[last + 2] += second;
+                    return;
+                }
+                if (type == REMOVE && first + second == lastPosition) {
+                    operations[last + 1] = first;
+                    operations[last + 2] += second;
+                    return;
+                }
+            }
+        }
+        if (operations.length < (operationCount + 1) * 3) {
+            operations = Arrays.copyOf(operations, operations.length * 2);
+        }
+        operations[operationCount * 3] = type;
+        operations[operationCount * 3 + 1] = first;
+        operations[operationCount * 3 + 2] = second;
+        operationCount++;
+    }
+
+    /**
+     * Returns the values of the longest increasing subsequence, by patience sorting.
+     */
+    private static int[] longestIncreasingSubsequence(int[] values, int count) {
+        int[] tails = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int low = 0, high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        int[] result = new int[length];
+        for (int i = length - 1, index = length > 0 ? tails[length - 1] : -1; i >= 0; i--) {
+            result[i] = values[index];
+            index = previous[index];
+        }
+        return result;
+    }
+
+    //endregion Private helper methods
+}
@@ -24,10 +24,30 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
 
     //region Private fields
 
+    /**
+     * Recordings are the same if their ids are, the content compared is what a card shows.
+     */
+    private static final ListDiff.ItemComparator<RecordingModel> COMPARATOR =
+            new ListDiff.ItemComparator<RecordingModel>() {
+                @Override
+                public long getId(RecordingModel item) {
+                    return item.getId();
+                }
+
+                @Override
+                public boolean haveSameContent(RecordingModel oldItem, RecordingModel newItem) {
+                    return oldItem.getLengthInMilliseconds() == newItem.getLengthInMilliseconds()
+                            && (oldItem.getDateTimeOfRecording() == null
+                            ? newItem.getDateTimeOfRecording() == null
+                            : oldItem.getDateTimeOfRecording().equals(newItem.getDateTimeOfRecording()));
+                }
+            };
+
     /**
      * Adapted list.
      */
-    private List<RecordingModel> recordingModelList;
+    private final BackgroundListDiffer<RecordingModel> differ =
+            new BackgroundListDiffer<>(this, COMPARATOR);
 
     /**
      * On item click listener.
@@ -39,7 +59,7 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
     //region Constructor
 
     public RecordingsAdapter(List<RecordingModel> recordingModelList) {
-        this.recordingModelList = recordingModelList;
+        this.differ.replaceList(recordingModelList);
     }
 
     //endregion Constructors
@@ -48,7 +68,16 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
 
     public void setRecordingModelList(Collection<RecordingModel> recordingModelCollection) {
         validateCassetteCollection(recordingModelCollection);
-        this.recordingModelList = (List<RecordingModel>) recordingModelCollection;
+        this.differ.replaceList(recordingModelCollection);
+    }
+
+    /**
+     * Shows the provided Recordings, rebinding only those which were inserted, moved or changed.
+     * The list is diffed against the one shown on a background thread.
+     */
+    public void updateRecordingModelList(Collection<RecordingModel> recordingModelCollection) {
+        validateCassetteCollection(recordingModelCollection);
+        this.differ.submitList(recordingModelCollection);
     }
 
     public void setOnItemClickListener(RecordingsAdapter.OnItemClickListener onItemClickListener) {
@@ -79,7 +108,7 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
 
     @Override
     public void onBindViewHolder(RecordingViewHolder holder, int position) {
-        final RecordingModel currentRecording = this.recordingModelList.get(position);
+        final RecordingModel currentRecording = this.differ.getList().get(position);
         holder.bind(currentRecording);
 
         holder.itemView.setOnClickListener(new View.OnClickListener() {
@@ -94,7 +123,7 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
 
     @Override
     public int getItemCount() {
-        return this.recordingModelList.size();
+        return this.differ.getList().size();
     }
 
     //endregion RecyclerView.Adapter<RecordingsAdapter.RecordingViewHolder> methods
@@ -213,7 +213,9 @@ public class CassetteDetailsFragment extends BaseFragment implements CassetteDet
     public void renderCassetteAndRecordings(CassetteModel cassetteModel) {
         Log.d(TAG, "Rendering cassette and recordings...");
         this.bind(cassetteModel);
-        recordingsAdapter.setRecordingModelList(cassetteModel.getRecordingModelList());
+        if (cassetteModel.getRecordingModelList() != null) {
+            recordingsAdapter.updateRecordingModelList(cassetteModel.getRecordingModelList());
+        }
         Log.d(TAG, "Rendered cassette and recordings.");
 
     }
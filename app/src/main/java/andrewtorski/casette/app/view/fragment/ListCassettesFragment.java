@@ -162,7 +162,7 @@ public class ListCassettesFragment extends BaseFragment implements ListCassettes
     public void renderCassetteList(Collection<CassetteModel> cassetteModelCollection) {
         Log.d(TAG, "Rendering cassette list...");
         if (cassetteModelCollection != null) {
-            this.cassettesAdapter.setCassetteModelList(cassetteModelCollection);
+            this.cassettesAdapter.updateCassetteModelList(cassetteModelCollection);
         }
         Log.d(TAG, "Rendered cassette list...");
     }
@@ -276,6 +276,44 @@ public class CassetteDataDbAdapterTest extends AndroidTestCase {
         assertEquals(0, count);
     }
 
+    public void test_updateDateTimeOfLastPlayback() {
+        //  Arrange
+        long id = testedAdapter.create("title", "desc", 12000);
+        testedAdapter.update(id, "title", "desc", 12, 1, 1, "path", 13000, "hash");
+
+        //  Act
+        boolean wasSuccess = testedAdapter.updateDateTimeOfLastPlayback(id, 14000);
+
+        //  Assert
+        assertTrue(wasSuccess);
+        Cursor cursor = testedAdapter.getById(id);
+        CassetteEntity cassetteEntity = CassetteEntity.createFromCursor(cursor);
+        cursor.close();
+        assertEquals(14000, cassetteEntity.dateTimeOfLastPlayback);
+        assertEquals(1, cassetteEntity.isCompiled);
+        assertEquals("path", cassetteEntity.compiledFilePath);
+        assertEquals("hash", cassetteEntity.compiledInputsHash);
+    }
+
+    public void test_addToLength() {
+        //  Arrange
+        long id = testedAdapter.create("title", "desc", 12000);
+        testedAdapter.update(id, "title", "desc", 1000, 1, 1, "path", 13000, "hash");
+
+        //  Act
+        boolean wasSuccess = testedAdapter.addToLength(id, -250);
+
+        //  Assert
+        assertTrue(wasSuccess);
+        Cursor cursor = testedAdapter.getById(id);
+        CassetteEntity cassetteEntity = CassetteEntity.createFromCursor(cursor);
+        cursor.close();
+        assertEquals(750, cassetteEntity.length);
+        assertEquals(1, cassetteEntity.isCompiled);
+        assertEquals("path", cassetteEntity.compiledFilePath);
+        assertFalse(testedAdapter.addToLength(id + 1, 10));
+    }
+
     public void test_deleting_EntityThatDoesntExist() {
         //  Arrange
         long id = 23;
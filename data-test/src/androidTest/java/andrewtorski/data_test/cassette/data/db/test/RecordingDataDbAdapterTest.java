@@ -362,6 +362,95 @@ public class RecordingDataDbAdapterTest extends AndroidTestCase {
         RecordingEntity recordingEntity = RecordingEntity.createFromCursor(cursor);
     }
 
+    /**
+     * Test for #createAll method.
+     * <p/>
+     * 1.   Persist a Cassette.
+     * 2.   Insert five Recordings in chunks of two, the fourth pointing to a nonexistent Cassette.
+     * 3.   Assert that only the fourth insertion failed and the others can be retrieved.
+     */
+    public void test_createAll() {
+        //  Arrange
+        Cassette cassette = getSimpleCassette();
+        cassette = cassetteRepository.create(cassette);
+        long[] cassetteIds = {cassette.getId(), cassette.getId(), cassette.getId(), -3,
+                cassette.getId()};
+        int[] sequences = {1, 2, 3, 4, 5};
+        long[] dates = {1, 2, 3, 4, 5};
+        String[] paths = {"a", "b", "c", "d", "e"};
+        int[] lengths = {10, 20, 30, 40, 50};
+        String[] codecs = {"amr_nb", null, "pcm", null, null};
+        int[] sampleRates = {8000, 0, 16000, 0, 0};
+        int[] channels = {1, 0, 1, 0, 0};
+
+        //  Act
+        long[] ids = recordingAdapter.createAll(cassetteIds, sequences, dates, paths, lengths,
+                codecs, sampleRates, channels, 2);
+
+        //  Assert
+        assertEquals(5, ids.length);
+        assertEquals(-1, ids[3]);
+        for (int i : new int[]{0, 1, 2, 4}) {
+            assertTrue(ids[i] != -1);
+            RecordingEntity entity = RecordingEntity.createFromCursor(
+                    recordingAdapter.getById(ids[i]));
+            assertNotNull(entity);
+            assertEquals(paths[i], entity.audioFilePath);
+            assertEquals(lengths[i], entity.length);
+            assertEquals(codecs[i], entity.audioCodec);
+            assertEquals(sampleRates[i], entity.audioSampleRate);
+        }
+    }
+
+    public void test_updateAudioFileInfo() {
+        //  Arrange
+        Cassette cassette = getSimpleCassette();
+        cassette = cassetteRepository.create(cassette);
+        RecordingEntity recording = getSimpleRecording();
+        recording.cassetteId = cassette.getId();
+        recording = persistRecording(recordingAdapter, recording);
+
+        //  Act
+        boolean updateWasSuccess = recordingAdapter.updateAudioFileInfo(recording.id, 1300,
+                "amr_nb", 8000, 1);
+
+        //  Assert
+        assertTrue(updateWasSuccess);
+        RecordingEntity retrievedRecording = RecordingEntity.createFromCursor(
+                recordingAdapter.getById(recording.id));
+        assertEquals(1300, retrievedRecording.length);
+        assertEquals("amr_nb", retrievedRecording.audioCodec);
+        assertEquals(8000, retrievedRecording.audioSampleRate);
+        assertEquals(1, retrievedRecording.audioChannels);
+
+        //  Act
+        recordingAdapter.swapAudioFile(recording.id, recording.audioFilePath, "other", "wav-pcm");
+
+        //  Assert
+        retrievedRecording = RecordingEntity.createFromCursor(recordingAdapter.getById(recording.id));
+        assertNull(retrievedRecording.audioCodec);
+    }
+
+    public void test_changingRecordingsMarksCassetteNotCompiled() {
+        //  Arrange
+        Cassette cassette = cassetteRepository.create(getSimpleCassette());
+        RecordingEntity recording = getSimpleRecording();
+        recording.cassetteId = cassette.getId();
+        recording = persistRecording(recordingAdapter, recording);
+        cassette.setCompiled(true);
+        cassette.setCompiledFilePath("compiled.wav");
+        cassette.setCompiledInputsHash("hash");
+        cassetteRepository.update(cassette);
+
+        //  Act
+        recordingAdapter.swapAudioFile(recording.id, recording.audioFilePath, "other", "wav-pcm");
+
+        //  Assert
+        Cassette retrievedCassette = cassetteRepository.get(cassette.getId());
+        assertFalse(retrievedCassette.isCompiled());
+        assertEquals("hash", retrievedCassette.getCompiledInputsHash());
+    }
+
 
     //region Private helper methods
 
@@ -0,0 +1,73 @@
+package andrewtorski.data_test.cassette.data.db.test;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import andrewtorski.cassette.data.db.CassetteAppDbHelper;
+import andrewtorski.cassette.data.db.CassetteDataDbAdapter;
+import andrewtorski.cassette.data.db.RecordingDataDbAdapter;
+import andrewtorski.cassette.data.db.RowCountDbAdapter;
+import andrewtorski.cassette.data.db.schema.CassetteDbContract;
+import andrewtorski.global.GlobalValues;
+
+/**
+ * Tests that counts kept by triggers follow the Cassette and Recording tables.
+ */
+public class RowCountDbAdapterTest extends AndroidTestCase {
+
+    private RenamingDelegatingContext context;
+    private CassetteDataDbAdapter cassetteAdapter;
+    private RecordingDataDbAdapter recordingAdapter;
+    private RowCountDbAdapter rowCountAdapter;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = new RenamingDelegatingContext(getContext(), "test_");
+        GlobalValues.setContext(context);
+        cassetteAdapter = CassetteDataDbAdapter.getInstance().open();
+        recordingAdapter = RecordingDataDbAdapter.getInstance().open();
+        rowCountAdapter = RowCountDbAdapter.getInstance().open();
+    }
+
+    public void test_counts_followInsertsMovesAndCascadingDeletes() {
+        //  Arrange
+        long firstCassetteId = cassetteAdapter.create("first", "", 0),
+                secondCassetteId = cassetteAdapter.create("second", "", 0);
+        long movedRecordingId = recordingAdapter.create(firstCassetteId, 1, 0, "path1", 10);
+        recordingAdapter.create(firstCassetteId, 2, 0, "path2", 10);
+        recordingAdapter.create(secondCassetteId, 1, 0, "path3", 10);
+
+        //  Act
+        new CassetteAppDbHelper(context).getWritableDatabase().execSQL("UPDATE "
+                + CassetteDbContract.RecordingTable.TABLE_NAME + " SET "
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_CASSETTE_ID + " = " + secondCassetteId
+                + " WHERE " + CassetteDbContract.RecordingTable.COLUMN_NAME_ID + " = " + movedRecordingId);
+        cassetteAdapter.delete(firstCassetteId);
+
+        //  Assert
+        assertEquals(1, cassetteAdapter.count());
+        assertEquals(2, recordingAdapter.count());
+        assertEquals(0, recordingAdapter.countForCassette(firstCassetteId));
+        assertEquals(2, recordingAdapter.countForCassette(secondCassetteId));
+        assertTrue(rowCountAdapter.areCountsConsistent());
+    }
+
+    public void test_checkCounts_rebuildsWrongCounts() {
+        //  Arrange
+        long cassetteId = cassetteAdapter.create("title", "", 0);
+        recordingAdapter.create(cassetteId, 1, 0, "path", 10);
+        new CassetteAppDbHelper(context).getWritableDatabase().execSQL("UPDATE "
+                + CassetteDbContract.RowCountTable.TABLE_NAME + " SET "
+                + CassetteDbContract.RowCountTable.COLUMN_NAME_COUNT + " = 42");
+
+        //  Act
+        boolean wereRebuilt = rowCountAdapter.checkCounts();
+
+        //  Assert
+        assertTrue(wereRebuilt);
+        assertEquals(1, cassetteAdapter.count());
+        assertEquals(1, recordingAdapter.countForCassette(cassetteId));
+        assertFalse(rowCountAdapter.checkCounts());
+    }
+}
@@ -0,0 +1,123 @@
+package andrewtorski.data_test.cassette.data.log.test;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import andrewtorski.cassette.data.log.RecordLog;
+
+public class RecordLogTest extends AndroidTestCase {
+
+    private File file;
+    private RecordLog log;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = new File(getContext().getCacheDir(), "test_record.log");
+        file.delete();
+        log = new RecordLog(file);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        log.close();
+        file.delete();
+        super.tearDown();
+    }
+
+    public void test_nextId_deletedLargestIdIsNotReusedAfterCompactionAndReopening() throws Exception {
+        //  Arrange
+        long first = log.nextId();
+        log.put(first, new byte[]{1});
+        long largest = log.nextId();
+        log.put(largest, new byte[]{2});
+        log.delete(largest);
+        log.compact();
+
+        //  Act
+        log.close();
+        log = new RecordLog(file);
+        long next = log.nextId();
+
+        //  Assert
+        assertTrue(next > largest);
+        assertEquals(1, log.size());
+        assertEquals(0, log.getDeadBytes());
+    }
+
+    public void test_recover_tornTailIsCutOff() throws Exception {
+        //  Arrange
+        log.put(1, new byte[]{1, 2, 3});
+        long intactLength = log.getLength();
+        log.put(2, new byte[]{4, 5, 6});
+        log.close();
+        RandomAccessFile torn = new RandomAccessFile(file, "rw");
+        try {
+            torn.setLength(torn.length() - 2);
+        } finally {
+            torn.close();
+        }
+
+        //  Act
+        log = new RecordLog(file);
+
+        //  Assert
+        assertEquals(intactLength, log.getLength());
+        assertEquals(3, log.get(1)[2]);
+        assertNull(log.get(2));
+        log.put(3, new byte[]{7});
+        log.close();
+        log = new RecordLog(file);
+        assertEquals(7, log.get(3)[0]);
+        assertEquals(2, log.size());
+    }
+
+    public void test_compact_writesMadeDuringCompactionAreKept() throws Exception {
+        //  Arrange
+        final Map<Long, Byte> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            long id = 1 + i % 1000;
+            log.put(id, new byte[256]);
+            expected.put(id, (byte) 0);
+        }
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 2000; i++) {
+                        long id = 1 + i % 1200;
+                        if (i % 7 == 0) {
+                            log.delete(id);
+                            expected.remove(id);
+                        } else {
+                            log.put(id, new byte[]{(byte) i});
+                            expected.put(id, (byte) i);
+                        }
+                    }
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        });
+
+        //  Act
+        writer.start();
+        log.compact();
+        writer.join();
+        log.close();
+        log = new RecordLog(file);
+
+        //  Assert
+        assertNull(failure.get());
+        assertEquals(expected.size(), log.size());
+        for (Map.Entry<Long, Byte> entry : expected.entrySet()) {
+            assertEquals((byte) entry.getValue(), log.get(entry.getKey())[0]);
+        }
+    }
+}
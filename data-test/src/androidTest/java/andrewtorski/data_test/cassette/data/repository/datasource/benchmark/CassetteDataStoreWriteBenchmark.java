@@ -0,0 +1,133 @@
+package andrewtorski.data_test.cassette.data.repository.datasource.benchmark;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Locale;
+
+import andrewtorski.cassette.data.entity.CassetteEntity;
+import andrewtorski.cassette.data.log.RecordLog;
+import andrewtorski.cassette.data.repository.datasource.CassetteDataStore;
+import andrewtorski.cassette.data.repository.datasource.DbCassetteDataStore;
+import andrewtorski.cassette.data.repository.datasource.LogCassetteDataStore;
+import andrewtorski.cassette.data.repository.datasource.LogRecordingDataStore;
+import andrewtorski.global.GlobalValues;
+
+/**
+ * Write throughput of the SQLite and the log-structured CassetteDataStore: creating Cassettes,
+ * then updating each of them a few times, one call per write as the repositories do.
+ * <p/>
+ * Run on a device with the rest of the instrumentation tests; results are logged under the
+ * "DataStoreBenchmark" tag. Every SQLite write is a transaction of its own, committed to the
+ * disk, while the log leaves its writes to the operating system until it is synced, so the log
+ * is also measured with a sync after every write, which is the fair comparison for durability.
+ */
+public class CassetteDataStoreWriteBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "DataStoreBenchmark";
+
+    private static final int CASSETTES = 500;
+    private static final int UPDATES_PER_CASSETTE = 4;
+
+    private File cassetteFile;
+    private File recordingFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context = new RenamingDelegatingContext(getContext(), "benchmark_");
+        GlobalValues.setContext(context);
+        cassetteFile = new File(getContext().getCacheDir(), "benchmark_cassettes.log");
+        recordingFile = new File(getContext().getCacheDir(), "benchmark_recordings.log");
+        cassetteFile.delete();
+        recordingFile.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cassetteFile.delete();
+        recordingFile.delete();
+        super.tearDown();
+    }
+
+    public void test_dbCassetteDataStore() {
+        CassetteDataStore dataStore = new DbCassetteDataStore();
+
+        measure("DbCassetteDataStore", dataStore, null);
+    }
+
+    public void test_logCassetteDataStore() throws Exception {
+        LogRecordingDataStore recordingDataStore = new LogRecordingDataStore(recordingFile);
+        LogCassetteDataStore dataStore = new LogCassetteDataStore(cassetteFile, recordingDataStore);
+        try {
+            measure("LogCassetteDataStore", dataStore, null);
+        } finally {
+            dataStore.close();
+            recordingDataStore.close();
+        }
+    }
+
+    public void test_logCassetteDataStore_syncedEveryWrite() throws Exception {
+        LogRecordingDataStore recordingDataStore = new LogRecordingDataStore(recordingFile);
+        RecordLog log = new RecordLog(cassetteFile);
+        LogCassetteDataStore dataStore = new LogCassetteDataStore(log, recordingDataStore);
+        try {
+            measure("LogCassetteDataStore, synced", dataStore, log);
+        } finally {
+            dataStore.close();
+            recordingDataStore.close();
+        }
+    }
+
+    //region Private helper methods
+
+    /**
+     * Creates and updates Cassettes, logs the throughput of both and checks that they were
+     * written.
+     *
+     * @param log Log to sync after every write, or null.
+     */
+    private void measure(String name, CassetteDataStore dataStore, RecordLog log) {
+        long[] ids = new long[CASSETTES];
+        int countBefore = dataStore.count();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CASSETTES; i++) {
+            ids[i] = dataStore.create(new CassetteEntity("title " + i, "description " + i, new Date())).id;
+            sync(log);
+        }
+        long createNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int update = 0; update < UPDATES_PER_CASSETTE; update++) {
+            for (long id : ids) {
+                CassetteEntity cassetteEntity = new CassetteEntity(id, "title " + update, "description",
+                        0, update, update, 0, null, 0);
+                assertTrue(dataStore.update(cassetteEntity));
+                sync(log);
+            }
+        }
+        long updateNanos = System.nanoTime() - start;
+
+        Log.i(TAG, String.format(Locale.US, "%s: %.0f creates/s, %.0f updates/s", name,
+                CASSETTES * 1e9 / createNanos, CASSETTES * UPDATES_PER_CASSETTE * 1e9 / updateNanos));
+        assertEquals(countBefore + CASSETTES, dataStore.count());
+    }
+
+    private static void sync(RecordLog log) {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.sync();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //endregion Private helper methods
+}
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import andrewtorski.cassette.data.db.helper.InClause;
 import andrewtorski.cassette.data.entity.CassetteEntity;
 import andrewtorski.cassette.data.repository.datasource.CassetteDataStore;
 import andrewtorski.cassette.data.repository.datasource.DbCassetteDataStore;
@@ -213,4 +214,27 @@ public class DbCassetteDataStoreTest extends AndroidTestCase {
         assertEquals(2, cassetteEntityList.get(1).id);
         assertEquals(3, cassetteEntityList.get(2).id);
     }
+
+    /**
+     * Persist more entities than fit into one IN (...) query, then get some of them in an order
+     * of their own, asking for one which does not exist as well.
+     */
+    public void test_getAll_byIds_keepsRequestedOrder() {
+        //  Arrange
+        int count = InClause.MAX_VALUES + 10;
+        for (int i = 0; i < count; i++) {
+            dataStore.create(getSimpleCassette());
+        }
+        long[] ids = {count, 3, count + 100, 1, InClause.MAX_VALUES + 1};
+
+        //  Act
+        List<CassetteEntity> cassetteEntityList = dataStore.getAll(ids);
+
+        //  Assert
+        assertEquals(4, cassetteEntityList.size());
+        assertEquals(count, cassetteEntityList.get(0).id);
+        assertEquals(3, cassetteEntityList.get(1).id);
+        assertEquals(1, cassetteEntityList.get(2).id);
+        assertEquals(InClause.MAX_VALUES + 1, cassetteEntityList.get(3).id);
+    }
 }
@@ -13,6 +13,9 @@ import andrewtorski.cassette.data.repository.datasource.DbCassetteDataStore;
 import andrewtorski.cassette.data.repository.datasource.DbRecordingDataStore;
 import andrewtorski.cassette.data.repository.datasource.RecordingDataStore;
 import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.repository.CloseableIterator;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
 import andrewtorski.cassette.domain.repository.CassetteRepository;
 import andrewtorski.global.GlobalValues;
 
@@ -140,6 +143,68 @@ public class DbRecordingDataStoreTest extends AndroidTestCase {
         }
     }
 
+    public void test_getIteratorBetweenDatesForCassette_newestFirst() {
+        //  Arrange
+        Cassette cassette1 = cassetteRepository.create(getSimpleCassette()),
+                cassette2 = cassetteRepository.create(getSimpleCassette());
+
+        RecordingEntity recordingEntity;
+        for (int i = 1; i <= 5; i++) {
+            recordingEntity = getSimpleRecording();
+            recordingEntity.cassetteId = cassette1.getId();
+            recordingEntity.dateTimeOfRecording = i * 100;
+            dataStore.create(recordingEntity);
+        }
+        recordingEntity = getSimpleRecording();
+        recordingEntity.cassetteId = cassette2.getId();
+        recordingEntity.dateTimeOfRecording = 300;
+        dataStore.create(recordingEntity);
+
+        //  Act
+        CloseableIterator<RecordingEntity> iterator
+                = dataStore.getIteratorBetweenDatesForCassette(cassette1.getId(), 200, 400);
+
+        //  Assert
+        try {
+            for (long expectedDateTime = 400; expectedDateTime >= 200; expectedDateTime -= 100) {
+                assertTrue(iterator.hasNext());
+                RecordingEntity recording = iterator.next();
+                assertEquals(cassette1.getId(), recording.cassetteId);
+                assertEquals(expectedDateTime, recording.dateTimeOfRecording);
+            }
+            assertFalse(iterator.hasNext());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    public void test_getStatisticsForCassette_groupsByDay() {
+        //  Arrange
+        Cassette cassette = cassetteRepository.create(getSimpleCassette());
+        long firstDay = TimeBucket.DAY.getStart(new Date()),
+                secondDay = firstDay + 26 * 60 * 60 * 1000;
+        long[] datesTimeOfRecording = {firstDay, firstDay + 60 * 1000, secondDay};
+
+        for (long dateTimeOfRecording : datesTimeOfRecording) {
+            RecordingEntity recordingEntity = getSimpleRecording();
+            recordingEntity.cassetteId = cassette.getId();
+            recordingEntity.dateTimeOfRecording = dateTimeOfRecording;
+            dataStore.create(recordingEntity);
+        }
+
+        //  Act
+        RecordingStatistics statistics = dataStore.getStatisticsForCassette(cassette.getId(), TimeBucket.DAY,
+                firstDay, secondDay);
+
+        //  Assert
+        assertEquals(2, statistics.size());
+        assertEquals(firstDay, statistics.getBucketStarts()[0]);
+        assertEquals(2, statistics.getRecordingCounts()[0]);
+        assertEquals(2 * getSimpleRecording().length, statistics.getTotalLengths()[0]);
+        assertEquals(TimeBucket.DAY.getStart(new Date(secondDay)), statistics.getBucketStarts()[1]);
+        assertEquals(1, statistics.getRecordingCounts()[1]);
+    }
+
     public void test_update() {
         //  Arrange
         Cassette cassette = getSimpleCassette();
@@ -0,0 +1,105 @@
+package andrewtorski.data_test.cassette.data.repository.datasource.test;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.Date;
+
+import andrewtorski.cassette.data.entity.CassetteEntity;
+import andrewtorski.cassette.data.entity.RecordingEntity;
+import andrewtorski.cassette.data.log.RecordLog;
+import andrewtorski.cassette.data.repository.datasource.LogCassetteDataStore;
+import andrewtorski.cassette.data.repository.datasource.LogRecordingDataStore;
+
+public class LogCassetteDataStoreTest extends AndroidTestCase {
+
+    private File cassetteFile;
+    private File recordingFile;
+    private LogRecordingDataStore recordingDataStore;
+    private LogCassetteDataStore dataStore;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cassetteFile = new File(getContext().getCacheDir(), "test_cassettes.log");
+        recordingFile = new File(getContext().getCacheDir(), "test_recordings.log");
+        cassetteFile.delete();
+        recordingFile.delete();
+        open();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        dataStore.close();
+        recordingDataStore.close();
+        cassetteFile.delete();
+        recordingFile.delete();
+        super.tearDown();
+    }
+
+    public void test_update_isReadBackAfterReopening() throws Exception {
+        //  Arrange
+        CassetteEntity cassette = dataStore.create(new CassetteEntity("title", "desc", new Date()));
+        cassette.title = "new title";
+        dataStore.update(cassette);
+        dataStore.updateDateTimeOfLastPlayback(cassette.id, 42);
+
+        //  Act
+        dataStore.close();
+        recordingDataStore.close();
+        open();
+        CassetteEntity readCassette = dataStore.get(cassette.id);
+
+        //  Assert
+        assertEquals(1, dataStore.count());
+        assertEquals("new title", readCassette.title);
+        assertEquals(42, readCassette.dateTimeOfLastPlayback);
+    }
+
+    public void test_delete_deletesRecordingsOfCassette() {
+        //  Arrange
+        CassetteEntity cassette = dataStore.create(new CassetteEntity("title", "desc", new Date()));
+        for (int i = 0; i < 3; i++) {
+            recordingDataStore.create(new RecordingEntity(-1, cassette.id, "title", "desc",
+                    new Date().getTime(), 12, "path" + i, i));
+        }
+
+        //  Act
+        boolean deleted = dataStore.delete(cassette.id);
+
+        //  Assert
+        assertTrue(deleted);
+        assertNull(dataStore.get(cassette.id));
+        assertEquals(0, recordingDataStore.count());
+    }
+
+    public void test_compact_keepsLatestVersions() throws Exception {
+        //  Arrange
+        File file = new File(getContext().getCacheDir(), "test_compacted.log");
+        file.delete();
+        RecordLog log = new RecordLog(file);
+        try {
+            for (int i = 0; i < 100; i++) {
+                log.put(1 + i % 10, new byte[]{(byte) i});
+            }
+            log.delete(10);
+
+            //  Act
+            log.compact();
+
+            //  Assert
+            assertEquals(0, log.getDeadBytes());
+            assertEquals(9, log.size());
+            assertEquals((byte) 90, log.get(1)[0]);
+            assertNull(log.get(10));
+        } finally {
+            log.close();
+            file.delete();
+        }
+    }
+
+    private void open() throws Exception {
+        recordingDataStore = new LogRecordingDataStore(recordingFile);
+        dataStore = new LogCassetteDataStore(cassetteFile, recordingDataStore);
+    }
+}
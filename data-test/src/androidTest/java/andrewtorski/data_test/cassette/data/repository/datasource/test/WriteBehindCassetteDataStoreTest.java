@@ -0,0 +1,74 @@
+package andrewtorski.data_test.cassette.data.repository.datasource.test;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.util.Date;
+
+import andrewtorski.cassette.data.entity.CassetteEntity;
+import andrewtorski.cassette.data.repository.datasource.DbCassetteDataStore;
+import andrewtorski.cassette.data.repository.datasource.WriteBehindCassetteDataStore;
+import andrewtorski.global.GlobalValues;
+
+public class WriteBehindCassetteDataStoreTest extends AndroidTestCase {
+
+    /**
+     * Long enough for nothing to be flushed by the timer during a test.
+     */
+    private static final long FLUSH_DELAY_MILLISECONDS = 60000;
+
+    private DbCassetteDataStore dbDataStore;
+    private WriteBehindCassetteDataStore dataStore;
+    private CassetteEntity cassette;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context = new RenamingDelegatingContext(getContext(), "text_");
+        GlobalValues.setContext(context);
+        dbDataStore = new DbCassetteDataStore();
+        dataStore = new WriteBehindCassetteDataStore(dbDataStore, FLUSH_DELAY_MILLISECONDS);
+
+        cassette = dbDataStore.create(new CassetteEntity("title", "desc", new Date()));
+    }
+
+    public void test_update_titleEditsAreCoalescedIntoOneWrite() {
+        //  Arrange
+        String[] typedTitles = {"T", "Ti", "Tit"};
+
+        //  Act
+        for (String title : typedTitles) {
+            CassetteEntity edited = dbDataStore.get(cassette.id);
+            edited.title = title;
+            dataStore.update(edited);
+        }
+
+        //  Assert
+        assertEquals("Tit", dataStore.get(cassette.id).title);
+        assertFalse("Tit".equals(dbDataStore.get(cassette.id).title));
+        assertEquals(1, dataStore.flush());
+        assertEquals("Tit", dbDataStore.get(cassette.id).title);
+    }
+
+    public void test_update_compileStateIsWrittenAtOnceAndNotOverwrittenByPendingEdit() {
+        //  Arrange
+        CassetteEntity edited = dbDataStore.get(cassette.id);
+        edited.title = "edited";
+        dataStore.update(edited);
+        CassetteEntity compiled = dataStore.get(cassette.id);
+        compiled.isCompiled = 1;
+        compiled.compiledFilePath = "compiled";
+
+        //  Act
+        boolean updateWasSuccessful = dataStore.update(compiled);
+        int flushed = dataStore.flush();
+
+        //  Assert
+        assertTrue(updateWasSuccessful);
+        assertEquals(0, flushed);
+        CassetteEntity stored = dbDataStore.get(cassette.id);
+        assertEquals(1, stored.isCompiled);
+        assertEquals("compiled", stored.compiledFilePath);
+        assertEquals("edited", stored.title);
+    }
+}
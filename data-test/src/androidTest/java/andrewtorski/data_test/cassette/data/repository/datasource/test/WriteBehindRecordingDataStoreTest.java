@@ -0,0 +1,73 @@
+package andrewtorski.data_test.cassette.data.repository.datasource.test;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.util.Date;
+
+import andrewtorski.cassette.data.entity.RecordingEntity;
+import andrewtorski.cassette.data.repository.CassetteDataRepository;
+import andrewtorski.cassette.data.repository.datasource.DbCassetteDataStore;
+import andrewtorski.cassette.data.repository.datasource.DbRecordingDataStore;
+import andrewtorski.cassette.data.repository.datasource.WriteBehindRecordingDataStore;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.repository.CassetteRepository;
+import andrewtorski.global.GlobalValues;
+
+public class WriteBehindRecordingDataStoreTest extends AndroidTestCase {
+
+    /**
+     * Long enough for nothing to be flushed by the timer during a test.
+     */
+    private static final long FLUSH_DELAY_MILLISECONDS = 60000;
+
+    private DbRecordingDataStore dbDataStore;
+    private WriteBehindRecordingDataStore dataStore;
+    private RecordingEntity recording;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context = new RenamingDelegatingContext(getContext(), "text_");
+        GlobalValues.setContext(context);
+        CassetteRepository cassetteRepository = new CassetteDataRepository(new DbCassetteDataStore());
+        dbDataStore = new DbRecordingDataStore();
+        dataStore = new WriteBehindRecordingDataStore(dbDataStore, FLUSH_DELAY_MILLISECONDS);
+
+        Cassette cassette = cassetteRepository.create(new Cassette("title", "desc"));
+        recording = dbDataStore.create(new RecordingEntity(-1, cassette.getId(), "title", "desc",
+                new Date().getTime(), 12, "path", 1));
+    }
+
+    public void test_update_pendingValuesAreReadAndCoalescedIntoOneWrite() {
+        //  Arrange
+        String[] typedTitles = {"T", "Ti", "Tit"};
+
+        //  Act
+        for (String title : typedTitles) {
+            RecordingEntity edited = dbDataStore.get(recording.id);
+            edited.title = title;
+            dataStore.update(edited);
+        }
+
+        //  Assert
+        assertEquals("Tit", dataStore.get(recording.id).title);
+        assertFalse("Tit".equals(dbDataStore.get(recording.id).title));
+        assertEquals(1, dataStore.flush());
+        assertEquals("Tit", dbDataStore.get(recording.id).title);
+    }
+
+    public void test_delete_dropsPendingUpdate() {
+        //  Arrange
+        RecordingEntity edited = dbDataStore.get(recording.id);
+        edited.title = "edited";
+        dataStore.update(edited);
+
+        //  Act
+        boolean deleteWasSuccessful = dataStore.delete(recording.id);
+
+        //  Assert
+        assertTrue(deleteWasSuccessful);
+        assertEquals(0, dataStore.flush());
+    }
+}
@@ -3,6 +3,7 @@ package andrewtorski.data_test.cassette.data.repository.test;
 import android.test.AndroidTestCase;
 import android.test.RenamingDelegatingContext;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -15,6 +16,8 @@ import andrewtorski.cassette.data.repository.datasource.RecordingDataStore;
 import andrewtorski.cassette.domain.entity.Cassette;
 import andrewtorski.cassette.domain.entity.Recording;
 import andrewtorski.cassette.domain.repository.CassetteRepository;
+import andrewtorski.cassette.domain.repository.ChangeListener;
+import andrewtorski.cassette.domain.repository.ChangeSet;
 import andrewtorski.cassette.domain.repository.RecordingRepository;
 import andrewtorski.global.GlobalValues;
 
@@ -102,6 +105,29 @@ public class RecordingDataRepositoryTest extends AndroidTestCase {
         assertEquals(0, recordingRepository.count());
     }
 
+    public void test_createAll_publishesOneChangeSet() {
+        //  Arrange
+        Cassette cassette = cassetteRepository.create(getSimpleCassette());
+        List<Recording> recordings = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            recordings.add(getSimpleRecording(cassette.getId()));
+        }
+        final List<ChangeSet> published = new ArrayList<>();
+        recordingRepository.getChangeNotifier().addListener(new ChangeListener() {
+            @Override
+            public void onChange(ChangeSet changes) {
+                published.add(changes);
+            }
+        });
+
+        //  Act
+        recordings = recordingRepository.createAll(recordings);
+
+        //  Assert
+        assertEquals(1, published.size());
+        assertEquals(3, published.get(0).getCreatedIds().length);
+        assertEquals(ChangeSet.Type.CREATED, published.get(0).getType(recordings.get(2).getId()));
+    }
 
     private static Cassette getSimpleCassette() {
         long id = -2;
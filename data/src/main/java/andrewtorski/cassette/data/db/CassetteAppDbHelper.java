@@ -8,6 +8,8 @@ import andrewtorski.cassette.data.db.schema.CassetteDbContract;
 
 /**
  * Gives access to Cassette App's SQLite database.
+ * All data adapters open the database through this helper, so that the schema is created and
+ * upgraded in one place.
  */
 public class CassetteAppDbHelper extends SQLiteOpenHelper {
 
@@ -19,12 +21,62 @@ public class CassetteAppDbHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(CassetteDbContract.CassetteTable.getCreateTableStatement());
         db.execSQL(CassetteDbContract.RecordingTable.getCreateTableStatement());
+        db.execSQL(CassetteDbContract.RecordingTable.getCreateDateTimeOfRecordingIndexStatement());
+        for (String statement : CassetteDbContract.CassetteTable.getCreateTriggerStatements()) {
+            db.execSQL(statement);
+        }
+        db.execSQL(CassetteDbContract.RowCountTable.getCreateTableStatement());
+        for (String statement : CassetteDbContract.RowCountTable.getRebuildStatements()) {
+            db.execSQL(statement);
+        }
+        for (String statement : CassetteDbContract.RowCountTable.getCreateTriggerStatements()) {
+            db.execSQL(statement);
+        }
     }
 
+    /**
+     * Brings the schema from the provided version to the current one step by step, keeping the
+     * Cassettes and Recordings of the user. Each step adds what its version introduced.
+     */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL(CassetteDbContract.RecordingTable.getDropTableStatement());
-        db.execSQL(CassetteDbContract.CassetteTable.getDropTableStatement());
-        onCreate(db);
+        if (oldVersion < 2) {
+            //  Storage tiering.
+            db.execSQL(CassetteDbContract.RecordingTable.getAddColumnStatement(
+                    CassetteDbContract.RecordingTable.COLUMN_AUDIO_STORAGE_FORMAT));
+            db.execSQL(CassetteDbContract.RecordingTable.getCreateDateTimeOfRecordingIndexStatement());
+        }
+        if (oldVersion < 3) {
+            //  Audio file info probed from headers.
+            db.execSQL(CassetteDbContract.RecordingTable.getAddColumnStatement(
+                    CassetteDbContract.RecordingTable.COLUMN_AUDIO_CODEC));
+            db.execSQL(CassetteDbContract.RecordingTable.getAddColumnStatement(
+                    CassetteDbContract.RecordingTable.COLUMN_AUDIO_SAMPLE_RATE));
+            db.execSQL(CassetteDbContract.RecordingTable.getAddColumnStatement(
+                    CassetteDbContract.RecordingTable.COLUMN_AUDIO_CHANNELS));
+        }
+        if (oldVersion < 4) {
+            //  Incremental compilation.
+            db.execSQL(CassetteDbContract.CassetteTable.getAddColumnStatement(
+                    CassetteDbContract.CassetteTable.COLUMN_COMPILED_INPUTS_HASH));
+            for (String statement : CassetteDbContract.CassetteTable.getCreateTriggerStatements()) {
+                db.execSQL(statement);
+            }
+        }
+        if (oldVersion < 5) {
+            //  Cache of compiled Cassettes.
+            db.execSQL(CassetteDbContract.CassetteTable.getAddColumnStatement(
+                    CassetteDbContract.CassetteTable.COLUMN_DATE_TIME_OF_LAST_PLAYBACK));
+        }
+        if (oldVersion < 6) {
+            //  Row counts.
+            db.execSQL(CassetteDbContract.RowCountTable.getCreateTableStatement());
+            for (String statement : CassetteDbContract.RowCountTable.getRebuildStatements()) {
+                db.execSQL(statement);
+            }
+            for (String statement : CassetteDbContract.RowCountTable.getCreateTriggerStatements()) {
+                db.execSQL(statement);
+            }
+        }
     }
 }
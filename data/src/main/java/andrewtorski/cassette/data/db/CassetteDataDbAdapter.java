@@ -4,8 +4,9 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
+import andrewtorski.cassette.data.db.helper.InClause;
 import andrewtorski.cassette.data.db.schema.CassetteDbContract;
 import andrewtorski.global.GlobalValues;
 
@@ -20,7 +21,7 @@ public class CassetteDataDbAdapter {
 
     private static final String TAG = "CassetteDataDbAdapter";
 
-    private DatabaseHelper dbHelper;
+    private CassetteAppDbHelper dbHelper;
     private SQLiteDatabase db;
     private Context context;
 
@@ -30,32 +31,6 @@ public class CassetteDataDbAdapter {
     private static CassetteDataDbAdapter instance;
     //endregion Private Static Fields
 
-    //region Private Class DatabaseHelper definition.
-
-    /**
-     * Gives access to the database.
-     */
-    private static class DatabaseHelper extends SQLiteOpenHelper {
-
-        DatabaseHelper(Context context) {
-            super(context, CassetteDbContract.DATABASE_NAME, null, CassetteDbContract.DATABASE_VERSION);
-        }
-
-        @Override
-        public void onCreate(SQLiteDatabase db) {
-            db.execSQL(CassetteDbContract.CassetteTable.getCreateTableStatement());
-            db.execSQL(CassetteDbContract.RecordingTable.getCreateTableStatement());
-        }
-
-        @Override
-        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-            db.execSQL(CassetteDbContract.RecordingTable.getDropTableStatement());
-            db.execSQL(CassetteDbContract.CassetteTable.getDropTableStatement());
-        }
-    }
-
-    //endregion Private Class DatabaseHelper definition.
-
     //region Constructor
 
     /**
@@ -75,7 +50,7 @@ public class CassetteDataDbAdapter {
      * @return This instance.
      */
     public CassetteDataDbAdapter open() {
-        this.dbHelper = new DatabaseHelper(this.context);
+        this.dbHelper = new CassetteAppDbHelper(this.context);
         this.db = this.dbHelper.getWritableDatabase();
         this.db.setForeignKeyConstraintsEnabled(true);
         return this;
@@ -147,10 +122,26 @@ public class CassetteDataDbAdapter {
     public Cursor getAllCreatedBetweenDates(long fromDate, long toDate) {
         String betweenSelectClause = CassetteDbContract.CassetteTable.COLUMN_NAME_DATE_TIME_OF_CREATION
                 + " BETWEEN " + fromDate + " AND " + toDate;
-        String orderBy = "DESCENDING";
+        String orderBy = CassetteDbContract.CassetteTable.COLUMN_NAME_DATE_TIME_OF_CREATION + " DESC";
 
-        return db.query(true, CassetteDbContract.CassetteTable.TABLE_NAME, null, betweenSelectClause,
-                null, null, null, orderBy, null);
+        return db.query(CassetteDbContract.CassetteTable.TABLE_NAME, null, betweenSelectClause,
+                null, null, null, orderBy);
+    }
+
+    /**
+     * Returns a cursor containing the Cassette rows whose identifiers are among ids[from], ...,
+     * ids[to - 1], in no particular order. Identifiers are bound as parameters, so at most
+     * {@link InClause#MAX_VALUES} of them may be requested at once.
+     *
+     * @param ids  Identifiers of the Cassette rows.
+     * @param from Index of the first requested identifier.
+     * @param to   Index after the last requested identifier.
+     * @return Cursor containing the found Cassette rows.
+     */
+    public Cursor getByIds(long[] ids, int from, int to) {
+        String selection = InClause.selection(CassetteDbContract.CassetteTable.COLUMN_NAME_ID, to - from);
+        return this.db.query(CassetteDbContract.CassetteTable.TABLE_NAME, null, selection,
+                InClause.arguments(ids, from, to), null, null, null);
     }
 
     /**
@@ -188,23 +179,161 @@ public class CassetteDataDbAdapter {
      */
     public boolean update(long id, String title, String description, int length, int numberOfRecordings,
                           int isCompiled, String compiledFilePath, long dateTimeOfCompilation) {
+        return update(id, createUpdateValues(title, description, length, numberOfRecordings,
+                isCompiled, compiledFilePath, dateTimeOfCompilation));
+    }
+
+    /**
+     * Updates Cassette row of specified id with provided data, including the hash of the inputs
+     * from which the Cassette was compiled.
+     *
+     * @param compiledInputsHash Hash of the inputs of the compilation, null if never compiled.
+     * @return Was anything updated.
+     * @see #update(long, String, String, int, int, int, String, long)
+     */
+    public boolean update(long id, String title, String description, int length, int numberOfRecordings,
+                          int isCompiled, String compiledFilePath, long dateTimeOfCompilation,
+                          String compiledInputsHash) {
+        ContentValues values = createUpdateValues(title, description, length, numberOfRecordings,
+                isCompiled, compiledFilePath, dateTimeOfCompilation);
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_COMPILED_INPUTS_HASH, compiledInputsHash);
+        return update(id, values);
+    }
+
+    /**
+     * Adds the provided difference to the length of the Cassette row of specified id, in a
+     * single statement, so that the length is never read and written back stale.
+     *
+     * @param id               Identifier of the Cassette row.
+     * @param lengthDifference Milliseconds to add, negative to shorten the Cassette.
+     * @return Was anything updated.
+     */
+    public boolean addToLength(long id, int lengthDifference) {
+        SQLiteStatement statement = this.db.compileStatement("UPDATE "
+                + CassetteDbContract.CassetteTable.TABLE_NAME + " SET "
+                + CassetteDbContract.CassetteTable.COLUMN_NAME_LENGTH + " = "
+                + CassetteDbContract.CassetteTable.COLUMN_NAME_LENGTH + " + ? WHERE "
+                + CassetteDbContract.CassetteTable.COLUMN_NAME_ID + " = ?");
+        try {
+            statement.bindLong(1, lengthDifference);
+            statement.bindLong(2, id);
+            return statement.executeUpdateDelete() > 0;
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Updates Cassette rows of specified ids with provided data in one transaction, so that the
+     * whole batch costs one commit. Arguments are parallel arrays, element i of each describing
+     * the i-th Cassette.
+     *
+     * @return For every id, was the Cassette updated.
+     * @see #update(long, String, String, int, int, int, String, long, String)
+     */
+    public boolean[] updateAll(long[] ids, String[] titles, String[] descriptions, int[] lengths,
+                               int[] numbersOfRecordings, int[] isCompiled, String[] compiledFilePaths,
+                               long[] datesTimeOfCompilation, String[] compiledInputsHashes) {
+        boolean[] updated = new boolean[ids.length];
+        this.db.beginTransaction();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                updated[i] = update(ids[i], titles[i], descriptions[i], lengths[i],
+                        numbersOfRecordings[i], isCompiled[i], compiledFilePaths[i],
+                        datesTimeOfCompilation[i], compiledInputsHashes[i]);
+            }
+            this.db.setTransactionSuccessful();
+        } finally {
+            this.db.endTransaction();
+        }
+        return updated;
+    }
 
+    /**
+     * Updates titles and descriptions of the Cassette rows of specified ids in one transaction,
+     * leaving every other column as it is.
+     *
+     * @param ids          Identifiers of the Cassette rows.
+     * @param titles       New titles.
+     * @param descriptions New descriptions.
+     * @return For every id, was the Cassette updated.
+     */
+    public boolean[] updateTitlesAndDescriptions(long[] ids, String[] titles, String[] descriptions) {
+        boolean[] updated = new boolean[ids.length];
+        this.db.beginTransaction();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                ContentValues values = new ContentValues();
+                values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_TITLE, titles[i]);
+                values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_DESCRIPTION, descriptions[i]);
+                updated[i] = update(ids[i], values);
+            }
+            this.db.setTransactionSuccessful();
+        } finally {
+            this.db.endTransaction();
+        }
+        return updated;
+    }
+
+    /**
+     * Records that the Cassette of specified id was played at provided date and time. Nothing
+     * else of the Cassette row is written, so this may be called on every playback.
+     *
+     * @param id                     Identifier of the Cassette row.
+     * @param dateTimeOfLastPlayback UNIX time of the playback.
+     * @return Was anything updated.
+     */
+    public boolean updateDateTimeOfLastPlayback(long id, long dateTimeOfLastPlayback) {
         ContentValues values = new ContentValues();
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_DATE_TIME_OF_LAST_PLAYBACK, dateTimeOfLastPlayback);
+        return update(id, values);
+    }
 
-        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_TITLE, title);
-        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_DESCRIPTION, description);
-        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_LENGTH, length);
-        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_NUMBER_OF_RECORDINGS, numberOfRecordings);
+    /**
+     * Updates only the compilation state of the Cassette row of specified id, leaving title,
+     * description, length and number of Recordings as they are, so that a compilation which took
+     * long does not overwrite what changed meanwhile.
+     *
+     * @param id                    Identifier of the Cassette row.
+     * @param isCompiled            1 if the Cassette is compiled, 0 otherwise.
+     * @param compiledFilePath      Path of the compiled file, or null if there is none.
+     * @param dateTimeOfCompilation UNIX time of the compilation.
+     * @param compiledInputsHash    Hash of the inputs the compiled file was made from.
+     * @return Was anything updated.
+     */
+    public boolean updateCompilation(long id, int isCompiled, String compiledFilePath,
+                                     long dateTimeOfCompilation, String compiledInputsHash) {
+        ContentValues values = new ContentValues();
         values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_IS_COMPILED, isCompiled);
         values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_COMPILED_FILE_PATH, compiledFilePath);
         values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_DATE_TIME_OF_COMPILATION, dateTimeOfCompilation);
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_COMPILED_INPUTS_HASH, compiledInputsHash);
+        return update(id, values);
+    }
 
+    private boolean update(long id, ContentValues values) {
         int rowsAffected = this.db.update(CassetteDbContract.CassetteTable.TABLE_NAME, values,
                 CassetteDbContract.CassetteTable.COLUMN_NAME_ID + "=" + id, null);
 
         return rowsAffected > 0;
     }
 
+    private static ContentValues createUpdateValues(String title, String description, int length,
+                                                    int numberOfRecordings, int isCompiled,
+                                                    String compiledFilePath, long dateTimeOfCompilation) {
+        ContentValues values = new ContentValues();
+
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_TITLE, title);
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_DESCRIPTION, description);
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_LENGTH, length);
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_NUMBER_OF_RECORDINGS, numberOfRecordings);
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_IS_COMPILED, isCompiled);
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_COMPILED_FILE_PATH, compiledFilePath);
+        values.put(CassetteDbContract.CassetteTable.COLUMN_NAME_DATE_TIME_OF_COMPILATION, dateTimeOfCompilation);
+
+        return values;
+    }
+
     /**
      * Deletes a Cassette row of specified identifier.
      *
@@ -219,21 +348,14 @@ public class CassetteDataDbAdapter {
     }
 
     /**
-     * Returns the number of rows contained in Cassette table.
+     * Returns the number of rows contained in Cassette table, as kept in the RowCount table.
      * If something went wrong the method will return -1.
      *
      * @return Integer.
      */
     public int count() {
-        Cursor cursor = this.db.rawQuery("SELECT count(*) FROM " + CassetteDbContract.CassetteTable.TABLE_NAME, null);
-
-        if (cursor == null) {
-            return -1;
-        }
-        cursor.moveToFirst();
-        int result = cursor.getInt(0);
-        cursor.close();
-        return result;
+        return RowCountDbAdapter.readCount(this.db, CassetteDbContract.CassetteTable.TABLE_NAME,
+                CassetteDbContract.RowCountTable.WHOLE_TABLE);
     }
 
     //endregion Methods
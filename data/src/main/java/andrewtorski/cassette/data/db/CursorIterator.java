@@ -0,0 +1,66 @@
+package andrewtorski.cassette.data.db;
+
+import android.database.Cursor;
+
+import java.util.NoSuchElementException;
+
+import andrewtorski.cassette.domain.repository.CloseableIterator;
+
+/**
+ * {@link CloseableIterator} which reads rows of a Cursor one by one.
+ * The Cursor is closed together with the iterator, or once the last row was read.
+ *
+ * @param <T> Type into which a single row is read.
+ */
+public abstract class CursorIterator<T> implements CloseableIterator<T> {
+
+    private final Cursor cursor;
+
+    /**
+     * Initializes a new instance of the CursorIterator.
+     *
+     * @param cursor Cursor positioned before its first row. May be null, which makes for an empty
+     *               iterator.
+     */
+    public CursorIterator(Cursor cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Reads the row on which the Cursor is currently positioned.
+     */
+    protected abstract T read(Cursor cursor);
+
+    @Override
+    public boolean hasNext() {
+        if (cursor == null || cursor.isClosed()) {
+            return false;
+        }
+        if (cursor.isLast() || cursor.isAfterLast() || cursor.getCount() == 0) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        cursor.moveToNext();
+        return read(cursor);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        if (cursor != null && !cursor.isClosed()) {
+            cursor.close();
+        }
+    }
+}
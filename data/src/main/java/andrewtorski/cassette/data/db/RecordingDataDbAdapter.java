@@ -3,10 +3,12 @@ package andrewtorski.cassette.data.db;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import andrewtorski.cassette.data.db.helper.InClause;
 import andrewtorski.cassette.data.db.schema.CassetteDbContract;
 import andrewtorski.global.GlobalValues;
 
@@ -18,56 +20,26 @@ public class RecordingDataDbAdapter {
 
     //region Private Fields
 
-    private DatabaseHelper dbHelper;
+    private CassetteAppDbHelper dbHelper;
     private SQLiteDatabase db;
     private Context context;
 
     private static final String TAG = "RecDataAdapter";
 
     /**
-     * Singleton instance.
+     * Newest Recordings first. The date of recording index holds the row id after the date, so
+     * it yields rows in exactly this order.
      */
-    private static RecordingDataDbAdapter instance;
-
-    public int count() {
-        Cursor cursor = this.db.rawQuery("SELECT count(*) FROM " + CassetteDbContract.RecordingTable.TABLE_NAME, null);
-
-        if (cursor == null) {
-            return -1;
-        }
-        cursor.moveToFirst();
-        int result = cursor.getInt(0);
-        cursor.close();
-        return result;
-    }
-
-    //endregion Private Fields
-
-    //region Private Class DatabaseHelper definition.
+    private static final String NEWEST_FIRST_ORDER =
+            CassetteDbContract.RecordingTable.COLUMN_NAME_DATE_TIME_OF_RECORDING + " DESC, "
+                    + CassetteDbContract.RecordingTable.COLUMN_NAME_ID + " DESC";
 
     /**
-     * Gives access to the database.
+     * Singleton instance.
      */
-    private static class DatabaseHelper extends SQLiteOpenHelper {
-
-        DatabaseHelper(Context context) {
-            super(context, CassetteDbContract.DATABASE_NAME, null, CassetteDbContract.DATABASE_VERSION);
-        }
-
-        @Override
-        public void onCreate(SQLiteDatabase db) {
-            db.execSQL(CassetteDbContract.CassetteTable.getCreateTableStatement());
-            db.execSQL(CassetteDbContract.RecordingTable.getCreateTableStatement());
-        }
-
-        @Override
-        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-            db.execSQL(CassetteDbContract.RecordingTable.getDropTableStatement());
-            db.execSQL(CassetteDbContract.CassetteTable.getDropTableStatement());
-        }
-    }
+    private static RecordingDataDbAdapter instance;
 
-    //endregion Private Class DatabaseHelper definition.
+    //endregion Private Fields
 
     //region Constructor
 
@@ -84,7 +56,7 @@ public class RecordingDataDbAdapter {
     //region Methods
 
     public RecordingDataDbAdapter open() {
-        this.dbHelper = new DatabaseHelper(this.context);
+        this.dbHelper = new CassetteAppDbHelper(this.context);
         this.db = this.dbHelper.getWritableDatabase();
         this.db.setForeignKeyConstraintsEnabled(true);
         return this;
@@ -139,16 +111,113 @@ public class RecordingDataDbAdapter {
     public long create(long cassetteId, int sequenceInTheCassette,
                        long dateTimeOfRecording, String audioFilePath,
                        int length) {
+        return create(cassetteId, sequenceInTheCassette, dateTimeOfRecording, audioFilePath, length,
+                null, 0, 0);
+    }
+
+    /**
+     * Inserts Recording data into the database together with the cached result of probing its
+     * audio file.
+     *
+     * @param cassetteId            Id of the Cassette to which this Recording belongs to.
+     * @param sequenceInTheCassette Sequence number in the Cassette.
+     * @param dateTimeOfRecording   UNIX time of date and time of recording.
+     * @param audioFilePath         Path to the actual audio file.
+     * @param length                Length(in milliseconds) of the recording.
+     * @param audioCodec            Codec of the audio file, or null if it was not probed.
+     * @param audioSampleRate       Sample rate of the audio file.
+     * @param audioChannels         Number of channels of the audio file.
+     * @return Id of the newly created recording, -1 if insertion didn't succeed.
+     */
+    public long create(long cassetteId, int sequenceInTheCassette,
+                       long dateTimeOfRecording, String audioFilePath,
+                       int length, String audioCodec, int audioSampleRate, int audioChannels) {
         ContentValues values = new ContentValues();
         values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_CASSETTE_ID, cassetteId);
         values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_SEQUENCE_IN_CASSETTE, sequenceInTheCassette);
         values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_DATE_TIME_OF_RECORDING, dateTimeOfRecording);
         values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_FILE_PATH, audioFilePath);
         values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_LENGTH, length);
+        if (audioCodec != null) {
+            values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_CODEC, audioCodec);
+            values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_SAMPLE_RATE, audioSampleRate);
+            values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_CHANNELS, audioChannels);
+        }
 
         return this.db.insert(CassetteDbContract.RecordingTable.TABLE_NAME, null, values);
     }
 
+    /**
+     * Inserts many Recordings at once. Rows are inserted by a single compiled statement and
+     * committed in transactions of at most chunkSize rows, so that a large import neither pays
+     * for a commit per row nor holds the database locked for its whole duration.
+     * Values of the i-th Recording are taken from the i-th element of every array.
+     *
+     * @param cassetteIds            Ids of the Cassettes to which the Recordings belong to.
+     * @param sequencesInTheCassette Sequence numbers in the Cassettes.
+     * @param datesTimeOfRecording   UNIX times of date and time of recording.
+     * @param audioFilePaths         Paths to the actual audio files.
+     * @param lengths                Lengths(in milliseconds) of the recordings.
+     * @param audioCodecs            Codecs of the audio files, null elements for files which
+     *                               were not probed.
+     * @param audioSampleRates       Sample rates of the audio files.
+     * @param audioChannels          Numbers of channels of the audio files.
+     * @param chunkSize              Maximal number of rows inserted in one transaction.
+     * @return Ids of the newly created recordings, -1 for every insertion which didn't succeed.
+     */
+    public long[] createAll(long[] cassetteIds, int[] sequencesInTheCassette,
+                            long[] datesTimeOfRecording, String[] audioFilePaths, int[] lengths,
+                            String[] audioCodecs, int[] audioSampleRates, int[] audioChannels,
+                            int chunkSize) {
+        long[] ids = new long[cassetteIds.length];
+        SQLiteStatement statement = this.db.compileStatement("INSERT INTO "
+                + CassetteDbContract.RecordingTable.TABLE_NAME + " ("
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_CASSETTE_ID + ", "
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_SEQUENCE_IN_CASSETTE + ", "
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_DATE_TIME_OF_RECORDING + ", "
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_FILE_PATH + ", "
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_LENGTH + ", "
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_CODEC + ", "
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_SAMPLE_RATE + ", "
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_CHANNELS
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        try {
+            for (int chunkStart = 0; chunkStart < ids.length; chunkStart += chunkSize) {
+                int chunkEnd = Math.min(chunkStart + chunkSize, ids.length);
+                this.db.beginTransaction();
+                try {
+                    for (int i = chunkStart; i < chunkEnd; i++) {
+                        statement.clearBindings();
+                        statement.bindLong(1, cassetteIds[i]);
+                        statement.bindLong(2, sequencesInTheCassette[i]);
+                        statement.bindLong(3, datesTimeOfRecording[i]);
+                        statement.bindString(4, audioFilePaths[i]);
+                        statement.bindLong(5, lengths[i]);
+                        if (audioCodecs[i] != null) {
+                            statement.bindString(6, audioCodecs[i]);
+                            statement.bindLong(7, audioSampleRates[i]);
+                            statement.bindLong(8, audioChannels[i]);
+                        }
+                        try {
+                            ids[i] = statement.executeInsert();
+                        } catch (SQLException e) {
+                            //  Only this row is rolled back, e.g. when its Cassette does not exist.
+                            Log.e(TAG, "Could not insert " + audioFilePaths[i], e);
+                            ids[i] = -1;
+                        }
+                    }
+                    this.db.setTransactionSuccessful();
+                } finally {
+                    this.db.endTransaction();
+                }
+            }
+        } finally {
+            statement.close();
+        }
+
+        return ids;
+    }
+
     /**
      * Returns a cursor positioned on the Recording of specified id.
      *
@@ -174,6 +243,22 @@ public class RecordingDataDbAdapter {
         return cursor;
     }
 
+    /**
+     * Returns a cursor containing the Recording rows whose identifiers are among ids[from], ...,
+     * ids[to - 1], in no particular order. Identifiers are bound as parameters, so at most
+     * {@link InClause#MAX_VALUES} of them may be requested at once.
+     *
+     * @param ids  Identifiers of the Recording rows.
+     * @param from Index of the first requested identifier.
+     * @param to   Index after the last requested identifier.
+     * @return Cursor containing the found Recording rows.
+     */
+    public Cursor getByIds(long[] ids, int from, int to) {
+        String selection = InClause.selection(CassetteDbContract.RecordingTable.COLUMN_NAME_ID, to - from);
+        return this.db.query(CassetteDbContract.RecordingTable.TABLE_NAME, null, selection,
+                InClause.arguments(ids, from, to), null, null, null);
+    }
+
     /**
      * Returns a cursor containing all rows in Recording table.
      */
@@ -183,32 +268,48 @@ public class RecordingDataDbAdapter {
     }
 
     /**
-     * Returns a cursor containing all Recordings which date of recording is contained within the
-     * provided epoch time span.
+     * Returns a cursor containing only the distinct audio file paths of all Recordings.
+     */
+    public Cursor getAllAudioFilePaths() {
+        String[] columns = {CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_FILE_PATH};
+
+        return this.db.query(true, CassetteDbContract.RecordingTable.TABLE_NAME, columns, null, null,
+                null, null, null, null);
+    }
+
+    /**
+     * Returns a cursor containing Recordings recorded in the provided date span, newest first.
+     * The date of recording is indexed, so the rows are read off the index in order and the
+     * cursor can be walked without sorting the whole span first.
      *
      * @param fromDate From date, epoch time.
      * @param toDate   To date, epoch time.
-     * @return Cursor.
+     * @return Cursor containing Recordings.
      */
     public Cursor getAllBetween(long fromDate, long toDate) {
         String betweenSelectClause = CassetteDbContract.RecordingTable.COLUMN_NAME_DATE_TIME_OF_RECORDING
                 + " BETWEEN " + fromDate + " AND " + toDate;
 
-        String orderBy = "DESCENDING";
-
-        return db.query(true, CassetteDbContract.RecordingTable.TABLE_NAME, null, betweenSelectClause, null,
-                null, null, orderBy, null);
+        return db.query(CassetteDbContract.RecordingTable.TABLE_NAME, null, betweenSelectClause, null,
+                null, null, NEWEST_FIRST_ORDER);
     }
 
+    /**
+     * Returns a cursor containing Recordings of the Cassette of provided id recorded in the
+     * provided date span, newest first.
+     *
+     * @param cassetteId Identifier of the Cassette.
+     * @param fromDate   From date, epoch time.
+     * @param toDate     To date, epoch time.
+     * @return Cursor containing Recordings.
+     */
     public Cursor getAllForCassetteBetweenDates(long cassetteId, long fromDate, long toDate) {
         String betweenSelectClause = CassetteDbContract.RecordingTable.COLUMN_NAME_DATE_TIME_OF_RECORDING
                 + " BETWEEN " + fromDate + " AND " + toDate + " AND "
                 + CassetteDbContract.RecordingTable.COLUMN_NAME_CASSETTE_ID + "=" + cassetteId;
 
-        String orderBy = "DESCENDING";
-
-        return db.query(true, CassetteDbContract.RecordingTable.TABLE_NAME, null, betweenSelectClause, null,
-                null, null, orderBy, null);
+        return db.query(CassetteDbContract.RecordingTable.TABLE_NAME, null, betweenSelectClause, null,
+                null, null, NEWEST_FIRST_ORDER);
     }
 
     public Cursor getAllTitleDescriptionLike(String likeWhat) {
@@ -246,7 +347,7 @@ public class RecordingDataDbAdapter {
         values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_TITLE, title);
         values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_DESCRIPTION, description);
 
-        String whereClause = CassetteDbContract.RecordingTable.COLUMN_NAME_CASSETTE_ID + "=" + id;
+        String whereClause = CassetteDbContract.RecordingTable.COLUMN_NAME_ID + "=" + id;
 
         int rowsAffected = this.db.update(CassetteDbContract.RecordingTable.TABLE_NAME, values,
                 whereClause, null);
@@ -254,6 +355,164 @@ public class RecordingDataDbAdapter {
         return rowsAffected > 0;
     }
 
+    /**
+     * Updates titles and descriptions of the Recordings of specified ids in one transaction, so
+     * that the whole batch costs one commit.
+     *
+     * @param ids          Identifiers of the Recordings to update.
+     * @param titles       New titles.
+     * @param descriptions New descriptions.
+     * @return For every id, was the Recording updated.
+     */
+    public boolean[] updateAll(long[] ids, String[] titles, String[] descriptions) {
+        boolean[] updated = new boolean[ids.length];
+        this.db.beginTransaction();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                updated[i] = update(ids[i], titles[i], descriptions[i]);
+            }
+            this.db.setTransactionSuccessful();
+        } finally {
+            this.db.endTransaction();
+        }
+        return updated;
+    }
+
+    /**
+     * Returns a cursor containing at most the provided number of Recordings recorded before the
+     * provided date whose audio file is not kept in the provided storage format, oldest first.
+     * Recordings are paged by their date of recording and id, the range over dates is served by
+     * the date of recording index.
+     *
+     * @param recordedBefore   Epoch time, exclusive.
+     * @param storageFormat    Name of the storage format to exclude.
+     * @param afterDateTime    Epoch time of recording of the last Recording of the previous page.
+     * @param afterId          Identifier of the last Recording of the previous page.
+     * @param limit            Maximal number of returned Recordings.
+     * @return Cursor.
+     */
+    public Cursor getPageRecordedBeforeNotInStorageFormat(long recordedBefore, String storageFormat,
+                                                          long afterDateTime, long afterId, int limit) {
+        String dateTimeColumn = CassetteDbContract.RecordingTable.COLUMN_NAME_DATE_TIME_OF_RECORDING,
+                idColumn = CassetteDbContract.RecordingTable.COLUMN_NAME_ID,
+                storageFormatColumn = CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_STORAGE_FORMAT;
+
+        String selection = dateTimeColumn + " < ? AND " + dateTimeColumn + " >= ?"
+                + " AND (" + dateTimeColumn + " > ? OR " + idColumn + " > ?)"
+                + " AND (" + storageFormatColumn + " IS NULL OR " + storageFormatColumn + " <> ?)";
+        String[] selectionArgs = {String.valueOf(recordedBefore), String.valueOf(afterDateTime),
+                String.valueOf(afterDateTime), String.valueOf(afterId), storageFormat};
+        String orderBy = dateTimeColumn + " ASC, " + idColumn + " ASC";
+
+        return this.db.query(CassetteDbContract.RecordingTable.TABLE_NAME, null, selection,
+                selectionArgs, null, null, orderBy, String.valueOf(limit));
+    }
+
+    /**
+     * Points Recording of specified id at a new audio file, but only if it still points at the
+     * expected one. The swap is a single statement, so readers see either the old or the new
+     * file, never a mix.
+     *
+     * @param id                    Identifier of the Recording to update.
+     * @param expectedAudioFilePath Audio file path the Recording has to have for the swap to happen.
+     * @param audioFilePath         New audio file path.
+     * @param audioStorageFormat    Name of the storage format of the new audio file.
+     * @return Was the swap made.
+     */
+    public boolean swapAudioFile(long id, String expectedAudioFilePath, String audioFilePath,
+                                 String audioStorageFormat) {
+        ContentValues values = new ContentValues();
+
+        values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_FILE_PATH, audioFilePath);
+        values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_STORAGE_FORMAT, audioStorageFormat);
+        //  The cached probe result describes the old audio file.
+        values.putNull(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_CODEC);
+
+        String whereClause = CassetteDbContract.RecordingTable.COLUMN_NAME_ID + " = ? AND "
+                + CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_FILE_PATH + " = ?";
+
+        int rowsAffected = this.db.update(CassetteDbContract.RecordingTable.TABLE_NAME, values,
+                whereClause, new String[]{String.valueOf(id), expectedAudioFilePath});
+
+        return rowsAffected > 0;
+    }
+
+    /**
+     * Caches the result of probing the audio file of the Recording of specified id. The length
+     * of the Recording is updated as well, the probed duration being more accurate than the one
+     * the Recording was created with.
+     *
+     * @param id              Identifier of the Recording.
+     * @param length          Probed length(in milliseconds) of the audio file.
+     * @param audioCodec      Codec of the audio file.
+     * @param audioSampleRate Sample rate of the audio file.
+     * @param audioChannels   Number of channels of the audio file.
+     * @return Was the Recording updated.
+     */
+    public boolean updateAudioFileInfo(long id, int length, String audioCodec, int audioSampleRate,
+                                       int audioChannels) {
+        ContentValues values = new ContentValues();
+        values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_LENGTH, length);
+        values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_CODEC, audioCodec);
+        values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_SAMPLE_RATE, audioSampleRate);
+        values.put(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_CHANNELS, audioChannels);
+
+        String whereClause = CassetteDbContract.RecordingTable.COLUMN_NAME_ID + " = ?";
+
+        int rowsAffected = this.db.update(CassetteDbContract.RecordingTable.TABLE_NAME, values,
+                whereClause, new String[]{String.valueOf(id)});
+
+        return rowsAffected > 0;
+    }
+
+    /**
+     * Returns the number of rows contained in Recording table, as kept in the RowCount table.
+     * If something went wrong the method will return -1.
+     */
+    public int count() {
+        return RowCountDbAdapter.readCount(this.db, CassetteDbContract.RecordingTable.TABLE_NAME,
+                CassetteDbContract.RowCountTable.WHOLE_TABLE);
+    }
+
+    /**
+     * Returns the number of Recordings of the Cassette of specified id, as kept in the RowCount
+     * table. 0 if there is no such Cassette.
+     *
+     * @param cassetteId Identifier of the Cassette.
+     */
+    public int countForCassette(long cassetteId) {
+        int count = RowCountDbAdapter.readCount(this.db, CassetteDbContract.RecordingTable.TABLE_NAME,
+                cassetteId);
+        return Math.max(count, 0);
+    }
+
+    /**
+     * Returns a cursor containing the number and total length of Recordings recorded in the
+     * provided date span per bucket, one row per non-empty bucket holding its start, the count
+     * and the sum, oldest bucket first.
+     *
+     * @param bucketModifiers strftime modifiers giving the start of a bucket, one of the
+     *                        CassetteDbContract.RecordingTable bucket modifiers.
+     * @param fromDate        From date, epoch time.
+     * @param toDate          To date, epoch time.
+     * @return Cursor containing the buckets.
+     */
+    public Cursor getStatistics(String[] bucketModifiers, long fromDate, long toDate) {
+        String query = CassetteDbContract.RecordingTable.getStatisticsQuery(bucketModifiers, false);
+        return this.db.rawQuery(query, new String[]{String.valueOf(fromDate), String.valueOf(toDate)});
+    }
+
+    /**
+     * Returns a cursor like {@link #getStatistics(String[], long, long)}, counting only
+     * Recordings of the Cassette of specified id.
+     */
+    public Cursor getStatisticsForCassette(long cassetteId, String[] bucketModifiers, long fromDate,
+                                           long toDate) {
+        String query = CassetteDbContract.RecordingTable.getStatisticsQuery(bucketModifiers, true);
+        return this.db.rawQuery(query, new String[]{String.valueOf(fromDate), String.valueOf(toDate),
+                String.valueOf(cassetteId)});
+    }
+
     /**
      * Deletes Recording of specified id.
      *
@@ -0,0 +1,154 @@
+package andrewtorski.cassette.data.db;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import andrewtorski.cassette.data.db.schema.CassetteDbContract;
+import andrewtorski.global.GlobalValues;
+
+/**
+ * Provides access to the RowCount table, which keeps the numbers of rows of the Cassette and
+ * Recording tables.
+ * Counts are never written by this adapter, except when they are rebuilt, they are maintained by
+ * triggers on the counted tables.
+ * Uses Singleton pattern to ensure that only one instance of this class exists during the runtime.
+ */
+public class RowCountDbAdapter {
+
+    //region Private Fields
+
+    private static final String TAG = "RowCountDataAdapter";
+
+    private CassetteAppDbHelper dbHelper;
+    private SQLiteDatabase db;
+    private Context context;
+
+    /**
+     * Singleton instance.
+     */
+    private static RowCountDbAdapter instance;
+
+    //endregion Private Fields
+
+    //region Constructor
+
+    /**
+     * Intializes a new instance of the RowCountDbAdapter class.
+     * THIS DOES NOT OPEN THE CONNECTION!
+     */
+    private RowCountDbAdapter(Context context) {
+        this.context = context;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Opens the connection to the database.
+     * @return This instance.
+     */
+    public RowCountDbAdapter open() {
+        this.dbHelper = new CassetteAppDbHelper(this.context);
+        this.db = this.dbHelper.getWritableDatabase();
+        this.db.setForeignKeyConstraintsEnabled(true);
+        return this;
+    }
+
+    /**
+     * Returns true if the database is currently open.
+     */
+    public boolean isOpen() {
+        return (db != null) && db.isOpen();
+    }
+
+    /**
+     * Closes the connection to the database.
+     */
+    public void close() {
+        if (db != null && db.isOpen()) {
+            this.db.close();
+        }
+    }
+
+    /**
+     * Tells whether every kept count equals the number of rows it counts. Counts every row of
+     * the Cassette and Recording tables, so it should not be called routinely.
+     */
+    public boolean areCountsConsistent() {
+        Cursor cursor = this.db.rawQuery(CassetteDbContract.RowCountTable.getInconsistentCountsQuery(), null);
+        try {
+            return cursor.moveToFirst() && cursor.getInt(0) == 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Counts rows of the Cassette and Recording tables anew and replaces the kept counts with
+     * them, in one transaction.
+     */
+    public void rebuildCounts() {
+        this.db.beginTransaction();
+        try {
+            for (String statement : CassetteDbContract.RowCountTable.getRebuildStatements()) {
+                this.db.execSQL(statement);
+            }
+            this.db.setTransactionSuccessful();
+        } finally {
+            this.db.endTransaction();
+        }
+    }
+
+    /**
+     * Rebuilds the kept counts if any of them is wrong.
+     *
+     * @return Were the counts rebuilt.
+     */
+    public boolean checkCounts() {
+        if (areCountsConsistent()) {
+            return false;
+        }
+        Log.w(TAG, "Row counts were inconsistent, rebuilding them");
+        rebuildCounts();
+        return true;
+    }
+
+    //endregion Methods
+
+    //region Static Methods
+
+    public static synchronized RowCountDbAdapter getInstance() {
+        if (instance == null) {
+            instance = new RowCountDbAdapter(GlobalValues.getContext());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Reads one kept count.
+     *
+     * @param db         Database to read from.
+     * @param tableName  Name of the counted table.
+     * @param cassetteId Id of the Cassette whose rows are counted, or
+     *                   {@link CassetteDbContract.RowCountTable#WHOLE_TABLE}.
+     * @return The count, or -1 if none is kept.
+     */
+    static int readCount(SQLiteDatabase db, String tableName, long cassetteId) {
+        Cursor cursor = db.rawQuery(CassetteDbContract.RowCountTable.getCountQuery(),
+                new String[]{tableName, String.valueOf(cassetteId)});
+        if (cursor == null) {
+            return -1;
+        }
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    //endregion Static Methods
+}
@@ -0,0 +1,40 @@
+package andrewtorski.cassette.data.db.helper;
+
+/**
+ * Builds "column IN (?, ?, ...)" selections whose values are bound as selection arguments, so
+ * that one compiled statement serves every list of values of the same length.
+ */
+public final class InClause {
+
+    /**
+     * Maximal number of values bound in one selection, safely below the limit of 999 bound
+     * parameters per statement SQLite is compiled with by default.
+     */
+    public static final int MAX_VALUES = 500;
+
+    private InClause() {
+    }
+
+    /**
+     * Returns the selection of rows whose column has one of count values.
+     */
+    public static String selection(String columnName, int count) {
+        StringBuilder selection = new StringBuilder(columnName.length() + 6 + count * 3);
+        selection.append(columnName).append(" IN (");
+        for (int i = 0; i < count; i++) {
+            selection.append(i == 0 ? "?" : ", ?");
+        }
+        return selection.append(')').toString();
+    }
+
+    /**
+     * Returns values[from], ..., values[to - 1] as selection arguments.
+     */
+    public static String[] arguments(long[] values, int from, int to) {
+        String[] arguments = new String[to - from];
+        for (int i = from; i < to; i++) {
+            arguments[i - from] = String.valueOf(values[i]);
+        }
+        return arguments;
+    }
+}
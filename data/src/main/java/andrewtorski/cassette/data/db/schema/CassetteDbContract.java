@@ -11,7 +11,7 @@ import andrewtorski.cassette.data.db.helper.ColumnTypeAndName;
  */
 public class CassetteDbContract {
 
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 6;
     public static final String DATABASE_NAME = "cassette.db";
     private static final String TEXT_TYPE = "TEXT";
     private static final String INTEGER_TYPE = "INTEGER";
@@ -34,6 +34,8 @@ public class CassetteDbContract {
         public static final String COLUMN_NAME_NUMBER_OF_RECORDINGS = "number_of_recordings";
         public static final String COLUMN_NAME_IS_COMPILED = "is_compiled";
         public static final String COLUMN_NAME_COMPILED_FILE_PATH = "compiled_file_path";
+        public static final String COLUMN_NAME_COMPILED_INPUTS_HASH = "compiled_inputs_hash";
+        public static final String COLUMN_NAME_DATE_TIME_OF_LAST_PLAYBACK = "date_time_of_last_playback";
 
         public static final String COLUMN_TYPE_ID = INTEGER_TYPE + " PRIMARY KEY";
         public static final String COLUMN_TYPE_TITLE = TEXT_TYPE;
@@ -44,6 +46,8 @@ public class CassetteDbContract {
         public static final String COLUMN_TYPE_NUMBER_OF_RECORDINGS = INTEGER_TYPE;
         public static final String COLUMN_TYPE_IS_COMPILED = INTEGER_TYPE;
         public static final String COLUMN_TYPE_COMPILED_FILE_PATH = TEXT_TYPE;
+        public static final String COLUMN_TYPE_COMPILED_INPUTS_HASH = TEXT_TYPE;
+        public static final String COLUMN_TYPE_DATE_TIME_OF_LAST_PLAYBACK = INTEGER_TYPE;
 
         //endregion String Column Definitions
 
@@ -56,6 +60,8 @@ public class CassetteDbContract {
         public static final ColumnTypeAndName COLUMN_NUMBER_OF_RECORDINGS = new ColumnTypeAndName(COLUMN_NAME_NUMBER_OF_RECORDINGS, COLUMN_TYPE_NUMBER_OF_RECORDINGS);
         public static final ColumnTypeAndName COLUMN_IS_COMPILED = new ColumnTypeAndName(COLUMN_NAME_IS_COMPILED, COLUMN_TYPE_IS_COMPILED);
         public static final ColumnTypeAndName COLUMN_COMPILED_FILE_PATH = new ColumnTypeAndName(COLUMN_NAME_COMPILED_FILE_PATH, COLUMN_TYPE_COMPILED_FILE_PATH);
+        public static final ColumnTypeAndName COLUMN_COMPILED_INPUTS_HASH = new ColumnTypeAndName(COLUMN_NAME_COMPILED_INPUTS_HASH, COLUMN_TYPE_COMPILED_INPUTS_HASH);
+        public static final ColumnTypeAndName COLUMN_DATE_TIME_OF_LAST_PLAYBACK = new ColumnTypeAndName(COLUMN_NAME_DATE_TIME_OF_LAST_PLAYBACK, COLUMN_TYPE_DATE_TIME_OF_LAST_PLAYBACK);
 
         private static ArrayList<ColumnTypeAndName> getColumnsDefintions() {
             ArrayList<ColumnTypeAndName> columnTypesAndNames = new ArrayList<>(20);
@@ -69,6 +75,8 @@ public class CassetteDbContract {
             columnTypesAndNames.add(COLUMN_NUMBER_OF_RECORDINGS);
             columnTypesAndNames.add(COLUMN_IS_COMPILED);
             columnTypesAndNames.add(COLUMN_COMPILED_FILE_PATH);
+            columnTypesAndNames.add(COLUMN_COMPILED_INPUTS_HASH);
+            columnTypesAndNames.add(COLUMN_DATE_TIME_OF_LAST_PLAYBACK);
 
             return columnTypesAndNames;
         }
@@ -92,6 +100,42 @@ public class CassetteDbContract {
             return sb.toString();
         }
 
+        /**
+         * Returns statements creating triggers which mark a Cassette not compiled as soon as a
+         * Recording is added to it, removed from it, moved or has its audio file changed. The
+         * compiled inputs hash is kept, so that compiling inputs which were changed back is
+         * recognized as needless.
+         */
+        public static String[] getCreateTriggerStatements() {
+            String invalidateNew = "UPDATE " + TABLE_NAME + " SET " + COLUMN_NAME_IS_COMPILED
+                    + " = 0 WHERE " + COLUMN_NAME_ID + " = NEW."
+                    + RecordingTable.COLUMN_NAME_CASSETTE_ID + ";";
+            String invalidateOld = "UPDATE " + TABLE_NAME + " SET " + COLUMN_NAME_IS_COMPILED
+                    + " = 0 WHERE " + COLUMN_NAME_ID + " = OLD."
+                    + RecordingTable.COLUMN_NAME_CASSETTE_ID + ";";
+
+            return new String[]{
+                    "CREATE TRIGGER " + TABLE_NAME + "_uncompile_on_insert AFTER INSERT ON "
+                            + RecordingTable.TABLE_NAME + " BEGIN " + invalidateNew + " END",
+                    "CREATE TRIGGER " + TABLE_NAME + "_uncompile_on_delete AFTER DELETE ON "
+                            + RecordingTable.TABLE_NAME + " BEGIN " + invalidateOld + " END",
+                    "CREATE TRIGGER " + TABLE_NAME + "_uncompile_on_update AFTER UPDATE OF "
+                            + RecordingTable.COLUMN_NAME_CASSETTE_ID + COMMA_SEP
+                            + RecordingTable.COLUMN_NAME_AUDIO_FILE_PATH + COMMA_SEP
+                            + RecordingTable.COLUMN_NAME_SEQUENCE_IN_CASSETTE + " ON "
+                            + RecordingTable.TABLE_NAME + " BEGIN " + invalidateOld + invalidateNew
+                            + " END"
+            };
+        }
+
+        /**
+         * Returns the statement adding the provided column to an existing table, for upgrades
+         * of the database.
+         */
+        public static String getAddColumnStatement(ColumnTypeAndName column) {
+            return "ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + column.getColumnCreationStatement();
+        }
+
         public static String getDropTableStatement() {
             return "drop table " + TABLE_NAME;
         }
@@ -109,6 +153,12 @@ public class CassetteDbContract {
         public static final String COLUMN_NAME_LENGTH = "length";
         public static final String COLUMN_NAME_AUDIO_FILE_PATH = "audio_file_path";
         public static final String COLUMN_NAME_SEQUENCE_IN_CASSETTE = "sequence_in_cassette";
+        public static final String COLUMN_NAME_AUDIO_STORAGE_FORMAT = "audio_storage_format";
+        public static final String COLUMN_NAME_AUDIO_CODEC = "audio_codec";
+        public static final String COLUMN_NAME_AUDIO_SAMPLE_RATE = "audio_sample_rate";
+        public static final String COLUMN_NAME_AUDIO_CHANNELS = "audio_channels";
+
+        public static final String INDEX_NAME_DATE_TIME_OF_RECORDING = "recording_date_time_of_recording_index";
 
         public static final String COLUMN_TYPE_ID = INTEGER_TYPE + " PRIMARY KEY";
         public static final String COLUMN_TYPE_CASSETTE_ID = INTEGER_TYPE;
@@ -118,6 +168,10 @@ public class CassetteDbContract {
         public static final String COLUMN_TYPE_LENGTH = INTEGER_TYPE;
         public static final String COLUMN_TYPE_AUDIO_FILE_PATH = TEXT_TYPE;
         public static final String COLUMN_TYPE_SEQUENCE_IN_CASSETTE = INTEGER_TYPE;
+        public static final String COLUMN_TYPE_AUDIO_STORAGE_FORMAT = TEXT_TYPE;
+        public static final String COLUMN_TYPE_AUDIO_CODEC = TEXT_TYPE;
+        public static final String COLUMN_TYPE_AUDIO_SAMPLE_RATE = INTEGER_TYPE;
+        public static final String COLUMN_TYPE_AUDIO_CHANNELS = INTEGER_TYPE;
 
 
         public static final ColumnTypeAndName COLUMN_ID = new ColumnTypeAndName(COLUMN_NAME_ID, COLUMN_TYPE_ID);
@@ -128,6 +182,10 @@ public class CassetteDbContract {
         public static final ColumnTypeAndName COLUMN_LENGTH = new ColumnTypeAndName(COLUMN_NAME_LENGTH, COLUMN_TYPE_LENGTH);
         public static final ColumnTypeAndName COLUMN_AUDIO_FILE_PATH = new ColumnTypeAndName(COLUMN_NAME_AUDIO_FILE_PATH, COLUMN_TYPE_AUDIO_FILE_PATH);
         public static final ColumnTypeAndName COLUMN_SEQUENCE_IN_CASSETTE = new ColumnTypeAndName(COLUMN_NAME_SEQUENCE_IN_CASSETTE, COLUMN_TYPE_SEQUENCE_IN_CASSETTE);
+        public static final ColumnTypeAndName COLUMN_AUDIO_STORAGE_FORMAT = new ColumnTypeAndName(COLUMN_NAME_AUDIO_STORAGE_FORMAT, COLUMN_TYPE_AUDIO_STORAGE_FORMAT);
+        public static final ColumnTypeAndName COLUMN_AUDIO_CODEC = new ColumnTypeAndName(COLUMN_NAME_AUDIO_CODEC, COLUMN_TYPE_AUDIO_CODEC);
+        public static final ColumnTypeAndName COLUMN_AUDIO_SAMPLE_RATE = new ColumnTypeAndName(COLUMN_NAME_AUDIO_SAMPLE_RATE, COLUMN_TYPE_AUDIO_SAMPLE_RATE);
+        public static final ColumnTypeAndName COLUMN_AUDIO_CHANNELS = new ColumnTypeAndName(COLUMN_NAME_AUDIO_CHANNELS, COLUMN_TYPE_AUDIO_CHANNELS);
 
         private static List<ColumnTypeAndName> getColumnsDefintions() {
             List<ColumnTypeAndName> columnTypesAndNames = new LinkedList<>();
@@ -145,6 +203,10 @@ public class CassetteDbContract {
             columnTypesAndNames.add(COLUMN_LENGTH);
             columnTypesAndNames.add(COLUMN_AUDIO_FILE_PATH);
             columnTypesAndNames.add(COLUMN_SEQUENCE_IN_CASSETTE);
+            columnTypesAndNames.add(COLUMN_AUDIO_STORAGE_FORMAT);
+            columnTypesAndNames.add(COLUMN_AUDIO_CODEC);
+            columnTypesAndNames.add(COLUMN_AUDIO_SAMPLE_RATE);
+            columnTypesAndNames.add(COLUMN_AUDIO_CHANNELS);
 
             return columnTypesAndNames;
         }
@@ -169,9 +231,195 @@ public class CassetteDbContract {
             return sb.toString();
         }
 
+        /**
+         * Returns the statement creating an index on the date and time of recording, which is
+         * used by range queries over dates.
+         */
+        public static String getCreateDateTimeOfRecordingIndexStatement() {
+            return "CREATE INDEX " + INDEX_NAME_DATE_TIME_OF_RECORDING + " ON " + TABLE_NAME
+                    + "(" + COLUMN_NAME_DATE_TIME_OF_RECORDING + ")";
+        }
+
+        /**
+         * strftime modifiers which move a local date and time to the start of its day, of its
+         * week, starting on Monday, and of its month.
+         */
+        public static final String[] DAY_BUCKET_MODIFIERS = {"start of day"};
+        public static final String[] WEEK_BUCKET_MODIFIERS = {"start of day", "weekday 0", "-6 days"};
+        public static final String[] MONTH_BUCKET_MODIFIERS = {"start of month"};
+
+        /**
+         * Returns the query which counts Recordings recorded in a date span and sums their
+         * length, grouped into buckets given by the provided strftime modifiers. Its arguments
+         * are the from and to dates, followed by the cassette id if forCassette is true.
+         * <p/>
+         * Rows are found through the date of recording index. Each row of the result is a
+         * non-empty bucket: its start, epoch time, the number of Recordings and their total
+         * length, oldest bucket first.
+         */
+        public static String getStatisticsQuery(String[] bucketModifiers, boolean forCassette) {
+            StringBuilder bucketStart = new StringBuilder("CAST(strftime('%s', ");
+            bucketStart.append(COLUMN_NAME_DATE_TIME_OF_RECORDING);
+            bucketStart.append(" / 1000, 'unixepoch', 'localtime'");
+            for (String modifier : bucketModifiers) {
+                bucketStart.append(", '").append(modifier).append("'");
+            }
+            bucketStart.append(", 'utc') AS INTEGER) * 1000");
+
+            return "SELECT " + bucketStart + " AS bucket_start" + COMMA_SEP + "count(*)" + COMMA_SEP
+                    + "ifnull(sum(" + COLUMN_NAME_LENGTH + "), 0) FROM " + TABLE_NAME
+                    + " WHERE " + COLUMN_NAME_DATE_TIME_OF_RECORDING + " BETWEEN ? AND ?"
+                    + (forCassette ? " AND " + COLUMN_NAME_CASSETTE_ID + " = ?" : "")
+                    + " GROUP BY bucket_start ORDER BY bucket_start";
+        }
+
+        /**
+         * Returns the statement adding the provided column to an existing table, for upgrades
+         * of the database.
+         */
+        public static String getAddColumnStatement(ColumnTypeAndName column) {
+            return "ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + column.getColumnCreationStatement();
+        }
+
         public static String getDropTableStatement() {
             return "drop table " + TABLE_NAME;
         }
 
     }
+
+    /**
+     * Numbers of rows of the Cassette and Recording tables, kept by triggers, so that counting
+     * reads a single row instead of scanning a table. Numbers of whole tables are kept under the
+     * cassette id of {@link #WHOLE_TABLE}, numbers of Recordings of every Cassette under the id
+     * of the Cassette.
+     */
+    public static abstract class RowCountTable {
+        public static final String TABLE_NAME = "row_count";
+
+        public static final String COLUMN_NAME_TABLE_NAME = "table_name";
+        public static final String COLUMN_NAME_CASSETTE_ID = "cassette_id";
+        public static final String COLUMN_NAME_COUNT = "count";
+
+        /**
+         * Cassette id under which the number of rows of a whole table is kept. Cassette ids
+         * start at 1.
+         */
+        public static final long WHOLE_TABLE = 0;
+
+        public static String getCreateTableStatement() {
+            return "CREATE TABLE " + TABLE_NAME + " ("
+                    + COLUMN_NAME_TABLE_NAME + " " + TEXT_TYPE + " NOT NULL" + COMMA_SEP
+                    + COLUMN_NAME_CASSETTE_ID + " " + INTEGER_TYPE + " NOT NULL" + COMMA_SEP
+                    + COLUMN_NAME_COUNT + " " + INTEGER_TYPE + " NOT NULL DEFAULT 0" + COMMA_SEP
+                    + "PRIMARY KEY(" + COLUMN_NAME_TABLE_NAME + COMMA_SEP + COLUMN_NAME_CASSETTE_ID
+                    + "))";
+        }
+
+        /**
+         * Returns the query reading one count, its arguments being the table name and the
+         * cassette id.
+         */
+        public static String getCountQuery() {
+            return "SELECT " + COLUMN_NAME_COUNT + " FROM " + TABLE_NAME + " WHERE "
+                    + COLUMN_NAME_TABLE_NAME + " = ? AND " + COLUMN_NAME_CASSETTE_ID + " = ?";
+        }
+
+        /**
+         * Returns the query which counts the rows of the Cassette and Recording tables, giving
+         * the rows this table should have. Recordings are counted in one pass, grouped by
+         * Cassette.
+         */
+        public static String getActualCountsQuery() {
+            return "SELECT '" + CassetteTable.TABLE_NAME + "', " + WHOLE_TABLE + ", count(*) FROM "
+                    + CassetteTable.TABLE_NAME
+                    + " UNION ALL SELECT '" + RecordingTable.TABLE_NAME + "', " + WHOLE_TABLE
+                    + ", count(*) FROM " + RecordingTable.TABLE_NAME
+                    + " UNION ALL SELECT '" + RecordingTable.TABLE_NAME + "', c."
+                    + CassetteTable.COLUMN_NAME_ID + ", ifnull(r.n, 0) FROM "
+                    + CassetteTable.TABLE_NAME + " c LEFT JOIN (SELECT "
+                    + RecordingTable.COLUMN_NAME_CASSETTE_ID + " AS id, count(*) AS n FROM "
+                    + RecordingTable.TABLE_NAME + " GROUP BY "
+                    + RecordingTable.COLUMN_NAME_CASSETTE_ID + ") r ON r.id = c."
+                    + CassetteTable.COLUMN_NAME_ID;
+        }
+
+        /**
+         * Returns the query giving the number of rows which differ between this table and
+         * {@link #getActualCountsQuery()}, in either direction.
+         */
+        public static String getInconsistentCountsQuery() {
+            String kept = "SELECT " + COLUMN_NAME_TABLE_NAME + COMMA_SEP + COLUMN_NAME_CASSETTE_ID
+                    + COMMA_SEP + COLUMN_NAME_COUNT + " FROM " + TABLE_NAME;
+            String actual = "SELECT * FROM (" + getActualCountsQuery() + ")";
+            return "SELECT (SELECT count(*) FROM (" + kept + " EXCEPT " + actual + "))"
+                    + " + (SELECT count(*) FROM (" + actual + " EXCEPT " + kept + "))";
+        }
+
+        /**
+         * Returns statements which fill this table from scratch.
+         */
+        public static String[] getRebuildStatements() {
+            return new String[]{
+                    "DELETE FROM " + TABLE_NAME,
+                    "INSERT INTO " + TABLE_NAME + " (" + COLUMN_NAME_TABLE_NAME + COMMA_SEP
+                            + COLUMN_NAME_CASSETTE_ID + COMMA_SEP + COLUMN_NAME_COUNT + ") "
+                            + getActualCountsQuery()
+            };
+        }
+
+        /**
+         * Returns statements creating triggers which keep the counts in step with the rows of
+         * the Cassette and Recording tables. As triggers run inside the statement which fired
+         * them, counts change in the same transaction as the rows, including Recordings deleted
+         * by cascade from a Cassette.
+         */
+        public static String[] getCreateTriggerStatements() {
+            String cassetteCount = " WHERE " + COLUMN_NAME_TABLE_NAME + " = '"
+                    + CassetteTable.TABLE_NAME + "' AND " + COLUMN_NAME_CASSETTE_ID + " = "
+                    + WHOLE_TABLE + ";";
+            String recordingCount = " WHERE " + COLUMN_NAME_TABLE_NAME + " = '"
+                    + RecordingTable.TABLE_NAME + "' AND " + COLUMN_NAME_CASSETTE_ID + " IN ("
+                    + WHOLE_TABLE + ", ";
+            String increment = "UPDATE " + TABLE_NAME + " SET " + COLUMN_NAME_COUNT + " = "
+                    + COLUMN_NAME_COUNT + " + 1";
+            String decrement = "UPDATE " + TABLE_NAME + " SET " + COLUMN_NAME_COUNT + " = "
+                    + COLUMN_NAME_COUNT + " - 1";
+            String newCassetteId = "NEW." + RecordingTable.COLUMN_NAME_CASSETTE_ID,
+                    oldCassetteId = "OLD." + RecordingTable.COLUMN_NAME_CASSETTE_ID;
+
+            return new String[]{
+                    "CREATE TRIGGER " + TABLE_NAME + "_cassette_on_insert AFTER INSERT ON "
+                            + CassetteTable.TABLE_NAME + " BEGIN " + increment + cassetteCount
+                            + " INSERT OR REPLACE INTO " + TABLE_NAME + " (" + COLUMN_NAME_TABLE_NAME
+                            + COMMA_SEP + COLUMN_NAME_CASSETTE_ID + COMMA_SEP + COLUMN_NAME_COUNT
+                            + ") VALUES ('" + RecordingTable.TABLE_NAME + "', NEW."
+                            + CassetteTable.COLUMN_NAME_ID + ", 0); END",
+                    "CREATE TRIGGER " + TABLE_NAME + "_cassette_on_delete AFTER DELETE ON "
+                            + CassetteTable.TABLE_NAME + " BEGIN " + decrement + cassetteCount
+                            + " DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_NAME_TABLE_NAME
+                            + " = '" + RecordingTable.TABLE_NAME + "' AND "
+                            + COLUMN_NAME_CASSETTE_ID + " = OLD." + CassetteTable.COLUMN_NAME_ID
+                            + "; END",
+                    "CREATE TRIGGER " + TABLE_NAME + "_recording_on_insert AFTER INSERT ON "
+                            + RecordingTable.TABLE_NAME + " BEGIN " + increment + recordingCount
+                            + newCassetteId + "); END",
+                    "CREATE TRIGGER " + TABLE_NAME + "_recording_on_delete AFTER DELETE ON "
+                            + RecordingTable.TABLE_NAME + " BEGIN " + decrement + recordingCount
+                            + oldCassetteId + "); END",
+                    "CREATE TRIGGER " + TABLE_NAME + "_recording_on_move AFTER UPDATE OF "
+                            + RecordingTable.COLUMN_NAME_CASSETTE_ID + " ON "
+                            + RecordingTable.TABLE_NAME + " WHEN " + oldCassetteId + " IS NOT "
+                            + newCassetteId + " BEGIN " + decrement + " WHERE "
+                            + COLUMN_NAME_TABLE_NAME + " = '" + RecordingTable.TABLE_NAME
+                            + "' AND " + COLUMN_NAME_CASSETTE_ID + " = " + oldCassetteId + "; "
+                            + increment + " WHERE " + COLUMN_NAME_TABLE_NAME + " = '"
+                            + RecordingTable.TABLE_NAME + "' AND " + COLUMN_NAME_CASSETTE_ID
+                            + " = " + newCassetteId + "; END"
+            };
+        }
+
+        public static String getDropTableStatement() {
+            return "drop table if exists " + TABLE_NAME;
+        }
+    }
 }
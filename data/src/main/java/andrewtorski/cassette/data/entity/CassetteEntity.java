@@ -51,6 +51,16 @@ public class CassetteEntity {
      * This string is null or empty if this.wasCompiled is 0.
      */
     public String compiledFilePath;
+    /**
+     * Hash of the inputs from which the compiled audio file was made.
+     * Null if this Cassette was never compiled.
+     */
+    public String compiledInputsHash;
+    /**
+     * UNIX time representation of date and time this Cassette was last played.
+     * 0 if it was never played.
+     */
+    public long dateTimeOfLastPlayback;
     /**
      * UNIX time representation of date and time of compilation of this Cassette.
      */
@@ -139,6 +149,8 @@ public class CassetteEntity {
         int isCompiledColumnIndex = cursor.getColumnIndex(CassetteDbContract.CassetteTable.COLUMN_NAME_IS_COMPILED);
         int compiledFilePathColumnIndex = cursor.getColumnIndex(CassetteDbContract.CassetteTable.COLUMN_NAME_COMPILED_FILE_PATH);
         int dateTimeCompilationColumnIndex = cursor.getColumnIndex(CassetteDbContract.CassetteTable.COLUMN_NAME_DATE_TIME_OF_COMPILATION);
+        int compiledInputsHashColumnIndex = cursor.getColumnIndex(CassetteDbContract.CassetteTable.COLUMN_NAME_COMPILED_INPUTS_HASH);
+        int dateTimeLastPlaybackColumnIndex = cursor.getColumnIndex(CassetteDbContract.CassetteTable.COLUMN_NAME_DATE_TIME_OF_LAST_PLAYBACK);
 
         long id = cursor.getLong(idColumnIndex);
         String title = cursor.getString(titleColumnIndex);
@@ -152,6 +164,8 @@ public class CassetteEntity {
 
         CassetteEntity cassette = new CassetteEntity(id, title, descripiton, dateTimeCreation, length,
                 numberOfRecordings, isCompiled, compiledFilePath, dateTimeCompilation);
+        cassette.compiledInputsHash = cursor.getString(compiledInputsHashColumnIndex);
+        cassette.dateTimeOfLastPlayback = cursor.getLong(dateTimeLastPlaybackColumnIndex);
 
         return cassette;
     }
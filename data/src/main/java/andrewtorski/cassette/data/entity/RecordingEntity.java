@@ -58,6 +58,28 @@ public class RecordingEntity {
      */
     public int sequenceInTheCassette;
 
+    /**
+     * Name of the AudioStorageFormat in which the audio file is kept.
+     * Null if the audio file is kept as it was captured.
+     */
+    public String audioStorageFormat;
+
+    /**
+     * Codec of the audio file, cached when the audio file was probed.
+     * Null if the audio file was not probed since it was last changed.
+     */
+    public String audioCodec;
+
+    /**
+     * Sample rate of the audio file, cached when the audio file was probed.
+     */
+    public int audioSampleRate;
+
+    /**
+     * Number of channels of the audio file, cached when the audio file was probed.
+     */
+    public int audioChannels;
+
     //endregion Public Fields
 
     //region Constructors
@@ -111,6 +133,8 @@ public class RecordingEntity {
         sb.append("\ntitle = ").append(title);
         sb.append("\ndescription = ").append(description);
         sb.append("\naudioFilePath = ").append(audioFilePath);
+        sb.append("\naudioStorageFormat = ").append(audioStorageFormat);
+        sb.append("\naudioCodec = ").append(audioCodec);
         sb.append("\ndateTimeOfRecording= ").append(dateTimeOfRecording);
 
         return sb.append("\n").toString();
@@ -142,6 +166,10 @@ public class RecordingEntity {
         int lengthColumnIndex = cursor.getColumnIndex(CassetteDbContract.RecordingTable.COLUMN_NAME_LENGTH);
         int audioFilePathColumnIndex = cursor.getColumnIndex(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_FILE_PATH);
         int sequenceInTheCassetteColumnIndex = cursor.getColumnIndex(CassetteDbContract.RecordingTable.COLUMN_NAME_SEQUENCE_IN_CASSETTE);
+        int audioStorageFormatColumnIndex = cursor.getColumnIndex(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_STORAGE_FORMAT);
+        int audioCodecColumnIndex = cursor.getColumnIndex(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_CODEC);
+        int audioSampleRateColumnIndex = cursor.getColumnIndex(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_SAMPLE_RATE);
+        int audioChannelsColumnIndex = cursor.getColumnIndex(CassetteDbContract.RecordingTable.COLUMN_NAME_AUDIO_CHANNELS);
 
         long id = cursor.getLong(idColumnIndex),
                 cassetteId = cursor.getLong(cassetteIdColumnIndex),
@@ -159,6 +187,10 @@ public class RecordingEntity {
 
         RecordingEntity result = new RecordingEntity(id, cassetteId, title, description, dateTimeOfRecording,
                 length, audioFilePath, sequenceInTheCassette);
+        result.audioStorageFormat = cursor.getString(audioStorageFormatColumnIndex);
+        result.audioCodec = cursor.getString(audioCodecColumnIndex);
+        result.audioSampleRate = cursor.getInt(audioSampleRateColumnIndex);
+        result.audioChannels = cursor.getInt(audioChannelsColumnIndex);
 
         return result;
     }
@@ -43,6 +43,10 @@ public class CassetteEntityDataMapper {
                 cassetteEntity.descripition, dateTimeOfCreation, cassetteEntity.length, isCompiled,
                 cassetteEntity.compiledFilePath, dateTimeOfCompilation,
                 cassetteEntity.numberOfRecordings);
+        cassette.setCompiledInputsHash(cassetteEntity.compiledInputsHash);
+        if (cassetteEntity.dateTimeOfLastPlayback != 0) {
+            cassette.setDateTimeOfLastPlayback(new Date(cassetteEntity.dateTimeOfLastPlayback));
+        }
 
         /* NOTE:
             This transformation does not include instantiating a collection of Recordings inside.
@@ -63,6 +67,10 @@ public class CassetteEntityDataMapper {
         CassetteEntity cassetteEntity = new CassetteEntity(cassette.getId(), cassette.getTitle(),
                 cassette.getDescription(), dateTimeOfCreation, cassette.getLength(),
                 cassette.getNumberOfRecordings(), isCompiled, cassette.getCompiledFilePath(), dateTimeOfCompilation);
+        cassetteEntity.compiledInputsHash = cassette.getCompiledInputsHash();
+        if (cassette.getDateTimeOfLastPlayback() != null) {
+            cassetteEntity.dateTimeOfLastPlayback = cassette.getDateTimeOfLastPlayback().getTime();
+        }
 
         return cassetteEntity;
     }
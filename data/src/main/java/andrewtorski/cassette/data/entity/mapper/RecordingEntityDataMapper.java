@@ -6,6 +6,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import andrewtorski.cassette.data.entity.RecordingEntity;
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
 import andrewtorski.cassette.domain.entity.Recording;
 
 /**
@@ -28,6 +29,12 @@ public class RecordingEntityDataMapper {
         Recording recording = new Recording(recordingEntity.id, recordingEntity.cassetteId,
                 recordingEntity.title, recordingEntity.description, dateTimeOfRecording,
                 recordingEntity.length, recordingEntity.audioFilePath, recordingEntity.sequenceInTheCassette);
+        recording.setAudioStorageFormat(recordingEntity.audioStorageFormat);
+        if (recordingEntity.audioCodec != null) {
+            recording.setAudioFileInfo(new AudioFileInfo(recordingEntity.audioCodec,
+                    recordingEntity.audioSampleRate, recordingEntity.audioChannels,
+                    recordingEntity.length));
+        }
 
         return recording;
     }
@@ -71,6 +78,10 @@ public class RecordingEntityDataMapper {
                 recording.getCassetteId(), recording.getTitle(), recording.getDescripition(),
                 recording.getDateTimeOfRecording().getTime(), recording.getLengthInMiliseconds(),
                 recording.getAudioFilePath(), recording.getSequenceInTheCassette());
+        recordingEntity.audioStorageFormat = recording.getAudioStorageFormat();
+        recordingEntity.audioCodec = recording.getAudioCodec();
+        recordingEntity.audioSampleRate = recording.getAudioSampleRate();
+        recordingEntity.audioChannels = recording.getAudioChannels();
 
         return recordingEntity;
     }
@@ -0,0 +1,204 @@
+package andrewtorski.cassette.data.log;
+
+import java.util.Arrays;
+
+/**
+ * Map of long keys to long values kept in two primitive arrays, with open addressing and linear
+ * probing. Nothing is boxed, so a million entries take about 32 MB at most instead of the
+ * hundred a HashMap of Longs would.
+ * <p/>
+ * Key 0 marks a free slot and cannot be stored; record ids start at 1. Values must not be
+ * negative, {@link #NO_VALUE} tells that a key is absent. Not thread safe.
+ */
+class LongLongHashMap {
+
+    /**
+     * Returned for keys which are not in the map.
+     */
+    static final long NO_VALUE = -1;
+
+    private static final int MINIMAL_CAPACITY = 16;
+
+    /**
+     * The map grows once three quarters of its slots are taken.
+     */
+    private static final float MAXIMAL_LOAD_FACTOR = 0.75f;
+
+    //region Private fields
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    /**
+     * Number of slots minus one, the number of slots being a power of two.
+     */
+    private int mask;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the LongLongHashMap, large enough to hold expectedSize
+     * entries without growing.
+     */
+    LongLongHashMap(int expectedSize) {
+        int capacity = MINIMAL_CAPACITY;
+        while (capacity * MAXIMAL_LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value of the provided key, or {@link #NO_VALUE} if it is absent.
+     */
+    long get(long key) {
+        int slot = slotOf(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Maps the provided key to the provided value.
+     *
+     * @return Previous value of the key, or {@link #NO_VALUE} if it was absent.
+     */
+    long put(long key, long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * MAXIMAL_LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Removes the provided key.
+     *
+     * @return Its value, or {@link #NO_VALUE} if it was absent.
+     */
+    long remove(long key) {
+        int slot = slotOf(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                long previous = values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Returns all keys, in ascending order.
+     */
+    long[] keys() {
+        long[] result = new long[size];
+        int i = 0;
+        for (long key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns all values, in no particular order.
+     */
+    long[] values() {
+        long[] result = new long[size];
+        int i = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                result[i++] = values[slot];
+            }
+        }
+        return result;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Empties the provided slot and moves back the entries which follow it in its probe run and
+     * could not have been placed there while it was taken, so that lookups need no tombstones.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (keys[next] != 0) {
+            int home = slotOf(keys[next]);
+            //  The entry may move to the free slot only if its home is not between the two.
+            boolean movable = free <= next ? (home <= free || home > next) : (home <= free && home > next);
+            if (movable) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = 0;
+        values[free] = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys, oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slotOf(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    //endregion Private helper methods
+}
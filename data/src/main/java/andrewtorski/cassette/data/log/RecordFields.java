@@ -0,0 +1,40 @@
+package andrewtorski.cassette.data.log;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writing and reading of fields of records which DataOutput and DataInput have no methods for.
+ */
+public final class RecordFields {
+
+    private RecordFields() {
+    }
+
+    /**
+     * Writes a String which may be null and may be longer than writeUTF allows.
+     */
+    public static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads a String written by {@link #writeString(DataOutput, String)}.
+     */
+    public static String readString(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,508 @@
+package andrewtorski.cassette.data.log;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Store of records, byte arrays keyed by id, kept in a single append-only file.
+ * <p/>
+ * Every write appends a record to the end of the file: a new version of a record, or a tombstone
+ * of a deleted one. Where the latest version of each record starts is kept in memory, in a
+ * primitive map of ids to offsets, so a read is one lookup and one positioned read. The map is
+ * rebuilt by scanning the file when it is opened; a record torn by a crash fails its checksum
+ * and is cut off together with whatever follows it.
+ * <p/>
+ * Superseded versions and tombstones are dead bytes. Once there are more of them than the
+ * compaction threshold, and they take at least half of the file, the live records are copied to
+ * a new file on a background thread, which then replaces the old one. Writes go on meanwhile;
+ * those made during the copy are carried over at the end. Tombstones are not copied, so a
+ * compacted file starts with a high-water mark record holding the largest id ever written, which
+ * keeps {@link #nextId()} from handing out the id of a deleted record again after reopening.
+ * <p/>
+ * Writes reach the operating system, so they survive the application being killed, but the file
+ * is forced to the disk only by {@link #sync()}, {@link #close()} and compaction.
+ */
+public class RecordLog implements Closeable {
+
+    /**
+     * Dead bytes above which the file is compacted by default.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD_BYTES = 1024 * 1024;
+
+    /**
+     * Largest record payload. Lengths of records are kept in 24 bits of index entries.
+     */
+    public static final int MAXIMAL_RECORD_LENGTH = (1 << 24) - 1 - RecordFormat.OVERHEAD;
+
+    /**
+     * Layout of a record: payload length, id, kind, payload and a CRC32 of id, kind and payload.
+     */
+    private static final class RecordFormat {
+        static final int HEADER = 4 + 8 + 1;
+        static final int OVERHEAD = HEADER + 4;
+
+        static final byte PUT = 1;
+        static final byte DELETE = 2;
+
+        /**
+         * Carries the largest id written to the log before it was compacted, and no payload.
+         */
+        static final byte HIGH_WATER_MARK = 3;
+    }
+
+    //region Private fields
+
+    /**
+     * Runs compactions of all logs, one at a time.
+     */
+    private static ExecutorService compactor;
+
+    private final File file;
+    private final long compactionThresholdBytes;
+
+    /**
+     * Held by a compaction for its whole duration, so that compactions do not overlap.
+     */
+    private final Object compactionLock = new Object();
+
+    private FileChannel channel;
+
+    /**
+     * Record id to index entry, which packs the offset of the latest version of the record with
+     * its length. See {@link #entry(long, int)}.
+     */
+    private LongLongHashMap index;
+
+    private long writeOffset;
+    private long deadBytes;
+    private long lastId;
+    private boolean compactionScheduled;
+    private boolean closed;
+
+    private final Runnable compactionTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                compact();
+            } catch (IOException e) {
+                //  The log stays as it is and compaction is tried again after the next write.
+            } finally {
+                synchronized (RecordLog.this) {
+                    compactionScheduled = false;
+                }
+            }
+        }
+    };
+
+    //endregion Private fields
+
+    //region Constructors
+
+    public RecordLog(File file) throws IOException {
+        this(file, DEFAULT_COMPACTION_THRESHOLD_BYTES);
+    }
+
+    /**
+     * Opens the log kept in the provided file, creating the file if it does not exist, and reads
+     * the index of its records.
+     *
+     * @param file                     File of the log.
+     * @param compactionThresholdBytes Dead bytes above which the file is compacted.
+     */
+    public RecordLog(File file, long compactionThresholdBytes) throws IOException {
+        this.file = file;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+
+        //  Left by a compaction which did not finish, the log itself is intact.
+        File compactedFile = getCompactedFile();
+        if (compactedFile.exists() && !compactedFile.delete()) {
+            throw new IOException("Could not delete " + compactedFile);
+        }
+
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+        this.index = new LongLongHashMap(0);
+        recover();
+    }
+
+    //endregion Constructors
+
+    //region Methods
+
+    /**
+     * Returns a new id, greater than the id of any record ever written to this log.
+     */
+    public synchronized long nextId() {
+        return ++lastId;
+    }
+
+    /**
+     * Writes the record of provided id, replacing its previous version, if any.
+     *
+     * @param id     Id of the record, greater than 0.
+     * @param record Content of the record.
+     */
+    public synchronized void put(long id, byte[] record) throws IOException {
+        ensureOpen();
+        if (record.length > MAXIMAL_RECORD_LENGTH) {
+            throw new IllegalArgumentException("Record of " + record.length + " bytes is too long");
+        }
+        long offset = append(id, RecordFormat.PUT, record);
+        long previous = index.put(id, entry(offset, RecordFormat.OVERHEAD + record.length));
+        if (previous != LongLongHashMap.NO_VALUE) {
+            deadBytes += lengthOf(previous);
+        }
+        lastId = Math.max(lastId, id);
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * Returns the record of provided id, or null if there is none.
+     */
+    public synchronized byte[] get(long id) throws IOException {
+        ensureOpen();
+        long entry = index.get(id);
+        if (entry == LongLongHashMap.NO_VALUE) {
+            return null;
+        }
+        ByteBuffer buffer = read(channel, offsetOf(entry), lengthOf(entry));
+        byte[] record = new byte[lengthOf(entry) - RecordFormat.OVERHEAD];
+        buffer.position(RecordFormat.HEADER);
+        buffer.get(record);
+        return record;
+    }
+
+    /**
+     * Deletes the record of provided id.
+     *
+     * @return Was there such record.
+     */
+    public synchronized boolean delete(long id) throws IOException {
+        ensureOpen();
+        long entry = index.get(id);
+        if (entry == LongLongHashMap.NO_VALUE) {
+            return false;
+        }
+        append(id, RecordFormat.DELETE, new byte[0]);
+        index.remove(id);
+        deadBytes += lengthOf(entry) + RecordFormat.OVERHEAD;
+        scheduleCompactionIfNeeded();
+        return true;
+    }
+
+    public synchronized boolean contains(long id) {
+        return index.get(id) != LongLongHashMap.NO_VALUE;
+    }
+
+    /**
+     * Returns the number of records.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns ids of all records, in ascending order.
+     */
+    public synchronized long[] ids() {
+        return index.keys();
+    }
+
+    /**
+     * Returns the length of the file, of which {@link #getDeadBytes()} are taken by superseded
+     * records and tombstones.
+     */
+    public synchronized long getLength() {
+        return writeOffset;
+    }
+
+    public synchronized long getDeadBytes() {
+        return deadBytes;
+    }
+
+    /**
+     * Forces everything written so far to the disk.
+     */
+    public synchronized void sync() throws IOException {
+        ensureOpen();
+        channel.force(false);
+    }
+
+    /**
+     * Copies the live records to a new file which then replaces the current one, on the calling
+     * thread. Records may be written meanwhile from other threads.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            long[] entries;
+            long copiedUntil;
+            long highWaterMark;
+            FileChannel source;
+            synchronized (this) {
+                if (closed || deadBytes == 0) {
+                    return;
+                }
+                entries = index.values();
+                copiedUntil = writeOffset;
+                highWaterMark = lastId;
+                source = channel;
+            }
+
+            File compactedFile = getCompactedFile();
+            FileChannel target = new RandomAccessFile(compactedFile, "rw").getChannel();
+            try {
+                target.truncate(0);
+                //  The offset is kept in the high bits, so this sorts them by offset and the old
+                //  file is read front to back.
+                Arrays.sort(entries);
+                LongLongHashMap compactedIndex = new LongLongHashMap(entries.length);
+                //  Ids written during the copy are carried over below, so the mark needs to
+                //  cover only those written before.
+                ByteBuffer mark = format(highWaterMark, RecordFormat.HIGH_WATER_MARK, new byte[0]);
+                write(target, mark, 0);
+                long targetOffset = mark.capacity();
+                for (long entry : entries) {
+                    ByteBuffer buffer = read(source, offsetOf(entry), lengthOf(entry));
+                    long id = buffer.getLong(4);
+                    write(target, buffer, targetOffset);
+                    compactedIndex.put(id, entry(targetOffset, lengthOf(entry)));
+                    targetOffset += lengthOf(entry);
+                }
+
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    long compactedDeadBytes = 0;
+                    //  Carry over what was written during the copy, tombstones included, as the
+                    //  records they delete may have been copied.
+                    long offset = copiedUntil;
+                    while (offset < writeOffset) {
+                        ByteBuffer header = read(channel, offset, RecordFormat.HEADER);
+                        int length = RecordFormat.OVERHEAD + header.getInt(0);
+                        ByteBuffer buffer = read(channel, offset, length);
+                        long id = buffer.getLong(4);
+                        write(target, buffer, targetOffset);
+                        long previous;
+                        if (buffer.get(12) == RecordFormat.PUT) {
+                            previous = compactedIndex.put(id, entry(targetOffset, length));
+                        } else {
+                            previous = compactedIndex.remove(id);
+                            compactedDeadBytes += length;
+                        }
+                        if (previous != LongLongHashMap.NO_VALUE) {
+                            compactedDeadBytes += lengthOf(previous);
+                        }
+                        targetOffset += length;
+                        offset += length;
+                    }
+                    target.force(false);
+
+                    if (!compactedFile.renameTo(file)) {
+                        throw new IOException("Could not replace " + file + " with " + compactedFile);
+                    }
+                    channel.close();
+                    channel = target;
+                    target = null;
+                    index = compactedIndex;
+                    writeOffset = targetOffset;
+                    deadBytes = compactedDeadBytes;
+                }
+            } finally {
+                if (target != null) {
+                    target.close();
+                    compactedFile.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces the log to the disk and closes its file. Does not wait for a running compaction,
+     * which gives up instead.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    /**
+     * Rebuilds the index by reading the whole file, and cuts off a torn record at its end.
+     */
+    private void recover() throws IOException {
+        long length = channel.size();
+        long offset = 0;
+        CRC32 crc = new CRC32();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+                64 * 1024));
+        try {
+            byte[] payload = new byte[0];
+            while (offset + RecordFormat.OVERHEAD <= length) {
+                int payloadLength = input.readInt();
+                if (payloadLength < 0 || payloadLength > MAXIMAL_RECORD_LENGTH
+                        || offset + RecordFormat.OVERHEAD + payloadLength > length) {
+                    break;
+                }
+                long id = input.readLong();
+                byte kind = input.readByte();
+                if (payload.length < payloadLength) {
+                    payload = new byte[payloadLength];
+                }
+                input.readFully(payload, 0, payloadLength);
+                int checksum = input.readInt();
+
+                crc.reset();
+                updateChecksum(crc, id, kind);
+                crc.update(payload, 0, payloadLength);
+                if ((int) crc.getValue() != checksum || id <= 0 || (kind != RecordFormat.PUT
+                        && kind != RecordFormat.DELETE && kind != RecordFormat.HIGH_WATER_MARK)) {
+                    break;
+                }
+
+                int recordLength = RecordFormat.OVERHEAD + payloadLength;
+                long previous = LongLongHashMap.NO_VALUE;
+                if (kind == RecordFormat.PUT) {
+                    previous = index.put(id, entry(offset, recordLength));
+                } else if (kind == RecordFormat.DELETE) {
+                    previous = index.remove(id);
+                    deadBytes += recordLength;
+                }
+                if (previous != LongLongHashMap.NO_VALUE) {
+                    deadBytes += lengthOf(previous);
+                }
+                lastId = Math.max(lastId, id);
+                offset += recordLength;
+            }
+        } catch (EOFException e) {
+            //  Torn record, cut off below.
+        } finally {
+            input.close();
+        }
+
+        if (offset < length) {
+            channel.truncate(offset);
+        }
+        writeOffset = offset;
+    }
+
+    /**
+     * Appends a record to the end of the file.
+     *
+     * @return Offset of the record.
+     */
+    private long append(long id, byte kind, byte[] payload) throws IOException {
+        ByteBuffer buffer = format(id, kind, payload);
+        long offset = writeOffset;
+        write(channel, buffer, offset);
+        writeOffset += buffer.capacity();
+        return offset;
+    }
+
+    private static ByteBuffer format(long id, byte kind, byte[] payload) {
+        CRC32 crc = new CRC32();
+        updateChecksum(crc, id, kind);
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RecordFormat.OVERHEAD + payload.length);
+        buffer.putInt(payload.length).putLong(id).put(kind).put(payload).putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (!compactionScheduled && deadBytes >= compactionThresholdBytes && deadBytes * 2 >= writeOffset) {
+            compactionScheduled = true;
+            getCompactor().execute(compactionTask);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Log " + file + " is closed");
+        }
+    }
+
+    private File getCompactedFile() {
+        return new File(file.getPath() + ".compacted");
+    }
+
+    private static void updateChecksum(CRC32 crc, long id, byte kind) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (id >>> shift));
+        }
+        crc.update(kind);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Record at " + offset + " ends past the end of the log");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+    }
+
+    /**
+     * Packs the offset of a record, in the 40 high bits, with its length, in the 24 low bits.
+     */
+    private static long entry(long offset, int length) {
+        return (offset << 24) | length;
+    }
+
+    private static long offsetOf(long entry) {
+        return entry >>> 24;
+    }
+
+    private static int lengthOf(long entry) {
+        return (int) (entry & 0xFFFFFF);
+    }
+
+    private static synchronized ExecutorService getCompactor() {
+        if (compactor == null) {
+            compactor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "RecordLogCompaction");
+                            thread.setDaemon(true);
+                            thread.setPriority(Thread.MIN_PRIORITY);
+                            return thread;
+                        }
+                    });
+        }
+        return compactor;
+    }
+
+    //endregion Private helper methods
+}
@@ -8,8 +8,10 @@ import andrewtorski.cassette.data.entity.CassetteEntity;
 import andrewtorski.cassette.data.entity.mapper.CassetteEntityDataMapper;
 import andrewtorski.cassette.data.repository.datasource.CassetteDataStore;
 import andrewtorski.cassette.data.repository.datasource.DbCassetteDataStore;
+import andrewtorski.cassette.data.repository.datasource.WriteBehindCassetteDataStore;
 import andrewtorski.cassette.domain.entity.Cassette;
 import andrewtorski.cassette.domain.repository.CassetteRepository;
+import andrewtorski.cassette.domain.repository.ChangeNotifier;
 
 /**
  * Implementation of the @{andrewtorski.cassette.domain.repository.CassetteRepository}.
@@ -32,6 +34,11 @@ public class CassetteDataRepository implements CassetteRepository {
      */
     private CassetteEntityDataMapper mapper = new CassetteEntityDataMapper();
 
+    /**
+     * Publishes changes made through this repository.
+     */
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+
     //endregion Private fields
 
     //region Constructors
@@ -50,9 +57,10 @@ public class CassetteDataRepository implements CassetteRepository {
     /**
      * Initializes a new instance of the CassetteDataRepository class with it's CassetteDataStore
      * implicitly set to DbCassetteStore which utilizes SQLite database to persist and retrieve data.
+     * Updates are written behind, in batches.
      */
     public CassetteDataRepository() {
-        this.cassetteDataStore = new DbCassetteDataStore();
+        this.cassetteDataStore = new WriteBehindCassetteDataStore(new DbCassetteDataStore());
     }
 
     //endregion Constructors
@@ -72,6 +80,9 @@ public class CassetteDataRepository implements CassetteRepository {
         cassetteEntity = cassetteDataStore.create(cassetteEntity);
 
         cassette = mapper.transform(cassetteEntity);
+        if (cassette != null && cassette.getId() != -1) {
+            changeNotifier.publishCreated(cassette.getId());
+        }
 
         return cassette;
     }
@@ -96,6 +107,14 @@ public class CassetteDataRepository implements CassetteRepository {
         return mapper.transform(cassetteEntity);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Cassette> getAll(long[] cassetteIds) {
+        return mapper.transform(cassetteDataStore.getAll(cassetteIds));
+    }
+
     /**
      * Returns a list of all Cassettes present.
      * These Cassettes do not include their associated Recordings.
@@ -153,6 +172,52 @@ public class CassetteDataRepository implements CassetteRepository {
         CassetteEntity cassetteEntity = mapper.transform(cassette);
 
         boolean wasSuccess = cassetteDataStore.update(cassetteEntity);
+        if (wasSuccess) {
+            changeNotifier.publishUpdated(cassette.getId());
+        }
+
+        return wasSuccess;
+    }
+
+    /**
+     * Records that the Cassette was played at provided date and time.
+     *
+     * @param cassette Cassette which was played.
+     * @param dateTime Date and time of the playback.
+     * @return Was update successful.
+     */
+    @Override
+    public boolean updateDateTimeOfLastPlayback(Cassette cassette, Date dateTime) {
+        if (!cassetteDataStore.updateDateTimeOfLastPlayback(cassette.getId(), dateTime.getTime())) {
+            return false;
+        }
+        cassette.setDateTimeOfLastPlayback(dateTime);
+        changeNotifier.publishUpdated(cassette.getId());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean updateCompilation(Cassette cassette) {
+        boolean wasSuccess = cassetteDataStore.updateCompilation(mapper.transform(cassette));
+        if (wasSuccess) {
+            changeNotifier.publishUpdated(cassette.getId());
+        }
+
+        return wasSuccess;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addToLength(long cassetteId, int lengthDifference) {
+        boolean wasSuccess = cassetteDataStore.addToLength(cassetteId, lengthDifference);
+        if (wasSuccess) {
+            changeNotifier.publishUpdated(cassetteId);
+        }
 
         return wasSuccess;
     }
@@ -181,6 +246,9 @@ public class CassetteDataRepository implements CassetteRepository {
     @Override
     public boolean delete(long id) {
         boolean wasSuccess = cassetteDataStore.delete(id);
+        if (wasSuccess) {
+            changeNotifier.publishDeleted(id);
+        }
 
         return wasSuccess;
     }
@@ -193,5 +261,13 @@ public class CassetteDataRepository implements CassetteRepository {
         return cassetteDataStore.count();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
     //endregion CassetteRepository implemented methods
 }
@@ -1,5 +1,7 @@
 package andrewtorski.cassette.data.repository;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -7,9 +9,16 @@ import andrewtorski.cassette.data.entity.RecordingEntity;
 import andrewtorski.cassette.data.entity.mapper.RecordingEntityDataMapper;
 import andrewtorski.cassette.data.repository.datasource.DbRecordingDataStore;
 import andrewtorski.cassette.data.repository.datasource.RecordingDataStore;
+import andrewtorski.cassette.data.repository.datasource.WriteBehindRecordingDataStore;
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
 import andrewtorski.cassette.domain.entity.Cassette;
 import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.repository.ChangeNotifier;
+import andrewtorski.cassette.domain.repository.CloseableIterator;
+import andrewtorski.cassette.domain.repository.MappingIterator;
 import andrewtorski.cassette.domain.repository.RecordingRepository;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
 
 /**
  * Implementation of the @{andrewtorski.cassette.domain.repository.RecordingRepository}.
@@ -32,6 +41,11 @@ public class RecordingDataRepository implements RecordingRepository {
      */
     private RecordingEntityDataMapper mapper = new RecordingEntityDataMapper();
 
+    /**
+     * Publishes changes made through this repository.
+     */
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+
     //endregion Private fields
 
     //region Constructors
@@ -50,9 +64,10 @@ public class RecordingDataRepository implements RecordingRepository {
     /**
      * Initializes a new instance of the RecordingDataRepository class with it's RecordingDataStore
      * implicitly set to DbRecordingStore which utilizes SQLite database to persist and retrieve data.
+     * Updates of titles and descriptions are written behind, in batches.
      */
     public RecordingDataRepository() {
-        this.dataStore = new DbRecordingDataStore();
+        this.dataStore = new WriteBehindRecordingDataStore(new DbRecordingDataStore());
     }
 
     //endregion Constructors
@@ -75,10 +90,39 @@ public class RecordingDataRepository implements RecordingRepository {
         recordingEntity = dataStore.create(recordingEntity);
 
         recording = mapper.transfrom(recordingEntity);
+        if (recording != null && recording.getId() != -1) {
+            changeNotifier.publishCreated(recording.getId());
+        }
 
         return recording;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Recording> createAll(List<Recording> recordings) {
+        List<RecordingEntity> recordingEntityList = new ArrayList<>(recordings.size());
+        for (Recording recording : recordings) {
+            recordingEntityList.add(new RecordingEntity(recording.getCassetteId(),
+                    recording.getSequenceInTheCassette(), recording.getDateTimeOfRecording(),
+                    recording.getAudioFilePath(), recording.getLengthInMiliseconds()));
+        }
+
+        recordingEntityList = dataStore.createAll(recordingEntityList);
+
+        //  Published once all transactions of the data store were committed.
+        ChangeNotifier.Batch batch = changeNotifier.beginBatch();
+        for (RecordingEntity recordingEntity : recordingEntityList) {
+            if (recordingEntity.id != -1) {
+                batch.created(recordingEntity.id);
+            }
+        }
+        batch.publish();
+
+        return mapper.transform(recordingEntityList);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -89,6 +133,14 @@ public class RecordingDataRepository implements RecordingRepository {
         return mapper.transfrom(recordingEntity);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Recording> getAll(long[] ids) {
+        return mapper.transform(dataStore.getAll(ids));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -96,7 +148,12 @@ public class RecordingDataRepository implements RecordingRepository {
     public boolean update(Recording recording) {
         RecordingEntity recordingEntity = mapper.transform(recording);
 
-        return dataStore.update(recordingEntity);
+        boolean wasSuccess = dataStore.update(recordingEntity);
+        if (wasSuccess) {
+            changeNotifier.publishUpdated(recording.getId());
+        }
+
+        return wasSuccess;
     }
 
     /**
@@ -112,7 +169,12 @@ public class RecordingDataRepository implements RecordingRepository {
      */
     @Override
     public boolean delete(long id) {
-        return dataStore.delete(id);
+        boolean wasSuccess = dataStore.delete(id);
+        if (wasSuccess) {
+            changeNotifier.publishDeleted(id);
+        }
+
+        return wasSuccess;
     }
 
     /**
@@ -169,6 +231,42 @@ public class RecordingDataRepository implements RecordingRepository {
         return mapper.transform(recordingEntityList);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CloseableIterator<Recording> iterateBetweenDates(Date fromDate, Date toDate) {
+        return transform(dataStore.getIteratorBetweenDates(fromDate.getTime(), toDate.getTime()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CloseableIterator<Recording> iterateBetweenDatesForCassette(Cassette cassette, Date fromDate,
+                                                                       Date toDate) {
+        return transform(dataStore.getIteratorBetweenDatesForCassette(cassette.getId(),
+                fromDate.getTime(), toDate.getTime()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RecordingStatistics getStatistics(TimeBucket timeBucket, Date fromDate, Date toDate) {
+        return dataStore.getStatistics(timeBucket, fromDate.getTime(), toDate.getTime());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RecordingStatistics getStatisticsForCassette(Cassette cassette, TimeBucket timeBucket, Date fromDate,
+                                                        Date toDate) {
+        return dataStore.getStatisticsForCassette(cassette.getId(), timeBucket, fromDate.getTime(),
+                toDate.getTime());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -187,5 +285,99 @@ public class RecordingDataRepository implements RecordingRepository {
         return dataStore.count();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countForCassette(long cassetteId) {
+        return dataStore.countForCassette(cassetteId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CloseableIterator<String> iterateAudioFilePaths() {
+        return dataStore.getAudioFilePathIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Recording> getAllRecordedBeforeNotInStorageFormat(Date recordedBefore, String storageFormat,
+                                                                  Recording after, int limit) {
+        long afterDateTime = after == null ? Long.MIN_VALUE : after.getDateTimeOfRecording().getTime(),
+                afterId = after == null ? Long.MIN_VALUE : after.getId();
+
+        List<RecordingEntity> recordingEntityList = dataStore.getPageRecordedBeforeNotInStorageFormat(
+                recordedBefore.getTime(), storageFormat, afterDateTime, afterId, limit);
+
+        return mapper.transform(recordingEntityList);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean swapAudioFile(Recording recording, String audioFilePath, String audioStorageFormat) {
+        if (recording == null) {
+            return false;
+        }
+
+        boolean wasSwapped = dataStore.swapAudioFile(recording.getId(), recording.getAudioFilePath(),
+                audioFilePath, audioStorageFormat);
+        if (wasSwapped) {
+            recording.setAudioFile(new File(audioFilePath), audioStorageFormat);
+            changeNotifier.publishUpdated(recording.getId());
+        }
+
+        return wasSwapped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean updateAudioFileInfo(Recording recording, AudioFileInfo audioFileInfo) {
+        if (recording == null) {
+            return false;
+        }
+
+        boolean wasUpdated = dataStore.updateAudioFileInfo(recording.getId(),
+                (int) audioFileInfo.getDurationInMilliseconds(), audioFileInfo.getCodec(),
+                audioFileInfo.getSampleRate(), audioFileInfo.getChannels());
+        if (wasUpdated) {
+            recording.setAudioFileInfo(audioFileInfo);
+            changeNotifier.publishUpdated(recording.getId());
+        }
+
+        return wasUpdated;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
     //endregion RecordingRepository implemented methods.
+
+    //region Private helper methods
+
+    /**
+     * Maps RecordingEntities into Recordings as they are iterated over.
+     */
+    private CloseableIterator<Recording> transform(CloseableIterator<RecordingEntity> recordingEntities) {
+        return new MappingIterator<RecordingEntity, Recording>(recordingEntities) {
+            @Override
+            protected Recording map(RecordingEntity recordingEntity) {
+                return mapper.transfrom(recordingEntity);
+            }
+        };
+    }
+
+    //endregion Private helper methods
 }
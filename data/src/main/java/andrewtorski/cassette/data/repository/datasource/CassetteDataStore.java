@@ -21,6 +21,15 @@ public interface CassetteDataStore {
      */
     CassetteEntity get(final long cassetteId);
 
+    /**
+     * Retrieves CassetteEntities of provided ids, in the order of the ids. Ids of which no
+     * CassetteEntity exists are skipped.
+     *
+     * @param cassetteIds Ids of the CassetteEntities.
+     * @return List of found CassetteEntities.
+     */
+    List<CassetteEntity> getAll(long[] cassetteIds);
+
     /**
      * Returns a list of all CassetteEntities in the database.
      *
@@ -47,6 +56,52 @@ public interface CassetteDataStore {
      */
     boolean update(CassetteEntity cassetteEntity);
 
+    /**
+     * Updates all provided CassetteEntities at once, in one transaction where the store has
+     * transactions.
+     *
+     * @param cassetteEntities CassetteEntities to be updated.
+     * @return For every CassetteEntity, was it updated.
+     */
+    boolean[] updateAll(List<CassetteEntity> cassetteEntities);
+
+    /**
+     * Updates only titles and descriptions of all provided CassetteEntities at once, in one
+     * transaction where the store has transactions.
+     *
+     * @param cassetteEntities CassetteEntities carrying the new titles and descriptions.
+     * @return For every CassetteEntity, was it updated.
+     */
+    boolean[] updateTitlesAndDescriptions(List<CassetteEntity> cassetteEntities);
+
+    /**
+     * Records that the CassetteEntity of provided identifier was played.
+     *
+     * @param id                     Identifier of the CassetteEntity.
+     * @param dateTimeOfLastPlayback UNIX time of the playback.
+     * @return Was this operation successful.
+     */
+    boolean updateDateTimeOfLastPlayback(long id, long dateTimeOfLastPlayback);
+
+    /**
+     * Updates only whether the CassetteEntity is compiled, its compiled file path, date and time
+     * of compilation and compiled inputs hash, leaving every other column as it is stored.
+     *
+     * @param cassetteEntity CassetteEntity carrying the compilation state.
+     * @return Was this operation successful.
+     */
+    boolean updateCompilation(CassetteEntity cassetteEntity);
+
+    /**
+     * Adds the provided difference to the stored length of the CassetteEntity of provided
+     * identifier, leaving every other column as it is stored.
+     *
+     * @param id               Identifier of the CassetteEntity.
+     * @param lengthDifference Milliseconds to add, negative to shorten it.
+     * @return Was this operation successful.
+     */
+    boolean addToLength(long id, int lengthDifference);
+
     /**
      * Deletes provided CassetteEntity.
      *
@@ -2,10 +2,14 @@ package andrewtorski.cassette.data.repository.datasource;
 
 import android.database.Cursor;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import andrewtorski.cassette.data.db.CassetteDataDbAdapter;
+import andrewtorski.cassette.data.db.helper.InClause;
 import andrewtorski.cassette.data.entity.CassetteEntity;
 
 /**
@@ -64,6 +68,31 @@ public class DbCassetteDataStore implements CassetteDataStore {
         return DbCassetteDataStore.getListOfCassettesFromCursor(cursor);
     }
 
+    /**
+     * Reads the CassetteEntities in chunks of {@link InClause#MAX_VALUES} ids, one query per
+     * chunk.
+     */
+    @Override
+    public List<CassetteEntity> getAll(long[] cassetteIds) {
+        Map<Long, CassetteEntity> foundEntities = new HashMap<>(cassetteIds.length * 2);
+        for (int chunkStart = 0; chunkStart < cassetteIds.length; chunkStart += InClause.MAX_VALUES) {
+            int chunkEnd = Math.min(chunkStart + InClause.MAX_VALUES, cassetteIds.length);
+            Cursor cursor = dbAdapter.getByIds(cassetteIds, chunkStart, chunkEnd);
+            for (CassetteEntity cassetteEntity : getListOfCassettesFromCursor(cursor)) {
+                foundEntities.put(cassetteEntity.id, cassetteEntity);
+            }
+        }
+
+        List<CassetteEntity> cassetteEntityList = new ArrayList<>(foundEntities.size());
+        for (long id : cassetteIds) {
+            CassetteEntity cassetteEntity = foundEntities.get(id);
+            if (cassetteEntity != null) {
+                cassetteEntityList.add(cassetteEntity);
+            }
+        }
+        return cassetteEntityList;
+    }
+
     @Override
     public List<CassetteEntity> getAllBetweenDates(long fromDate, long toDate) {
         Cursor cursor = dbAdapter.getAllCreatedBetweenDates(fromDate, toDate);
@@ -78,11 +107,76 @@ public class DbCassetteDataStore implements CassetteDataStore {
 
         boolean wasSuccess = dbAdapter.update(cassetteEntity.id, cassetteEntity.title,
                 cassetteEntity.descripition, cassetteEntity.length, cassetteEntity.numberOfRecordings,
-                cassetteEntity.isCompiled, cassetteEntity.compiledFilePath, cassetteEntity.dateTimeOfCompilation);
+                cassetteEntity.isCompiled, cassetteEntity.compiledFilePath, cassetteEntity.dateTimeOfCompilation,
+                cassetteEntity.compiledInputsHash);
 
         return wasSuccess;
     }
 
+    @Override
+    public boolean[] updateAll(List<CassetteEntity> cassetteEntities) {
+        int count = cassetteEntities.size();
+        long[] ids = new long[count];
+        String[] titles = new String[count], descriptions = new String[count];
+        int[] lengths = new int[count], numbersOfRecordings = new int[count], isCompiled = new int[count];
+        String[] compiledFilePaths = new String[count], compiledInputsHashes = new String[count];
+        long[] datesTimeOfCompilation = new long[count];
+
+        int i = 0;
+        for (CassetteEntity cassetteEntity : cassetteEntities) {
+            ids[i] = cassetteEntity.id;
+            titles[i] = cassetteEntity.title;
+            descriptions[i] = cassetteEntity.descripition;
+            lengths[i] = cassetteEntity.length;
+            numbersOfRecordings[i] = cassetteEntity.numberOfRecordings;
+            isCompiled[i] = cassetteEntity.isCompiled;
+            compiledFilePaths[i] = cassetteEntity.compiledFilePath;
+            datesTimeOfCompilation[i] = cassetteEntity.dateTimeOfCompilation;
+            compiledInputsHashes[i] = cassetteEntity.compiledInputsHash;
+            i++;
+        }
+
+        return dbAdapter.updateAll(ids, titles, descriptions, lengths, numbersOfRecordings,
+                isCompiled, compiledFilePaths, datesTimeOfCompilation, compiledInputsHashes);
+    }
+
+    @Override
+    public boolean[] updateTitlesAndDescriptions(List<CassetteEntity> cassetteEntities) {
+        int count = cassetteEntities.size();
+        long[] ids = new long[count];
+        String[] titles = new String[count], descriptions = new String[count];
+
+        int i = 0;
+        for (CassetteEntity cassetteEntity : cassetteEntities) {
+            ids[i] = cassetteEntity.id;
+            titles[i] = cassetteEntity.title;
+            descriptions[i] = cassetteEntity.descripition;
+            i++;
+        }
+
+        return dbAdapter.updateTitlesAndDescriptions(ids, titles, descriptions);
+    }
+
+    @Override
+    public boolean updateDateTimeOfLastPlayback(long id, long dateTimeOfLastPlayback) {
+        return dbAdapter.updateDateTimeOfLastPlayback(id, dateTimeOfLastPlayback);
+    }
+
+    @Override
+    public boolean updateCompilation(CassetteEntity cassetteEntity) {
+        if (cassetteEntity == null) {
+            return false;
+        }
+        return dbAdapter.updateCompilation(cassetteEntity.id, cassetteEntity.isCompiled,
+                cassetteEntity.compiledFilePath, cassetteEntity.dateTimeOfCompilation,
+                cassetteEntity.compiledInputsHash);
+    }
+
+    @Override
+    public boolean addToLength(long id, int lengthDifference) {
+        return dbAdapter.addToLength(id, lengthDifference);
+    }
+
     @Override
     public boolean delete(CassetteEntity cassetteEntity) {
         if (cassetteEntity == null) {
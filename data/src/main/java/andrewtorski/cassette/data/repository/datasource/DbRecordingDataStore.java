@@ -2,17 +2,31 @@ package andrewtorski.cassette.data.repository.datasource;
 
 import android.database.Cursor;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import andrewtorski.cassette.data.db.CursorIterator;
 import andrewtorski.cassette.data.db.RecordingDataDbAdapter;
+import andrewtorski.cassette.data.db.schema.CassetteDbContract;
+import andrewtorski.cassette.data.db.helper.InClause;
 import andrewtorski.cassette.data.entity.RecordingEntity;
+import andrewtorski.cassette.domain.repository.CloseableIterator;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
 
 /**
  * {@link andrewtorski.cassette.data.repository.datasource.RecordingDataStore} implementation based on SQLite database.
  */
 public class DbRecordingDataStore implements RecordingDataStore {
 
+    /**
+     * Maximal number of RecordingEntities inserted by {@link #createAll(List)} in one transaction.
+     */
+    private static final int INSERT_CHUNK_SIZE = 256;
+
     private RecordingDataDbAdapter dbAdapter;
 
     public DbRecordingDataStore() {
@@ -28,13 +42,51 @@ public class DbRecordingDataStore implements RecordingDataStore {
         long dateTimeOfRecording = recordingEntity.dateTimeOfRecording;
         String filePath = recordingEntity.audioFilePath;
         int length = recordingEntity.length;
-        long id = dbAdapter.create(cassetteId, sequenceInCassette, dateTimeOfRecording, filePath, length);
+        long id = dbAdapter.create(cassetteId, sequenceInCassette, dateTimeOfRecording, filePath,
+                length, recordingEntity.audioCodec, recordingEntity.audioSampleRate,
+                recordingEntity.audioChannels);
 
         recordingEntity.id = id;
 
         return recordingEntity;
     }
 
+    @Override
+    public List<RecordingEntity> createAll(List<RecordingEntity> recordingEntities) {
+        int count = recordingEntities.size();
+        long[] cassetteIds = new long[count];
+        int[] sequencesInCassette = new int[count];
+        long[] datesTimeOfRecording = new long[count];
+        String[] filePaths = new String[count];
+        int[] lengths = new int[count];
+        String[] audioCodecs = new String[count];
+        int[] audioSampleRates = new int[count];
+        int[] audioChannels = new int[count];
+
+        int i = 0;
+        for (RecordingEntity recordingEntity : recordingEntities) {
+            cassetteIds[i] = recordingEntity.cassetteId;
+            sequencesInCassette[i] = recordingEntity.sequenceInTheCassette;
+            datesTimeOfRecording[i] = recordingEntity.dateTimeOfRecording;
+            filePaths[i] = recordingEntity.audioFilePath;
+            lengths[i] = recordingEntity.length;
+            audioCodecs[i] = recordingEntity.audioCodec;
+            audioSampleRates[i] = recordingEntity.audioSampleRate;
+            audioChannels[i] = recordingEntity.audioChannels;
+            i++;
+        }
+
+        long[] ids = dbAdapter.createAll(cassetteIds, sequencesInCassette, datesTimeOfRecording,
+                filePaths, lengths, audioCodecs, audioSampleRates, audioChannels, INSERT_CHUNK_SIZE);
+
+        i = 0;
+        for (RecordingEntity recordingEntity : recordingEntities) {
+            recordingEntity.id = ids[i++];
+        }
+
+        return recordingEntities;
+    }
+
     @Override
     public RecordingEntity get(long recordingId) {
         Cursor cursor = dbAdapter.getById(recordingId);
@@ -55,6 +107,31 @@ public class DbRecordingDataStore implements RecordingDataStore {
         return DbRecordingDataStore.getListOfRecordingsFromCursor(cursor);
     }
 
+    /**
+     * Reads the RecordingEntities in chunks of {@link InClause#MAX_VALUES} ids, one query per
+     * chunk.
+     */
+    @Override
+    public List<RecordingEntity> getAll(long[] recordingIds) {
+        Map<Long, RecordingEntity> foundEntities = new HashMap<>(recordingIds.length * 2);
+        for (int chunkStart = 0; chunkStart < recordingIds.length; chunkStart += InClause.MAX_VALUES) {
+            int chunkEnd = Math.min(chunkStart + InClause.MAX_VALUES, recordingIds.length);
+            Cursor cursor = dbAdapter.getByIds(recordingIds, chunkStart, chunkEnd);
+            for (RecordingEntity recordingEntity : getListOfRecordingsFromCursor(cursor)) {
+                foundEntities.put(recordingEntity.id, recordingEntity);
+            }
+        }
+
+        List<RecordingEntity> recordingEntityList = new ArrayList<>(foundEntities.size());
+        for (long id : recordingIds) {
+            RecordingEntity recordingEntity = foundEntities.get(id);
+            if (recordingEntity != null) {
+                recordingEntityList.add(recordingEntity);
+            }
+        }
+        return recordingEntityList;
+    }
+
     @Override
     public List<RecordingEntity> getAllForCassette(long cassetteId) {
         Cursor cursor = dbAdapter.getAllForCassette(cassetteId);
@@ -76,6 +153,37 @@ public class DbRecordingDataStore implements RecordingDataStore {
         return DbRecordingDataStore.getListOfRecordingsFromCursor(cursor);
     }
 
+    @Override
+    public CloseableIterator<RecordingEntity> getIteratorBetweenDates(long fromDate, long toDate) {
+        Cursor cursor = dbAdapter.getAllBetween(fromDate, toDate);
+
+        return DbRecordingDataStore.getIteratorOfRecordingsFromCursor(cursor);
+    }
+
+    @Override
+    public CloseableIterator<RecordingEntity> getIteratorBetweenDatesForCassette(long cassetteId, long fromDate,
+                                                                                 long toDate) {
+        Cursor cursor = dbAdapter.getAllForCassetteBetweenDates(cassetteId, fromDate, toDate);
+
+        return DbRecordingDataStore.getIteratorOfRecordingsFromCursor(cursor);
+    }
+
+    @Override
+    public RecordingStatistics getStatistics(TimeBucket timeBucket, long fromDate, long toDate) {
+        Cursor cursor = dbAdapter.getStatistics(getBucketModifiers(timeBucket), fromDate, toDate);
+
+        return DbRecordingDataStore.getStatisticsFromCursor(timeBucket, cursor);
+    }
+
+    @Override
+    public RecordingStatistics getStatisticsForCassette(long cassetteId, TimeBucket timeBucket, long fromDate,
+                                                        long toDate) {
+        Cursor cursor = dbAdapter.getStatisticsForCassette(cassetteId, getBucketModifiers(timeBucket),
+                fromDate, toDate);
+
+        return DbRecordingDataStore.getStatisticsFromCursor(timeBucket, cursor);
+    }
+
     @Override
     public List<RecordingEntity> getAllWithTitleOrDescriptionLike(String searchClause) {
         Cursor cursor = dbAdapter.getAllTitleDescriptionLike(searchClause);
@@ -95,11 +203,61 @@ public class DbRecordingDataStore implements RecordingDataStore {
         return wasSuccess;
     }
 
+    @Override
+    public boolean[] updateAll(List<RecordingEntity> recordingEntities) {
+        int count = recordingEntities.size();
+        long[] ids = new long[count];
+        String[] titles = new String[count], descriptions = new String[count];
+
+        int i = 0;
+        for (RecordingEntity recordingEntity : recordingEntities) {
+            ids[i] = recordingEntity.id;
+            titles[i] = recordingEntity.title;
+            descriptions[i] = recordingEntity.description;
+            i++;
+        }
+
+        return dbAdapter.updateAll(ids, titles, descriptions);
+    }
+
     @Override
     public boolean delete(long id) {
         return dbAdapter.delete(id);
     }
 
+    @Override
+    public CloseableIterator<String> getAudioFilePathIterator() {
+        Cursor cursor = dbAdapter.getAllAudioFilePaths();
+
+        return new CursorIterator<String>(cursor) {
+            @Override
+            protected String read(Cursor cursor) {
+                return cursor.getString(0);
+            }
+        };
+    }
+
+    @Override
+    public List<RecordingEntity> getPageRecordedBeforeNotInStorageFormat(long recordedBefore, String storageFormat,
+                                                                         long afterDateTime, long afterId, int limit) {
+        Cursor cursor = dbAdapter.getPageRecordedBeforeNotInStorageFormat(recordedBefore, storageFormat,
+                afterDateTime, afterId, limit);
+
+        return DbRecordingDataStore.getListOfRecordingsFromCursor(cursor);
+    }
+
+    @Override
+    public boolean swapAudioFile(long id, String expectedAudioFilePath, String audioFilePath,
+                                 String audioStorageFormat) {
+        return dbAdapter.swapAudioFile(id, expectedAudioFilePath, audioFilePath, audioStorageFormat);
+    }
+
+    @Override
+    public boolean updateAudioFileInfo(long id, int length, String audioCodec, int audioSampleRate,
+                                       int audioChannels) {
+        return dbAdapter.updateAudioFileInfo(id, length, audioCodec, audioSampleRate, audioChannels);
+    }
+
     private static List<RecordingEntity> getListOfRecordingsFromCursor(Cursor cursor) {
         List<RecordingEntity> recordingEntityList = new LinkedList<>();
 
@@ -120,7 +278,53 @@ public class DbRecordingDataStore implements RecordingDataStore {
         return recordingEntityList;
     }
 
+    private static String[] getBucketModifiers(TimeBucket timeBucket) {
+        switch (timeBucket) {
+            case WEEK:
+                return CassetteDbContract.RecordingTable.WEEK_BUCKET_MODIFIERS;
+            case MONTH:
+                return CassetteDbContract.RecordingTable.MONTH_BUCKET_MODIFIERS;
+            default:
+                return CassetteDbContract.RecordingTable.DAY_BUCKET_MODIFIERS;
+        }
+    }
+
+    /**
+     * Reads the buckets straight into arrays, sized by the number of rows of the Cursor.
+     */
+    private static RecordingStatistics getStatisticsFromCursor(TimeBucket timeBucket, Cursor cursor) {
+        int size = cursor == null ? 0 : cursor.getCount();
+        long[] bucketStarts = new long[size];
+        int[] recordingCounts = new int[size];
+        long[] totalLengths = new long[size];
+
+        if (cursor != null) {
+            for (int i = 0; i < size && cursor.moveToNext(); i++) {
+                bucketStarts[i] = cursor.getLong(0);
+                recordingCounts[i] = cursor.getInt(1);
+                totalLengths[i] = cursor.getLong(2);
+            }
+            cursor.close();
+        }
+
+        return new RecordingStatistics(timeBucket, bucketStarts, recordingCounts, totalLengths);
+    }
+
+    private static CloseableIterator<RecordingEntity> getIteratorOfRecordingsFromCursor(Cursor cursor) {
+        return new CursorIterator<RecordingEntity>(cursor) {
+            @Override
+            protected RecordingEntity read(Cursor cursor) {
+                return RecordingEntity.createFromCursor(cursor);
+            }
+        };
+    }
+
     public int count() {
         return dbAdapter.count();
     }
+
+    @Override
+    public int countForCassette(long cassetteId) {
+        return dbAdapter.countForCassette(cassetteId);
+    }
 }
@@ -0,0 +1,293 @@
+package andrewtorski.cassette.data.repository.datasource;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import andrewtorski.cassette.data.entity.CassetteEntity;
+import andrewtorski.cassette.data.entity.RecordingEntity;
+import andrewtorski.cassette.data.log.RecordFields;
+import andrewtorski.cassette.data.log.RecordLog;
+
+/**
+ * {@link CassetteDataStore} implementation based on a {@link RecordLog}, which keeps every
+ * CassetteEntity as one record of a single append-only file.
+ * <p/>
+ * Reads and writes by id are one lookup in memory and one positioned read or append; queries by
+ * date read every CassetteEntity. Deleting a Cassette deletes its Recordings from the provided
+ * RecordingDataStore, as the database does by cascade.
+ */
+public class LogCassetteDataStore implements CassetteDataStore {
+
+    private static final String TAG = "LogCasDataStore";
+
+    /**
+     * Version of the layout of records, written first, so that it can be changed later.
+     */
+    private static final byte RECORD_VERSION = 1;
+
+    private final RecordLog log;
+    private final RecordingDataStore recordingDataStore;
+
+    /**
+     * Initializes a new instance of the LogCassetteDataStore, opening the log kept in the
+     * provided file.
+     *
+     * @param file               File of the log, created if it does not exist.
+     * @param recordingDataStore RecordingDataStore holding Recordings of the Cassettes.
+     */
+    public LogCassetteDataStore(File file, RecordingDataStore recordingDataStore) throws IOException {
+        this(new RecordLog(file), recordingDataStore);
+    }
+
+    public LogCassetteDataStore(RecordLog log, RecordingDataStore recordingDataStore) {
+        this.log = log;
+        this.recordingDataStore = recordingDataStore;
+    }
+
+    @Override
+    public synchronized CassetteEntity create(CassetteEntity cassetteEntity) {
+        long id = log.nextId();
+        cassetteEntity.id = write(id, cassetteEntity) ? id : -1;
+        return cassetteEntity;
+    }
+
+    @Override
+    public CassetteEntity get(long cassetteId) {
+        try {
+            return decode(cassetteId, log.get(cassetteId));
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read Cassette " + cassetteId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public List<CassetteEntity> getAll(long[] cassetteIds) {
+        List<CassetteEntity> cassetteEntityList = new ArrayList<>(cassetteIds.length);
+        for (long id : cassetteIds) {
+            CassetteEntity cassetteEntity = get(id);
+            if (cassetteEntity != null) {
+                cassetteEntityList.add(cassetteEntity);
+            }
+        }
+        return cassetteEntityList;
+    }
+
+    /**
+     * Returns all CassetteEntities, in order of ids.
+     */
+    @Override
+    public List<CassetteEntity> getAll() {
+        return getAll(log.ids());
+    }
+
+    /**
+     * Returns CassetteEntities created in the provided date span, newest first.
+     */
+    @Override
+    public List<CassetteEntity> getAllBetweenDates(long fromDate, long toDate) {
+        List<CassetteEntity> cassetteEntityList = new ArrayList<>();
+        for (CassetteEntity cassetteEntity : getAll()) {
+            if (cassetteEntity.dateTimeOfCreation >= fromDate && cassetteEntity.dateTimeOfCreation <= toDate) {
+                cassetteEntityList.add(cassetteEntity);
+            }
+        }
+        Collections.sort(cassetteEntityList, new Comparator<CassetteEntity>() {
+            @Override
+            public int compare(CassetteEntity lhs, CassetteEntity rhs) {
+                return rhs.dateTimeOfCreation < lhs.dateTimeOfCreation ? -1
+                        : (rhs.dateTimeOfCreation == lhs.dateTimeOfCreation ? 0 : 1);
+            }
+        });
+        return cassetteEntityList;
+    }
+
+    /**
+     * Updates the same columns {@link DbCassetteDataStore} does, leaving the date and time of
+     * creation and of last playback as they are.
+     */
+    @Override
+    public synchronized boolean update(CassetteEntity cassetteEntity) {
+        if (cassetteEntity == null) {
+            return false;
+        }
+        CassetteEntity storedEntity = get(cassetteEntity.id);
+        if (storedEntity == null) {
+            return false;
+        }
+        storedEntity.title = cassetteEntity.title;
+        storedEntity.descripition = cassetteEntity.descripition;
+        storedEntity.length = cassetteEntity.length;
+        storedEntity.numberOfRecordings = cassetteEntity.numberOfRecordings;
+        storedEntity.isCompiled = cassetteEntity.isCompiled;
+        storedEntity.compiledFilePath = cassetteEntity.compiledFilePath;
+        storedEntity.dateTimeOfCompilation = cassetteEntity.dateTimeOfCompilation;
+        storedEntity.compiledInputsHash = cassetteEntity.compiledInputsHash;
+        return write(storedEntity.id, storedEntity);
+    }
+
+    @Override
+    public synchronized boolean addToLength(long id, int lengthDifference) {
+        CassetteEntity storedEntity = get(id);
+        if (storedEntity == null) {
+            return false;
+        }
+        storedEntity.length += lengthDifference;
+        return write(id, storedEntity);
+    }
+
+    @Override
+    public synchronized boolean[] updateAll(List<CassetteEntity> cassetteEntities) {
+        boolean[] updated = new boolean[cassetteEntities.size()];
+        int i = 0;
+        for (CassetteEntity cassetteEntity : cassetteEntities) {
+            updated[i++] = update(cassetteEntity);
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized boolean[] updateTitlesAndDescriptions(List<CassetteEntity> cassetteEntities) {
+        boolean[] updated = new boolean[cassetteEntities.size()];
+        int i = 0;
+        for (CassetteEntity cassetteEntity : cassetteEntities) {
+            CassetteEntity storedEntity = get(cassetteEntity.id);
+            if (storedEntity != null) {
+                storedEntity.title = cassetteEntity.title;
+                storedEntity.descripition = cassetteEntity.descripition;
+                updated[i] = write(storedEntity.id, storedEntity);
+            }
+            i++;
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized boolean updateDateTimeOfLastPlayback(long id, long dateTimeOfLastPlayback) {
+        CassetteEntity storedEntity = get(id);
+        if (storedEntity == null) {
+            return false;
+        }
+        storedEntity.dateTimeOfLastPlayback = dateTimeOfLastPlayback;
+        return write(id, storedEntity);
+    }
+
+    @Override
+    public synchronized boolean updateCompilation(CassetteEntity cassetteEntity) {
+        if (cassetteEntity == null) {
+            return false;
+        }
+        CassetteEntity storedEntity = get(cassetteEntity.id);
+        if (storedEntity == null) {
+            return false;
+        }
+        storedEntity.isCompiled = cassetteEntity.isCompiled;
+        storedEntity.compiledFilePath = cassetteEntity.compiledFilePath;
+        storedEntity.dateTimeOfCompilation = cassetteEntity.dateTimeOfCompilation;
+        storedEntity.compiledInputsHash = cassetteEntity.compiledInputsHash;
+        return write(storedEntity.id, storedEntity);
+    }
+
+    @Override
+    public boolean delete(CassetteEntity cassetteEntity) {
+        if (cassetteEntity == null) {
+            return false;
+        }
+        return delete(cassetteEntity.id);
+    }
+
+    @Override
+    public synchronized boolean delete(long id) {
+        boolean deleted;
+        try {
+            deleted = log.delete(id);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not delete Cassette " + id, e);
+            return false;
+        }
+        if (deleted) {
+            for (RecordingEntity recordingEntity : recordingDataStore.getAllForCassette(id)) {
+                recordingDataStore.delete(recordingEntity.id);
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public int count() {
+        return log.size();
+    }
+
+    /**
+     * Closes the underlying log.
+     */
+    public void close() throws IOException {
+        log.close();
+    }
+
+    //region Private helper methods
+
+    private boolean write(long id, CassetteEntity cassetteEntity) {
+        try {
+            log.put(id, encode(cassetteEntity));
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write Cassette " + id, e);
+            return false;
+        }
+    }
+
+    private static byte[] encode(CassetteEntity cassetteEntity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(RECORD_VERSION);
+        RecordFields.writeString(output, cassetteEntity.title);
+        RecordFields.writeString(output, cassetteEntity.descripition);
+        output.writeLong(cassetteEntity.dateTimeOfCreation);
+        output.writeInt(cassetteEntity.length);
+        output.writeInt(cassetteEntity.numberOfRecordings);
+        output.writeInt(cassetteEntity.isCompiled);
+        RecordFields.writeString(output, cassetteEntity.compiledFilePath);
+        RecordFields.writeString(output, cassetteEntity.compiledInputsHash);
+        output.writeLong(cassetteEntity.dateTimeOfLastPlayback);
+        output.writeLong(cassetteEntity.dateTimeOfCompilation);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static CassetteEntity decode(long id, byte[] record) throws IOException {
+        if (record == null) {
+            return null;
+        }
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        byte version = input.readByte();
+        if (version != RECORD_VERSION) {
+            throw new IOException("Unknown version " + version + " of Cassette " + id);
+        }
+        CassetteEntity cassetteEntity = new CassetteEntity();
+        cassetteEntity.id = id;
+        cassetteEntity.title = RecordFields.readString(input);
+        cassetteEntity.descripition = RecordFields.readString(input);
+        cassetteEntity.dateTimeOfCreation = input.readLong();
+        cassetteEntity.length = input.readInt();
+        cassetteEntity.numberOfRecordings = input.readInt();
+        cassetteEntity.isCompiled = input.readInt();
+        cassetteEntity.compiledFilePath = RecordFields.readString(input);
+        cassetteEntity.compiledInputsHash = RecordFields.readString(input);
+        cassetteEntity.dateTimeOfLastPlayback = input.readLong();
+        cassetteEntity.dateTimeOfCompilation = input.readLong();
+        return cassetteEntity;
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,491 @@
+package andrewtorski.cassette.data.repository.datasource;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+import andrewtorski.cassette.data.entity.RecordingEntity;
+import andrewtorski.cassette.data.entity.mapper.RecordingEntityDataMapper;
+import andrewtorski.cassette.data.log.RecordFields;
+import andrewtorski.cassette.data.log.RecordLog;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.repository.CloseableIterator;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
+
+/**
+ * {@link RecordingDataStore} implementation based on a {@link RecordLog}, which keeps every
+ * RecordingEntity as one record of a single append-only file.
+ * <p/>
+ * Reads and writes by id are one lookup in memory and one positioned read or append. There are no
+ * secondary indexes, so queries by Cassette, date or title read every RecordingEntity.
+ */
+public class LogRecordingDataStore implements RecordingDataStore {
+
+    private static final String TAG = "LogRecDataStore";
+
+    /**
+     * Version of the layout of records, written first, so that it can be changed later.
+     */
+    private static final byte RECORD_VERSION = 1;
+
+    private final RecordLog log;
+    private final RecordingEntityDataMapper mapper = new RecordingEntityDataMapper();
+
+    /**
+     * Initializes a new instance of the LogRecordingDataStore, opening the log kept in the
+     * provided file.
+     *
+     * @param file File of the log, created if it does not exist.
+     */
+    public LogRecordingDataStore(File file) throws IOException {
+        this(new RecordLog(file));
+    }
+
+    public LogRecordingDataStore(RecordLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public synchronized RecordingEntity create(RecordingEntity recordingEntity) {
+        long id = log.nextId();
+        recordingEntity.id = write(id, recordingEntity) ? id : -1;
+        return recordingEntity;
+    }
+
+    @Override
+    public synchronized List<RecordingEntity> createAll(List<RecordingEntity> recordingEntities) {
+        for (RecordingEntity recordingEntity : recordingEntities) {
+            create(recordingEntity);
+        }
+        return recordingEntities;
+    }
+
+    @Override
+    public RecordingEntity get(long recordingId) {
+        try {
+            return decode(recordingId, log.get(recordingId));
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read Recording " + recordingId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public List<RecordingEntity> getAll() {
+        return getAllMatching(new Filter() {
+            @Override
+            public boolean accept(RecordingEntity recordingEntity) {
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public List<RecordingEntity> getAll(long[] recordingIds) {
+        List<RecordingEntity> recordingEntityList = new ArrayList<>(recordingIds.length);
+        for (long id : recordingIds) {
+            RecordingEntity recordingEntity = get(id);
+            if (recordingEntity != null) {
+                recordingEntityList.add(recordingEntity);
+            }
+        }
+        return recordingEntityList;
+    }
+
+    @Override
+    public List<RecordingEntity> getAllForCassette(final long cassetteId) {
+        return getAllMatching(new Filter() {
+            @Override
+            public boolean accept(RecordingEntity recordingEntity) {
+                return recordingEntity.cassetteId == cassetteId;
+            }
+        });
+    }
+
+    @Override
+    public List<RecordingEntity> getAllBetweenDates(long fromDate, long toDate) {
+        return getAllNewestFirst(recordedBetween(0, fromDate, toDate));
+    }
+
+    @Override
+    public List<RecordingEntity> getAllBetweenDatesForCassette(long cassetteId, long fromDate, long toDate) {
+        return getAllNewestFirst(recordedBetween(cassetteId, fromDate, toDate));
+    }
+
+    /**
+     * The span is read and sorted whole before the first RecordingEntity is returned, for lack of
+     * an index on the date of recording.
+     */
+    @Override
+    public CloseableIterator<RecordingEntity> getIteratorBetweenDates(long fromDate, long toDate) {
+        return new ReadListIterator<>(getAllBetweenDates(fromDate, toDate));
+    }
+
+    @Override
+    public CloseableIterator<RecordingEntity> getIteratorBetweenDatesForCassette(long cassetteId, long fromDate,
+                                                                                 long toDate) {
+        return new ReadListIterator<>(getAllBetweenDatesForCassette(cassetteId, fromDate, toDate));
+    }
+
+    @Override
+    public RecordingStatistics getStatistics(TimeBucket timeBucket, long fromDate, long toDate) {
+        return computeStatistics(timeBucket, recordedBetween(0, fromDate, toDate));
+    }
+
+    @Override
+    public RecordingStatistics getStatisticsForCassette(long cassetteId, TimeBucket timeBucket, long fromDate,
+                                                        long toDate) {
+        return computeStatistics(timeBucket, recordedBetween(cassetteId, fromDate, toDate));
+    }
+
+    /**
+     * Matches titles and descriptions the way SQL LIKE would: % stands for any text, _ for any
+     * character, case is ignored and the clause may be quoted.
+     */
+    @Override
+    public List<RecordingEntity> getAllWithTitleOrDescriptionLike(String searchClause) {
+        final Pattern pattern = getLikePattern(searchClause);
+        return getAllMatching(new Filter() {
+            @Override
+            public boolean accept(RecordingEntity recordingEntity) {
+                return (recordingEntity.title != null && pattern.matcher(recordingEntity.title).matches())
+                        || (recordingEntity.description != null
+                        && pattern.matcher(recordingEntity.description).matches());
+            }
+        });
+    }
+
+    @Override
+    public synchronized boolean update(RecordingEntity recordingEntity) {
+        if (recordingEntity == null) {
+            return false;
+        }
+        RecordingEntity storedEntity = get(recordingEntity.id);
+        if (storedEntity == null) {
+            return false;
+        }
+        storedEntity.title = recordingEntity.title;
+        storedEntity.description = recordingEntity.description;
+        return write(storedEntity.id, storedEntity);
+    }
+
+    @Override
+    public synchronized boolean[] updateAll(List<RecordingEntity> recordingEntities) {
+        boolean[] updated = new boolean[recordingEntities.size()];
+        int i = 0;
+        for (RecordingEntity recordingEntity : recordingEntities) {
+            updated[i++] = update(recordingEntity);
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized boolean delete(long id) {
+        try {
+            return log.delete(id);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not delete Recording " + id, e);
+            return false;
+        }
+    }
+
+    @Override
+    public int count() {
+        return log.size();
+    }
+
+    @Override
+    public int countForCassette(long cassetteId) {
+        return getAllForCassette(cassetteId).size();
+    }
+
+    /**
+     * Reads one RecordingEntity per returned path. Recordings deleted meanwhile are skipped.
+     */
+    @Override
+    public CloseableIterator<String> getAudioFilePathIterator() {
+        final long[] ids = log.ids();
+
+        return new CloseableIterator<String>() {
+            private int position;
+            private RecordingEntity nextEntity;
+
+            @Override
+            public boolean hasNext() {
+                while (nextEntity == null && position < ids.length) {
+                    nextEntity = get(ids[position++]);
+                }
+                return nextEntity != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String audioFilePath = nextEntity.audioFilePath;
+                nextEntity = null;
+                return audioFilePath;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                position = ids.length;
+                nextEntity = null;
+            }
+        };
+    }
+
+    @Override
+    public List<RecordingEntity> getPageRecordedBeforeNotInStorageFormat(final long recordedBefore,
+                                                                         final String storageFormat,
+                                                                         final long afterDateTime,
+                                                                         final long afterId, int limit) {
+        List<RecordingEntity> recordingEntityList = getAllMatching(new Filter() {
+            @Override
+            public boolean accept(RecordingEntity recordingEntity) {
+                long dateTime = recordingEntity.dateTimeOfRecording;
+                return dateTime < recordedBefore
+                        && (dateTime > afterDateTime || (dateTime == afterDateTime && recordingEntity.id > afterId))
+                        && !storageFormat.equals(recordingEntity.audioStorageFormat);
+            }
+        });
+        Collections.sort(recordingEntityList, new Comparator<RecordingEntity>() {
+            @Override
+            public int compare(RecordingEntity lhs, RecordingEntity rhs) {
+                return compareByDateAndId(lhs, rhs);
+            }
+        });
+        return recordingEntityList.size() > limit ? recordingEntityList.subList(0, limit) : recordingEntityList;
+    }
+
+    /**
+     * Drops the cached probe result, which describes the old audio file.
+     */
+    @Override
+    public synchronized boolean swapAudioFile(long id, String expectedAudioFilePath, String audioFilePath,
+                                              String audioStorageFormat) {
+        RecordingEntity storedEntity = get(id);
+        if (storedEntity == null || !expectedAudioFilePath.equals(storedEntity.audioFilePath)) {
+            return false;
+        }
+        storedEntity.audioFilePath = audioFilePath;
+        storedEntity.audioStorageFormat = audioStorageFormat;
+        storedEntity.audioCodec = null;
+        return write(id, storedEntity);
+    }
+
+    @Override
+    public synchronized boolean updateAudioFileInfo(long id, int length, String audioCodec, int audioSampleRate,
+                                                    int audioChannels) {
+        RecordingEntity storedEntity = get(id);
+        if (storedEntity == null) {
+            return false;
+        }
+        storedEntity.length = length;
+        storedEntity.audioCodec = audioCodec;
+        storedEntity.audioSampleRate = audioSampleRate;
+        storedEntity.audioChannels = audioChannels;
+        return write(id, storedEntity);
+    }
+
+    /**
+     * Closes the underlying log.
+     */
+    public void close() throws IOException {
+        log.close();
+    }
+
+    //region Private helper methods
+
+    /**
+     * Tells which RecordingEntities a scan returns.
+     */
+    private interface Filter {
+        boolean accept(RecordingEntity recordingEntity);
+    }
+
+    /**
+     * Iterator over an already read list, which holds nothing to be closed.
+     */
+    private static final class ReadListIterator<T> implements CloseableIterator<T> {
+        private final Iterator<T> iterator;
+
+        ReadListIterator(List<T> list) {
+            this.iterator = list.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Reads every RecordingEntity, in order of ids, and returns those accepted by the filter.
+     */
+    private List<RecordingEntity> getAllMatching(Filter filter) {
+        List<RecordingEntity> recordingEntityList = new ArrayList<>();
+        for (long id : log.ids()) {
+            RecordingEntity recordingEntity = get(id);
+            if (recordingEntity != null && filter.accept(recordingEntity)) {
+                recordingEntityList.add(recordingEntity);
+            }
+        }
+        return recordingEntityList;
+    }
+
+    /**
+     * Returns the Filter of RecordingEntities recorded in the provided date span, of the Cassette
+     * of provided id or, if it is 0, of any Cassette.
+     */
+    private static Filter recordedBetween(final long cassetteId, final long fromDate, final long toDate) {
+        return new Filter() {
+            @Override
+            public boolean accept(RecordingEntity recordingEntity) {
+                return (cassetteId == 0 || recordingEntity.cassetteId == cassetteId)
+                        && recordingEntity.dateTimeOfRecording >= fromDate
+                        && recordingEntity.dateTimeOfRecording <= toDate;
+            }
+        };
+    }
+
+    private List<RecordingEntity> getAllNewestFirst(Filter filter) {
+        List<RecordingEntity> recordingEntityList = getAllMatching(filter);
+        Collections.sort(recordingEntityList, new Comparator<RecordingEntity>() {
+            @Override
+            public int compare(RecordingEntity lhs, RecordingEntity rhs) {
+                return compareByDateAndId(rhs, lhs);
+            }
+        });
+        return recordingEntityList;
+    }
+
+    private RecordingStatistics computeStatistics(TimeBucket timeBucket, Filter filter) {
+        List<Recording> recordings = new ArrayList<>();
+        for (RecordingEntity recordingEntity : getAllMatching(filter)) {
+            recordings.add(mapper.transfrom(recordingEntity));
+        }
+        return RecordingStatistics.compute(timeBucket, recordings);
+    }
+
+    private boolean write(long id, RecordingEntity recordingEntity) {
+        try {
+            log.put(id, encode(recordingEntity));
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write Recording " + id, e);
+            return false;
+        }
+    }
+
+    private static byte[] encode(RecordingEntity recordingEntity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(RECORD_VERSION);
+        output.writeLong(recordingEntity.cassetteId);
+        RecordFields.writeString(output, recordingEntity.title);
+        RecordFields.writeString(output, recordingEntity.description);
+        output.writeLong(recordingEntity.dateTimeOfRecording);
+        output.writeInt(recordingEntity.length);
+        RecordFields.writeString(output, recordingEntity.audioFilePath);
+        output.writeInt(recordingEntity.sequenceInTheCassette);
+        RecordFields.writeString(output, recordingEntity.audioStorageFormat);
+        RecordFields.writeString(output, recordingEntity.audioCodec);
+        output.writeInt(recordingEntity.audioSampleRate);
+        output.writeInt(recordingEntity.audioChannels);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static RecordingEntity decode(long id, byte[] record) throws IOException {
+        if (record == null) {
+            return null;
+        }
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        byte version = input.readByte();
+        if (version != RECORD_VERSION) {
+            throw new IOException("Unknown version " + version + " of Recording " + id);
+        }
+        long cassetteId = input.readLong();
+        String title = RecordFields.readString(input),
+                description = RecordFields.readString(input);
+        long dateTimeOfRecording = input.readLong();
+        int length = input.readInt();
+        String audioFilePath = RecordFields.readString(input);
+        int sequenceInTheCassette = input.readInt();
+
+        RecordingEntity recordingEntity = new RecordingEntity(id, cassetteId, title, description,
+                dateTimeOfRecording, length, audioFilePath, sequenceInTheCassette);
+        recordingEntity.audioStorageFormat = RecordFields.readString(input);
+        recordingEntity.audioCodec = RecordFields.readString(input);
+        recordingEntity.audioSampleRate = input.readInt();
+        recordingEntity.audioChannels = input.readInt();
+        return recordingEntity;
+    }
+
+    private static Pattern getLikePattern(String searchClause) {
+        String clause = searchClause;
+        if (clause.length() >= 2 && clause.startsWith("'") && clause.endsWith("'")) {
+            clause = clause.substring(1, clause.length() - 1);
+        }
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : clause.toCharArray()) {
+            if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    }
+
+    private static int compareByDateAndId(RecordingEntity lhs, RecordingEntity rhs) {
+        if (lhs.dateTimeOfRecording != rhs.dateTimeOfRecording) {
+            return lhs.dateTimeOfRecording < rhs.dateTimeOfRecording ? -1 : 1;
+        }
+        return lhs.id < rhs.id ? -1 : (lhs.id == rhs.id ? 0 : 1);
+    }
+
+    //endregion Private helper methods
+}
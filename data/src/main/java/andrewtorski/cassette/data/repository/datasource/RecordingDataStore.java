@@ -3,6 +3,9 @@ package andrewtorski.cassette.data.repository.datasource;
 import java.util.List;
 
 import andrewtorski.cassette.data.entity.RecordingEntity;
+import andrewtorski.cassette.domain.repository.CloseableIterator;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
 
 /**
  * Contract for a data store which allows for data operations surrounding Recordings.
@@ -17,6 +20,15 @@ public interface RecordingDataStore {
      */
     RecordingEntity create(RecordingEntity recordingEntity);
 
+    /**
+     * Persists all provided RecordingEntities in as few transactions as practical and updates
+     * their ids. Ids of RecordingEntities whose insertion didn't succeed are set to -1.
+     *
+     * @param recordingEntities RecordingEntities to insert.
+     * @return Same list as provided in the parameter.
+     */
+    List<RecordingEntity> createAll(List<RecordingEntity> recordingEntities);
+
     /**
      * Returns a RecordingEntity of specified identifier.
      *
@@ -31,6 +43,15 @@ public interface RecordingDataStore {
      */
     List<RecordingEntity> getAll();
 
+    /**
+     * Retrieves RecordingEntities of provided ids, in the order of the ids. Ids of which no
+     * RecordingEntity exists are skipped.
+     *
+     * @param recordingIds Ids of the RecordingEntities.
+     * @return List of found RecordingEntities.
+     */
+    List<RecordingEntity> getAll(long[] recordingIds);
+
     /**
      * Returns all RecordingEntities which belong to Cassette of specified identifier.
      * @param cassetteId Id of the Cassette.
@@ -57,6 +78,54 @@ public interface RecordingDataStore {
      */
     List<RecordingEntity> getAllBetweenDatesForCassette(long cassetteId, long fromDate, long toDate);
 
+    /**
+     * Returns an iterator over RecordingEntities which were recorded in the provided date span,
+     * newest first. Each RecordingEntity is read from the underlying storage only when it is
+     * reached, so the span can be walked in constant memory.
+     *
+     * @param fromDate From date, epoch time.
+     * @param toDate   To date, epoch time.
+     * @return CloseableIterator of RecordingEntities, which has to be closed.
+     */
+    CloseableIterator<RecordingEntity> getIteratorBetweenDates(long fromDate, long toDate);
+
+    /**
+     * Returns an iterator over RecordingEntities of the Cassette of specified identifier which
+     * were recorded in the provided date span, newest first, read lazily like
+     * {@link #getIteratorBetweenDates(long, long)}.
+     *
+     * @param cassetteId Id of the Cassette.
+     * @param fromDate   From date, epoch time.
+     * @param toDate     To date, epoch time.
+     * @return CloseableIterator of RecordingEntities, which has to be closed.
+     */
+    CloseableIterator<RecordingEntity> getIteratorBetweenDatesForCassette(long cassetteId, long fromDate,
+                                                                          long toDate);
+
+    /**
+     * Returns the number and total length of RecordingEntities recorded in the provided date span,
+     * grouped by the underlying storage into buckets of the provided span of time.
+     *
+     * @param timeBucket Span of time of a single bucket.
+     * @param fromDate   From date, epoch time.
+     * @param toDate     To date, epoch time.
+     * @return RecordingStatistics, oldest bucket first.
+     */
+    RecordingStatistics getStatistics(TimeBucket timeBucket, long fromDate, long toDate);
+
+    /**
+     * Returns statistics like {@link #getStatistics(TimeBucket, long, long)}, of
+     * RecordingEntities which belong to Cassette of the specified identifier.
+     *
+     * @param cassetteId Id of the Cassette.
+     * @param timeBucket Span of time of a single bucket.
+     * @param fromDate   From date, epoch time.
+     * @param toDate     To date, epoch time.
+     * @return RecordingStatistics, oldest bucket first.
+     */
+    RecordingStatistics getStatisticsForCassette(long cassetteId, TimeBucket timeBucket, long fromDate,
+                                                 long toDate);
+
     /**
      * Returns all Recordings which title or description match in anyway the specified searchClause.
      * @param searchClause Searched phrase.
@@ -72,6 +141,15 @@ public interface RecordingDataStore {
      */
     boolean update(RecordingEntity recordingEntity);
 
+    /**
+     * Updates titles and descriptions of all provided RecordingEntities at once, in one
+     * transaction where the store has transactions.
+     *
+     * @param recordingEntities RecordingEntities to update.
+     * @return For every RecordingEntity, was it updated.
+     */
+    boolean[] updateAll(List<RecordingEntity> recordingEntities);
+
     /**
      * Deletes the provided RecordingEntity with the date provider.
      * @param id Identifier of the RecordingEntity to delete.
@@ -83,4 +161,47 @@ public interface RecordingDataStore {
      * Returns the number of Recordings stored.
      */
     int count();
+
+    /**
+     * Returns the number of Recordings of the Cassette of provided id.
+     */
+    int countForCassette(long cassetteId);
+
+    /**
+     * Returns an iterator over audio file paths of all stored Recordings, read lazily from the
+     * underlying storage.
+     */
+    CloseableIterator<String> getAudioFilePathIterator();
+
+    /**
+     * Returns a page of RecordingEntities recorded before the provided date whose audio file is
+     * not kept in the provided storage format, ordered by date of recording and id.
+     *
+     * @param recordedBefore Epoch time, exclusive.
+     * @param storageFormat  Name of the storage format to exclude.
+     * @param afterDateTime  Epoch time of recording of the last RecordingEntity of the previous page.
+     * @param afterId        Identifier of the last RecordingEntity of the previous page.
+     * @param limit          Maximal number of returned RecordingEntities.
+     * @return List of RecordingEntities.
+     */
+    List<RecordingEntity> getPageRecordedBeforeNotInStorageFormat(long recordedBefore, String storageFormat,
+                                                                  long afterDateTime, long afterId, int limit);
+
+    /**
+     * Atomically points RecordingEntity of specified id at a new audio file, provided it still
+     * points at the expected one.
+     *
+     * @return Was the swap made.
+     */
+    boolean swapAudioFile(long id, String expectedAudioFilePath, String audioFilePath,
+                          String audioStorageFormat);
+
+    /**
+     * Caches the result of probing the audio file of the RecordingEntity of specified id and
+     * updates its length to the probed one.
+     *
+     * @return Was the RecordingEntity updated.
+     */
+    boolean updateAudioFileInfo(long id, int length, String audioCodec, int audioSampleRate,
+                                int audioChannels);
 }
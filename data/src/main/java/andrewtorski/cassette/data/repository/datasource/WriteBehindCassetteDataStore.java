@@ -0,0 +1,224 @@
+package andrewtorski.cassette.data.repository.datasource;
+
+import java.util.List;
+
+import andrewtorski.cassette.data.entity.CassetteEntity;
+
+/**
+ * {@link CassetteDataStore} which defers updates of titles and descriptions to another
+ * CassetteDataStore, coalescing them by Cassette, and writes them in batches.
+ * <p/>
+ * Only updates which change nothing but the title and description are deferred, and only these
+ * two columns are written for them. Any other update, e.g. of the compile state or of the number
+ * of Recordings, is written straight away, after the edit pending for its Cassette, so that it is
+ * neither delayed nor overwritten later. CassetteEntities read through this store already carry
+ * their pending title and description.
+ *
+ * @see WriteBehindQueue
+ */
+public class WriteBehindCassetteDataStore implements CassetteDataStore {
+
+    /**
+     * How long after the first pending update the batch is written by default.
+     */
+    public static final long DEFAULT_FLUSH_DELAY_MILLISECONDS = 2000;
+
+    private final CassetteDataStore dataStore;
+    private final WriteBehindQueue<CassetteEntity> queue;
+
+    public WriteBehindCassetteDataStore(CassetteDataStore dataStore) {
+        this(dataStore, DEFAULT_FLUSH_DELAY_MILLISECONDS);
+    }
+
+    /**
+     * Initializes a new instance of the WriteBehindCassetteDataStore.
+     *
+     * @param dataStore        CassetteDataStore to which updates are written.
+     * @param flushDelayMillis How long after the first pending update the batch is written.
+     */
+    public WriteBehindCassetteDataStore(final CassetteDataStore dataStore, long flushDelayMillis) {
+        this.dataStore = dataStore;
+        this.queue = new WriteBehindQueue<>(new WriteBehindQueue.Writer<CassetteEntity>() {
+            @Override
+            public void writeAll(List<CassetteEntity> entities) {
+                dataStore.updateTitlesAndDescriptions(entities);
+            }
+        }, flushDelayMillis);
+    }
+
+    /**
+     * Writes all pending updates now, on the calling thread.
+     *
+     * @return Number of written updates.
+     */
+    public int flush() {
+        return queue.flush();
+    }
+
+    @Override
+    public CassetteEntity create(CassetteEntity cassetteEntity) {
+        return dataStore.create(cassetteEntity);
+    }
+
+    @Override
+    public CassetteEntity get(long cassetteId) {
+        return applyPendingUpdate(dataStore.get(cassetteId));
+    }
+
+    @Override
+    public List<CassetteEntity> getAll() {
+        return applyPendingUpdates(dataStore.getAll());
+    }
+
+    @Override
+    public List<CassetteEntity> getAll(long[] cassetteIds) {
+        return applyPendingUpdates(dataStore.getAll(cassetteIds));
+    }
+
+    @Override
+    public List<CassetteEntity> getAllBetweenDates(long fromDate, long toDate) {
+        return applyPendingUpdates(dataStore.getAllBetweenDates(fromDate, toDate));
+    }
+
+    /**
+     * Queues the update of the CassetteEntity if it changes only its title and description, in
+     * which case the CassetteEntity must not be modified afterwards. Otherwise writes it at once.
+     *
+     * @return Was the update queued or written.
+     */
+    @Override
+    public boolean update(CassetteEntity cassetteEntity) {
+        if (cassetteEntity == null) {
+            return false;
+        }
+        CassetteEntity storedEntity = dataStore.get(cassetteEntity.id);
+        if (storedEntity == null) {
+            return false;
+        }
+        if (differsOnlyInTitleAndDescription(storedEntity, cassetteEntity)) {
+            queue.put(cassetteEntity.id, cassetteEntity);
+            return true;
+        }
+        queue.flush(cassetteEntity.id);
+        return dataStore.update(cassetteEntity);
+    }
+
+    @Override
+    public boolean[] updateAll(List<CassetteEntity> cassetteEntities) {
+        boolean[] updated = new boolean[cassetteEntities.size()];
+        int i = 0;
+        for (CassetteEntity cassetteEntity : cassetteEntities) {
+            updated[i++] = update(cassetteEntity);
+        }
+        return updated;
+    }
+
+    /**
+     * Queues the updates of titles and descriptions. The CassetteEntities must not be modified
+     * afterwards.
+     *
+     * @return True for every CassetteEntity which is not null.
+     */
+    @Override
+    public boolean[] updateTitlesAndDescriptions(List<CassetteEntity> cassetteEntities) {
+        boolean[] updated = new boolean[cassetteEntities.size()];
+        int i = 0;
+        for (CassetteEntity cassetteEntity : cassetteEntities) {
+            if (cassetteEntity != null) {
+                queue.put(cassetteEntity.id, cassetteEntity);
+                updated[i] = true;
+            }
+            i++;
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean updateDateTimeOfLastPlayback(long id, long dateTimeOfLastPlayback) {
+        queue.flush(id);
+        return dataStore.updateDateTimeOfLastPlayback(id, dateTimeOfLastPlayback);
+    }
+
+    @Override
+    public boolean updateCompilation(CassetteEntity cassetteEntity) {
+        if (cassetteEntity == null) {
+            return false;
+        }
+        queue.flush(cassetteEntity.id);
+        return dataStore.updateCompilation(cassetteEntity);
+    }
+
+    /**
+     * Writes through without flushing the pending edit, as that writes only the title and
+     * description.
+     */
+    @Override
+    public boolean addToLength(long id, int lengthDifference) {
+        return dataStore.addToLength(id, lengthDifference);
+    }
+
+    @Override
+    public boolean delete(CassetteEntity cassetteEntity) {
+        if (cassetteEntity == null) {
+            return false;
+        }
+        return delete(cassetteEntity.id);
+    }
+
+    @Override
+    public boolean delete(long id) {
+        queue.remove(id);
+        return dataStore.delete(id);
+    }
+
+    @Override
+    public int count() {
+        return dataStore.count();
+    }
+
+    //region Private helper methods
+
+    /**
+     * Returns true if the CassetteEntity to be written differs from the stored one in nothing
+     * but its title and description.
+     */
+    private static boolean differsOnlyInTitleAndDescription(CassetteEntity storedEntity,
+                                                            CassetteEntity cassetteEntity) {
+        return storedEntity.length == cassetteEntity.length
+                && storedEntity.numberOfRecordings == cassetteEntity.numberOfRecordings
+                && storedEntity.isCompiled == cassetteEntity.isCompiled
+                && storedEntity.dateTimeOfCompilation == cassetteEntity.dateTimeOfCompilation
+                && equals(storedEntity.compiledFilePath, cassetteEntity.compiledFilePath)
+                && equals(storedEntity.compiledInputsHash, cassetteEntity.compiledInputsHash);
+    }
+
+    private static boolean equals(String lhs, String rhs) {
+        return lhs == null ? rhs == null : lhs.equals(rhs);
+    }
+
+    /**
+     * Copies the title and description from the pending update, if there is one.
+     */
+    private CassetteEntity applyPendingUpdate(CassetteEntity cassetteEntity) {
+        if (cassetteEntity == null) {
+            return null;
+        }
+        CassetteEntity pendingEntity = queue.get(cassetteEntity.id);
+        if (pendingEntity != null) {
+            cassetteEntity.title = pendingEntity.title;
+            cassetteEntity.descripition = pendingEntity.descripition;
+        }
+        return cassetteEntity;
+    }
+
+    private List<CassetteEntity> applyPendingUpdates(List<CassetteEntity> cassetteEntities) {
+        if (!queue.isEmpty()) {
+            for (CassetteEntity cassetteEntity : cassetteEntities) {
+                applyPendingUpdate(cassetteEntity);
+            }
+        }
+        return cassetteEntities;
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,255 @@
+package andrewtorski.cassette.data.repository.datasource;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import andrewtorski.global.GlobalValues;
+
+/**
+ * Pending updates of entities, coalesced by entity id, which are written in one batch some time
+ * after the first of them was queued.
+ * <p/>
+ * Queuing an update of an entity which has one pending already replaces it, so editing a title
+ * keystroke by keystroke costs one write. Pending updates are written when the flush delay
+ * passes, when {@link #flush()} is called, or when the application goes to background or runs low
+ * on memory. Until they are written, they can be read with {@link #get(long)}.
+ */
+class WriteBehindQueue<E> {
+
+    /**
+     * Writes a batch of updates.
+     */
+    interface Writer<E> {
+        void writeAll(List<E> entities);
+    }
+
+    //region Private fields
+
+    private static final String TAG = "WriteBehindQueue";
+
+    /**
+     * Shared by all queues, writes of one database are serialized anyway.
+     */
+    private static ScheduledExecutorService scheduler;
+
+    private final Writer<E> writer;
+    private final long flushDelayMillis;
+
+    /**
+     * Held while a batch is written, so that batches are written in order.
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * Updates not written yet, by entity id.
+     */
+    private Map<Long, E> pending = new LinkedHashMap<>();
+
+    /**
+     * Updates being written now, still served by {@link #get(long)} until they are.
+     */
+    private Map<Long, E> flushing = Collections.emptyMap();
+
+    private Future<?> scheduledFlush;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the WriteBehindQueue, which flushes itself when the
+     * application's Context reports that the UI was hidden or memory is low.
+     *
+     * @param writer           Writer of the batches.
+     * @param flushDelayMillis How long after the first pending update the batch is written.
+     */
+    WriteBehindQueue(Writer<E> writer, long flushDelayMillis) {
+        this.writer = writer;
+        this.flushDelayMillis = flushDelayMillis;
+
+        Context context = GlobalValues.getContext();
+        if (context != null) {
+            context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+                @Override
+                public void onTrimMemory(int level) {
+                    if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                        flushSoon();
+                    }
+                }
+
+                @Override
+                public void onConfigurationChanged(Configuration newConfig) {
+                }
+
+                @Override
+                public void onLowMemory() {
+                    flushSoon();
+                }
+            });
+        }
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Queues the update of entity of provided id, replacing the one pending for it, if any. The
+     * entity must not be modified afterwards.
+     */
+    synchronized void put(long id, E entity) {
+        pending.put(id, entity);
+        if (scheduledFlush == null) {
+            scheduledFlush = getScheduler().schedule(flushTask, flushDelayMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the pending update of entity of provided id, or null if there is none.
+     */
+    synchronized E get(long id) {
+        E entity = pending.get(id);
+        return entity != null ? entity : flushing.get(id);
+    }
+
+    /**
+     * Drops the pending update of entity of provided id, e.g. because it is being deleted.
+     */
+    synchronized void remove(long id) {
+        pending.remove(id);
+    }
+
+    /**
+     * Returns true if no update is pending or being written.
+     */
+    synchronized boolean isEmpty() {
+        return pending.isEmpty() && flushing.isEmpty();
+    }
+
+    /**
+     * Writes all pending updates in one batch, on the calling thread.
+     *
+     * @return Number of written updates.
+     */
+    int flush() {
+        synchronized (flushLock) {
+            List<E> entities;
+            synchronized (this) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                flushing = pending;
+                pending = new LinkedHashMap<>();
+                entities = new ArrayList<>(flushing.values());
+            }
+
+            try {
+                writer.writeAll(entities);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not write " + entities.size() + " updates, they stay pending", e);
+                requeueFlushing();
+                return 0;
+            } finally {
+                synchronized (this) {
+                    flushing = Collections.emptyMap();
+                }
+            }
+            return entities.size();
+        }
+    }
+
+    /**
+     * Writes the pending update of entity of provided id alone, on the calling thread, after the
+     * batch being written, if any.
+     *
+     * @return Was an update written.
+     */
+    boolean flush(long id) {
+        synchronized (flushLock) {
+            E entity;
+            synchronized (this) {
+                entity = pending.remove(id);
+                if (entity == null) {
+                    return false;
+                }
+                flushing = Collections.singletonMap(id, entity);
+            }
+
+            try {
+                writer.writeAll(Collections.singletonList(entity));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not write the update of " + id + ", it stays pending", e);
+                requeueFlushing();
+                return false;
+            } finally {
+                synchronized (this) {
+                    flushing = Collections.emptyMap();
+                }
+            }
+            return true;
+        }
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private void flushSoon() {
+        getScheduler().execute(flushTask);
+    }
+
+    /**
+     * Puts updates which could not be written back, unless newer ones were queued meanwhile.
+     */
+    private synchronized void requeueFlushing() {
+        for (Map.Entry<Long, E> entry : flushing.entrySet()) {
+            if (!pending.containsKey(entry.getKey())) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "WriteBehind");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.setRemoveOnCancelPolicy(true);
+            scheduler = executor;
+        }
+        return scheduler;
+    }
+
+    //endregion Private helper methods
+}
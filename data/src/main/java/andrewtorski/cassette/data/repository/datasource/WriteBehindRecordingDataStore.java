@@ -0,0 +1,227 @@
+package andrewtorski.cassette.data.repository.datasource;
+
+import java.util.List;
+
+import andrewtorski.cassette.data.entity.RecordingEntity;
+import andrewtorski.cassette.domain.repository.CloseableIterator;
+import andrewtorski.cassette.domain.repository.MappingIterator;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
+
+/**
+ * {@link RecordingDataStore} which defers updates of titles and descriptions to another
+ * RecordingDataStore, coalescing them by Recording, and writes them in batches.
+ * <p/>
+ * RecordingEntities read through this store already carry their pending title and description.
+ * Searching by title or description writes pending updates first, so that the search sees them.
+ * {@link #update(RecordingEntity)} succeeds without knowing whether the Recording exists.
+ *
+ * @see WriteBehindQueue
+ */
+public class WriteBehindRecordingDataStore implements RecordingDataStore {
+
+    /**
+     * How long after the first pending update the batch is written by default.
+     */
+    public static final long DEFAULT_FLUSH_DELAY_MILLISECONDS = 2000;
+
+    private final RecordingDataStore dataStore;
+    private final WriteBehindQueue<RecordingEntity> queue;
+
+    public WriteBehindRecordingDataStore(RecordingDataStore dataStore) {
+        this(dataStore, DEFAULT_FLUSH_DELAY_MILLISECONDS);
+    }
+
+    /**
+     * Initializes a new instance of the WriteBehindRecordingDataStore.
+     *
+     * @param dataStore        RecordingDataStore to which updates are written.
+     * @param flushDelayMillis How long after the first pending update the batch is written.
+     */
+    public WriteBehindRecordingDataStore(final RecordingDataStore dataStore, long flushDelayMillis) {
+        this.dataStore = dataStore;
+        this.queue = new WriteBehindQueue<>(new WriteBehindQueue.Writer<RecordingEntity>() {
+            @Override
+            public void writeAll(List<RecordingEntity> entities) {
+                dataStore.updateAll(entities);
+            }
+        }, flushDelayMillis);
+    }
+
+    /**
+     * Writes all pending updates now, on the calling thread.
+     *
+     * @return Number of written updates.
+     */
+    public int flush() {
+        return queue.flush();
+    }
+
+    @Override
+    public RecordingEntity create(RecordingEntity recordingEntity) {
+        return dataStore.create(recordingEntity);
+    }
+
+    @Override
+    public List<RecordingEntity> createAll(List<RecordingEntity> recordingEntities) {
+        return dataStore.createAll(recordingEntities);
+    }
+
+    @Override
+    public RecordingEntity get(long recordingId) {
+        return applyPendingUpdate(dataStore.get(recordingId));
+    }
+
+    @Override
+    public List<RecordingEntity> getAll() {
+        return applyPendingUpdates(dataStore.getAll());
+    }
+
+    @Override
+    public List<RecordingEntity> getAll(long[] recordingIds) {
+        return applyPendingUpdates(dataStore.getAll(recordingIds));
+    }
+
+    @Override
+    public List<RecordingEntity> getAllForCassette(long cassetteId) {
+        return applyPendingUpdates(dataStore.getAllForCassette(cassetteId));
+    }
+
+    @Override
+    public List<RecordingEntity> getAllBetweenDates(long fromDate, long toDate) {
+        return applyPendingUpdates(dataStore.getAllBetweenDates(fromDate, toDate));
+    }
+
+    @Override
+    public List<RecordingEntity> getAllBetweenDatesForCassette(long cassetteId, long fromDate, long toDate) {
+        return applyPendingUpdates(dataStore.getAllBetweenDatesForCassette(cassetteId, fromDate, toDate));
+    }
+
+    @Override
+    public CloseableIterator<RecordingEntity> getIteratorBetweenDates(long fromDate, long toDate) {
+        return applyPendingUpdates(dataStore.getIteratorBetweenDates(fromDate, toDate));
+    }
+
+    @Override
+    public CloseableIterator<RecordingEntity> getIteratorBetweenDatesForCassette(long cassetteId, long fromDate,
+                                                                                 long toDate) {
+        return applyPendingUpdates(dataStore.getIteratorBetweenDatesForCassette(cassetteId, fromDate, toDate));
+    }
+
+    @Override
+    public RecordingStatistics getStatistics(TimeBucket timeBucket, long fromDate, long toDate) {
+        return dataStore.getStatistics(timeBucket, fromDate, toDate);
+    }
+
+    @Override
+    public RecordingStatistics getStatisticsForCassette(long cassetteId, TimeBucket timeBucket, long fromDate,
+                                                        long toDate) {
+        return dataStore.getStatisticsForCassette(cassetteId, timeBucket, fromDate, toDate);
+    }
+
+    @Override
+    public List<RecordingEntity> getAllWithTitleOrDescriptionLike(String searchClause) {
+        queue.flush();
+        return dataStore.getAllWithTitleOrDescriptionLike(searchClause);
+    }
+
+    /**
+     * Queues the update of title and description of the RecordingEntity. The RecordingEntity
+     * must not be modified afterwards.
+     *
+     * @return True, unless the RecordingEntity is null.
+     */
+    @Override
+    public boolean update(RecordingEntity recordingEntity) {
+        if (recordingEntity == null) {
+            return false;
+        }
+        queue.put(recordingEntity.id, recordingEntity);
+        return true;
+    }
+
+    @Override
+    public boolean[] updateAll(List<RecordingEntity> recordingEntities) {
+        boolean[] updated = new boolean[recordingEntities.size()];
+        int i = 0;
+        for (RecordingEntity recordingEntity : recordingEntities) {
+            updated[i++] = update(recordingEntity);
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean delete(long id) {
+        queue.remove(id);
+        return dataStore.delete(id);
+    }
+
+    @Override
+    public int count() {
+        return dataStore.count();
+    }
+
+    @Override
+    public int countForCassette(long cassetteId) {
+        return dataStore.countForCassette(cassetteId);
+    }
+
+    @Override
+    public CloseableIterator<String> getAudioFilePathIterator() {
+        return dataStore.getAudioFilePathIterator();
+    }
+
+    @Override
+    public List<RecordingEntity> getPageRecordedBeforeNotInStorageFormat(long recordedBefore, String storageFormat,
+                                                                         long afterDateTime, long afterId, int limit) {
+        return applyPendingUpdates(dataStore.getPageRecordedBeforeNotInStorageFormat(recordedBefore,
+                storageFormat, afterDateTime, afterId, limit));
+    }
+
+    @Override
+    public boolean swapAudioFile(long id, String expectedAudioFilePath, String audioFilePath,
+                                 String audioStorageFormat) {
+        return dataStore.swapAudioFile(id, expectedAudioFilePath, audioFilePath, audioStorageFormat);
+    }
+
+    @Override
+    public boolean updateAudioFileInfo(long id, int length, String audioCodec, int audioSampleRate,
+                                       int audioChannels) {
+        return dataStore.updateAudioFileInfo(id, length, audioCodec, audioSampleRate, audioChannels);
+    }
+
+    //region Private helper methods
+
+    private RecordingEntity applyPendingUpdate(RecordingEntity recordingEntity) {
+        if (recordingEntity == null) {
+            return null;
+        }
+        RecordingEntity pendingEntity = queue.get(recordingEntity.id);
+        if (pendingEntity != null) {
+            recordingEntity.title = pendingEntity.title;
+            recordingEntity.description = pendingEntity.description;
+        }
+        return recordingEntity;
+    }
+
+    private List<RecordingEntity> applyPendingUpdates(List<RecordingEntity> recordingEntities) {
+        if (!queue.isEmpty()) {
+            for (RecordingEntity recordingEntity : recordingEntities) {
+                applyPendingUpdate(recordingEntity);
+            }
+        }
+        return recordingEntities;
+    }
+
+    private CloseableIterator<RecordingEntity> applyPendingUpdates(
+            CloseableIterator<RecordingEntity> recordingEntities) {
+        return new MappingIterator<RecordingEntity, RecordingEntity>(recordingEntities) {
+            @Override
+            protected RecordingEntity map(RecordingEntity recordingEntity) {
+                return applyPendingUpdate(recordingEntity);
+            }
+        };
+    }
+
+    //endregion Private helper methods
+}
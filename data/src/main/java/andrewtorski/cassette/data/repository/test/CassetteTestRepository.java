@@ -8,14 +8,30 @@ import javax.inject.Inject;
 
 import andrewtorski.cassette.domain.entity.Cassette;
 import andrewtorski.cassette.domain.repository.CassetteRepository;
-
+import andrewtorski.cassette.domain.repository.ChangeNotifier;
+
+/**
+ * In-memory CassetteRepository, filled with the Cassettes of {@link SampleDataProvider}.
+ * <p/>
+ * Cassettes are kept by id, so that lookups, updates and deletions take constant time;
+ * {@link #getAll()} returns them in order of creation. Creating a Cassette with the id of one
+ * already present replaces it.
+ * <p/>
+ * Safe to use from many threads: the map is only accessed while holding its lock, lists
+ * returned are copies, and changes are published after the lock is released, so that listeners
+ * reading from other repositories cannot deadlock with writers of those.
+ */
 public class CassetteTestRepository implements CassetteRepository {
-    ArrayList<Cassette> cassetteList = new ArrayList<>();
+    private final LongObjectHashMap<Cassette> cassettes = new LongObjectHashMap<>(16);
+
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
 
 
     @Inject
     public CassetteTestRepository() {
-        cassetteList.addAll(SampleDataProvider.getCassettes());
+        for (Cassette cassette : SampleDataProvider.getCassettes()) {
+            cassettes.put(cassette.getId(), cassette);
+        }
     }
 
     /**
@@ -25,7 +41,10 @@ public class CassetteTestRepository implements CassetteRepository {
      */
     @Override
     public Cassette create(Cassette cassette) {
-        cassetteList.add(cassette);
+        synchronized (cassettes) {
+            cassettes.put(cassette.getId(), cassette);
+        }
+        changeNotifier.publishCreated(cassette.getId());
         return cassette;
     }
 
@@ -37,16 +56,23 @@ public class CassetteTestRepository implements CassetteRepository {
      */
     @Override
     public Cassette get(long cassetteId) {
-        Cassette foundCassette = null;
+        synchronized (cassettes) {
+            return cassettes.get(cassetteId);
+        }
+    }
 
-        for (int i = 0; i < cassetteList.size(); i++) {
-            foundCassette = cassetteList.get(i);
-            if (foundCassette.getId() == cassetteId) {
-                return foundCassette;
+    @Override
+    public List<Cassette> getAll(long[] cassetteIds) {
+        List<Cassette> foundCassettes = new ArrayList<>(cassetteIds.length);
+        synchronized (cassettes) {
+            for (long id : cassetteIds) {
+                Cassette cassette = cassettes.get(id);
+                if (cassette != null) {
+                    foundCassettes.add(cassette);
+                }
             }
         }
-
-        return foundCassette;
+        return foundCassettes;
     }
 
     /**
@@ -54,11 +80,13 @@ public class CassetteTestRepository implements CassetteRepository {
      * These Cassettes do not include their associated Recordings.
      * Should be used for listing purposes exclusively.
      *
-     * @return List of Cassettes.
+     * @return New list of Cassettes, in order of creation.
      */
     @Override
     public List<Cassette> getAll() {
-        return cassetteList;
+        synchronized (cassettes) {
+            return cassettes.values();
+        }
     }
 
     /**
@@ -83,17 +111,57 @@ public class CassetteTestRepository implements CassetteRepository {
      */
     @Override
     public boolean update(Cassette cassette) {
-        Cassette foundCassette;
+        synchronized (cassettes) {
+            if (!cassettes.containsKey(cassette.getId())) {
+                return false;
+            }
+            cassettes.put(cassette.getId(), cassette);
+        }
+        changeNotifier.publishUpdated(cassette.getId());
+        return true;
+    }
 
-        for (int i = 0; i < cassetteList.size(); i++) {
-            foundCassette = cassetteList.get(i);
-            if (foundCassette.getId() == cassette.getId()) {
-                cassetteList.set(i, cassette);
-                return true;
+    @Override
+    public boolean updateDateTimeOfLastPlayback(Cassette cassette, Date dateTime) {
+        synchronized (cassettes) {
+            Cassette foundCassette = cassettes.get(cassette.getId());
+            if (foundCassette == null) {
+                return false;
             }
+            foundCassette.setDateTimeOfLastPlayback(dateTime);
         }
+        cassette.setDateTimeOfLastPlayback(dateTime);
+        changeNotifier.publishUpdated(cassette.getId());
+        return true;
+    }
 
-        return false;
+    @Override
+    public boolean updateCompilation(Cassette cassette) {
+        synchronized (cassettes) {
+            Cassette foundCassette = cassettes.get(cassette.getId());
+            if (foundCassette == null) {
+                return false;
+            }
+            foundCassette.setCompiled(cassette.isCompiled());
+            foundCassette.setCompiledFilePath(cassette.getCompiledFilePath());
+            foundCassette.setCompiledInputsHash(cassette.getCompiledInputsHash());
+            foundCassette.setDateTimeOfCompilation(cassette.getDateTimeOfCompilation());
+        }
+        changeNotifier.publishUpdated(cassette.getId());
+        return true;
+    }
+
+    @Override
+    public boolean addToLength(long cassetteId, int lengthDifference) {
+        synchronized (cassettes) {
+            Cassette foundCassette = cassettes.get(cassetteId);
+            if (foundCassette == null) {
+                return false;
+            }
+            foundCassette.setLength(foundCassette.getLength() + lengthDifference);
+        }
+        changeNotifier.publishUpdated(cassetteId);
+        return true;
     }
 
     /**
@@ -115,16 +183,13 @@ public class CassetteTestRepository implements CassetteRepository {
      */
     @Override
     public boolean delete(long id) {
-        Cassette foundCassette;
-        for (int i = 0; i < cassetteList.size(); i++) {
-            foundCassette = cassetteList.get(i);
-            if (foundCassette.getId() == id) {
-                cassetteList.remove(i);
-                return true;
+        synchronized (cassettes) {
+            if (cassettes.remove(id) == null) {
+                return false;
             }
         }
-
-        return false;
+        changeNotifier.publishDeleted(id);
+        return true;
     }
 
     /**
@@ -132,7 +197,14 @@ public class CassetteTestRepository implements CassetteRepository {
      */
     @Override
     public int count() {
-        return cassetteList.size();
+        synchronized (cassettes) {
+            return cassettes.size();
+        }
+    }
+
+    @Override
+    public ChangeNotifier getChangeNotifier() {
+        return changeNotifier;
     }
 }
 
@@ -0,0 +1,262 @@
+package andrewtorski.cassette.data.repository.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Map of long keys to objects which keeps its entries in insertion order, without boxing the
+ * keys.
+ * <p/>
+ * Entries are appended to two arrays, one of keys and one of values, and an open addressing
+ * table with linear probing maps every key to the position of its entry. Removing an entry
+ * leaves a hole which is closed, together with all others, the next time the arrays are full,
+ * so lookups, insertions and removals take constant time. Reads never change the map.
+ * <p/>
+ * Any long may be a key; values must not be null. Not thread safe.
+ */
+class LongObjectHashMap<V> {
+
+    private static final int MINIMAL_CAPACITY = 16;
+
+    /**
+     * The table grows once three quarters of its slots are taken.
+     */
+    private static final float MAXIMAL_LOAD_FACTOR = 0.75f;
+
+    //region Private fields
+
+    /**
+     * Position of the entry of every taken slot plus one, 0 marking a free slot.
+     */
+    private int[] table;
+
+    /**
+     * Number of slots of the table minus one, the number of slots being a power of two.
+     */
+    private int mask;
+
+    private long[] entryKeys;
+
+    /**
+     * Values of the entries, null for the removed ones.
+     */
+    private Object[] entryValues;
+
+    /**
+     * Number of positions in use, including removed entries.
+     */
+    private int entryCount;
+
+    private int size;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the LongObjectHashMap, large enough to hold expectedSize
+     * entries without growing.
+     */
+    LongObjectHashMap(int expectedSize) {
+        int capacity = MINIMAL_CAPACITY;
+        while (capacity * MAXIMAL_LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        table = new int[capacity];
+        mask = capacity - 1;
+        entryKeys = new long[capacity];
+        entryValues = new Object[capacity];
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(long key) {
+        return slotOfKey(key) >= 0;
+    }
+
+    /**
+     * Returns the value of the provided key, or null if it is absent.
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int slot = slotOfKey(key);
+        return slot < 0 ? null : (V) entryValues[table[slot] - 1];
+    }
+
+    /**
+     * Maps the provided key to the provided value. A key which is already present keeps its
+     * place in the insertion order.
+     *
+     * @return Previous value of the key, or null if it was absent.
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Values must not be null");
+        }
+        int slot = slotOfKey(key);
+        if (slot >= 0) {
+            int position = table[slot] - 1;
+            V previous = (V) entryValues[position];
+            entryValues[position] = value;
+            return previous;
+        }
+
+        if (entryCount == entryKeys.length) {
+            if (entryCount - size > entryCount / 2) {
+                compact();
+            } else {
+                growEntries(entryKeys.length << 1);
+            }
+        }
+        entryKeys[entryCount] = key;
+        entryValues[entryCount] = value;
+        entryCount++;
+        size++;
+        if (size > table.length * MAXIMAL_LOAD_FACTOR) {
+            rehash(table.length << 1);
+        } else {
+            insert(key, entryCount);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the provided key.
+     *
+     * @return Its value, or null if it was absent.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int slot = slotOfKey(key);
+        if (slot < 0) {
+            return null;
+        }
+        int position = table[slot] - 1;
+        V previous = (V) entryValues[position];
+        entryValues[position] = null;
+        shiftBack(slot);
+        size--;
+        if (position == entryCount - 1) {
+            entryCount--;
+        }
+        return previous;
+    }
+
+    /**
+     * Returns a new list of the values, in insertion order.
+     */
+    @SuppressWarnings("unchecked")
+    List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        for (int i = 0; i < entryCount; i++) {
+            if (entryValues[i] != null) {
+                values.add((V) entryValues[i]);
+            }
+        }
+        return values;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private int homeSlotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Returns the slot of the provided key, or -1 if it is absent.
+     */
+    private int slotOfKey(long key) {
+        int slot = homeSlotOf(key);
+        while (table[slot] != 0) {
+            if (entryKeys[table[slot] - 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Puts the provided position plus one into the first free slot of the probe run of the key.
+     */
+    private void insert(long key, int positionPlusOne) {
+        int slot = homeSlotOf(key);
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = positionPlusOne;
+    }
+
+    /**
+     * Empties the provided slot and moves back the slots which follow it in its probe run and
+     * could not have been placed there while it was taken, so that lookups need no tombstones.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (table[next] != 0) {
+            int home = homeSlotOf(entryKeys[table[next] - 1]);
+            //  The slot may move to the free one only if its home is not between the two.
+            boolean movable = free <= next ? (home <= free || home > next) : (home <= free && home > next);
+            if (movable) {
+                table[free] = table[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[free] = 0;
+    }
+
+    /**
+     * Moves the entries left over the holes of removed ones and maps their keys anew.
+     */
+    private void compact() {
+        if (entryCount == size) {
+            return;
+        }
+        int count = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (entryValues[i] != null) {
+                entryKeys[count] = entryKeys[i];
+                entryValues[count] = entryValues[i];
+                count++;
+            }
+        }
+        for (int i = count; i < entryCount; i++) {
+            entryValues[i] = null;
+        }
+        entryCount = count;
+        rehash(table.length);
+    }
+
+    private void growEntries(int capacity) {
+        long[] oldKeys = entryKeys;
+        Object[] oldValues = entryValues;
+        entryKeys = new long[capacity];
+        entryValues = new Object[capacity];
+        System.arraycopy(oldKeys, 0, entryKeys, 0, entryCount);
+        System.arraycopy(oldValues, 0, entryValues, 0, entryCount);
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < entryCount; i++) {
+            if (entryValues[i] != null) {
+                insert(entryKeys[i], i + 1);
+            }
+        }
+    }
+
+    //endregion Private helper methods
+}
@@ -1,39 +1,90 @@
 package andrewtorski.cassette.data.repository.test;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+import javax.inject.Inject;
+
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
 import andrewtorski.cassette.domain.entity.Cassette;
 import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.repository.ChangeNotifier;
+import andrewtorski.cassette.domain.repository.CloseableIterator;
 import andrewtorski.cassette.domain.repository.RecordingRepository;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
 
+/**
+ * In-memory RecordingRepository, filled with the Recordings of {@link SampleDataProvider}.
+ * <p/>
+ * Recordings are kept by id, so that lookups, updates and deletions take constant time;
+ * {@link #getAll()} returns them in order of creation. Creating a Recording with the id of one
+ * already present replaces it.
+ * <p/>
+ * Safe to use from many threads: the map is only accessed while holding its lock, queries run
+ * over a copy of the Recordings, and changes are published after the lock is released, so that
+ * listeners reading from other repositories cannot deadlock with writers of those.
+ */
 public class RecordingTestRepository implements RecordingRepository {
 
-    private List<Recording> recordingList = SampleDataProvider.getRecordings();
+    private final LongObjectHashMap<Recording> recordings = new LongObjectHashMap<>(16);
 
-    public RecordingTestRepository() {
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
 
+    @Inject
+    public RecordingTestRepository() {
+        for (Recording recording : SampleDataProvider.getRecordings()) {
+            recordings.put(recording.getId(), recording);
+        }
     }
 
     @Override
     public Recording create(Recording recording) {
-        recordingList.add(recording);
+        synchronized (recordings) {
+            recordings.put(recording.getId(), recording);
+        }
+        changeNotifier.publishCreated(recording.getId());
         return recording;
     }
 
+    @Override
+    public List<Recording> createAll(List<Recording> recordingsToCreate) {
+        ChangeNotifier.Batch batch = changeNotifier.beginBatch();
+        synchronized (recordings) {
+            for (Recording recording : recordingsToCreate) {
+                recordings.put(recording.getId(), recording);
+                batch.created(recording.getId());
+            }
+        }
+        batch.publish();
+        return recordingsToCreate;
+    }
+
     @Override
     public Recording get(long id) {
-        Recording foundRecording = null;
+        synchronized (recordings) {
+            return recordings.get(id);
+        }
+    }
 
-        for (int i = 0; i < recordingList.size(); i++) {
-            foundRecording = recordingList.get(i);
-            if (foundRecording.getId() == id) {
-                return foundRecording;
+    @Override
+    public List<Recording> getAll(long[] ids) {
+        List<Recording> foundRecordings = new ArrayList<>(ids.length);
+        synchronized (recordings) {
+            for (long id : ids) {
+                Recording recording = recordings.get(id);
+                if (recording != null) {
+                    foundRecordings.add(recording);
+                }
             }
         }
-
-        return foundRecording;
+        return foundRecordings;
     }
 
     @Override
@@ -41,19 +92,14 @@ public class RecordingTestRepository implements RecordingRepository {
         if (recording == null) {
             return false;
         }
-
-        Recording foundRecording;
-
-        for (int i = 0; i < recordingList.size(); i++) {
-            foundRecording = recordingList.get(i);
-            if (foundRecording.getId() == recording.getId()) {
-                recordingList.set(i, recording);
-                return true;
+        synchronized (recordings) {
+            if (!recordings.containsKey(recording.getId())) {
+                return false;
             }
+            recordings.put(recording.getId(), recording);
         }
-
-        return false;
-
+        changeNotifier.publishUpdated(recording.getId());
+        return true;
     }
 
     @Override
@@ -63,21 +109,20 @@ public class RecordingTestRepository implements RecordingRepository {
 
     @Override
     public boolean delete(long id) {
-        Recording foundRecording;
-        for (int i = 0; i < recordingList.size(); i++) {
-            foundRecording = recordingList.get(i);
-            if (foundRecording.getId() == id) {
-                recordingList.remove(i);
-                return true;
+        synchronized (recordings) {
+            if (recordings.remove(id) == null) {
+                return false;
             }
         }
-
-        return false;
+        changeNotifier.publishDeleted(id);
+        return true;
     }
 
     @Override
     public List<Recording> getAll() {
-        return recordingList;
+        synchronized (recordings) {
+            return recordings.values();
+        }
     }
 
     @Override
@@ -89,7 +134,7 @@ public class RecordingTestRepository implements RecordingRepository {
 
         long cassetteId = cassette.getId();
 
-        for (Recording recording : recordingList) {
+        for (Recording recording : getAll()) {
             if (recording.getCassetteId() == cassetteId) {
                 recordingsForCassette.add(recording);
             }
@@ -108,6 +153,27 @@ public class RecordingTestRepository implements RecordingRepository {
         return null;
     }
 
+    @Override
+    public CloseableIterator<Recording> iterateBetweenDates(Date fromDate, Date toDate) {
+        return iterateNewestFirst(null, fromDate, toDate);
+    }
+
+    @Override
+    public CloseableIterator<Recording> iterateBetweenDatesForCassette(Cassette cassette, Date fromDate, Date toDate) {
+        return iterateNewestFirst(cassette, fromDate, toDate);
+    }
+
+    @Override
+    public RecordingStatistics getStatistics(TimeBucket timeBucket, Date fromDate, Date toDate) {
+        return RecordingStatistics.compute(timeBucket, recordedBetween(null, fromDate, toDate));
+    }
+
+    @Override
+    public RecordingStatistics getStatisticsForCassette(Cassette cassette, TimeBucket timeBucket, Date fromDate,
+                                                        Date toDate) {
+        return RecordingStatistics.compute(timeBucket, recordedBetween(cassette, fromDate, toDate));
+    }
+
     @Override
     public List<Recording> getAllWhichTitleOrDescriptionIsLike(String searchClause) {
         return null;
@@ -115,6 +181,158 @@ public class RecordingTestRepository implements RecordingRepository {
 
     @Override
     public int count() {
-        return recordingList.size();
+        synchronized (recordings) {
+            return recordings.size();
+        }
+    }
+
+    @Override
+    public int countForCassette(long cassetteId) {
+        int count = 0;
+        for (Recording recording : getAll()) {
+            if (recording.getCassetteId() == cassetteId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public CloseableIterator<String> iterateAudioFilePaths() {
+        final Iterator<Recording> iterator = getAll().iterator();
+
+        return new CloseableIterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return iterator.next().getAudioFilePath();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public List<Recording> getAllRecordedBeforeNotInStorageFormat(Date recordedBefore, String storageFormat,
+                                                                  Recording after, int limit) {
+        List<Recording> candidates = new LinkedList<>();
+        for (Recording recording : getAll()) {
+            Date dateTimeOfRecording = recording.getDateTimeOfRecording();
+            if (dateTimeOfRecording != null && dateTimeOfRecording.before(recordedBefore)
+                    && !storageFormat.equals(recording.getAudioStorageFormat())
+                    && (after == null || compareByDateAndId(recording, after) > 0)) {
+                candidates.add(recording);
+            }
+        }
+
+        Collections.sort(candidates, new Comparator<Recording>() {
+            @Override
+            public int compare(Recording lhs, Recording rhs) {
+                return compareByDateAndId(lhs, rhs);
+            }
+        });
+
+        return candidates.size() > limit ? candidates.subList(0, limit) : candidates;
+    }
+
+    @Override
+    public boolean swapAudioFile(Recording recording, String audioFilePath, String audioStorageFormat) {
+        synchronized (recordings) {
+            Recording persisted = recordings.get(recording.getId());
+            if (persisted == null || !persisted.getAudioFilePath().equals(recording.getAudioFilePath())) {
+                return false;
+            }
+            persisted.setAudioFile(new File(audioFilePath), audioStorageFormat);
+            if (persisted != recording) {
+                recording.setAudioFile(new File(audioFilePath), audioStorageFormat);
+            }
+        }
+        changeNotifier.publishUpdated(recording.getId());
+        return true;
+    }
+
+    @Override
+    public boolean updateAudioFileInfo(Recording recording, AudioFileInfo audioFileInfo) {
+        synchronized (recordings) {
+            Recording persisted = recordings.get(recording.getId());
+            if (persisted == null) {
+                return false;
+            }
+            persisted.setAudioFileInfo(audioFileInfo);
+            if (persisted != recording) {
+                recording.setAudioFileInfo(audioFileInfo);
+            }
+        }
+        changeNotifier.publishUpdated(recording.getId());
+        return true;
+    }
+
+    @Override
+    public ChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
+    /**
+     * Returns Recordings of the provided Cassette, or of all Cassettes if it is null, recorded in
+     * the provided date span.
+     */
+    private List<Recording> recordedBetween(Cassette cassette, Date fromDate, Date toDate) {
+        List<Recording> result = new ArrayList<>();
+        for (Recording recording : getAll()) {
+            Date dateTimeOfRecording = recording.getDateTimeOfRecording();
+            if ((cassette == null || recording.getCassetteId() == cassette.getId())
+                    && !dateTimeOfRecording.before(fromDate) && !dateTimeOfRecording.after(toDate)) {
+                result.add(recording);
+            }
+        }
+        return result;
+    }
+
+    private CloseableIterator<Recording> iterateNewestFirst(Cassette cassette, Date fromDate, Date toDate) {
+        List<Recording> result = recordedBetween(cassette, fromDate, toDate);
+        Collections.sort(result, new Comparator<Recording>() {
+            @Override
+            public int compare(Recording lhs, Recording rhs) {
+                return compareByDateAndId(rhs, lhs);
+            }
+        });
+        final Iterator<Recording> iterator = result.iterator();
+
+        return new CloseableIterator<Recording>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Recording next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static int compareByDateAndId(Recording lhs, Recording rhs) {
+        int byDate = lhs.getDateTimeOfRecording().compareTo(rhs.getDateTimeOfRecording());
+        return byDate != 0 ? byDate : Long.valueOf(lhs.getId()).compareTo(rhs.getId());
     }
 }
@@ -1,14 +1,28 @@
 package andrewtorski.cassette.domain;
 
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
 import andrewtorski.cassette.domain.entity.Cassette;
 import andrewtorski.cassette.domain.entity.Recording;
 import andrewtorski.cassette.domain.repository.CassetteRepository;
+import andrewtorski.cassette.domain.repository.ChangeNotifier;
+import andrewtorski.cassette.domain.repository.ChangeSet;
+import andrewtorski.cassette.domain.repository.LiveQuery;
+import andrewtorski.cassette.domain.repository.QueryObserver;
 import andrewtorski.cassette.domain.repository.RecordingRepository;
+import andrewtorski.cassette.domain.repository.Subscription;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
 
 /**
  * Provides public access to individual repositories and exposes operations which require two
@@ -31,6 +45,18 @@ public class RepositoryFacade {
      */
     private RecordingRepository recordingRepository;
 
+    /**
+     * Quiet period after a change, before observed queries are run again. Long enough to
+     * coalesce the writes of one user action, short enough not to be noticed.
+     */
+    private static final long QUERY_DEBOUNCE_MILLISECONDS = 100;
+
+    /**
+     * Scheduler of observed queries, created when the first query is observed. One thread, so
+     * that queries do not contend for the database with each other.
+     */
+    private ScheduledExecutorService queryScheduler;
+
     //endregion Private fields
 
     //region Constructor
@@ -63,6 +89,26 @@ public class RepositoryFacade {
         return cassetteRepository.update(cassette);
     }
 
+    /**
+     * Records that the provided Cassette was played now.
+     *
+     * @param cassette Cassette which was played.
+     * @return Was the Cassette updated.
+     */
+    public boolean recordPlayback(Cassette cassette) {
+        return cassetteRepository.updateDateTimeOfLastPlayback(cassette, new Date());
+    }
+
+    /**
+     * Writes only the compilation state of the provided Cassette.
+     *
+     * @param cassette Cassette which was compiled or whose compiled file was deleted.
+     * @return Was the Cassette updated.
+     */
+    public boolean updateCompilation(Cassette cassette) {
+        return cassetteRepository.updateCompilation(cassette);
+    }
+
     public boolean delete(Cassette cassette) {
         //This will trigger cascade delete, no need to manually remove Recordings.
         return cassetteRepository.delete(cassette);
@@ -72,6 +118,13 @@ public class RepositoryFacade {
         return cassetteRepository.getAll();
     }
 
+    /**
+     * Returns the Cassettes of provided ids which exist, without their Recordings, read at once.
+     */
+    public List<Cassette> getAll(long[] cassetteIds) {
+        return cassetteRepository.getAll(cassetteIds);
+    }
+
     public Cassette get(long cassetteId, boolean withRecordingsInitialized) {
         Cassette cassette = cassetteRepository.get(cassetteId);
 
@@ -97,14 +150,29 @@ public class RepositoryFacade {
         cassette.setRecordings(recordingList);
     }
 
+    /**
+     * Returns the ChangeNotifier publishing changes made to Cassettes.
+     */
+    public ChangeNotifier getCassetteChangeNotifier() {
+        return cassetteRepository.getChangeNotifier();
+    }
+
     //endregion Cassette related Methods
 
     //region Recording related Methods
 
+    public Recording getRecording(long recordingId) {
+        return recordingRepository.get(recordingId);
+    }
+
     public Recording create(Recording recording) {
         return recordingRepository.create(recording);
     }
 
+    public List<Recording> createAll(List<Recording> recordings) {
+        return recordingRepository.createAll(recordings);
+    }
+
     public boolean update(Recording recording) {
         return recordingRepository.update(recording);
     }
@@ -113,6 +181,174 @@ public class RepositoryFacade {
         return recordingRepository.delete(recording);
     }
 
+    /**
+     * Caches what was learned by probing the audio file of the provided Recording. If the probed
+     * duration differs from the length the Recording had, the length of its Cassette is corrected
+     * by the difference.
+     *
+     * @param recording     Recording whose audio file was probed.
+     * @param audioFileInfo Result of the probe.
+     * @return Was the Recording updated.
+     */
+    public boolean updateAudioFileInfo(Recording recording, AudioFileInfo audioFileInfo) {
+        int lengthBefore = recording.getLengthInMiliseconds();
+        if (!recordingRepository.updateAudioFileInfo(recording, audioFileInfo)) {
+            return false;
+        }
+
+        int difference = recording.getLengthInMiliseconds() - lengthBefore;
+        if (difference != 0) {
+            cassetteRepository.addToLength(recording.getCassetteId(), difference);
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number and total length of Recordings recorded in the provided date span, per
+     * bucket of the provided span of time.
+     */
+    public RecordingStatistics getRecordingStatistics(TimeBucket timeBucket, Date fromDate, Date toDate) {
+        return recordingRepository.getStatistics(timeBucket, fromDate, toDate);
+    }
+
+    /**
+     * Returns the number and total length of Recordings of the Cassette of provided id recorded
+     * in the provided date span, per bucket of the provided span of time.
+     */
+    public RecordingStatistics getRecordingStatistics(long cassetteId, TimeBucket timeBucket, Date fromDate,
+                                                      Date toDate) {
+        Cassette cassette = new Cassette(cassetteId, null, null, null, 0, false, null, null, 0);
+        return recordingRepository.getStatisticsForCassette(cassette, timeBucket, fromDate, toDate);
+    }
+
+    /**
+     * Returns the ChangeNotifier publishing changes made to Recordings.
+     */
+    public ChangeNotifier getRecordingChangeNotifier() {
+        return recordingRepository.getChangeNotifier();
+    }
+
     //endregion Recording related Methods
 
+    //region Observed queries
+
+    /**
+     * Delivers all Cassettes, without their Recordings, and delivers them again whenever any
+     * Cassette changes.
+     *
+     * @param observer Observer of the Cassettes, called on a background thread.
+     * @return Subscription which stops the deliveries.
+     */
+    public Subscription observeAll(QueryObserver<List<Cassette>> observer) {
+        return new LiveQuery<List<Cassette>>(getQueryScheduler(), QUERY_DEBOUNCE_MILLISECONDS,
+                observer) {
+            @Override
+            protected List<Cassette> run() {
+                return cassetteRepository.getAll();
+            }
+        }.start(cassetteRepository.getChangeNotifier());
+    }
+
+    /**
+     * Delivers the Cassette of provided id, without its Recordings, and delivers it again
+     * whenever it changes. Null is delivered if the Cassette does not exist or was deleted.
+     *
+     * @param cassetteId Id of the observed Cassette.
+     * @param observer   Observer of the Cassette, called on a background thread.
+     * @return Subscription which stops the deliveries.
+     */
+    public Subscription observe(final long cassetteId, QueryObserver<Cassette> observer) {
+        return new LiveQuery<Cassette>(getQueryScheduler(), QUERY_DEBOUNCE_MILLISECONDS,
+                observer) {
+            @Override
+            protected Cassette run() {
+                return cassetteRepository.get(cassetteId);
+            }
+
+            @Override
+            protected boolean isAffectedBy(ChangeNotifier notifier, ChangeSet changes) {
+                return changes.getType(cassetteId) != null;
+            }
+        }.start(cassetteRepository.getChangeNotifier());
+    }
+
+    /**
+     * Delivers the Recordings of the Cassette of provided id and delivers them again whenever
+     * one of them changes or is deleted, one is created or moved into the Cassette, or the
+     * Cassette is deleted.
+     *
+     * @param cassetteId Id of the Cassette whose Recordings are observed.
+     * @param observer   Observer of the Recordings, called on a background thread.
+     * @return Subscription which stops the deliveries.
+     */
+    public Subscription observeForCassette(final long cassetteId,
+                                           QueryObserver<List<Recording>> observer) {
+        final Cassette cassette = new Cassette(cassetteId, null, null, null, 0, false, null, null, 0);
+        return new LiveQuery<List<Recording>>(getQueryScheduler(), QUERY_DEBOUNCE_MILLISECONDS,
+                observer) {
+
+            /**
+             * Ids of the Recordings delivered last.
+             */
+            private volatile Set<Long> recordingIds = new HashSet<Long>();
+
+            @Override
+            protected List<Recording> run() {
+                List<Recording> recordings = recordingRepository.getAllForCassette(cassette);
+                Set<Long> ids = new HashSet<Long>();
+                for (Recording recording : recordings) {
+                    ids.add(recording.getId());
+                }
+                recordingIds = ids;
+                return recordings;
+            }
+
+            @Override
+            protected boolean isAffectedBy(ChangeNotifier notifier, ChangeSet changes) {
+                if (notifier == cassetteRepository.getChangeNotifier()) {
+                    //  Its Recordings are deleted with it, without being published.
+                    return changes.getType(cassetteId) == ChangeSet.Type.DELETED;
+                }
+                //  Created and updated Recordings would have to be read to know their Cassette;
+                //  an updated one may have been moved into this Cassette.
+                if (changes.getCreatedIds().length > 0 || changes.getUpdatedIds().length > 0) {
+                    return true;
+                }
+                Set<Long> ids = recordingIds;
+                for (long id : changes.getDeletedIds()) {
+                    if (ids.contains(id)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }.start(cassetteRepository.getChangeNotifier(), recordingRepository.getChangeNotifier());
+    }
+
+    //endregion Observed queries
+
+    //region Private helper methods
+
+    private synchronized ScheduledExecutorService getQueryScheduler() {
+        if (queryScheduler == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "RepositoryQueries");
+                            thread.setDaemon(true);
+                            thread.setPriority(Thread.MIN_PRIORITY);
+                            return thread;
+                        }
+                    });
+            //  Debouncing cancels runs all the time, they should not pile up in the queue.
+            executor.setRemoveOnCancelPolicy(true);
+            queryScheduler = executor;
+        }
+        return queryScheduler;
+    }
+
+    //endregion Private helper methods
+
 }
@@ -0,0 +1,67 @@
+package andrewtorski.cassette.domain.audio;
+
+/**
+ * What {@link AudioFileProbe} learned about an audio file from its headers.
+ */
+public final class AudioFileInfo {
+
+    //region Codec names
+
+    public static final String CODEC_PCM = "pcm";
+    public static final String CODEC_IMA_ADPCM = "ima_adpcm";
+    public static final String CODEC_AMR_NB = "amr_nb";
+    public static final String CODEC_AMR_WB = "amr_wb";
+    public static final String CODEC_AAC = "aac";
+
+    //endregion Codec names
+
+    //region Private fields
+
+    private final String codec;
+    private final int sampleRate;
+    private final int channels;
+    private final long durationInMilliseconds;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    public AudioFileInfo(String codec, int sampleRate, int channels, long durationInMilliseconds) {
+        this.codec = codec;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.durationInMilliseconds = durationInMilliseconds;
+    }
+
+    //endregion Constructor
+
+    //region Getters
+
+    /**
+     * Returns the name of the codec of the audio, one of the CODEC constants, or the sample entry
+     * type of an MP4 codec not among them.
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public long getDurationInMilliseconds() {
+        return durationInMilliseconds;
+    }
+
+    //endregion Getters
+
+    @Override
+    public String toString() {
+        return codec + ", " + sampleRate + " Hz, " + channels + " ch, " + durationInMilliseconds
+                + " ms";
+    }
+}
@@ -0,0 +1,211 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Tells the duration and format of an audio file by reading its headers only.
+ * <p/>
+ * The container is recognized by its leading bytes. Nothing is decoded and the audio itself is
+ * never read, so probing costs a few small positional reads whatever the length of the file.
+ * Instances hold no state and may be shared between threads.
+ * <p/>
+ * Understood are WAVE files written by the {@link AudioStorageFormat}s, 3GP and MP4 files, as
+ * written by MediaRecorder, and raw AMR files.
+ */
+public class AudioFileProbe {
+
+    private static final int RIFF = 0x46464952;
+    private static final int WAVE = 0x45564157;
+
+    //region AMR
+
+    private static final byte[] AMR_NB_MAGIC = {'#', '!', 'A', 'M', 'R', '\n'};
+    private static final byte[] AMR_WB_MAGIC = {'#', '!', 'A', 'M', 'R', '-', 'W', 'B', '\n'};
+
+    /**
+     * Sizes of AMR-NB frames, including the header byte, indexed by the frame type.
+     */
+    private static final int[] AMR_NB_FRAME_SIZES =
+            {13, 14, 16, 18, 20, 21, 27, 32, 6, 1, 1, 1, 1, 1, 1, 1};
+
+    /**
+     * Sizes of AMR-WB frames, including the header byte, indexed by the frame type.
+     */
+    private static final int[] AMR_WB_FRAME_SIZES =
+            {18, 24, 33, 37, 41, 47, 51, 59, 61, 6, 1, 1, 1, 1, 1, 1};
+
+    private static final int AMR_FRAME_DURATION_IN_MILLISECONDS = 20;
+
+    private static final int AMR_READ_BUFFER_SIZE = 8192;
+
+    /**
+     * Number of frames, spread over the file, whose headers must equal the first one for the
+     * file to be taken as having a constant frame type.
+     */
+    private static final int AMR_CONSTANT_FRAME_SAMPLES = 16;
+
+    //endregion AMR
+
+    /**
+     * Probes the provided file.
+     *
+     * @param file Audio file to probe.
+     * @return What was learned about the file.
+     * @throws IOException If the file could not be read, or its format is unknown or malformed.
+     */
+    public AudioFileInfo probe(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer magic = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            WavHeader.readFully(channel, magic, 0, (int) Math.min(12, channel.size()));
+
+            if (magic.limit() == 12 && magic.getInt(0) == RIFF && magic.getInt(8) == WAVE) {
+                return probeWav(channel);
+            }
+            if (magic.limit() >= 8 && magic.order(ByteOrder.BIG_ENDIAN).getInt(4) == Mp4Boxes.FTYP) {
+                return probeMp4(channel);
+            }
+            if (startsWith(magic, AMR_WB_MAGIC)) {
+                return probeAmr(channel, AMR_WB_MAGIC.length, AMR_WB_FRAME_SIZES,
+                        AudioFileInfo.CODEC_AMR_WB, 16000);
+            }
+            if (startsWith(magic, AMR_NB_MAGIC)) {
+                return probeAmr(channel, AMR_NB_MAGIC.length, AMR_NB_FRAME_SIZES,
+                        AudioFileInfo.CODEC_AMR_NB, 8000);
+            }
+
+            throw new IOException("Unknown audio format of " + file.getPath());
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    //region Private helper methods
+
+    private static AudioFileInfo probeWav(FileChannel channel) throws IOException {
+        WavHeader header = WavHeader.read(channel);
+        String codec = header.getFormatTag() == WavHeader.FORMAT_IMA_ADPCM
+                ? AudioFileInfo.CODEC_IMA_ADPCM : AudioFileInfo.CODEC_PCM;
+        return new AudioFileInfo(codec, header.getSampleRate(), header.getChannels(),
+                header.getPcmFormat().framesToMilliseconds(header.getFrameCount()));
+    }
+
+    /**
+     * Walks boxes down to the first sound track, moov/trak/mdia, and reads its duration from mdhd
+     * and its codec, sample rate and channels from the first sample description in
+     * minf/stbl/stsd. Only box headers and these boxes are read, wherever the moov box is in the
+     * file.
+     */
+    private static AudioFileInfo probeMp4(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.BIG_ENDIAN);
+
+        long[] mdia = Mp4Boxes.findSoundMedia(channel, buffer);
+        long[] mediaHeader = Mp4Boxes.readMediaHeader(channel, buffer, mdia);
+        long timescale = mediaHeader[0], duration = mediaHeader[1];
+
+        long[] stbl = Mp4Boxes.findSampleTable(channel, buffer, mdia);
+        long[] stsd = Mp4Boxes.find(channel, buffer, stbl[0], stbl[1], Mp4Boxes.STSD);
+        if (stsd == null || stsd[1] - stsd[0] < 44) {
+            throw new IOException("Sound track without a sample description.");
+        }
+        //  version and flags, entry_count, then the first AudioSampleEntry: size, format,
+        //  reserved, data_reference_index, reserved, channelcount, samplesize, pre_defined,
+        //  reserved, samplerate in 16.16 fixed point
+        ByteBuffer description = Mp4Boxes.read(channel, new long[]{stsd[0], stsd[0] + 44});
+        int format = description.getInt(12);
+        int channels = description.getShort(32) & 0xFFFF;
+        int sampleRate = (int) ((description.getInt(40) & 0xFFFFFFFFL) >>> 16);
+        if (sampleRate == 0) {
+            sampleRate = (int) timescale;
+        }
+
+        return new AudioFileInfo(getMp4Codec(format), sampleRate, channels,
+                duration * 1000 / timescale);
+    }
+
+    private static String getMp4Codec(int format) {
+        switch (format) {
+            case Mp4Boxes.SAMR:
+                return AudioFileInfo.CODEC_AMR_NB;
+            case Mp4Boxes.SAWB:
+                return AudioFileInfo.CODEC_AMR_WB;
+            case Mp4Boxes.MP4A:
+                return AudioFileInfo.CODEC_AAC;
+            default:
+                char[] fourCc = {(char) (format >>> 24), (char) ((format >>> 16) & 0xFF),
+                        (char) ((format >>> 8) & 0xFF), (char) (format & 0xFF)};
+                return new String(fourCc).trim();
+        }
+    }
+
+    /**
+     * Raw AMR has no header telling its length, it is a sequence of 20 ms frames whose sizes
+     * follow from their first bytes. Recorders usually write a constant frame type, which is
+     * checked on a few frames spread over the file, and then the count follows from the file
+     * size. Otherwise the frame headers are walked in buffered positional reads.
+     */
+    private static AudioFileInfo probeAmr(FileChannel channel, int magicLength, int[] frameSizes,
+                                          String codec, int sampleRate) throws IOException {
+        long fileSize = channel.size();
+        long payloadSize = fileSize - magicLength;
+        long frameCount = 0;
+
+        if (payloadSize > 0) {
+            ByteBuffer buffer = ByteBuffer.allocate(AMR_READ_BUFFER_SIZE);
+            WavHeader.readFully(channel, buffer, magicLength, 1);
+            int firstHeader = buffer.get(0);
+            int firstSize = frameSizes[(firstHeader >> 3) & 0x0F];
+
+            boolean isConstant = payloadSize % firstSize == 0;
+            long constantFrameCount = payloadSize / firstSize;
+            for (int i = 1; isConstant && i <= AMR_CONSTANT_FRAME_SAMPLES; i++) {
+                long frame = (constantFrameCount - 1) * i / AMR_CONSTANT_FRAME_SAMPLES;
+                WavHeader.readFully(channel, buffer, magicLength + frame * firstSize, 1);
+                isConstant = buffer.get(0) == firstHeader;
+            }
+
+            if (isConstant) {
+                frameCount = constantFrameCount;
+            } else {
+                long position = magicLength;
+                while (position < fileSize) {
+                    int length = (int) Math.min(AMR_READ_BUFFER_SIZE, fileSize - position);
+                    WavHeader.readFully(channel, buffer, position, length);
+                    int offset = 0;
+                    while (offset < length) {
+                        offset += frameSizes[(buffer.get(offset) >> 3) & 0x0F];
+                        if (position + offset > fileSize) {
+                            //  A frame cut short by the end of the file is not played.
+                            break;
+                        }
+                        frameCount++;
+                    }
+                    position += offset;
+                }
+            }
+        }
+
+        return new AudioFileInfo(codec, sampleRate, 1,
+                frameCount * AMR_FRAME_DURATION_IN_MILLISECONDS);
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, byte[] prefix) {
+        if (buffer.limit() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,31 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads an audio file of some {@link AudioStorageFormat} as 16 bit PCM.
+ */
+public interface AudioReader extends Closeable {
+
+    /**
+     * Returns the format of the samples returned by {@link #read(short[], int, int)}.
+     */
+    PcmFormat getFormat();
+
+    /**
+     * Returns the total number of frames in the file.
+     */
+    long getFrameCount();
+
+    /**
+     * Reads up to the provided number of frames of interleaved samples.
+     *
+     * @param pcm    Array into which samples are read.
+     * @param offset Index of the first sample to write.
+     * @param frames Maximal number of frames to read.
+     * @return Number of frames read, or -1 at the end of the file.
+     * @throws IOException If the file could not be read.
+     */
+    int read(short[] pcm, int offset, int frames) throws IOException;
+}
@@ -0,0 +1,42 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Format in which audio of Recordings and compiled Cassettes is kept on the disk.
+ * <p/>
+ * Every format is written and read as 16 bit PCM, so any step which produces or consumes audio
+ * works with every format.
+ */
+public interface AudioStorageFormat {
+
+    /**
+     * Returns the name identifying this format, suitable for persisting in settings.
+     */
+    String getName();
+
+    /**
+     * Returns the extension, without the dot, of files written in this format.
+     */
+    String getFileExtension();
+
+    /**
+     * Creates a new file, or overwrites an existing one, and opens it for writing.
+     *
+     * @param file   File to write.
+     * @param format Format of the samples which will be written.
+     * @return AudioWriter which has to be closed.
+     * @throws IOException If the file could not be created.
+     */
+    AudioWriter createWriter(File file, PcmFormat format) throws IOException;
+
+    /**
+     * Opens an existing file of this format for reading.
+     *
+     * @param file File to read.
+     * @return AudioReader which has to be closed.
+     * @throws IOException If the file could not be opened or is not of this format.
+     */
+    AudioReader createReader(File file) throws IOException;
+}
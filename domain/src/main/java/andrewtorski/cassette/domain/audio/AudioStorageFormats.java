@@ -0,0 +1,56 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Looks up the {@link AudioStorageFormat}s known to the application by their names.
+ */
+public final class AudioStorageFormats {
+
+    private static final AudioStorageFormat[] FORMATS = {
+            new PcmWavStorageFormat(),
+            new ImaAdpcmWavStorageFormat()
+    };
+
+    /**
+     * Private constructor which prevents instantiating this class.
+     */
+    private AudioStorageFormats() {
+    }
+
+    /**
+     * Returns the format of the provided name.
+     *
+     * @param name Name of the format, as returned by {@link AudioStorageFormat#getName()}.
+     * @return Found format.
+     * @throws IllegalArgumentException If no format of the provided name exists.
+     */
+    public static AudioStorageFormat forName(String name) {
+        for (AudioStorageFormat format : FORMATS) {
+            if (format.getName().equals(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown audio storage format " + name);
+    }
+
+    /**
+     * Opens the provided file with the first format which is able to read it.
+     *
+     * @param file Audio file to read.
+     * @return AudioReader which has to be closed.
+     * @throws IOException If the file could not be read by any of the known formats.
+     */
+    public static AudioReader createReader(File file) throws IOException {
+        IOException lastException = null;
+        for (AudioStorageFormat format : FORMATS) {
+            try {
+                return format.createReader(file);
+            } catch (IOException e) {
+                lastException = e;
+            }
+        }
+        throw lastException;
+    }
+}
@@ -0,0 +1,26 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes 16 bit PCM into an audio file of some {@link AudioStorageFormat}.
+ * The file is complete only after it is closed.
+ */
+public interface AudioWriter extends Closeable {
+
+    /**
+     * Returns the format of the samples accepted by {@link #write(short[], int, int)}.
+     */
+    PcmFormat getFormat();
+
+    /**
+     * Writes the provided frames of interleaved samples.
+     *
+     * @param pcm    Array holding the samples.
+     * @param offset Index of the first sample to write.
+     * @param frames Number of frames to write.
+     * @throws IOException If the file could not be written.
+     */
+    void write(short[] pcm, int offset, int frames) throws IOException;
+}
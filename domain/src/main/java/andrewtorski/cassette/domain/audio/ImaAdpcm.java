@@ -0,0 +1,84 @@
+package andrewtorski.cassette.domain.audio;
+
+/**
+ * Tables and the quantizer step shared by {@link ImaAdpcmEncoder} and {@link ImaAdpcmDecoder}.
+ * <p/>
+ * Blocks follow the IMA ADPCM layout used by WAV files (format tag 0x0011): every block starts
+ * with a 4 byte header per channel (first sample as 16 bit little endian, step index, reserved
+ * byte), followed by 4 byte groups holding 8 samples of one channel each, channels interleaved.
+ * Within a byte the lower nibble holds the earlier sample.
+ */
+final class ImaAdpcm {
+
+    static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17,
+            19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+            50, 55, 60, 66, 73, 80, 88, 97, 107, 118,
+            130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+            337, 371, 408, 449, 494, 544, 598, 658, 724, 796,
+            876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+            2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358,
+            5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+            15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    static final int[] INDEX_TABLE = {
+            -1, -1, -1, -1, 2, 4, 6, 8,
+            -1, -1, -1, -1, 2, 4, 6, 8
+    };
+
+    static final int MAX_STEP_INDEX = STEP_TABLE.length - 1;
+
+    /**
+     * Size of the per channel block header, in bytes.
+     */
+    static final int HEADER_SIZE = 4;
+
+    /**
+     * Private constructor which prevents instantiating this class.
+     */
+    private ImaAdpcm() {
+    }
+
+    /**
+     * Returns the size of one block, in bytes.
+     *
+     * @param channels        Number of channels.
+     * @param samplesPerBlock Number of samples of one channel held by a block. Has to be one more
+     *                        than a multiple of 8.
+     */
+    static int getBlockAlign(int channels, int samplesPerBlock) {
+        return channels * (HEADER_SIZE + (samplesPerBlock - 1) / 2);
+    }
+
+    static void checkSamplesPerBlock(int samplesPerBlock) {
+        if (samplesPerBlock < 9 || (samplesPerBlock - 1) % 8 != 0) {
+            throw new IllegalArgumentException("Samples per block has to be 8n + 1, was " + samplesPerBlock);
+        }
+    }
+
+    /**
+     * Reconstructs the difference encoded by the provided nibble.
+     */
+    static int delta(int nibble, int step) {
+        int delta = step >> 3;
+        if ((nibble & 4) != 0) {
+            delta += step;
+        }
+        if ((nibble & 2) != 0) {
+            delta += step >> 1;
+        }
+        if ((nibble & 1) != 0) {
+            delta += step >> 2;
+        }
+        return (nibble & 8) != 0 ? -delta : delta;
+    }
+
+    static int clampSample(int sample) {
+        return sample > Short.MAX_VALUE ? Short.MAX_VALUE : (sample < Short.MIN_VALUE ? Short.MIN_VALUE : sample);
+    }
+
+    static int clampStepIndex(int stepIndex) {
+        return stepIndex > MAX_STEP_INDEX ? MAX_STEP_INDEX : (stepIndex < 0 ? 0 : stepIndex);
+    }
+}
@@ -0,0 +1,97 @@
+package andrewtorski.cassette.domain.audio;
+
+/**
+ * Decodes IMA ADPCM blocks into 16 bit PCM.
+ * <p/>
+ * Every block carries its own starting state, so blocks may be decoded in any order. Decoding
+ * does not allocate. Not thread safe.
+ */
+public final class ImaAdpcmDecoder {
+
+    //region Private fields
+
+    private final int channels;
+    private final int samplesPerBlock;
+    private final int blockAlign;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the ImaAdpcmDecoder.
+     *
+     * @param channels        Number of interleaved channels.
+     * @param samplesPerBlock Number of samples of one channel held by a block, 8n + 1.
+     */
+    public ImaAdpcmDecoder(int channels, int samplesPerBlock) {
+        if (channels < 1) {
+            throw new IllegalArgumentException("At least one channel is required.");
+        }
+        ImaAdpcm.checkSamplesPerBlock(samplesPerBlock);
+        this.channels = channels;
+        this.samplesPerBlock = samplesPerBlock;
+        this.blockAlign = ImaAdpcm.getBlockAlign(channels, samplesPerBlock);
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Decodes a single block.
+     *
+     * @param block       Array holding the block.
+     * @param blockOffset Index at which the block starts.
+     * @param pcm         Array into which interleaved samples are written. Must have room for
+     *                    samples per block times channels samples.
+     * @param offset      Index at which the first sample is written.
+     * @return Number of decoded frames, always the samples per block.
+     */
+    public int decodeBlock(byte[] block, int blockOffset, short[] pcm, int offset) {
+        for (int channel = 0; channel < channels; channel++) {
+            int headerOffset = blockOffset + channel * ImaAdpcm.HEADER_SIZE;
+            int predictor = (short) ((block[headerOffset] & 0xFF) | (block[headerOffset + 1] << 8));
+            int stepIndex = ImaAdpcm.clampStepIndex(block[headerOffset + 2] & 0xFF);
+
+            int sampleIndex = offset + channel;
+            pcm[sampleIndex] = (short) predictor;
+
+            int groupOffset = blockOffset + channels * ImaAdpcm.HEADER_SIZE + channel * 4;
+            for (int frame = 1; frame < samplesPerBlock; frame += 8) {
+                for (int i = 0; i < 4; i++) {
+                    int packed = block[groupOffset + i];
+
+                    int nibble = packed & 0x0F;
+                    predictor = ImaAdpcm.clampSample(predictor + ImaAdpcm.delta(nibble, ImaAdpcm.STEP_TABLE[stepIndex]));
+                    stepIndex = ImaAdpcm.clampStepIndex(stepIndex + ImaAdpcm.INDEX_TABLE[nibble]);
+                    sampleIndex += channels;
+                    pcm[sampleIndex] = (short) predictor;
+
+                    nibble = (packed >> 4) & 0x0F;
+                    predictor = ImaAdpcm.clampSample(predictor + ImaAdpcm.delta(nibble, ImaAdpcm.STEP_TABLE[stepIndex]));
+                    stepIndex = ImaAdpcm.clampStepIndex(stepIndex + ImaAdpcm.INDEX_TABLE[nibble]);
+                    sampleIndex += channels;
+                    pcm[sampleIndex] = (short) predictor;
+                }
+                groupOffset += channels * 4;
+            }
+        }
+
+        return samplesPerBlock;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSamplesPerBlock() {
+        return samplesPerBlock;
+    }
+
+    public int getBlockAlign() {
+        return blockAlign;
+    }
+
+    //endregion Methods
+}
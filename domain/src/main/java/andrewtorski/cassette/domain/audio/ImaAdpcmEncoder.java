@@ -0,0 +1,155 @@
+package andrewtorski.cassette.domain.audio;
+
+/**
+ * Encodes 16 bit PCM into IMA ADPCM blocks, four bits per sample.
+ * <p/>
+ * All state is allocated on construction, encoding a block does not allocate. An instance keeps
+ * the step index of each channel between blocks, so consecutive blocks of one stream have to be
+ * encoded by the same instance. Not thread safe.
+ */
+public final class ImaAdpcmEncoder {
+
+    //region Private fields
+
+    private final int channels;
+    private final int samplesPerBlock;
+    private final int blockAlign;
+
+    /**
+     * Step index of each channel, carried over between blocks.
+     */
+    private final int[] stepIndices;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the ImaAdpcmEncoder.
+     *
+     * @param channels        Number of interleaved channels.
+     * @param samplesPerBlock Number of samples of one channel held by a block, 8n + 1.
+     */
+    public ImaAdpcmEncoder(int channels, int samplesPerBlock) {
+        if (channels < 1) {
+            throw new IllegalArgumentException("At least one channel is required.");
+        }
+        ImaAdpcm.checkSamplesPerBlock(samplesPerBlock);
+        this.channels = channels;
+        this.samplesPerBlock = samplesPerBlock;
+        this.blockAlign = ImaAdpcm.getBlockAlign(channels, samplesPerBlock);
+        this.stepIndices = new int[channels];
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Encodes a single block.
+     * If fewer frames than a full block are provided, the block is padded by repeating the last
+     * provided frame.
+     *
+     * @param pcm       Interleaved samples.
+     * @param offset    Index of the first sample to encode.
+     * @param frames    Number of frames to encode, from 1 to samples per block.
+     * @param block     Array into which the block is written.
+     * @param blockOffset Index at which the block starts.
+     * @return Number of bytes written, always the block align.
+     */
+    public int encodeBlock(short[] pcm, int offset, int frames, byte[] block, int blockOffset) {
+        if (frames < 1 || frames > samplesPerBlock) {
+            throw new IllegalArgumentException("Frames has to be in [1, " + samplesPerBlock + "], was " + frames);
+        }
+
+        int lastFrame = frames - 1;
+        for (int channel = 0; channel < channels; channel++) {
+            int predictor = pcm[offset + channel];
+            int stepIndex = stepIndices[channel];
+
+            int headerOffset = blockOffset + channel * ImaAdpcm.HEADER_SIZE;
+            block[headerOffset] = (byte) predictor;
+            block[headerOffset + 1] = (byte) (predictor >> 8);
+            block[headerOffset + 2] = (byte) stepIndex;
+            block[headerOffset + 3] = 0;
+
+            //  Samples 1..samplesPerBlock-1 of this channel, in groups of 8 per 4 bytes.
+            int groupOffset = blockOffset + channels * ImaAdpcm.HEADER_SIZE + channel * 4;
+            for (int frame = 1; frame < samplesPerBlock; frame += 8) {
+                for (int i = 0; i < 8; i += 2) {
+                    int first = frame + i, second = first + 1;
+                    int sample = pcm[offset + (first < lastFrame ? first : lastFrame) * channels + channel];
+                    int step = ImaAdpcm.STEP_TABLE[stepIndex];
+                    int lowNibble = quantize(sample - predictor, step);
+                    predictor = ImaAdpcm.clampSample(predictor + ImaAdpcm.delta(lowNibble, step));
+                    stepIndex = ImaAdpcm.clampStepIndex(stepIndex + ImaAdpcm.INDEX_TABLE[lowNibble]);
+
+                    sample = pcm[offset + (second < lastFrame ? second : lastFrame) * channels + channel];
+                    step = ImaAdpcm.STEP_TABLE[stepIndex];
+                    int highNibble = quantize(sample - predictor, step);
+                    predictor = ImaAdpcm.clampSample(predictor + ImaAdpcm.delta(highNibble, step));
+                    stepIndex = ImaAdpcm.clampStepIndex(stepIndex + ImaAdpcm.INDEX_TABLE[highNibble]);
+
+                    block[groupOffset + (i >> 1)] = (byte) (lowNibble | (highNibble << 4));
+                }
+                groupOffset += channels * 4;
+            }
+
+            stepIndices[channel] = stepIndex;
+        }
+
+        return blockAlign;
+    }
+
+    /**
+     * Forgets the state carried over between blocks, so that a new stream can be encoded.
+     */
+    public void reset() {
+        for (int channel = 0; channel < channels; channel++) {
+            stepIndices[channel] = 0;
+        }
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSamplesPerBlock() {
+        return samplesPerBlock;
+    }
+
+    public int getBlockAlign() {
+        return blockAlign;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    /**
+     * Chooses the nibble which best approximates the provided difference with the current step.
+     */
+    private static int quantize(int difference, int step) {
+        int nibble = 0;
+        if (difference < 0) {
+            nibble = 8;
+            difference = -difference;
+        }
+        if (difference >= step) {
+            nibble |= 4;
+            difference -= step;
+        }
+        step >>= 1;
+        if (difference >= step) {
+            nibble |= 2;
+            difference -= step;
+        }
+        step >>= 1;
+        if (difference >= step) {
+            nibble |= 1;
+        }
+        return nibble;
+    }
+
+    //endregion Private helper methods
+}
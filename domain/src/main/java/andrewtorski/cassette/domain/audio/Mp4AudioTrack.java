@@ -0,0 +1,328 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Sample tables of the first sound track of an MP4 or 3GP file.
+ * <p/>
+ * Together they tell where in the file every chunk of coded samples is, how large every sample
+ * is and how long it plays, which is all that is needed to copy the samples into another file
+ * without decoding them. Only the moov box is read, the samples themselves are not.
+ */
+public final class Mp4AudioTrack {
+
+    //region Private fields
+
+    private final byte[] sampleEntry;
+    private final long timescale;
+    private final long duration;
+
+    private final int[] sampleSizes;
+
+    private final long[] chunkOffsets;
+    private final long[] chunkSizes;
+    private final int[] chunkSampleCounts;
+
+    private final int[] timeToSampleCounts;
+    private final int[] timeToSampleDeltas;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    private Mp4AudioTrack(byte[] sampleEntry, long timescale, long duration, int[] sampleSizes,
+                          long[] chunkOffsets, long[] chunkSizes, int[] chunkSampleCounts,
+                          int[] timeToSampleCounts, int[] timeToSampleDeltas) {
+        this.sampleEntry = sampleEntry;
+        this.timescale = timescale;
+        this.duration = duration;
+        this.sampleSizes = sampleSizes;
+        this.chunkOffsets = chunkOffsets;
+        this.chunkSizes = chunkSizes;
+        this.chunkSampleCounts = chunkSampleCounts;
+        this.timeToSampleCounts = timeToSampleCounts;
+        this.timeToSampleDeltas = timeToSampleDeltas;
+    }
+
+    //endregion Constructor
+
+    //region Getters
+
+    /**
+     * Returns the first sample description of the track, a whole box starting with its size and
+     * type. Tracks whose sample entries are equal hold samples coded with equal parameters.
+     */
+    public byte[] getSampleEntry() {
+        return sampleEntry.clone();
+    }
+
+    /**
+     * Returns the type of the sample entry, e.g. samr for AMR-NB.
+     */
+    public int getSampleEntryType() {
+        return ByteBuffer.wrap(sampleEntry).getInt(4);
+    }
+
+    public int getChannels() {
+        return ByteBuffer.wrap(sampleEntry).getShort(24) & 0xFFFF;
+    }
+
+    public int getSampleRate() {
+        int sampleRate = (int) ((ByteBuffer.wrap(sampleEntry).getInt(32) & 0xFFFFFFFFL) >>> 16);
+        return sampleRate == 0 ? (int) timescale : sampleRate;
+    }
+
+    /**
+     * Returns the number of time units in a second, in which durations of samples are expressed.
+     */
+    public long getTimescale() {
+        return timescale;
+    }
+
+    /**
+     * Returns the duration of the track in units of the timescale.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public int getSampleCount() {
+        return sampleSizes.length;
+    }
+
+    public int getSampleSize(int sample) {
+        return sampleSizes[sample];
+    }
+
+    public int getChunkCount() {
+        return chunkOffsets.length;
+    }
+
+    /**
+     * Returns the position in the file of the first byte of the chunk.
+     */
+    public long getChunkOffset(int chunk) {
+        return chunkOffsets[chunk];
+    }
+
+    /**
+     * Returns the number of bytes of all samples of the chunk.
+     */
+    public long getChunkSize(int chunk) {
+        return chunkSizes[chunk];
+    }
+
+    public int getChunkSampleCount(int chunk) {
+        return chunkSampleCounts[chunk];
+    }
+
+    /**
+     * Returns the number of runs of consecutive samples of equal duration.
+     */
+    public int getTimeToSampleEntryCount() {
+        return timeToSampleCounts.length;
+    }
+
+    public int getTimeToSampleCount(int entry) {
+        return timeToSampleCounts[entry];
+    }
+
+    /**
+     * Returns the duration of every sample of the run, in units of the timescale.
+     */
+    public int getTimeToSampleDelta(int entry) {
+        return timeToSampleDeltas[entry];
+    }
+
+    //endregion Getters
+
+    //region Static methods
+
+    /**
+     * Reads sample tables of the first sound track of the provided file.
+     *
+     * @param file MP4 or 3GP file.
+     * @return Read track.
+     * @throws IOException If the file could not be read, is not an MP4 file, has no sound track or
+     *                     its sample tables are inconsistent.
+     */
+    public static Mp4AudioTrack read(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.BIG_ENDIAN);
+            if (channel.size() < 8) {
+                throw new IOException("Not an MP4 file.");
+            }
+            WavHeader.readFully(channel, buffer, 0, 8);
+            if (buffer.getInt(4) != Mp4Boxes.FTYP) {
+                throw new IOException("Not an MP4 file.");
+            }
+
+            long[] mdia = Mp4Boxes.findSoundMedia(channel, buffer);
+            long[] mediaHeader = Mp4Boxes.readMediaHeader(channel, buffer, mdia);
+            long[] stbl = Mp4Boxes.findSampleTable(channel, buffer, mdia);
+
+            byte[] sampleEntry = readSampleEntry(channel, buffer, stbl);
+            int[] sampleSizes = readSampleSizes(channel, buffer, stbl);
+            long[] chunkOffsets = readChunkOffsets(channel, buffer, stbl);
+            int[] chunkSampleCounts = readChunkSampleCounts(channel, buffer, stbl,
+                    chunkOffsets.length);
+
+            long[] chunkSizes = new long[chunkOffsets.length];
+            int sample = 0;
+            for (int chunk = 0; chunk < chunkOffsets.length; chunk++) {
+                if (sample + chunkSampleCounts[chunk] > sampleSizes.length) {
+                    throw new IOException("Chunks hold more samples than there are.");
+                }
+                for (int i = 0; i < chunkSampleCounts[chunk]; i++) {
+                    chunkSizes[chunk] += sampleSizes[sample++];
+                }
+            }
+            if (sample != sampleSizes.length) {
+                throw new IOException("Chunks hold fewer samples than there are.");
+            }
+
+            ByteBuffer stts = readTable(channel, buffer, stbl, Mp4Boxes.STTS);
+            int entryCount = checkEntryCount(stts, 8, 8);
+            int[] timeToSampleCounts = new int[entryCount];
+            int[] timeToSampleDeltas = new int[entryCount];
+            long timedSamples = 0;
+            for (int i = 0; i < entryCount; i++) {
+                timeToSampleCounts[i] = stts.getInt(8 + i * 8);
+                timeToSampleDeltas[i] = stts.getInt(12 + i * 8);
+                timedSamples += timeToSampleCounts[i] & 0xFFFFFFFFL;
+            }
+            if (timedSamples != sampleSizes.length) {
+                throw new IOException("Durations are given for " + timedSamples + " of "
+                        + sampleSizes.length + " samples.");
+            }
+
+            return new Mp4AudioTrack(sampleEntry, mediaHeader[0], mediaHeader[1], sampleSizes,
+                    chunkOffsets, chunkSizes, chunkSampleCounts, timeToSampleCounts,
+                    timeToSampleDeltas);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    //endregion Static methods
+
+    //region Private helper methods
+
+    private static byte[] readSampleEntry(FileChannel channel, ByteBuffer buffer, long[] stbl)
+            throws IOException {
+        ByteBuffer stsd = readTable(channel, buffer, stbl, Mp4Boxes.STSD);
+        if (stsd.limit() < 8 + 36 || stsd.getInt(4) < 1) {
+            throw new IOException("Sound track without a sample description.");
+        }
+        int entrySize = stsd.getInt(8);
+        if (entrySize < 36 || 8 + entrySize > stsd.limit()) {
+            throw new IOException("Malformed sample description.");
+        }
+        return Arrays.copyOfRange(stsd.array(), 8, 8 + entrySize);
+    }
+
+    private static int[] readSampleSizes(FileChannel channel, ByteBuffer buffer, long[] stbl)
+            throws IOException {
+        ByteBuffer stsz = readTable(channel, buffer, stbl, Mp4Boxes.STSZ);
+        if (stsz.limit() < 12) {
+            throw new IOException("Truncated sample size table.");
+        }
+        int constantSize = stsz.getInt(4);
+        int sampleCount = stsz.getInt(8);
+        if (sampleCount < 0) {
+            throw new IOException("Too many samples.");
+        }
+        int[] sampleSizes = new int[sampleCount];
+        if (constantSize != 0) {
+            Arrays.fill(sampleSizes, constantSize);
+        } else {
+            checkEntryCount(stsz, 12, 4, sampleCount);
+            for (int i = 0; i < sampleCount; i++) {
+                sampleSizes[i] = stsz.getInt(12 + i * 4);
+            }
+        }
+        return sampleSizes;
+    }
+
+    private static long[] readChunkOffsets(FileChannel channel, ByteBuffer buffer, long[] stbl)
+            throws IOException {
+        long[] stco = Mp4Boxes.find(channel, buffer, stbl[0], stbl[1], Mp4Boxes.STCO);
+        boolean isLarge = stco == null;
+        ByteBuffer table = isLarge ? readTable(channel, buffer, stbl, Mp4Boxes.CO64)
+                : Mp4Boxes.read(channel, stco);
+        int entrySize = isLarge ? 8 : 4;
+        int entryCount = checkEntryCount(table, 8, entrySize);
+        long[] chunkOffsets = new long[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            chunkOffsets[i] = isLarge ? table.getLong(8 + i * 8)
+                    : table.getInt(8 + i * 4) & 0xFFFFFFFFL;
+        }
+        return chunkOffsets;
+    }
+
+    /**
+     * Expands the runs of the sample to chunk table into the number of samples of every chunk.
+     */
+    private static int[] readChunkSampleCounts(FileChannel channel, ByteBuffer buffer, long[] stbl,
+                                               int chunkCount) throws IOException {
+        ByteBuffer stsc = readTable(channel, buffer, stbl, Mp4Boxes.STSC);
+        int entryCount = checkEntryCount(stsc, 8, 12);
+        int[] chunkSampleCounts = new int[chunkCount];
+        for (int i = 0; i < entryCount; i++) {
+            //  First chunks are 1 based.
+            long firstChunk = (stsc.getInt(8 + i * 12) & 0xFFFFFFFFL) - 1;
+            long nextFirstChunk = i + 1 < entryCount
+                    ? (stsc.getInt(8 + (i + 1) * 12) & 0xFFFFFFFFL) - 1 : chunkCount;
+            int samplesPerChunk = stsc.getInt(12 + i * 12);
+            if (firstChunk < 0 || nextFirstChunk < firstChunk || nextFirstChunk > chunkCount
+                    || samplesPerChunk < 0) {
+                throw new IOException("Malformed sample to chunk table.");
+            }
+            for (long chunk = firstChunk; chunk < nextFirstChunk; chunk++) {
+                chunkSampleCounts[(int) chunk] = samplesPerChunk;
+            }
+        }
+        return chunkSampleCounts;
+    }
+
+    private static ByteBuffer readTable(FileChannel channel, ByteBuffer buffer, long[] stbl,
+                                        int type) throws IOException {
+        long[] box = Mp4Boxes.find(channel, buffer, stbl[0], stbl[1], type);
+        if (box == null) {
+            throw new IOException("Sample table without " + new String(new char[]{
+                    (char) (type >>> 24), (char) ((type >>> 16) & 0xFF),
+                    (char) ((type >>> 8) & 0xFF), (char) (type & 0xFF)}) + ".");
+        }
+        return Mp4Boxes.read(channel, box);
+    }
+
+    /**
+     * Returns the entry count of a full box table whose count is at offset 4, checking that all
+     * entries fit in the box.
+     */
+    private static int checkEntryCount(ByteBuffer table, int entriesOffset, int entrySize)
+            throws IOException {
+        if (table.limit() < entriesOffset) {
+            throw new IOException("Truncated table.");
+        }
+        return checkEntryCount(table, entriesOffset, entrySize, table.getInt(4));
+    }
+
+    private static int checkEntryCount(ByteBuffer table, int entriesOffset, int entrySize,
+                                       int entryCount) throws IOException {
+        if (entryCount < 0 || (long) entryCount * entrySize > table.limit() - entriesOffset) {
+            throw new IOException("Table with " + entryCount + " entries is truncated.");
+        }
+        return entryCount;
+    }
+
+    //endregion Private helper methods
+}
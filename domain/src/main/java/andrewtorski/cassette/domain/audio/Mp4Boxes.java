@@ -0,0 +1,179 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Finds and reads boxes of MP4 and 3GP files through positional reads.
+ * <p/>
+ * Boxes are addressed by the bounds of their payload, {start, end}, so that children of a box
+ * are looked up between the bounds of their parent.
+ */
+final class Mp4Boxes {
+
+    //region Box types
+
+    static final int FTYP = 0x66747970;
+    static final int MOOV = 0x6D6F6F76;
+    static final int TRAK = 0x7472616B;
+    static final int MDIA = 0x6D646961;
+    static final int MDHD = 0x6D646864;
+    static final int HDLR = 0x68646C72;
+    static final int MINF = 0x6D696E66;
+    static final int STBL = 0x7374626C;
+    static final int STSD = 0x73747364;
+    static final int STTS = 0x73747473;
+    static final int STSC = 0x73747363;
+    static final int STSZ = 0x7374737A;
+    static final int STCO = 0x7374636F;
+    static final int CO64 = 0x636F3634;
+
+    static final int SOUN = 0x736F756E;
+
+    static final int SAMR = 0x73616D72;
+    static final int SAWB = 0x73617762;
+    static final int MP4A = 0x6D703461;
+
+    //endregion Box types
+
+    /**
+     * Largest box payload read into memory at once. Sample tables of hours of AMR stay far below.
+     */
+    private static final int MAXIMAL_READ_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Private constructor which prevents instantiating this class.
+     */
+    private Mp4Boxes() {
+    }
+
+    /**
+     * Returns the payload bounds of the first box of provided type between provided positions,
+     * or null if there is no such box.
+     *
+     * @param buffer Buffer of at least 16 bytes used for reading box headers.
+     */
+    static long[] find(FileChannel channel, ByteBuffer buffer, long position, long end, int type)
+            throws IOException {
+        while (position + 8 <= end) {
+            WavHeader.readFully(channel, buffer, position, 8);
+            long size = buffer.getInt(0) & 0xFFFFFFFFL;
+            int boxType = buffer.getInt(4);
+            long headerSize = 8;
+            if (size == 1) {
+                if (position + 16 > end) {
+                    throw new IOException("Truncated box header.");
+                }
+                WavHeader.readFully(channel, buffer, position + 8, 8);
+                size = buffer.getLong(0);
+                headerSize = 16;
+            } else if (size == 0) {
+                //  The box extends to the end of its parent.
+                size = end - position;
+            }
+            if (size < headerSize || position + size > end) {
+                throw new IOException("Malformed box at " + position + ".");
+            }
+
+            if (boxType == type) {
+                return new long[]{position + headerSize, position + size};
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the payload bounds of the mdia box of the first sound track of the file.
+     *
+     * @throws IOException If the file has no moov box or no sound track.
+     */
+    static long[] findSoundMedia(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long[] moov = find(channel, buffer, 0, channel.size(), MOOV);
+        if (moov == null) {
+            throw new IOException("No moov box found.");
+        }
+
+        long trakPosition = moov[0];
+        long[] trak;
+        while ((trak = find(channel, buffer, trakPosition, moov[1], TRAK)) != null) {
+            trakPosition = trak[1];
+
+            long[] mdia = find(channel, buffer, trak[0], trak[1], MDIA);
+            if (mdia == null) {
+                continue;
+            }
+            long[] hdlr = find(channel, buffer, mdia[0], mdia[1], HDLR);
+            if (hdlr == null || hdlr[1] - hdlr[0] < 12) {
+                continue;
+            }
+            //  version and flags, pre_defined, handler_type
+            WavHeader.readFully(channel, buffer, hdlr[0], 12);
+            if (buffer.getInt(8) == SOUN) {
+                return mdia;
+            }
+        }
+
+        throw new IOException("No sound track found.");
+    }
+
+    /**
+     * Reads timescale and duration from the mdhd box of provided mdia box.
+     *
+     * @return {timescale, duration}
+     */
+    static long[] readMediaHeader(FileChannel channel, ByteBuffer buffer, long[] mdia)
+            throws IOException {
+        long[] mdhd = find(channel, buffer, mdia[0], mdia[1], MDHD);
+        if (mdhd == null || mdhd[1] - mdhd[0] < 24) {
+            throw new IOException("Sound track without a media header.");
+        }
+        ByteBuffer header = read(channel, mdhd);
+        long timescale, duration;
+        if (header.get(0) == 1) {
+            //  version 1: 64 bit creation and modification times and duration
+            if (header.limit() < 32) {
+                throw new IOException("Truncated media header.");
+            }
+            timescale = header.getInt(20) & 0xFFFFFFFFL;
+            duration = header.getLong(24);
+        } else {
+            timescale = header.getInt(12) & 0xFFFFFFFFL;
+            duration = header.getInt(16) & 0xFFFFFFFFL;
+        }
+        if (timescale == 0) {
+            throw new IOException("Media header with zero timescale.");
+        }
+        return new long[]{timescale, duration};
+    }
+
+    /**
+     * Returns the payload bounds of the stbl box of provided mdia box.
+     */
+    static long[] findSampleTable(FileChannel channel, ByteBuffer buffer, long[] mdia)
+            throws IOException {
+        long[] minf = find(channel, buffer, mdia[0], mdia[1], MINF);
+        long[] stbl = minf == null ? null : find(channel, buffer, minf[0], minf[1], STBL);
+        if (stbl == null) {
+            throw new IOException("Sound track without a sample table.");
+        }
+        return stbl;
+    }
+
+    /**
+     * Reads the whole payload of the box of provided bounds.
+     *
+     * @return Big endian buffer positioned at the start of the payload.
+     */
+    static ByteBuffer read(FileChannel channel, long[] box) throws IOException {
+        long size = box[1] - box[0];
+        if (size > MAXIMAL_READ_SIZE) {
+            throw new IOException("Box of " + size + " bytes is too large.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.BIG_ENDIAN);
+        WavHeader.readFully(channel, buffer, box[0], (int) size);
+        return buffer;
+    }
+}
@@ -0,0 +1,91 @@
+package andrewtorski.cassette.domain.audio;
+
+/**
+ * Describes a stream of interleaved, signed 16 bit PCM samples.
+ */
+public final class PcmFormat {
+
+    //region Private fields
+
+    /**
+     * Number of frames per second.
+     */
+    private final int sampleRate;
+
+    /**
+     * Number of samples per frame.
+     */
+    private final int channels;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the PcmFormat.
+     *
+     * @param sampleRate Number of frames per second.
+     * @param channels   Number of samples per frame.
+     */
+    public PcmFormat(int sampleRate, int channels) {
+        if (sampleRate < 1 || channels < 1) {
+            throw new IllegalArgumentException("Sample rate and channels have to be positive.");
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    //endregion Constructor
+
+    //region Getters
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Returns the size of one frame, in bytes.
+     */
+    public int getFrameSize() {
+        return channels * 2;
+    }
+
+    /**
+     * Returns the length of the provided number of frames, in milliseconds.
+     */
+    public long framesToMilliseconds(long frames) {
+        return frames * 1000 / sampleRate;
+    }
+
+    //endregion Getters
+
+    //region Object methods
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PcmFormat)) {
+            return false;
+        }
+        PcmFormat other = (PcmFormat) o;
+        return sampleRate == other.sampleRate && channels == other.channels;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * sampleRate + channels;
+    }
+
+    @Override
+    public String toString() {
+        return sampleRate + " Hz, " + channels + " channel(s)";
+    }
+
+    //endregion Object methods
+}
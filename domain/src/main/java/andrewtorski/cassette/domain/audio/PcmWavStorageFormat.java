@@ -0,0 +1,150 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Uncompressed 16 bit PCM in a WAVE file.
+ */
+public class PcmWavStorageFormat implements AudioStorageFormat {
+
+    public static final String NAME = "wav-pcm";
+
+    /**
+     * Number of frames converted per write or read call on the file.
+     */
+    private static final int FRAMES_PER_BUFFER = 4096;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "wav";
+    }
+
+    @Override
+    public AudioWriter createWriter(File file, PcmFormat format) throws IOException {
+        return new Writer(file, format);
+    }
+
+    @Override
+    public AudioReader createReader(File file) throws IOException {
+        return WavReaders.open(file);
+    }
+
+    //region Writer and Reader
+
+    private static class Writer implements AudioWriter {
+
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final PcmFormat format;
+        private final ByteBuffer buffer;
+        private long frameCount;
+
+        Writer(File file, PcmFormat format) throws IOException {
+            this.file = new RandomAccessFile(file, "rw");
+            this.file.setLength(0);
+            this.channel = this.file.getChannel();
+            this.format = format;
+            this.buffer = ByteBuffer.allocate(FRAMES_PER_BUFFER * format.getFrameSize())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            this.channel.position(WavHeader.forPcm(format, 0).getDataOffset());
+        }
+
+        @Override
+        public PcmFormat getFormat() {
+            return format;
+        }
+
+        @Override
+        public void write(short[] pcm, int offset, int frames) throws IOException {
+            int channels = format.getChannels();
+            while (frames > 0) {
+                int chunk = Math.min(frames, FRAMES_PER_BUFFER);
+                int end = offset + chunk * channels;
+                buffer.clear();
+                for (int i = offset; i < end; i++) {
+                    buffer.putShort(pcm[i]);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                offset = end;
+                frames -= chunk;
+                frameCount += chunk;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                WavHeader.forPcm(format, frameCount).write(channel);
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    static class Reader implements AudioReader {
+
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final WavHeader header;
+        private final PcmFormat format;
+        private final ByteBuffer buffer;
+        private long framesRead;
+
+        Reader(RandomAccessFile file, WavHeader header) {
+            this.file = file;
+            this.channel = file.getChannel();
+            this.header = header;
+            this.format = header.getPcmFormat();
+            this.buffer = ByteBuffer.allocate(FRAMES_PER_BUFFER * format.getFrameSize())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Override
+        public PcmFormat getFormat() {
+            return format;
+        }
+
+        @Override
+        public long getFrameCount() {
+            return header.getFrameCount();
+        }
+
+        @Override
+        public int read(short[] pcm, int offset, int frames) throws IOException {
+            long remaining = header.getFrameCount() - framesRead;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int chunk = (int) Math.min(Math.min(frames, remaining), FRAMES_PER_BUFFER);
+            int frameSize = format.getFrameSize();
+            WavHeader.readFully(channel, buffer, header.getDataOffset() + framesRead * frameSize,
+                    chunk * frameSize);
+            int end = offset + chunk * format.getChannels();
+            for (int i = offset; i < end; i++) {
+                pcm[i] = buffer.getShort();
+            }
+            framesRead += chunk;
+            return chunk;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    //endregion Writer and Reader
+}
@@ -0,0 +1,191 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed coefficients of a polyphase filter converting between two sample rates.
+ * <p/>
+ * Conversion by the rational factor L / M is modelled as upsampling by L, low pass filtering and
+ * downsampling by M. The low pass filter is a Kaiser windowed sinc, split into L phases of
+ * {@link #getTapsPerPhase()} taps each, so that only the taps contributing to an actual output
+ * sample are ever evaluated.
+ * <p/>
+ * Banks are immutable and shared by all {@link PolyphaseResampler}s converting between the same
+ * rates, see {@link #forRates(int, int, int)}.
+ */
+public final class PolyphaseFilterBank {
+
+    //region Constants
+
+    /**
+     * Number of taps per phase of the default quality, giving roughly 80 dB of stop band
+     * attenuation.
+     */
+    public static final int DEFAULT_TAPS_PER_PHASE = 32;
+
+    /**
+     * Part of the output Nyquist frequency which is passed untouched. The rest is the transition
+     * band of the filter.
+     */
+    private static final double PASS_BAND = 0.90;
+
+    private static final double KAISER_BETA = 8.0;
+
+    //endregion Constants
+
+    //region Private fields
+
+    private static final Map<String, PolyphaseFilterBank> CACHE = new HashMap<String, PolyphaseFilterBank>();
+
+    private final int inputRate;
+    private final int outputRate;
+
+    /**
+     * Upsampling factor, also the number of phases.
+     */
+    private final int interpolation;
+
+    /**
+     * Downsampling factor.
+     */
+    private final int decimation;
+
+    private final int tapsPerPhase;
+
+    /**
+     * Coefficients of all phases, phase after phase. Taps within a phase are stored in reverse,
+     * so that they line up with the history of input samples, oldest first.
+     */
+    private final float[] coefficients;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    private PolyphaseFilterBank(int inputRate, int outputRate, int tapsPerPhase) {
+        int gcd = greatestCommonDivisor(inputRate, outputRate);
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.interpolation = outputRate / gcd;
+        this.decimation = inputRate / gcd;
+        //  When reducing the rate, the filter has to be as long in terms of output samples.
+        this.tapsPerPhase = tapsPerPhase * ((decimation + interpolation - 1) / interpolation);
+        this.coefficients = design(interpolation, decimation, this.tapsPerPhase);
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Returns the bank converting between the provided rates, designing it on first use.
+     *
+     * @param inputRate    Sample rate of the input.
+     * @param outputRate   Sample rate of the output.
+     * @param tapsPerPhase Number of taps of every phase, higher is more accurate and slower.
+     *                     Multiplied by the rounded up reduction ratio when reducing the rate.
+     */
+    public static PolyphaseFilterBank forRates(int inputRate, int outputRate, int tapsPerPhase) {
+        if (inputRate < 1 || outputRate < 1 || tapsPerPhase < 2) {
+            throw new IllegalArgumentException("Rates have to be positive and at least two taps are required.");
+        }
+
+        String key = inputRate + "/" + outputRate + "/" + tapsPerPhase;
+        synchronized (CACHE) {
+            PolyphaseFilterBank bank = CACHE.get(key);
+            if (bank == null) {
+                bank = new PolyphaseFilterBank(inputRate, outputRate, tapsPerPhase);
+                CACHE.put(key, bank);
+            }
+            return bank;
+        }
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    public int getInterpolation() {
+        return interpolation;
+    }
+
+    public int getDecimation() {
+        return decimation;
+    }
+
+    /**
+     * Returns the actual number of taps of every phase.
+     */
+    public int getTapsPerPhase() {
+        return tapsPerPhase;
+    }
+
+    /**
+     * Returns the coefficients, phase after phase, each phase reversed. Must not be modified.
+     */
+    float[] getCoefficients() {
+        return coefficients;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private static float[] design(int interpolation, int decimation, int tapsPerPhase) {
+        int length = interpolation * tapsPerPhase;
+        //  Cut off at the lower of the two Nyquist frequencies, relative to the upsampled rate.
+        double cutoff = PASS_BAND * 0.5 / Math.max(interpolation, decimation);
+        double center = (length - 1) / 2.0;
+        double windowNormalization = besselI0(KAISER_BETA);
+
+        double[] prototype = new double[length];
+        for (int i = 0; i < length; i++) {
+            double x = i - center;
+            double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+            double ratio = x / (center + 1);
+            double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - ratio * ratio))) / windowNormalization;
+            //  Gain of the interpolation has to be restored, zero stuffing divides it by L.
+            prototype[i] = sinc * window * interpolation;
+        }
+
+        float[] coefficients = new float[length];
+        for (int phase = 0; phase < interpolation; phase++) {
+            for (int tap = 0; tap < tapsPerPhase; tap++) {
+                coefficients[phase * tapsPerPhase + (tapsPerPhase - 1 - tap)] =
+                        (float) prototype[tap * interpolation + phase];
+            }
+        }
+        return coefficients;
+    }
+
+    /**
+     * Zeroth order modified Bessel function of the first kind, by its power series.
+     */
+    private static double besselI0(double x) {
+        double sum = 1, term = 1, halfX = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int greatestCommonDivisor(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    //endregion Private helper methods
+}
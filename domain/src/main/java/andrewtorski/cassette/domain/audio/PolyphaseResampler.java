@@ -0,0 +1,170 @@
+package andrewtorski.cassette.domain.audio;
+
+/**
+ * Streaming sample rate converter for interleaved 16 bit PCM, based on a
+ * {@link PolyphaseFilterBank}.
+ * <p/>
+ * Input may be fed in blocks of any size, the output is the same as if the whole stream was
+ * converted at once. Each instance holds the filter history of one stream, allocated on
+ * construction; converting does not allocate. Not thread safe.
+ */
+public final class PolyphaseResampler {
+
+    //region Private fields
+
+    private final PolyphaseFilterBank bank;
+    private final float[] coefficients;
+    private final int channels;
+    private final int tapsPerPhase;
+    private final int interpolation;
+    private final int decimation;
+
+    /**
+     * History of input samples of every channel. Each channel owns a window of twice the number
+     * of taps, every sample is written twice, so that the latest taps are always contiguous.
+     */
+    private final float[] history;
+
+    /**
+     * Position in the history at which the next input sample is written.
+     */
+    private int historyPosition;
+
+    /**
+     * Phase of the next output sample, in [0, interpolation) while waiting for input.
+     */
+    private int phase;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the PolyphaseResampler with the default quality.
+     *
+     * @param inputRate  Sample rate of the input.
+     * @param outputRate Sample rate of the output.
+     * @param channels   Number of interleaved channels.
+     */
+    public PolyphaseResampler(int inputRate, int outputRate, int channels) {
+        this(PolyphaseFilterBank.forRates(inputRate, outputRate, PolyphaseFilterBank.DEFAULT_TAPS_PER_PHASE),
+                channels);
+    }
+
+    /**
+     * Initializes a new instance of the PolyphaseResampler using the provided filter bank.
+     *
+     * @param bank     Filter bank, possibly shared with other resamplers.
+     * @param channels Number of interleaved channels.
+     */
+    public PolyphaseResampler(PolyphaseFilterBank bank, int channels) {
+        if (channels < 1) {
+            throw new IllegalArgumentException("At least one channel is required.");
+        }
+        this.bank = bank;
+        this.coefficients = bank.getCoefficients();
+        this.channels = channels;
+        this.tapsPerPhase = bank.getTapsPerPhase();
+        this.interpolation = bank.getInterpolation();
+        this.decimation = bank.getDecimation();
+        this.history = new float[channels * tapsPerPhase * 2];
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Returns the maximal number of frames produced from the provided number of input frames,
+     * which is how much room the output passed to {@link #process} has to have.
+     */
+    public int getMaximalOutputFrames(int inputFrames) {
+        return (int) (((long) inputFrames * interpolation + phase) / decimation) + 1;
+    }
+
+    /**
+     * Converts the provided input frames.
+     *
+     * @param input        Interleaved input samples.
+     * @param inputOffset  Index of the first input sample.
+     * @param inputFrames  Number of input frames.
+     * @param output       Array receiving interleaved output samples. Has to have room for
+     *                     {@link #getMaximalOutputFrames(int)} frames.
+     * @param outputOffset Index at which the first output sample is written.
+     * @return Number of output frames written.
+     */
+    public int process(short[] input, int inputOffset, int inputFrames, short[] output, int outputOffset) {
+        int window = tapsPerPhase * 2;
+        int outputIndex = outputOffset;
+
+        for (int frame = 0; frame < inputFrames; frame++) {
+            //  Push one frame into the history of every channel.
+            int inputIndex = inputOffset + frame * channels;
+            for (int channel = 0; channel < channels; channel++) {
+                float sample = input[inputIndex + channel];
+                int base = channel * window;
+                history[base + historyPosition] = sample;
+                history[base + historyPosition + tapsPerPhase] = sample;
+            }
+            historyPosition++;
+            if (historyPosition == tapsPerPhase) {
+                historyPosition = 0;
+            }
+
+            //  Emit every output sample falling between this input frame and the next one.
+            while (phase < interpolation) {
+                int coefficientOffset = phase * tapsPerPhase;
+                for (int channel = 0; channel < channels; channel++) {
+                    int historyOffset = channel * window + historyPosition;
+                    float sum = 0;
+                    for (int tap = 0; tap < tapsPerPhase; tap++) {
+                        sum += coefficients[coefficientOffset + tap] * history[historyOffset + tap];
+                    }
+                    output[outputIndex++] = clamp(sum);
+                }
+                phase += decimation;
+            }
+            phase -= interpolation;
+        }
+
+        return (outputIndex - outputOffset) / channels;
+    }
+
+    /**
+     * Returns the number of input frames by which the output lags behind, i.e. the number of
+     * silent frames which have to be fed at the end of a stream to flush its tail.
+     */
+    public int getDelayInInputFrames() {
+        return tapsPerPhase / 2;
+    }
+
+    /**
+     * Forgets the history, so that a new stream can be converted.
+     */
+    public void reset() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] = 0;
+        }
+        historyPosition = 0;
+        phase = 0;
+    }
+
+    public PolyphaseFilterBank getFilterBank() {
+        return bank;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private static short clamp(float sample) {
+        int rounded = Math.round(sample);
+        return (short) (rounded > Short.MAX_VALUE ? Short.MAX_VALUE : (rounded < Short.MIN_VALUE ? Short.MIN_VALUE : rounded));
+    }
+
+    //endregion Private helper methods
+}
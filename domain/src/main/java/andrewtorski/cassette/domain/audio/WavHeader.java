@@ -0,0 +1,305 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Header of a RIFF WAVE file holding either 16 bit PCM or IMA ADPCM.
+ * <p/>
+ * Headers are read with positional reads of only the chunk headers, so parsing does not depend
+ * on the size of the audio data.
+ */
+public final class WavHeader {
+
+    //region Constants
+
+    public static final int FORMAT_PCM = 0x0001;
+    public static final int FORMAT_IMA_ADPCM = 0x0011;
+
+    private static final int RIFF = 0x46464952;
+    private static final int WAVE = 0x45564157;
+    private static final int FMT = 0x20746D66;
+    private static final int FACT = 0x74636166;
+    private static final int DATA = 0x61746164;
+
+    private static final int PCM_HEADER_SIZE = 44;
+    private static final int IMA_ADPCM_HEADER_SIZE = 60;
+
+    //endregion Constants
+
+    //region Private fields
+
+    private final int formatTag;
+    private final int channels;
+    private final int sampleRate;
+    private final int blockAlign;
+    private final int bitsPerSample;
+
+    /**
+     * Samples of one channel in a block, only meaningful for IMA ADPCM.
+     */
+    private final int samplesPerBlock;
+
+    /**
+     * Position of the first byte of audio data.
+     */
+    private final long dataOffset;
+
+    /**
+     * Size of audio data, in bytes.
+     */
+    private final long dataSize;
+
+    /**
+     * Total number of frames.
+     */
+    private final long frameCount;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the WavHeader.
+     */
+    public WavHeader(int formatTag, int channels, int sampleRate, int blockAlign, int bitsPerSample,
+                     int samplesPerBlock, long dataOffset, long dataSize, long frameCount) {
+        this.formatTag = formatTag;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.blockAlign = blockAlign;
+        this.bitsPerSample = bitsPerSample;
+        this.samplesPerBlock = samplesPerBlock;
+        this.dataOffset = dataOffset;
+        this.dataSize = dataSize;
+        this.frameCount = frameCount;
+    }
+
+    //endregion Constructor
+
+    //region Getters
+
+    public int getFormatTag() {
+        return formatTag;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getBlockAlign() {
+        return blockAlign;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    public int getSamplesPerBlock() {
+        return samplesPerBlock;
+    }
+
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public PcmFormat getPcmFormat() {
+        return new PcmFormat(sampleRate, channels);
+    }
+
+    //endregion Getters
+
+    //region Methods
+
+    /**
+     * Creates the header of a 16 bit PCM file.
+     *
+     * @param format     Format of the samples.
+     * @param frameCount Number of frames in the file.
+     */
+    public static WavHeader forPcm(PcmFormat format, long frameCount) {
+        return new WavHeader(FORMAT_PCM, format.getChannels(), format.getSampleRate(),
+                format.getFrameSize(), 16, 0, PCM_HEADER_SIZE, frameCount * format.getFrameSize(),
+                frameCount);
+    }
+
+    /**
+     * Creates the header of an IMA ADPCM file.
+     *
+     * @param format          Format of the encoded samples.
+     * @param samplesPerBlock Samples of one channel in a block.
+     * @param frameCount      Number of frames in the file.
+     */
+    public static WavHeader forImaAdpcm(PcmFormat format, int samplesPerBlock, long frameCount) {
+        int blockAlign = ImaAdpcm.getBlockAlign(format.getChannels(), samplesPerBlock);
+        long blocks = (frameCount + samplesPerBlock - 1) / samplesPerBlock;
+        return new WavHeader(FORMAT_IMA_ADPCM, format.getChannels(), format.getSampleRate(),
+                blockAlign, 4, samplesPerBlock, IMA_ADPCM_HEADER_SIZE, blocks * blockAlign,
+                frameCount);
+    }
+
+    /**
+     * Writes this header at the beginning of the provided channel.
+     * Data offset of this header has to be the one created by {@link #forPcm(PcmFormat, long)} or
+     * {@link #forImaAdpcm(PcmFormat, int, long)}.
+     */
+    public void write(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(toBytes());
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Returns the bytes of this header, which precede the audio data.
+     * Data offset of this header has to be the one created by {@link #forPcm(PcmFormat, long)} or
+     * {@link #forImaAdpcm(PcmFormat, int, long)}.
+     */
+    public byte[] toBytes() {
+        boolean isImaAdpcm = formatTag == FORMAT_IMA_ADPCM;
+        ByteBuffer buffer = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(RIFF).putInt((int) (dataOffset - 8 + dataSize)).putInt(WAVE);
+
+        buffer.putInt(FMT).putInt(isImaAdpcm ? 20 : 16);
+        buffer.putShort((short) formatTag).putShort((short) channels).putInt(sampleRate);
+        buffer.putInt(isImaAdpcm
+                ? (int) ((long) sampleRate * blockAlign / samplesPerBlock)
+                : sampleRate * blockAlign);
+        buffer.putShort((short) blockAlign).putShort((short) bitsPerSample);
+        if (isImaAdpcm) {
+            buffer.putShort((short) 2).putShort((short) samplesPerBlock);
+            buffer.putInt(FACT).putInt(4).putInt((int) frameCount);
+        }
+
+        buffer.putInt(DATA).putInt((int) dataSize);
+
+        return buffer.array();
+    }
+
+    /**
+     * Reads the header of the WAVE file opened by the provided channel.
+     *
+     * @param channel Channel to read from. Its position is not changed.
+     * @return Parsed header.
+     * @throws IOException If the file could not be read, is not a WAVE file or holds audio in an
+     *                     encoding other than 16 bit PCM or IMA ADPCM.
+     */
+    public static WavHeader read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+
+        readFully(channel, buffer, 0, 12);
+        if (buffer.getInt(0) != RIFF || buffer.getInt(8) != WAVE) {
+            throw new IOException("Not a RIFF WAVE file.");
+        }
+
+        int formatTag = -1, channels = 0, sampleRate = 0, blockAlign = 0, bitsPerSample = 0,
+                samplesPerBlock = 0;
+        long frameCount = -1;
+        long position = 12, fileSize = channel.size();
+
+        while (position + 8 <= fileSize) {
+            readFully(channel, buffer, position, 8);
+            int chunkId = buffer.getInt(0);
+            long chunkSize = buffer.getInt(4) & 0xFFFFFFFFL;
+            long chunkDataPosition = position + 8;
+
+            if (chunkId == FMT) {
+                readFully(channel, buffer, chunkDataPosition, (int) Math.min(chunkSize, 20));
+                formatTag = buffer.getShort(0) & 0xFFFF;
+                channels = buffer.getShort(2) & 0xFFFF;
+                sampleRate = buffer.getInt(4);
+                blockAlign = buffer.getShort(12) & 0xFFFF;
+                bitsPerSample = buffer.getShort(14) & 0xFFFF;
+                if (chunkSize >= 20) {
+                    samplesPerBlock = buffer.getShort(18) & 0xFFFF;
+                }
+            } else if (chunkId == FACT && chunkSize >= 4) {
+                readFully(channel, buffer, chunkDataPosition, 4);
+                frameCount = buffer.getInt(0) & 0xFFFFFFFFL;
+            } else if (chunkId == DATA) {
+                if (formatTag == -1) {
+                    throw new IOException("Data chunk precedes the format chunk.");
+                }
+                long dataSize = Math.min(chunkSize, fileSize - chunkDataPosition);
+                return create(formatTag, channels, sampleRate, blockAlign, bitsPerSample,
+                        samplesPerBlock, chunkDataPosition, dataSize, frameCount);
+            }
+
+            //  Chunks are word aligned.
+            position = chunkDataPosition + chunkSize + (chunkSize & 1);
+        }
+
+        throw new IOException("No data chunk found.");
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private static WavHeader create(int formatTag, int channels, int sampleRate, int blockAlign,
+                                    int bitsPerSample, int samplesPerBlock, long dataOffset,
+                                    long dataSize, long frameCount) throws IOException {
+        if (channels < 1 || sampleRate < 1 || blockAlign < 1) {
+            throw new IOException("Malformed format chunk.");
+        }
+
+        if (formatTag == FORMAT_PCM) {
+            if (bitsPerSample != 16) {
+                throw new IOException("Only 16 bit PCM is supported, was " + bitsPerSample + " bit.");
+            }
+            frameCount = dataSize / blockAlign;
+        } else if (formatTag == FORMAT_IMA_ADPCM) {
+            if (samplesPerBlock == 0) {
+                samplesPerBlock = (blockAlign / channels - ImaAdpcm.HEADER_SIZE) * 2 + 1;
+            }
+            if (blockAlign != ImaAdpcm.getBlockAlign(channels, samplesPerBlock)
+                    || (samplesPerBlock - 1) % 8 != 0) {
+                throw new IOException("Malformed IMA ADPCM block layout.");
+            }
+            long maximalFrameCount = dataSize / blockAlign * samplesPerBlock;
+            if (frameCount < 0 || frameCount > maximalFrameCount) {
+                frameCount = maximalFrameCount;
+            }
+        } else {
+            throw new IOException("Unsupported WAVE encoding " + formatTag + ".");
+        }
+
+        return new WavHeader(formatTag, channels, sampleRate, blockAlign, bitsPerSample,
+                samplesPerBlock, dataOffset, dataSize, frameCount);
+    }
+
+    /**
+     * Reads exactly the provided number of bytes at the provided position into the start of the
+     * buffer.
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length)
+            throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    //endregion Private helper methods
+}
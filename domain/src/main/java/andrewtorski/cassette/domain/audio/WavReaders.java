@@ -0,0 +1,35 @@
+package andrewtorski.cassette.domain.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Opens WAVE files with the reader matching their encoding, so a file written in any of the
+ * WAVE storage formats can be read by all of them.
+ */
+final class WavReaders {
+
+    /**
+     * Private constructor which prevents instantiating this class.
+     */
+    private WavReaders() {
+    }
+
+    static AudioReader open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            WavHeader header = WavHeader.read(randomAccessFile.getChannel());
+            if (header.getFormatTag() == WavHeader.FORMAT_IMA_ADPCM) {
+                return new ImaAdpcmWavStorageFormat.Reader(randomAccessFile, header);
+            }
+            return new PcmWavStorageFormat.Reader(randomAccessFile, header);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        } catch (RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+}
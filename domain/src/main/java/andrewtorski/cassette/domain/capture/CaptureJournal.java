@@ -0,0 +1,259 @@
+package andrewtorski.cassette.domain.capture;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+import andrewtorski.cassette.domain.audio.PcmFormat;
+
+/**
+ * Small append-only log which describes one capture in progress.
+ * <p/>
+ * The journal starts with the Cassette, format and start time of the capture. Afterwards one
+ * line is appended for every segment of audio which was forced to the disk, holding the number of
+ * frames which are durable from then on, and a final line once the capture was closed cleanly.
+ * Once the capture was persisted as a Recording, a last line holding the id of that Recording is
+ * appended by {@link CaptureRecovery}. Every line is synced before the call returns, so after a crash the journal never claims more
+ * audio than the capture file holds. A line torn by the crash lacks its terminator and is ignored.
+ * <p/>
+ * Reading the journal costs one short line per segment, however long the segments are.
+ */
+public class CaptureJournal {
+
+    //region Private fields
+
+    private static final Charset CHARSET = Charset.forName("US-ASCII");
+
+    private static final String CASSETTE = "cassette";
+    private static final String FORMAT = "format";
+    private static final String STARTED = "started";
+    private static final String SEGMENT = "segment";
+    private static final String FINISHED = "finished";
+    private static final String PERSISTED = "persisted";
+
+    private final FileOutputStream outputStream;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    private CaptureJournal(FileOutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    //endregion Constructor
+
+    //region Writing
+
+    /**
+     * Creates a new journal and durably writes the description of the capture into it.
+     *
+     * @param file       File of the journal. Overwritten if it exists.
+     * @param cassetteId Identifier of the Cassette into which the capture goes.
+     * @param format     Format of the captured samples.
+     * @param started    Date and time at which the capture started.
+     * @return Journal open for appending segments.
+     * @throws IOException If the journal could not be written.
+     */
+    public static CaptureJournal create(File file, long cassetteId, PcmFormat format, Date started)
+            throws IOException {
+        CaptureJournal journal = new CaptureJournal(new FileOutputStream(file));
+        try {
+            journal.append(CASSETTE + " " + cassetteId + "\n"
+                    + FORMAT + " " + format.getSampleRate() + " " + format.getChannels() + "\n"
+                    + STARTED + " " + started.getTime() + "\n");
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Records that the capture file durably holds the provided number of frames.
+     */
+    public void appendSegment(long frameCount) throws IOException {
+        append(SEGMENT + " " + frameCount + "\n");
+    }
+
+    /**
+     * Records that the capture was closed cleanly and its file header describes all frames.
+     */
+    public void appendFinished(long frameCount) throws IOException {
+        append(FINISHED + " " + frameCount + "\n");
+    }
+
+    public void close() throws IOException {
+        outputStream.close();
+    }
+
+    /**
+     * Durably records that the capture of the closed journal in provided file was persisted as the
+     * Recording of provided id. A line torn by a crash is cut off first, so that it does not swallow
+     * this one.
+     *
+     * @param file        File of the journal.
+     * @param recordingId Identifier of the persisted Recording.
+     * @throws IOException If the journal could not be written.
+     */
+    public static void appendPersisted(File file, long recordingId) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            long length = randomAccessFile.length();
+            while (length > 0) {
+                randomAccessFile.seek(length - 1);
+                if (randomAccessFile.read() == '\n') {
+                    break;
+                }
+                length--;
+            }
+            randomAccessFile.setLength(length);
+            randomAccessFile.seek(length);
+            randomAccessFile.write((PERSISTED + " " + recordingId + "\n").getBytes(CHARSET));
+            randomAccessFile.getFD().sync();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void append(String lines) throws IOException {
+        outputStream.write(lines.getBytes(CHARSET));
+        outputStream.getFD().sync();
+    }
+
+    //endregion Writing
+
+    //region Reading
+
+    /**
+     * Reads the journal back.
+     *
+     * @param file File of the journal.
+     * @return State described by the journal, or null if the journal does not even hold a complete
+     * description of the capture.
+     * @throws IOException If the journal could not be read.
+     */
+    public static State read(File file) throws IOException {
+        State state = new State();
+        int headerLines = 0;
+
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), CHARSET));
+        try {
+            String content = readAll(reader);
+            int start = 0;
+            int end;
+            //  Only lines followed by their terminator were synced completely.
+            while ((end = content.indexOf('\n', start)) != -1) {
+                String[] parts = content.substring(start, end).split(" ");
+                start = end + 1;
+                try {
+                    if (CASSETTE.equals(parts[0])) {
+                        state.cassetteId = Long.parseLong(parts[1]);
+                        headerLines++;
+                    } else if (FORMAT.equals(parts[0])) {
+                        state.format = new PcmFormat(Integer.parseInt(parts[1]),
+                                Integer.parseInt(parts[2]));
+                        headerLines++;
+                    } else if (STARTED.equals(parts[0])) {
+                        state.started = new Date(Long.parseLong(parts[1]));
+                        headerLines++;
+                    } else if (SEGMENT.equals(parts[0])) {
+                        state.durableFrameCount = Long.parseLong(parts[1]);
+                        state.segmentCount++;
+                    } else if (FINISHED.equals(parts[0])) {
+                        state.durableFrameCount = Long.parseLong(parts[1]);
+                        state.finished = true;
+                    } else if (PERSISTED.equals(parts[0])) {
+                        state.persistedRecordingId = Long.parseLong(parts[1]);
+                        state.persisted = true;
+                    }
+                } catch (RuntimeException e) {
+                    //  Garbage after a crash, nothing past this point can be trusted.
+                    break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return headerLines == 3 ? state : null;
+    }
+
+    private static String readAll(BufferedReader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[1024];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, read);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * State of a capture as described by its journal.
+     */
+    public static class State {
+
+        private long cassetteId;
+        private PcmFormat format;
+        private Date started;
+        private long durableFrameCount;
+        private int segmentCount;
+        private boolean finished;
+        private boolean persisted;
+        private long persistedRecordingId;
+
+        public long getCassetteId() {
+            return cassetteId;
+        }
+
+        public PcmFormat getFormat() {
+            return format;
+        }
+
+        public Date getStarted() {
+            return started;
+        }
+
+        /**
+         * Returns the number of frames which were forced to the disk before the last complete line.
+         */
+        public long getDurableFrameCount() {
+            return durableFrameCount;
+        }
+
+        public int getSegmentCount() {
+            return segmentCount;
+        }
+
+        /**
+         * Returns whether the capture was closed cleanly.
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * Returns whether the capture was already persisted as a Recording.
+         */
+        public boolean isPersisted() {
+            return persisted;
+        }
+
+        /**
+         * Returns the identifier of the Recording the capture was persisted as, if it was.
+         */
+        public long getPersistedRecordingId() {
+            return persistedRecordingId;
+        }
+    }
+
+    //endregion Reading
+}
@@ -0,0 +1,285 @@
+package andrewtorski.cassette.domain.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Routes a continuous stream of captured audio into Recordings.
+ * <p/>
+ * The audio source keeps running for as long as the pipeline lives and hands every block it reads
+ * to {@link #process(short[], int, int)}, which drops the samples unless a capture is in progress.
+ * Starting and stopping a capture therefore costs no device setup at all: a command only names
+ * the frame of the stream at which it takes effect, and the audio thread splits the block holding
+ * that frame. Frames are counted since the pipeline was created, so a command issued at a known
+ * moment can be placed by {@link #getFramePositionAt(long)} even between two blocks.
+ * <p/>
+ * Captures are written by {@link SegmentedCaptureWriter} and turned into Recordings by
+ * {@link CaptureRecovery#finish(File)} on the provided executor, never on the audio thread.
+ */
+public class CapturePipeline {
+
+    /**
+     * Receives the outcome of every capture. Called on the executor which persists Recordings.
+     */
+    public interface Listener {
+
+        void onRecordingPersisted(Recording recording);
+
+        void onCaptureFailed(IOException e);
+    }
+
+    //region Private fields
+
+    private final CaptureRecovery captureRecovery;
+    private final PcmFormat format;
+    private final int framesPerSegment;
+    private final Executor persistingExecutor;
+    private final Listener listener;
+
+    /**
+     * Commands not applied yet, in the order they were issued. Guarded by itself, as is the clock
+     * below.
+     */
+    private final ArrayDeque<Command> commands = new ArrayDeque<Command>();
+
+    /**
+     * Number of frames handed to {@link #process(short[], int, int)} so far.
+     */
+    private long framesProcessed;
+
+    /**
+     * Value of {@link System#nanoTime()} at which the last block arrived, or 0 before the first one.
+     */
+    private long lastBlockNanoTime;
+
+    /**
+     * Writer of the capture in progress, touched only by the audio thread.
+     */
+    private SegmentedCaptureWriter writer;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the CapturePipeline.
+     *
+     * @param captureRecovery    Provides directories for new captures and persists finished ones.
+     * @param format             Format of the blocks handed to {@link #process(short[], int, int)}.
+     * @param framesPerSegment   Number of frames after which a capture is forced to the disk.
+     * @param persistingExecutor Executor on which finished captures are persisted.
+     * @param listener           Receives the outcome of every capture.
+     */
+    public CapturePipeline(CaptureRecovery captureRecovery, PcmFormat format, int framesPerSegment,
+                           Executor persistingExecutor, Listener listener) {
+        this.captureRecovery = captureRecovery;
+        this.format = format;
+        this.framesPerSegment = framesPerSegment;
+        this.persistingExecutor = persistingExecutor;
+        this.listener = listener;
+    }
+
+    //endregion Constructor
+
+    //region Commands
+
+    /**
+     * Starts capturing into the Cassette of the provided id at the current frame.
+     * A capture already in progress is finished first.
+     */
+    public void start(long cassetteId) {
+        start(cassetteId, getFramePositionAt(System.nanoTime()));
+    }
+
+    /**
+     * Starts capturing into the Cassette of the provided id at the provided frame of the stream.
+     */
+    public void start(long cassetteId, long framePosition) {
+        enqueue(new Command(framePosition, cassetteId));
+    }
+
+    /**
+     * Stops the capture in progress at the current frame.
+     */
+    public void stop() {
+        stop(getFramePositionAt(System.nanoTime()));
+    }
+
+    /**
+     * Stops the capture in progress at the provided frame of the stream.
+     */
+    public void stop(long framePosition) {
+        enqueue(new Command(framePosition, Command.STOP));
+    }
+
+    /**
+     * Returns the frame of the stream which was being captured at the provided moment, estimated
+     * from the arrival of the last block.
+     *
+     * @param nanoTime Moment expressed as a value of {@link System#nanoTime()}.
+     */
+    public long getFramePositionAt(long nanoTime) {
+        synchronized (commands) {
+            if (lastBlockNanoTime == 0 || nanoTime <= lastBlockNanoTime) {
+                return framesProcessed;
+            }
+            long elapsedNanos = nanoTime - lastBlockNanoTime;
+            return framesProcessed + elapsedNanos * format.getSampleRate() / 1000000000L;
+        }
+    }
+
+    //endregion Commands
+
+    //region Audio thread
+
+    /**
+     * Handles the next block of the stream. Has to be called by a single thread.
+     *
+     * @param pcm    Array holding the interleaved samples.
+     * @param offset Index of the first sample of the block.
+     * @param frames Number of frames in the block.
+     */
+    public void process(short[] pcm, int offset, int frames) {
+        long blockStart;
+        synchronized (commands) {
+            blockStart = framesProcessed;
+            framesProcessed += frames;
+            lastBlockNanoTime = System.nanoTime();
+        }
+
+        long position = blockStart;
+        long blockEnd = blockStart + frames;
+        Command command;
+        while ((command = pollCommandBefore(blockEnd)) != null) {
+            long commandPosition = Math.max(command.framePosition, position);
+            write(pcm, offset, position, commandPosition);
+            offset += (int) (commandPosition - position) * format.getChannels();
+            position = commandPosition;
+
+            finishCapture();
+            if (command.cassetteId != Command.STOP) {
+                beginCapture(command.cassetteId);
+            }
+        }
+        write(pcm, offset, position, blockEnd);
+    }
+
+    /**
+     * Finishes the capture in progress, if any. Has to be called by the audio thread once the
+     * stream ends.
+     */
+    public void close() {
+        finishCapture();
+    }
+
+    /**
+     * Returns whether a capture is in progress. Meant for the audio thread.
+     */
+    public boolean isCapturing() {
+        return writer != null;
+    }
+
+    //endregion Audio thread
+
+    //region Private helper methods
+
+    private void enqueue(Command command) {
+        synchronized (commands) {
+            commands.addLast(command);
+        }
+    }
+
+    private Command pollCommandBefore(long framePosition) {
+        synchronized (commands) {
+            Command command = commands.peekFirst();
+            if (command == null || command.framePosition >= framePosition) {
+                return null;
+            }
+            return commands.pollFirst();
+        }
+    }
+
+    private void write(short[] pcm, int offset, long from, long to) {
+        if (writer == null || to <= from) {
+            return;
+        }
+        try {
+            writer.write(pcm, offset, (int) (to - from));
+        } catch (IOException e) {
+            //  The capture is left as it is, its sealed segments are recovered on the next start.
+            writer = null;
+            notifyFailure(e);
+        }
+    }
+
+    private void beginCapture(long cassetteId) {
+        try {
+            writer = new SegmentedCaptureWriter(captureRecovery.newCaptureDirectory(), cassetteId,
+                    format, framesPerSegment);
+        } catch (IOException e) {
+            notifyFailure(e);
+        }
+    }
+
+    private void finishCapture() {
+        if (writer == null) {
+            return;
+        }
+        final File captureDirectory = writer.getCaptureDirectory();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            writer = null;
+            notifyFailure(e);
+            return;
+        }
+        writer = null;
+
+        persistingExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Recording recording = captureRecovery.finish(captureDirectory);
+                    if (recording != null) {
+                        listener.onRecordingPersisted(recording);
+                    }
+                } catch (IOException e) {
+                    listener.onCaptureFailed(e);
+                }
+            }
+        });
+    }
+
+    private void notifyFailure(final IOException e) {
+        persistingExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onCaptureFailed(e);
+            }
+        });
+    }
+
+    //endregion Private helper methods
+
+    private static class Command {
+
+        static final long STOP = Long.MIN_VALUE;
+
+        final long framePosition;
+
+        /**
+         * Cassette into which to start capturing, or {@link #STOP}.
+         */
+        final long cassetteId;
+
+        Command(long framePosition, long cassetteId) {
+            this.framePosition = framePosition;
+            this.cassetteId = cassetteId;
+        }
+    }
+}
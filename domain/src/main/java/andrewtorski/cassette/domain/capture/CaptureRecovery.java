@@ -0,0 +1,313 @@
+package andrewtorski.cassette.domain.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.WavHeader;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Turns captures written by {@link SegmentedCaptureWriter} into Recordings.
+ * <p/>
+ * A capture which was closed cleanly is simply moved into the recordings directory. A capture
+ * which was interrupted is first cut down to the frames its {@link CaptureJournal} claims as
+ * durable and given a header describing them. Neither case reads the audio itself, so the cost of
+ * recovering a capture depends on the number of its segments and not on its length.
+ * <p/>
+ * The capture directory is deleted only after the Recording was persisted, so a capture is never
+ * lost. Right after the Recording is persisted its id is written to the journal, so a capture
+ * whose directory survived a crash is not persisted a second time. Should the crash come before
+ * the id was written, the Recording is found by its audio file among those of the Cassette
+ * instead. Either way the length of the Cassette is summed up from its Recordings again, as the
+ * crash may have come before it was updated.
+ * <p/>
+ * A capture whose Cassette is not found is not deleted either, as the Cassette may only be missing
+ * because the repositories did not outlive the process. Its audio is moved into a directory of
+ * kept captures instead, from which it can be salvaged by hand.
+ */
+public class CaptureRecovery {
+
+    //region Private fields
+
+    private final File capturesDirectory;
+
+    private final File recordingsDirectory;
+
+    private final File keptCapturesDirectory;
+
+    private final RepositoryFacade repositoryFacade;
+
+    /**
+     * Directories handed out by {@link #newCaptureDirectory()} and not finished yet. These are
+     * still being written and must not be recovered. Guarded by itself.
+     */
+    private final Set<File> capturesInProgress = new HashSet<File>();
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the CaptureRecovery.
+     *
+     * @param capturesDirectory   Directory holding one directory per capture.
+     * @param recordingsDirectory   Directory into which audio files of recovered Recordings are
+     *                              moved.
+     * @param keptCapturesDirectory Directory into which audio files of captures whose Cassette
+     *                              was not found are moved.
+     * @param repositoryFacade      Facade through which Recordings are persisted.
+     */
+    public CaptureRecovery(File capturesDirectory, File recordingsDirectory,
+                           File keptCapturesDirectory, RepositoryFacade repositoryFacade) {
+        this.capturesDirectory = capturesDirectory;
+        this.recordingsDirectory = recordingsDirectory;
+        this.keptCapturesDirectory = keptCapturesDirectory;
+        this.repositoryFacade = repositoryFacade;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Returns a new directory in which a capture should be written. The capture is not touched by
+     * {@link #recoverAll()} until it is handed to {@link #finish(File)}.
+     */
+    public File newCaptureDirectory() {
+        synchronized (capturesInProgress) {
+            long now = System.currentTimeMillis();
+            File captureDirectory;
+            do {
+                captureDirectory = new File(capturesDirectory, "capture-" + now++);
+            } while (captureDirectory.exists() || capturesInProgress.contains(captureDirectory));
+            capturesInProgress.add(captureDirectory);
+            return captureDirectory;
+        }
+    }
+
+    /**
+     * Returns audio files of captures which could not become Recordings because their Cassette
+     * was not found.
+     */
+    public List<File> getKeptCaptureFiles() {
+        List<File> keptCaptureFiles = new ArrayList<File>();
+        File[] files = keptCapturesDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile()) {
+                    keptCaptureFiles.add(file);
+                }
+            }
+        }
+        return keptCaptureFiles;
+    }
+
+    /**
+     * Turns every capture left in the captures directory into a Recording.
+     * A capture which cannot be recovered is left in place and tried again on the next call.
+     *
+     * @return Persisted Recordings.
+     */
+    public List<Recording> recoverAll() {
+        List<Recording> recoveredRecordings = new ArrayList<Recording>();
+
+        File[] captureDirectories = capturesDirectory.listFiles();
+        if (captureDirectories == null) {
+            return recoveredRecordings;
+        }
+
+        for (File captureDirectory : captureDirectories) {
+            if (!captureDirectory.isDirectory()) {
+                continue;
+            }
+            synchronized (capturesInProgress) {
+                if (capturesInProgress.contains(captureDirectory)) {
+                    continue;
+                }
+            }
+            try {
+                Recording recording = finish(captureDirectory);
+                if (recording != null) {
+                    recoveredRecordings.add(recording);
+                }
+            } catch (IOException e) {
+                //  Most likely the storage is not writable at the moment.
+            }
+        }
+
+        return recoveredRecordings;
+    }
+
+    /**
+     * Turns the capture in the provided directory into a Recording, whether or not it was closed
+     * cleanly, and deletes the directory.
+     *
+     * @param captureDirectory Directory of the capture.
+     * @return Persisted Recording, or null if the capture held no audio, in which case it is
+     * discarded, or its Cassette was not found, in which case its audio is kept.
+     * @throws IOException If the capture could not be repaired or moved.
+     */
+    public Recording finish(File captureDirectory) throws IOException {
+        synchronized (capturesInProgress) {
+            capturesInProgress.remove(captureDirectory);
+        }
+
+        File journalFile = new File(captureDirectory, SegmentedCaptureWriter.JOURNAL_FILE_NAME);
+        File audioFile = new File(captureDirectory, SegmentedCaptureWriter.AUDIO_FILE_NAME);
+
+        //  The audio file is moved before the Recording is persisted, a previous attempt might have
+        //  died in between.
+        File recordingFile = new File(recordingsDirectory, captureDirectory.getName() + ".wav");
+        boolean wasMoved = !audioFile.isFile() && recordingFile.isFile();
+
+        CaptureJournal.State state = journalFile.isFile() ? CaptureJournal.read(journalFile) : null;
+        if (state != null && state.isPersisted()) {
+            //  A previous attempt died after persisting the Recording.
+            Recording recording = repositoryFacade.getRecording(state.getPersistedRecordingId());
+            correctLength(state.getCassetteId());
+            deleteRecursively(captureDirectory);
+            return recording;
+        }
+        if (state == null || state.getDurableFrameCount() == 0
+                || (!audioFile.isFile() && !wasMoved)) {
+            //  Killed before a single segment was sealed.
+            deleteRecursively(captureDirectory);
+            return null;
+        }
+
+        PcmFormat format = state.getFormat();
+        Cassette cassette = repositoryFacade.get(state.getCassetteId(), false);
+        if (cassette == null) {
+            if (!wasMoved && !state.isFinished()) {
+                repair(audioFile, format, state.getDurableFrameCount());
+            }
+            move(wasMoved ? recordingFile : audioFile,
+                    new File(keptCapturesDirectory, captureDirectory.getName() + ".wav"));
+            deleteRecursively(captureDirectory);
+            return null;
+        }
+
+        if (wasMoved) {
+            //  A previous attempt may have died between persisting the Recording and writing its
+            //  id to the journal.
+            Recording recording = findRecording(cassette, recordingFile);
+            if (recording != null) {
+                correctLength(cassette.getId());
+                deleteRecursively(captureDirectory);
+                return recording;
+            }
+        }
+
+        if (!wasMoved) {
+            if (!state.isFinished()) {
+                repair(audioFile, format, state.getDurableFrameCount());
+            }
+            move(audioFile, recordingFile);
+        }
+
+        int lengthInMilliseconds = (int) format.framesToMilliseconds(state.getDurableFrameCount());
+        Recording recording = new Recording(recordingFile, lengthInMilliseconds, cassette,
+                state.getStarted());
+        //  The capture was written here, so there is nothing left to probe.
+        recording.setAudioFileInfo(new AudioFileInfo(AudioFileInfo.CODEC_PCM,
+                format.getSampleRate(), format.getChannels(), lengthInMilliseconds));
+        recording = repositoryFacade.create(recording);
+        if (recording == null || recording.getId() == -1) {
+            throw new IOException("Could not persist the Recording of " + captureDirectory.getPath());
+        }
+        CaptureJournal.appendPersisted(journalFile, recording.getId());
+        cassette.setLength(cassette.getLength() + lengthInMilliseconds);
+        repositoryFacade.update(cassette);
+
+        deleteRecursively(captureDirectory);
+        return recording;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    /**
+     * Drops everything past the durable frames and writes a header which describes them.
+     */
+    private static void repair(File audioFile, PcmFormat format, long frameCount)
+            throws IOException {
+        WavHeader header = WavHeader.forPcm(format, frameCount);
+        RandomAccessFile file = new RandomAccessFile(audioFile, "rw");
+        try {
+            long length = header.getDataOffset() + header.getDataSize();
+            if (file.length() < length) {
+                throw new IOException("Capture " + audioFile.getPath()
+                        + " is shorter than its journal claims.");
+            }
+            file.setLength(length);
+            header.write(file.getChannel());
+            file.getChannel().force(true);
+        } finally {
+            file.close();
+        }
+    }
+
+    private static void move(File source, File destination) throws IOException {
+        File directory = destination.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory.getPath());
+        }
+        if (!source.renameTo(destination)) {
+            throw new IOException("Could not move " + source.getPath() + " to "
+                    + destination.getPath());
+        }
+    }
+
+    private Recording findRecording(Cassette cassette, File audioFile) {
+        repositoryFacade.populateRecordings(cassette);
+        if (cassette.getRecordings() == null) {
+            return null;
+        }
+        for (Recording recording : cassette.getRecordings()) {
+            if (audioFile.getPath().equals(recording.getAudioFilePath())) {
+                return recording;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the length of the Cassette of provided id to the sum of the lengths of its Recordings.
+     */
+    private void correctLength(long cassetteId) {
+        Cassette cassette = repositoryFacade.get(cassetteId, true);
+        if (cassette == null || cassette.getRecordings() == null) {
+            return;
+        }
+        int length = 0;
+        for (Recording recording : cassette.getRecordings()) {
+            length += recording.getLengthInMiliseconds();
+        }
+        if (cassette.getLength() != length) {
+            cassette.setLength(length);
+            repositoryFacade.update(cassette);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    //endregion Private helper methods
+}
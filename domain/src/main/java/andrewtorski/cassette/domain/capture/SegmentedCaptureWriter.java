@@ -0,0 +1,184 @@
+package andrewtorski.cassette.domain.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Date;
+
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.WavHeader;
+
+/**
+ * Writes a capture so that it survives the process being killed at any moment.
+ * <p/>
+ * Samples are appended to a 16 bit PCM WAVE file in the capture directory. The capture is cut
+ * into segments of a fixed number of frames; whenever a segment is complete the file is forced to
+ * the disk and the new durable length is appended to the {@link CaptureJournal}. Segments are
+ * consecutive regions of one file rather than separate files, so joining them after a crash only
+ * means truncating the torn tail and rewriting the header, whatever the length of the capture.
+ * At most one segment of audio is lost.
+ * <p/>
+ * After {@link #close()} the capture is complete, but still has to be turned into a Recording by
+ * {@link CaptureRecovery#finish(File)}.
+ */
+public class SegmentedCaptureWriter implements AudioWriter {
+
+    //region Private fields
+
+    public static final String AUDIO_FILE_NAME = "capture.wav";
+
+    public static final String JOURNAL_FILE_NAME = "journal";
+
+    /**
+     * Number of frames converted per write call on the file.
+     */
+    private static final int FRAMES_PER_BUFFER = 4096;
+
+    private final File captureDirectory;
+    private final PcmFormat format;
+    private final int framesPerSegment;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final CaptureJournal journal;
+    private final ByteBuffer buffer;
+
+    private long frameCount;
+    private int framesInSegment;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the SegmentedCaptureWriter and durably records the start of
+     * the capture.
+     *
+     * @param captureDirectory Empty or missing directory which holds the capture until it is turned
+     *                         into a Recording. One directory per capture.
+     * @param cassetteId       Identifier of the Cassette into which the capture goes.
+     * @param format           Format of the captured samples.
+     * @param framesPerSegment Number of frames after which the capture is forced to the disk.
+     * @throws IOException If the capture files could not be created.
+     */
+    public SegmentedCaptureWriter(File captureDirectory, long cassetteId, PcmFormat format,
+                                  int framesPerSegment) throws IOException {
+        if (framesPerSegment <= 0) {
+            throw new IllegalArgumentException("framesPerSegment must be positive.");
+        }
+        if (!captureDirectory.isDirectory() && !captureDirectory.mkdirs()) {
+            throw new IOException("Could not create " + captureDirectory.getPath());
+        }
+
+        this.captureDirectory = captureDirectory;
+        this.format = format;
+        this.framesPerSegment = framesPerSegment;
+        this.buffer = ByteBuffer.allocate(FRAMES_PER_BUFFER * format.getFrameSize())
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        this.file = new RandomAccessFile(new File(captureDirectory, AUDIO_FILE_NAME), "rw");
+        try {
+            this.file.setLength(0);
+            this.channel = this.file.getChannel();
+            WavHeader emptyHeader = WavHeader.forPcm(format, 0);
+            emptyHeader.write(channel);
+            this.channel.position(emptyHeader.getDataOffset());
+            this.channel.force(true);
+            this.journal = CaptureJournal.create(new File(captureDirectory, JOURNAL_FILE_NAME),
+                    cassetteId, format, new Date());
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    //endregion Constructor
+
+    //region AudioWriter
+
+    @Override
+    public PcmFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public void write(short[] pcm, int offset, int frames) throws IOException {
+        int channels = format.getChannels();
+        while (frames > 0) {
+            int chunk = Math.min(Math.min(frames, FRAMES_PER_BUFFER),
+                    framesPerSegment - framesInSegment);
+            int end = offset + chunk * channels;
+            buffer.clear();
+            for (int i = offset; i < end; i++) {
+                buffer.putShort(pcm[i]);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            offset = end;
+            frames -= chunk;
+            frameCount += chunk;
+            framesInSegment += chunk;
+
+            if (framesInSegment == framesPerSegment) {
+                sealSegment();
+            }
+        }
+    }
+
+    /**
+     * Seals the last, partial segment, writes the final header and marks the capture finished.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (framesInSegment > 0) {
+                sealSegment();
+            }
+            WavHeader.forPcm(format, frameCount).write(channel);
+            channel.force(true);
+            journal.appendFinished(frameCount);
+        } finally {
+            try {
+                journal.close();
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    //endregion AudioWriter
+
+    //region Getters
+
+    public File getCaptureDirectory() {
+        return captureDirectory;
+    }
+
+    /**
+     * Returns the number of frames written so far.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    //endregion Getters
+
+    //region Private helper methods
+
+    /**
+     * Forces the samples of the current segment to the disk before the journal claims them.
+     */
+    private void sealSegment() throws IOException {
+        channel.force(false);
+        journal.appendSegment(frameCount);
+        framesInSegment = 0;
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,402 @@
+package andrewtorski.cassette.domain.compile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import andrewtorski.cassette.domain.audio.Mp4AudioTrack;
+
+/**
+ * Joins 3GP files holding AMR-NB into one 3GP file by copying their coded frames.
+ * <p/>
+ * AMR frames are independent of each other, so frames of files coded with equal parameters may
+ * follow each other in one track. Chunks of frames are copied from the inputs into the mdat box
+ * of the output through a {@link JoinedFile}, nothing is decoded or re-encoded. The moov
+ * box is rebuilt from the sample tables of the inputs and written after the mdat box, as
+ * MediaRecorder does.
+ */
+public class AmrFrameConcatenator {
+
+    /**
+     * MIME type of 3GP files holding audio only.
+     */
+    public static final String CONTENT_TYPE = "audio/3gpp";
+
+    private static final int SAMR = 0x73616D72;
+
+    private static final long MAXIMAL_32_BIT_VALUE = 0xFFFFFFFFL;
+
+    /**
+     * Timescale of the movie header. Track durations are converted into milliseconds.
+     */
+    private static final int MOVIE_TIMESCALE = 1000;
+
+    //region Methods
+
+    /**
+     * Reads the sample tables of the provided files, if all of them can be joined by copying.
+     *
+     * @param files 3GP files to join, in order.
+     * @return Sample tables of the files, or null if any of them is not a 3GP file holding AMR-NB
+     * or its parameters differ from those of the first file.
+     */
+    public List<Mp4AudioTrack> readJoinableTracks(List<File> files) {
+        List<Mp4AudioTrack> tracks = new ArrayList<Mp4AudioTrack>(files.size());
+        for (File file : files) {
+            Mp4AudioTrack track;
+            try {
+                track = Mp4AudioTrack.read(file);
+            } catch (IOException e) {
+                return null;
+            }
+            if (track.getSampleEntryType() != SAMR) {
+                return null;
+            }
+            if (!tracks.isEmpty()) {
+                Mp4AudioTrack first = tracks.get(0);
+                if (first.getTimescale() != track.getTimescale()
+                        || !Arrays.equals(first.getSampleEntry(), track.getSampleEntry())) {
+                    return null;
+                }
+            }
+            tracks.add(track);
+        }
+        return tracks.isEmpty() ? null : tracks;
+    }
+
+    /**
+     * Joins the provided files into the output.
+     *
+     * @param files  3GP files to join, in order.
+     * @param tracks Sample tables of the files, as returned by {@link #readJoinableTracks(List)}.
+     * @param output File to write. It is overwritten if it exists.
+     * @return Duration of the output in units of the timescale of the tracks.
+     * @throws IOException If any of the files could not be read or the output could not be
+     *                     written.
+     */
+    public long join(List<File> files, List<Mp4AudioTrack> tracks, File output) throws IOException {
+        layout(files, tracks).writeTo(output);
+
+        long duration = 0;
+        for (Mp4AudioTrack track : tracks) {
+            duration += getDuration(track);
+        }
+        return duration;
+    }
+
+    /**
+     * Describes the file joining the provided files without reading their samples, so that it
+     * may be written or sent without being stored.
+     *
+     * @param files  3GP files to join, in order.
+     * @param tracks Sample tables of the files, as returned by {@link #readJoinableTracks(List)}.
+     * @return Joined 3GP file.
+     * @throws IOException If any chunk lies beyond the end of its file or the headers could not
+     *                     be built.
+     */
+    public JoinedFile layout(List<File> files, List<Mp4AudioTrack> tracks) throws IOException {
+        long dataSize = 0;
+        for (Mp4AudioTrack track : tracks) {
+            for (int chunk = 0; chunk < track.getChunkCount(); chunk++) {
+                dataSize += track.getChunkSize(chunk);
+            }
+        }
+
+        byte[] fileType = fileTypeBox();
+        boolean isLargeData = dataSize + 8 > MAXIMAL_32_BIT_VALUE;
+        long dataOffset = fileType.length + (isLargeData ? 16 : 8);
+
+        JoinedFile joinedFile = new JoinedFile(CONTENT_TYPE);
+        ByteBuffer header = ByteBuffer.allocate((int) dataOffset);
+        header.put(fileType);
+        if (isLargeData) {
+            header.putInt(1).putInt(0x6D646174).putLong(dataSize + 16);
+        } else {
+            header.putInt((int) (dataSize + 8)).putInt(0x6D646174);
+        }
+        joinedFile.appendBytes(header.array());
+
+        for (int i = 0; i < files.size(); i++) {
+            appendChunks(files.get(i), tracks.get(i), joinedFile);
+        }
+
+        joinedFile.appendBytes(movieBox(tracks, dataOffset));
+        return joinedFile;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    /**
+     * Appends all chunks of the track. Runs of chunks which lie next to each other in the input
+     * become one range, copied by one transfer.
+     */
+    private static void appendChunks(File file, Mp4AudioTrack track, JoinedFile joinedFile)
+            throws IOException {
+        long fileLength = file.length();
+        for (int chunk = 0; chunk < track.getChunkCount(); chunk++) {
+            long position = track.getChunkOffset(chunk);
+            long count = track.getChunkSize(chunk);
+            if (position + count > fileLength) {
+                throw new IOException("Chunk beyond the end of " + file.getPath());
+            }
+            joinedFile.appendRange(file, position, count);
+        }
+    }
+
+    private static long getDuration(Mp4AudioTrack track) {
+        long duration = 0;
+        for (int i = 0; i < track.getTimeToSampleEntryCount(); i++) {
+            duration += (track.getTimeToSampleCount(i) & MAXIMAL_32_BIT_VALUE)
+                    * (track.getTimeToSampleDelta(i) & MAXIMAL_32_BIT_VALUE);
+        }
+        return duration;
+    }
+
+    private static byte[] fileTypeBox() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeBytes("3gp4");
+        payload.writeInt(0);
+        payload.writeBytes("isom");
+        payload.writeBytes("3gp4");
+        return box("ftyp", bytes.toByteArray());
+    }
+
+    /**
+     * Builds the moov box of a single track holding all samples of the provided tracks. Chunks
+     * of the inputs stay chunks of the output, laid out one after another from dataOffset.
+     */
+    private static byte[] movieBox(List<Mp4AudioTrack> tracks, long dataOffset) throws IOException {
+        Mp4AudioTrack first = tracks.get(0);
+        long timescale = first.getTimescale();
+
+        long duration = 0;
+        int sampleCount = 0, chunkCount = 0, constantSampleSize = 0;
+        boolean isConstantSampleSize = true;
+        for (Mp4AudioTrack track : tracks) {
+            duration += getDuration(track);
+            chunkCount += track.getChunkCount();
+            for (int i = 0; i < track.getSampleCount() && isConstantSampleSize; i++) {
+                if (sampleCount + i == 0) {
+                    constantSampleSize = track.getSampleSize(i);
+                }
+                isConstantSampleSize = track.getSampleSize(i) == constantSampleSize;
+            }
+            sampleCount += track.getSampleCount();
+        }
+        long movieDuration = duration * MOVIE_TIMESCALE / timescale;
+
+        //  stts, consecutive runs of equal durations merged across tracks
+        ByteArrayOutputStream timeToSample = new ByteArrayOutputStream();
+        DataOutputStream timeToSampleOut = new DataOutputStream(timeToSample);
+        int entryCount = 0;
+        long runCount = 0;
+        int runDelta = 0;
+        for (Mp4AudioTrack track : tracks) {
+            for (int i = 0; i < track.getTimeToSampleEntryCount(); i++) {
+                int count = track.getTimeToSampleCount(i), delta = track.getTimeToSampleDelta(i);
+                if (runCount > 0 && delta == runDelta) {
+                    runCount += count;
+                    continue;
+                }
+                if (runCount > 0) {
+                    timeToSampleOut.writeInt((int) runCount);
+                    timeToSampleOut.writeInt(runDelta);
+                    entryCount++;
+                }
+                runCount = count;
+                runDelta = delta;
+            }
+        }
+        if (runCount > 0) {
+            timeToSampleOut.writeInt((int) runCount);
+            timeToSampleOut.writeInt(runDelta);
+            entryCount++;
+        }
+        byte[] stts = fullBox("stts", concat(intBytes(entryCount), timeToSample.toByteArray()));
+
+        //  stsc, one entry for every change of the number of samples in a chunk
+        ByteArrayOutputStream sampleToChunk = new ByteArrayOutputStream();
+        DataOutputStream sampleToChunkOut = new DataOutputStream(sampleToChunk);
+        int sampleToChunkEntries = 0, chunkNumber = 1, previousSamplesPerChunk = -1;
+        for (Mp4AudioTrack track : tracks) {
+            for (int chunk = 0; chunk < track.getChunkCount(); chunk++, chunkNumber++) {
+                int samplesPerChunk = track.getChunkSampleCount(chunk);
+                if (samplesPerChunk != previousSamplesPerChunk) {
+                    sampleToChunkOut.writeInt(chunkNumber);
+                    sampleToChunkOut.writeInt(samplesPerChunk);
+                    sampleToChunkOut.writeInt(1);
+                    sampleToChunkEntries++;
+                    previousSamplesPerChunk = samplesPerChunk;
+                }
+            }
+        }
+        byte[] stsc = fullBox("stsc",
+                concat(intBytes(sampleToChunkEntries), sampleToChunk.toByteArray()));
+
+        //  stsz
+        ByteArrayOutputStream sampleSizes = new ByteArrayOutputStream();
+        DataOutputStream sampleSizesOut = new DataOutputStream(sampleSizes);
+        sampleSizesOut.writeInt(isConstantSampleSize ? constantSampleSize : 0);
+        sampleSizesOut.writeInt(sampleCount);
+        if (!isConstantSampleSize) {
+            for (Mp4AudioTrack track : tracks) {
+                for (int i = 0; i < track.getSampleCount(); i++) {
+                    sampleSizesOut.writeInt(track.getSampleSize(i));
+                }
+            }
+        }
+        byte[] stsz = fullBox("stsz", sampleSizes.toByteArray());
+
+        //  stco or co64
+        ByteArrayOutputStream chunkOffsets = new ByteArrayOutputStream();
+        DataOutputStream chunkOffsetsOut = new DataOutputStream(chunkOffsets);
+        long offset = dataOffset, totalSize = 0;
+        for (Mp4AudioTrack track : tracks) {
+            for (int chunk = 0; chunk < track.getChunkCount(); chunk++) {
+                totalSize += track.getChunkSize(chunk);
+            }
+        }
+        boolean isLargeOffset = dataOffset + totalSize > MAXIMAL_32_BIT_VALUE;
+        chunkOffsetsOut.writeInt(chunkCount);
+        for (Mp4AudioTrack track : tracks) {
+            for (int chunk = 0; chunk < track.getChunkCount(); chunk++) {
+                if (isLargeOffset) {
+                    chunkOffsetsOut.writeLong(offset);
+                } else {
+                    chunkOffsetsOut.writeInt((int) offset);
+                }
+                offset += track.getChunkSize(chunk);
+            }
+        }
+        byte[] stco = fullBox(isLargeOffset ? "co64" : "stco", chunkOffsets.toByteArray());
+
+        byte[] stsd = fullBox("stsd", concat(intBytes(1), first.getSampleEntry()));
+        byte[] stbl = box("stbl", concat(stsd, stts, stsc, stsz, stco));
+
+        byte[] smhd = fullBox("smhd", new byte[4]);
+        byte[] dinf = box("dinf", fullBox("dref",
+                concat(intBytes(1), box("url ", intBytes(1)))));
+        byte[] minf = box("minf", concat(smhd, dinf, stbl));
+
+        byte[] hdlr = fullBox("hdlr", concat(intBytes(0), "soun".getBytes("US-ASCII"),
+                new byte[12], "SoundHandle\0".getBytes("US-ASCII")));
+        byte[] mdia = box("mdia", concat(mediaHeaderBox(timescale, duration), hdlr, minf));
+
+        return box("moov", concat(movieHeaderBox(movieDuration),
+                box("trak", concat(trackHeaderBox(movieDuration), mdia))));
+    }
+
+    private static byte[] movieHeaderBox(long duration) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        boolean isLarge = duration > MAXIMAL_32_BIT_VALUE;
+        out.writeInt(isLarge ? 1 << 24 : 0);
+        writeTimes(out, isLarge);
+        out.writeInt(MOVIE_TIMESCALE);
+        writeDuration(out, duration, isLarge);
+        out.writeInt(0x00010000);
+        out.writeShort(0x0100);
+        out.write(new byte[10]);
+        writeUnityMatrix(out);
+        out.write(new byte[24]);
+        out.writeInt(2);
+        return box("mvhd", bytes.toByteArray());
+    }
+
+    private static byte[] trackHeaderBox(long duration) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        boolean isLarge = duration > MAXIMAL_32_BIT_VALUE;
+        //  enabled, in movie, in preview
+        out.writeInt((isLarge ? 1 << 24 : 0) | 0x07);
+        writeTimes(out, isLarge);
+        out.writeInt(1);
+        out.writeInt(0);
+        writeDuration(out, duration, isLarge);
+        out.write(new byte[8]);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(0x0100);
+        out.writeShort(0);
+        writeUnityMatrix(out);
+        out.writeInt(0);
+        out.writeInt(0);
+        return box("tkhd", bytes.toByteArray());
+    }
+
+    private static byte[] mediaHeaderBox(long timescale, long duration) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        boolean isLarge = duration > MAXIMAL_32_BIT_VALUE;
+        out.writeInt(isLarge ? 1 << 24 : 0);
+        writeTimes(out, isLarge);
+        out.writeInt((int) timescale);
+        writeDuration(out, duration, isLarge);
+        //  language 'und'
+        out.writeShort(0x55C4);
+        out.writeShort(0);
+        return box("mdhd", bytes.toByteArray());
+    }
+
+    private static void writeTimes(DataOutputStream out, boolean isLarge) throws IOException {
+        out.write(new byte[isLarge ? 16 : 8]);
+    }
+
+    private static void writeDuration(DataOutputStream out, long duration, boolean isLarge)
+            throws IOException {
+        if (isLarge) {
+            out.writeLong(duration);
+        } else {
+            out.writeInt((int) duration);
+        }
+    }
+
+    private static void writeUnityMatrix(DataOutputStream out) throws IOException {
+        int[] matrix = {0x00010000, 0, 0, 0, 0x00010000, 0, 0, 0, 0x40000000};
+        for (int value : matrix) {
+            out.writeInt(value);
+        }
+    }
+
+    private static byte[] fullBox(String type, byte[] payload) throws IOException {
+        //  version 0, no flags
+        return box(type, concat(new byte[4], payload));
+    }
+
+    private static byte[] box(String type, byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + payload.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(8 + payload.length);
+        out.writeBytes(type);
+        out.write(payload);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] intBytes(int value) {
+        return ByteBuffer.allocate(4).putInt(value).array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    //endregion Private helper methods
+}
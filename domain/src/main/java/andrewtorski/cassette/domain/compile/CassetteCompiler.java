@@ -0,0 +1,341 @@
+package andrewtorski.cassette.domain.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import andrewtorski.cassette.domain.audio.AudioReader;
+import andrewtorski.cassette.domain.audio.AudioStorageFormat;
+import andrewtorski.cassette.domain.audio.AudioStorageFormats;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.Mp4AudioTrack;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PolyphaseResampler;
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Joins audio of Recordings of a Cassette into one file.
+ * <p/>
+ * Recordings may differ in sample rate and number of channels. Each one is converted to the
+ * common output format on the fly: channels are mixed down or duplicated first, then the sample
+ * rate is converted by a {@link PolyphaseResampler}. Memory used does not depend on the length
+ * of the Recordings.
+ * <p/>
+ * When all Recordings are 3GP files holding AMR-NB coded with equal parameters, as recorded by
+ * MediaRecorder, their frames are copied into a 3GP file by an {@link AmrFrameConcatenator}
+ * instead, without decoding. The storage format is not used then. Recordings of other formats or
+ * differing parameters take the decoding path.
+ */
+public class CassetteCompiler {
+
+    //region Private fields
+
+    private static final int FRAMES_PER_BUFFER = 4096;
+
+    /**
+     * Extension of files into which frames are copied by the {@link AmrFrameConcatenator}.
+     */
+    private static final String COPIED_FRAMES_FILE_EXTENSION = "3gp";
+
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Format in which the compiled file is written.
+     */
+    private final AudioStorageFormat storageFormat;
+
+    /**
+     * Format of the samples of the compiled file, null to pick the highest sample rate and the
+     * most channels found among the Recordings.
+     */
+    private final PcmFormat outputFormat;
+
+    private final AmrFrameConcatenator concatenator = new AmrFrameConcatenator();
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the CassetteCompiler.
+     *
+     * @param storageFormat Format in which the compiled file is written.
+     * @param outputFormat  Format of the samples of the compiled file, or null to derive it from
+     *                      the Recordings.
+     */
+    public CassetteCompiler(AudioStorageFormat storageFormat, PcmFormat outputFormat) {
+        this.storageFormat = storageFormat;
+        this.outputFormat = outputFormat;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Compiles the provided Recordings, in order of their sequence in the Cassette, into the
+     * provided file.
+     *
+     * @param recordings Recordings to compile.
+     * @param output     File to write. It is overwritten if it exists.
+     * @return Number of frames written, at the sample rate of the output.
+     * @throws IOException If any of the Recordings could not be read or the output could not be
+     *                     written, or the compiling thread was interrupted.
+     */
+    public long compile(List<Recording> recordings, File output) throws IOException {
+        List<Recording> ordered = orderBySequence(recordings);
+
+        List<File> files = getAudioFiles(ordered);
+        List<Mp4AudioTrack> tracks = readTracksToCopy(files);
+        if (tracks != null) {
+            Mp4AudioTrack first = tracks.get(0);
+            long duration = concatenator.join(files, tracks, output);
+            return duration * first.getSampleRate() / first.getTimescale();
+        }
+
+        PcmFormat format = outputFormat != null ? outputFormat : deriveOutputFormat(ordered);
+
+        long framesWritten = 0;
+        AudioWriter writer = storageFormat.createWriter(output, format);
+        try {
+            for (File file : files) {
+                AudioReader reader = AudioStorageFormats.createReader(file);
+                try {
+                    framesWritten += append(reader, writer);
+                } finally {
+                    reader.close();
+                }
+            }
+        } finally {
+            writer.close();
+        }
+
+        return framesWritten;
+    }
+
+    /**
+     * Returns the extension, without the dot, of the file into which {@link #compile} writes the
+     * provided Recordings: 3GP when their frames are copied, otherwise that of the storage format.
+     *
+     * @param recordings Recordings to compile.
+     */
+    public String getFileExtension(List<Recording> recordings) {
+        return readTracksToCopy(getAudioFiles(recordings)) != null ? COPIED_FRAMES_FILE_EXTENSION
+                : storageFormat.getFileExtension();
+    }
+
+    /**
+     * Computes a hash of the inputs of {@link #compile}: the settings of this compiler and, in
+     * order of their sequence in the Cassette, the identifier and audio file of every Recording.
+     * An equal hash means the inputs are assumed to be unchanged, not that compiling them again
+     * would produce an equal file.
+     * <p/>
+     * Audio files are not read; their path, size and modification time stand in for their
+     * content, so computing this is cheap compared to compiling. A file rewritten in place with
+     * the same size within the resolution of modification times of its filesystem, which may be
+     * as coarse as two seconds, goes unnoticed.
+     *
+     * @param recordings Recordings to compile.
+     * @return Lower case hex string.
+     */
+    public String hashInputs(List<Recording> recordings) {
+        MessageDigest digest = newDigest();
+        update(digest, storageFormat.getName());
+        update(digest, outputFormat == null ? "" : outputFormat.toString());
+
+        for (Recording recording : orderBySequence(recordings)) {
+            update(digest, Long.toString(recording.getId()));
+            File file = new File(recording.getAudioFilePath());
+            update(digest, file.getPath() + ':' + file.length() + ':' + file.lastModified());
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Returns the provided Recordings in order of their sequence in the Cassette, as a new list.
+     */
+    public static List<Recording> orderBySequence(List<Recording> recordings) {
+        List<Recording> ordered = new ArrayList<Recording>(recordings);
+        Collections.sort(ordered, new Comparator<Recording>() {
+            @Override
+            public int compare(Recording lhs, Recording rhs) {
+                return lhs.getSequenceInTheCassette() < rhs.getSequenceInTheCassette() ? -1
+                        : (lhs.getSequenceInTheCassette() == rhs.getSequenceInTheCassette() ? 0 : 1);
+            }
+        });
+        return ordered;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private static List<File> getAudioFiles(List<Recording> recordings) {
+        List<File> files = new ArrayList<File>(recordings.size());
+        for (Recording recording : recordings) {
+            files.add(new File(recording.getAudioFilePath()));
+        }
+        return files;
+    }
+
+    /**
+     * Returns the tracks of the provided files if their frames can be copied into the output
+     * rather than decoded, or null.
+     */
+    private List<Mp4AudioTrack> readTracksToCopy(List<File> files) {
+        List<Mp4AudioTrack> tracks = concatenator.readJoinableTracks(files);
+        if (tracks == null) {
+            return null;
+        }
+        Mp4AudioTrack first = tracks.get(0);
+        return outputFormat == null
+                || outputFormat.equals(new PcmFormat(first.getSampleRate(), first.getChannels()))
+                ? tracks : null;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            //  SHA-1 is required to be present on every Java platform.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes provided bytes as a lower case hex string.
+     */
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int value = bytes[i] & 0xFF;
+            chars[i * 2] = HEX_DIGITS[value >>> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[value & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Feeds the provided string into the digest, terminated so that neighbouring strings cannot
+     * run into each other.
+     */
+    private static void update(MessageDigest digest, String value) {
+        try {
+            digest.update(value.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            //  UTF-8 is required to be present on every Java platform.
+            throw new IllegalStateException(e);
+        }
+        digest.update((byte) 0);
+    }
+
+    private static PcmFormat deriveOutputFormat(List<Recording> recordings) throws IOException {
+        int sampleRate = 0, channels = 0;
+        for (Recording recording : recordings) {
+            AudioReader reader = AudioStorageFormats.createReader(new File(recording.getAudioFilePath()));
+            try {
+                sampleRate = Math.max(sampleRate, reader.getFormat().getSampleRate());
+                channels = Math.max(channels, reader.getFormat().getChannels());
+            } finally {
+                reader.close();
+            }
+        }
+        if (sampleRate == 0) {
+            throw new IOException("Nothing to compile.");
+        }
+        return new PcmFormat(sampleRate, channels);
+    }
+
+    /**
+     * Converts audio of the reader into the writer's format and appends it.
+     *
+     * @return Number of frames written.
+     */
+    private static long append(AudioReader reader, AudioWriter writer) throws IOException {
+        PcmFormat inputFormat = reader.getFormat(), outputFormat = writer.getFormat();
+        int inputChannels = inputFormat.getChannels(), outputChannels = outputFormat.getChannels();
+
+        short[] input = new short[FRAMES_PER_BUFFER * inputChannels];
+        short[] mixed = inputChannels == outputChannels ? input : new short[FRAMES_PER_BUFFER * outputChannels];
+
+        PolyphaseResampler resampler = null;
+        short[] resampled = null;
+        long framesToSkip = 0;
+        if (inputFormat.getSampleRate() != outputFormat.getSampleRate()) {
+            resampler = new PolyphaseResampler(inputFormat.getSampleRate(), outputFormat.getSampleRate(),
+                    outputChannels);
+            resampled = new short[resampler.getMaximalOutputFrames(FRAMES_PER_BUFFER) * outputChannels];
+            //  The filter delays its output, the head of it is dropped and the tail is flushed.
+            framesToSkip = (long) resampler.getDelayInInputFrames() * outputFormat.getSampleRate()
+                    / inputFormat.getSampleRate();
+        }
+
+        long framesWritten = 0;
+        int frames;
+        while ((frames = reader.read(input, 0, FRAMES_PER_BUFFER)) > 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Compilation was interrupted.");
+            }
+            if (mixed != input) {
+                mix(input, inputChannels, mixed, outputChannels, frames);
+            }
+            if (resampler == null) {
+                writer.write(mixed, 0, frames);
+                framesWritten += frames;
+                continue;
+            }
+
+            int resampledFrames = resampler.process(mixed, 0, frames, resampled, 0);
+            int skipped = (int) Math.min(framesToSkip, resampledFrames);
+            framesToSkip -= skipped;
+            writer.write(resampled, skipped * outputChannels, resampledFrames - skipped);
+            framesWritten += resampledFrames - skipped;
+        }
+
+        if (resampler != null) {
+            int delay = resampler.getDelayInInputFrames();
+            for (int i = 0; i < delay * outputChannels; i++) {
+                mixed[i] = 0;
+            }
+            int resampledFrames = resampler.process(mixed, 0, delay, resampled, 0);
+            int skipped = (int) Math.min(framesToSkip, resampledFrames);
+            writer.write(resampled, skipped * outputChannels, resampledFrames - skipped);
+            framesWritten += resampledFrames - skipped;
+        }
+
+        return framesWritten;
+    }
+
+    /**
+     * Converts frames between channel counts. Mixing down to mono averages all channels, any
+     * other conversion maps output channels onto input channels round robin.
+     */
+    private static void mix(short[] input, int inputChannels, short[] output, int outputChannels, int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            int inputOffset = frame * inputChannels, outputOffset = frame * outputChannels;
+            if (outputChannels == 1) {
+                int sum = 0;
+                for (int channel = 0; channel < inputChannels; channel++) {
+                    sum += input[inputOffset + channel];
+                }
+                output[outputOffset] = (short) (sum / inputChannels);
+            } else {
+                for (int channel = 0; channel < outputChannels; channel++) {
+                    output[outputOffset + channel] = input[inputOffset + channel % inputChannels];
+                }
+            }
+        }
+    }
+
+    //endregion Private helper methods
+}
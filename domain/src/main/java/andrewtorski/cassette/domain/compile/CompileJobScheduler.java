@@ -0,0 +1,544 @@
+package andrewtorski.cassette.domain.compile;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.usecase.CompileCassetteUseCase;
+
+/**
+ * Compiles Cassettes in the background, a few at a time.
+ * <p/>
+ * Requests for a Cassette which is already waiting are merged into the waiting job, which takes
+ * the higher of both priorities. Jobs the user waits for run before background ones; among equal
+ * priorities the older job runs first. A request for a Cassette which is being compiled queues a
+ * new job, as its Recordings might have changed after the running job read them. That job waits
+ * until the compilation in progress ends, so that a Cassette is never compiled twice at once and
+ * an older compilation cannot replace the file of a newer one.
+ * <p/>
+ * Waiting and running jobs are kept in a journal which is rewritten and synced whenever one is
+ * added or finishes, so that jobs interrupted by the death of the process are run again by
+ * {@link #start()}. Compilation is skipped for inputs compiled before, so running again a job
+ * which had in fact finished costs only hashing its inputs.
+ */
+public class CompileJobScheduler {
+
+    /**
+     * Priority of a compile job, in order of precedence.
+     */
+    public enum Priority {
+        /**
+         * The user waits for the compiled Cassette, e.g. to play or share it.
+         */
+        USER_VISIBLE,
+        /**
+         * The Cassette is compiled ahead of time.
+         */
+        BACKGROUND
+    }
+
+    /**
+     * Compilation of one Cassette, which may be waited for or cancelled.
+     * <p/>
+     * Cancelling a running job interrupts its compilation, which leaves the previously compiled
+     * file in place.
+     */
+    public class CompileJob extends FutureTask<Cassette> {
+
+        private final long cassetteId;
+        private final long sequence;
+        private final long enqueuedAt;
+        private Priority priority;
+        private long startedAt;
+
+        CompileJob(final long cassetteId, Priority priority, long sequence, long enqueuedAt) {
+            super(new Callable<Cassette>() {
+                @Override
+                public Cassette call() throws Exception {
+                    return useCase.compile(cassetteId, outputDirectory, OUTPUT_FILE_PREFIX + cassetteId);
+                }
+            });
+            this.cassetteId = cassetteId;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        public long getCassetteId() {
+            return cassetteId;
+        }
+
+        public Priority getPriority() {
+            synchronized (lock) {
+                return priority;
+            }
+        }
+
+        //  Accounted for before waiters are released, so that they see the job finished.
+
+        @Override
+        protected void set(Cassette cassette) {
+            finished(this, JOB_COMPLETED);
+            super.set(cassette);
+        }
+
+        @Override
+        protected void setException(Throwable throwable) {
+            finished(this, JOB_FAILED);
+            super.setException(throwable);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean wasCancelled = super.cancel(mayInterruptIfRunning);
+            if (wasCancelled) {
+                finished(this, JOB_CANCELLED);
+            }
+            return wasCancelled;
+        }
+    }
+
+    /**
+     * Snapshot of the state of the queue and of the latency of jobs finished so far.
+     */
+    public static class Statistics {
+
+        private final int waitingJobs;
+        private final int runningJobs;
+        private final long completedJobs;
+        private final long failedJobs;
+        private final long cancelledJobs;
+        private final long mergedRequests;
+        private final long totalQueueMillis;
+        private final long maximalQueueMillis;
+        private final long totalRunMillis;
+
+        Statistics(int waitingJobs, int runningJobs, long completedJobs, long failedJobs,
+                   long cancelledJobs, long mergedRequests, long totalQueueMillis,
+                   long maximalQueueMillis, long totalRunMillis) {
+            this.waitingJobs = waitingJobs;
+            this.runningJobs = runningJobs;
+            this.completedJobs = completedJobs;
+            this.failedJobs = failedJobs;
+            this.cancelledJobs = cancelledJobs;
+            this.mergedRequests = mergedRequests;
+            this.totalQueueMillis = totalQueueMillis;
+            this.maximalQueueMillis = maximalQueueMillis;
+            this.totalRunMillis = totalRunMillis;
+        }
+
+        public int getWaitingJobs() {
+            return waitingJobs;
+        }
+
+        public int getRunningJobs() {
+            return runningJobs;
+        }
+
+        public long getCompletedJobs() {
+            return completedJobs;
+        }
+
+        public long getFailedJobs() {
+            return failedJobs;
+        }
+
+        public long getCancelledJobs() {
+            return cancelledJobs;
+        }
+
+        /**
+         * Returns the number of requests which were merged into a job already waiting.
+         */
+        public long getMergedRequests() {
+            return mergedRequests;
+        }
+
+        /**
+         * Returns the mean time, from the first request to the start of the compilation, of jobs
+         * which started.
+         */
+        public long getAverageQueueMillis() {
+            long started = completedJobs + failedJobs;
+            return started == 0 ? 0 : totalQueueMillis / started;
+        }
+
+        public long getMaximalQueueMillis() {
+            return maximalQueueMillis;
+        }
+
+        /**
+         * Returns the mean duration of compilations which completed or failed.
+         */
+        public long getAverageRunMillis() {
+            long started = completedJobs + failedJobs;
+            return started == 0 ? 0 : totalRunMillis / started;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d waiting, %d running, %d completed, %d failed, "
+                            + "%d cancelled, %d merged, queued %d ms on average (%d ms at most), "
+                            + "run %d ms on average", waitingJobs, runningJobs, completedJobs,
+                    failedJobs, cancelledJobs, mergedRequests, getAverageQueueMillis(),
+                    maximalQueueMillis, getAverageRunMillis());
+        }
+    }
+
+    //region Private fields
+
+    private static final Charset CHARSET = Charset.forName("US-ASCII");
+
+    private static final String OUTPUT_FILE_PREFIX = "cassette-";
+
+    private static final int JOB_COMPLETED = 0;
+    private static final int JOB_FAILED = 1;
+    private static final int JOB_CANCELLED = 2;
+
+    private final CompileCassetteUseCase useCase;
+    private final File outputDirectory;
+    private final File journalFile;
+    private final int maximalRunningJobs;
+
+    private final Object lock = new Object();
+
+    private final PriorityQueue<CompileJob> waitingJobs = new PriorityQueue<CompileJob>(11,
+            new Comparator<CompileJob>() {
+                @Override
+                public int compare(CompileJob lhs, CompileJob rhs) {
+                    if (lhs.priority != rhs.priority) {
+                        return lhs.priority.compareTo(rhs.priority);
+                    }
+                    return lhs.sequence < rhs.sequence ? -1 : (lhs.sequence == rhs.sequence ? 0 : 1);
+                }
+            });
+    private final Map<Long, CompileJob> waitingJobsByCassette = new HashMap<Long, CompileJob>();
+    private final Set<CompileJob> runningJobs = new LinkedHashSet<CompileJob>();
+
+    /**
+     * Ids of Cassettes being compiled by a thread, including those whose job was cancelled but
+     * has not stopped yet.
+     */
+    private final Set<Long> compilingCassetteIds = new HashSet<Long>();
+
+    private ExecutorService executor;
+    private boolean isShutdown;
+    private long nextSequence;
+
+    private long completedJobs;
+    private long failedJobs;
+    private long cancelledJobs;
+    private long mergedRequests;
+    private long totalQueueMillis;
+    private long maximalQueueMillis;
+    private long totalRunMillis;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the CompileJobScheduler. No job runs until {@link #start()}.
+     *
+     * @param useCase            Use case through which Cassettes are compiled.
+     * @param outputDirectory    Directory into which Cassettes are compiled, one file each.
+     * @param journalFile        File in which waiting and running jobs are kept.
+     * @param maximalRunningJobs Number of Cassettes compiled at the same time.
+     */
+    public CompileJobScheduler(CompileCassetteUseCase useCase, File outputDirectory,
+                               File journalFile, int maximalRunningJobs) {
+        if (maximalRunningJobs < 1) {
+            throw new IllegalArgumentException("maximalRunningJobs must be positive.");
+        }
+        this.useCase = useCase;
+        this.outputDirectory = outputDirectory;
+        this.journalFile = journalFile;
+        this.maximalRunningJobs = maximalRunningJobs;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Starts running jobs, first of all those left in the journal by the previous process.
+     *
+     * @return Jobs read from the journal.
+     * @throws IOException If the journal exists but could not be read.
+     */
+    public List<CompileJob> start() throws IOException {
+        List<CompileJob> resumed = new ArrayList<CompileJob>();
+        synchronized (lock) {
+            if (executor != null) {
+                throw new IllegalStateException("The scheduler was already started.");
+            }
+            executor = Executors.newFixedThreadPool(maximalRunningJobs, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "CassetteCompilation");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+            for (String[] entry : readJournal()) {
+                long cassetteId;
+                Priority priority;
+                long enqueuedAt;
+                try {
+                    cassetteId = Long.parseLong(entry[0]);
+                    priority = Priority.valueOf(entry[1]);
+                    enqueuedAt = Long.parseLong(entry[2]);
+                } catch (IllegalArgumentException e) {
+                    //  The entry was torn while written; the journal is rewritten below anyway.
+                    continue;
+                }
+                //  A job which was running and a newer one waiting for the same Cassette become
+                //  one job.
+                if (!waitingJobsByCassette.containsKey(cassetteId)) {
+                    resumed.add(enqueue(cassetteId, priority, enqueuedAt));
+                }
+            }
+            writeJournal();
+        }
+        return resumed;
+    }
+
+    /**
+     * Requests compilation of the Cassette of provided id.
+     *
+     * @param cassetteId Identifier of the Cassette to compile.
+     * @param priority   Priority of the request.
+     * @return Job compiling the Cassette, shared with earlier requests still waiting.
+     * @throws IOException If the request could not be written to the journal.
+     */
+    public CompileJob submit(long cassetteId, Priority priority) throws IOException {
+        synchronized (lock) {
+            if (executor == null || isShutdown) {
+                throw new IllegalStateException("The scheduler is not running.");
+            }
+            CompileJob job = waitingJobsByCassette.get(cassetteId);
+            if (job != null) {
+                mergedRequests++;
+                if (priority.compareTo(job.priority) < 0) {
+                    waitingJobs.remove(job);
+                    job.priority = priority;
+                    waitingJobs.add(job);
+                    writeJournal();
+                }
+                return job;
+            }
+
+            job = enqueue(cassetteId, priority, System.currentTimeMillis());
+            writeJournal();
+            return job;
+        }
+    }
+
+    public Statistics getStatistics() {
+        synchronized (lock) {
+            return new Statistics(waitingJobs.size(), runningJobs.size(), completedJobs,
+                    failedJobs, cancelledJobs, mergedRequests, totalQueueMillis,
+                    maximalQueueMillis, totalRunMillis);
+        }
+    }
+
+    /**
+     * Stops running jobs, interrupting those in progress. Waiting and interrupted jobs stay in
+     * the journal, to be run after the next {@link #start()}.
+     */
+    public void shutdown() {
+        ExecutorService executorToStop;
+        synchronized (lock) {
+            if (executor == null || isShutdown) {
+                return;
+            }
+            isShutdown = true;
+            executorToStop = executor;
+        }
+        executorToStop.shutdownNow();
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    /**
+     * Queues a job and hands one run to the executor. Each run takes the most urgent job waiting
+     * at the time a thread becomes free, rather than the job it was handed for.
+     */
+    private CompileJob enqueue(long cassetteId, Priority priority, long enqueuedAt) {
+        CompileJob job = new CompileJob(cassetteId, priority, nextSequence++, enqueuedAt);
+        waitingJobs.add(job);
+        waitingJobsByCassette.put(cassetteId, job);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                runNextJobs();
+            }
+        });
+        return job;
+    }
+
+    /**
+     * Runs the most urgent waiting job whose Cassette is not being compiled, until there is none.
+     * <p/>
+     * A run ends without a job only when all waiting jobs are held back by compilations in
+     * progress; the threads doing those pick the held back jobs up once they are done.
+     */
+    private void runNextJobs() {
+        while (true) {
+            CompileJob job;
+            synchronized (lock) {
+                job = isShutdown ? null : pollRunnableJob();
+                if (job == null) {
+                    return;
+                }
+                waitingJobsByCassette.remove(job.cassetteId);
+                runningJobs.add(job);
+                compilingCassetteIds.add(job.cassetteId);
+                job.startedAt = System.currentTimeMillis();
+                long queueMillis = job.startedAt - job.enqueuedAt;
+                totalQueueMillis += queueMillis;
+                maximalQueueMillis = Math.max(maximalQueueMillis, queueMillis);
+            }
+            try {
+                job.run();
+            } finally {
+                synchronized (lock) {
+                    compilingCassetteIds.remove(job.cassetteId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the most urgent waiting job whose Cassette is not being compiled, or
+     * null if there is none.
+     */
+    private CompileJob pollRunnableJob() {
+        List<CompileJob> heldBack = new ArrayList<CompileJob>();
+        CompileJob job;
+        while ((job = waitingJobs.poll()) != null && compilingCassetteIds.contains(job.cassetteId)) {
+            heldBack.add(job);
+        }
+        waitingJobs.addAll(heldBack);
+        return job;
+    }
+
+    /**
+     * Called once the job completed, failed or was cancelled, from the thread which did it. A
+     * cancelled running job still completes or fails afterwards, which is ignored.
+     */
+    private void finished(CompileJob job, int outcome) {
+        synchronized (lock) {
+            if (!runningJobs.remove(job)) {
+                if (!waitingJobs.remove(job)) {
+                    return;
+                }
+                waitingJobsByCassette.remove(job.cassetteId);
+            }
+            if (isShutdown) {
+                //  Kept in the journal to be run again.
+                return;
+            }
+
+            if (outcome == JOB_CANCELLED) {
+                cancelledJobs++;
+            } else {
+                totalRunMillis += System.currentTimeMillis() - job.startedAt;
+                if (outcome == JOB_FAILED) {
+                    failedJobs++;
+                } else {
+                    completedJobs++;
+                }
+            }
+
+            try {
+                writeJournal();
+            } catch (IOException e) {
+                //  The job stays in the journal and is run again, needlessly, after a restart.
+            }
+        }
+    }
+
+    /**
+     * Replaces the journal with the jobs waiting and running now. The new content is synced to a
+     * file aside first and then renamed over the journal, so that a crash leaves either the old
+     * or the new journal.
+     */
+    private void writeJournal() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (CompileJob job : runningJobs) {
+            appendEntry(content, job);
+        }
+        for (CompileJob job : waitingJobs) {
+            appendEntry(content, job);
+        }
+
+        File newJournal = new File(journalFile.getPath() + ".new");
+        FileOutputStream outputStream = new FileOutputStream(newJournal);
+        try {
+            outputStream.write(content.toString().getBytes(CHARSET));
+            outputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+        if (!newJournal.renameTo(journalFile)
+                && !(journalFile.delete() && newJournal.renameTo(journalFile))) {
+            throw new IOException("Could not replace the journal " + journalFile.getPath());
+        }
+    }
+
+    private static void appendEntry(StringBuilder content, CompileJob job) {
+        content.append(job.cassetteId).append(' ').append(job.priority.name()).append(' ')
+                .append(job.enqueuedAt).append('\n');
+    }
+
+    private List<String[]> readJournal() throws IOException {
+        List<String[]> entries = new ArrayList<String[]>();
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile),
+                    CHARSET));
+        } catch (FileNotFoundException e) {
+            return entries;
+        }
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] entry = line.split(" ");
+                if (entry.length == 3) {
+                    entries.add(entry);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return entries;
+    }
+
+    //endregion Private helper methods
+}
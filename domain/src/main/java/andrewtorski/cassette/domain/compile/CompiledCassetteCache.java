@@ -0,0 +1,260 @@
+package andrewtorski.cassette.domain.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.entity.Cassette;
+
+/**
+ * Treats compiled files of Cassettes as a cache, which may take at most a given number of bytes.
+ * <p/>
+ * When compiled files take more than that, those of Cassettes played least recently are deleted
+ * and their Cassettes are marked not compiled. A Cassette which was never played counts as
+ * played when it was compiled. Files of Cassettes which were marked not compiled, because their
+ * Recordings changed, count and are evicted as well, since they stay on disk until they are
+ * replaced. A Cassette whose compiled file was deleted is compiled again,
+ * through the {@link CompileJobScheduler}, when it is played next.
+ */
+public class CompiledCassetteCache {
+
+    /**
+     * Snapshot of the effectiveness of the cache.
+     */
+    public static class Statistics {
+
+        private final long hits;
+        private final long misses;
+        private final long evictedCassettes;
+        private final long bytesEvicted;
+        private final long cachedBytes;
+
+        Statistics(long hits, long misses, long evictedCassettes, long bytesEvicted,
+                   long cachedBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictedCassettes = evictedCassettes;
+            this.bytesEvicted = bytesEvicted;
+            this.cachedBytes = cachedBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the fraction of playbacks which found the Cassette compiled.
+         */
+        public double getHitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        public long getEvictedCassettes() {
+            return evictedCassettes;
+        }
+
+        public long getBytesEvicted() {
+            return bytesEvicted;
+        }
+
+        /**
+         * Returns the size of all compiled files as of the last trim.
+         */
+        public long getCachedBytes() {
+            return cachedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d hits, %d misses (%.0f%% hit rate), %d cassettes "
+                            + "evicted (%d bytes), %d bytes cached", hits, misses,
+                    getHitRate() * 100, evictedCassettes, bytesEvicted, cachedBytes);
+        }
+    }
+
+    //region Private fields
+
+    private static final long NO_CASSETTE = -1;
+
+    private final RepositoryFacade facade;
+    private final CompileJobScheduler scheduler;
+    private final long byteBudget;
+
+    private long hits;
+    private long misses;
+    private long evictedCassettes;
+    private long bytesEvicted;
+    private long cachedBytes;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the CompiledCassetteCache.
+     *
+     * @param facade     Facade through which Cassettes are read and updated.
+     * @param scheduler  Scheduler through which Cassettes are compiled on demand.
+     * @param byteBudget Number of bytes compiled files may take together.
+     */
+    public CompiledCassetteCache(RepositoryFacade facade, CompileJobScheduler scheduler,
+                                 long byteBudget) {
+        if (byteBudget < 0) {
+            throw new IllegalArgumentException("byteBudget must not be negative.");
+        }
+        this.facade = facade;
+        this.scheduler = scheduler;
+        this.byteBudget = byteBudget;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Returns the compiled file of the Cassette of provided id, which is about to be played. The
+     * Cassette is compiled first if it was not, which may take minutes, so this must not be called
+     * from the main thread. The playback is recorded and compiled files of other Cassettes are
+     * evicted if the budget is exceeded.
+     *
+     * @param cassetteId Identifier of the Cassette to play.
+     * @return Compiled file, or null if no Cassette of provided id exists.
+     * @throws IOException          If the Cassette could not be compiled.
+     * @throws InterruptedException If the thread was interrupted while waiting for compilation.
+     */
+    public File getForPlayback(long cassetteId) throws IOException, InterruptedException {
+        Cassette cassette = facade.get(cassetteId, false);
+        if (cassette == null) {
+            return null;
+        }
+
+        boolean isHit = isCached(cassette);
+        synchronized (this) {
+            if (isHit) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (!isHit) {
+            cassette = compile(cassetteId);
+            if (cassette == null) {
+                return null;
+            }
+        }
+
+        facade.recordPlayback(cassette);
+        trim(cassetteId);
+        return new File(cassette.getCompiledFilePath());
+    }
+
+    /**
+     * Evicts compiled files of least recently played Cassettes until all compiled files fit in
+     * the budget. Should be called after Cassettes were compiled in the background.
+     *
+     * @return Number of bytes evicted.
+     */
+    public long trim() {
+        return trim(NO_CASSETTE);
+    }
+
+    public synchronized Statistics getStatistics() {
+        return new Statistics(hits, misses, evictedCassettes, bytesEvicted, cachedBytes);
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private static boolean isCached(Cassette cassette) {
+        return cassette.isCompiled() && cassette.getCompiledFilePath() != null
+                && new File(cassette.getCompiledFilePath()).isFile();
+    }
+
+    private Cassette compile(long cassetteId) throws IOException, InterruptedException {
+        try {
+            return scheduler.submit(cassetteId, CompileJobScheduler.Priority.USER_VISIBLE).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Compilation of the Cassette failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Evicts compiled files until they fit in the budget, sparing the Cassette of provided id.
+     */
+    private synchronized long trim(long sparedCassetteId) {
+        List<Cassette> compiled = new ArrayList<Cassette>();
+        long totalBytes = 0;
+        for (Cassette cassette : facade.getAll()) {
+            //  Whatever is_compiled says, as a stale compiled file takes the same space.
+            if (cassette.getCompiledFilePath() != null) {
+                compiled.add(cassette);
+                totalBytes += sizeOf(new File(cassette.getCompiledFilePath()));
+            }
+        }
+
+        Collections.sort(compiled, new Comparator<Cassette>() {
+            @Override
+            public int compare(Cassette lhs, Cassette rhs) {
+                long lhsTime = getTimeOfLastUse(lhs), rhsTime = getTimeOfLastUse(rhs);
+                return lhsTime < rhsTime ? -1 : (lhsTime == rhsTime ? 0 : 1);
+            }
+        });
+
+        long evicted = 0;
+        for (Cassette cassette : compiled) {
+            if (totalBytes <= byteBudget) {
+                break;
+            }
+            if (cassette.getId() == sparedCassetteId) {
+                continue;
+            }
+            File compiledFile = new File(cassette.getCompiledFilePath());
+            long size = sizeOf(compiledFile);
+            if (compiledFile.exists() && !compiledFile.delete()) {
+                continue;
+            }
+            cassette.setCompiled(false);
+            cassette.setCompiledFile(null);
+            cassette.setCompiledFilePath(null);
+            cassette.setCompiledInputsHash(null);
+            facade.updateCompilation(cassette);
+
+            totalBytes -= size;
+            evicted += size;
+            evictedCassettes++;
+        }
+
+        bytesEvicted += evicted;
+        cachedBytes = totalBytes;
+        return evicted;
+    }
+
+    private static long sizeOf(File compiledFile) {
+        return compiledFile.isFile() ? compiledFile.length() : 0;
+    }
+
+    private static long getTimeOfLastUse(Cassette cassette) {
+        Date dateTime = cassette.getDateTimeOfLastPlayback();
+        if (dateTime == null) {
+            dateTime = cassette.getDateTimeOfCompilation();
+        }
+        return dateTime == null ? 0 : dateTime.getTime();
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,230 @@
+package andrewtorski.cassette.domain.compile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File made of bytes held in memory and ranges of other files, laid out one after another.
+ * <p/>
+ * Joining audio files without decoding them mostly means copying their coded samples, with a
+ * few headers built around them. Described this way, the joined file may be written to the disk
+ * or sent over the network from any position, in both cases by {@link FileChannel#transferTo},
+ * without the samples ever passing through the Java heap.
+ */
+public final class JoinedFile {
+
+    /**
+     * Part of the joined file, either bytes or a range of a file.
+     */
+    private static final class Segment {
+        final long start;
+        final byte[] bytes;
+        final File file;
+        final long filePosition;
+        long length;
+
+        Segment(long start, byte[] bytes, File file, long filePosition, long length) {
+            this.start = start;
+            this.bytes = bytes;
+            this.file = file;
+            this.filePosition = filePosition;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Reads ranges of a JoinedFile, keeping the file of the last range read open.
+     */
+    public final class Transfer {
+
+        private int segmentIndex = -1;
+        private FileInputStream inputStream;
+        private File openFile;
+
+        private Transfer() {
+        }
+
+        /**
+         * Transfers bytes of the joined file, from provided position, into the target. Fewer
+         * bytes than requested are transferred if the target does not accept more, which a
+         * non-blocking socket does when its buffer is full.
+         *
+         * @param position Position in the joined file of the first byte to transfer.
+         * @param count    Maximal number of bytes to transfer.
+         * @param target   Channel to write into.
+         * @return Number of bytes transferred, possibly zero.
+         * @throws IOException If a file could not be read or the target could not be written.
+         */
+        public long transferTo(long position, long count, WritableByteChannel target)
+                throws IOException {
+            count = Math.min(count, length - position);
+            long transferred = 0;
+            while (transferred < count) {
+                Segment segment = findSegment(position + transferred);
+                long offset = position + transferred - segment.start;
+                long segmentCount = Math.min(count - transferred, segment.length - offset);
+                long written;
+                if (segment.bytes != null) {
+                    written = target.write(ByteBuffer.wrap(segment.bytes, (int) offset,
+                            (int) segmentCount));
+                } else {
+                    FileChannel channel = openChannel(segment.file);
+                    written = channel.transferTo(segment.filePosition + offset, segmentCount,
+                            target);
+                    if (written == 0 && segment.filePosition + offset >= channel.size()) {
+                        throw new IOException(segment.file.getPath() + " was truncated.");
+                    }
+                }
+                if (written <= 0) {
+                    break;
+                }
+                transferred += written;
+            }
+            return transferred;
+        }
+
+        public void close() throws IOException {
+            if (inputStream != null) {
+                inputStream.close();
+                inputStream = null;
+                openFile = null;
+            }
+        }
+
+        private Segment findSegment(long position) {
+            if (segmentIndex < 0 || position < segments.get(segmentIndex).start
+                    || position >= segments.get(segmentIndex).start + segments.get(segmentIndex).length) {
+                int low = 0, high = segments.size() - 1;
+                while (low < high) {
+                    int middle = (low + high + 1) >>> 1;
+                    if (segments.get(middle).start <= position) {
+                        low = middle;
+                    } else {
+                        high = middle - 1;
+                    }
+                }
+                segmentIndex = low;
+            }
+            return segments.get(segmentIndex);
+        }
+
+        private FileChannel openChannel(File file) throws IOException {
+            if (!file.equals(openFile)) {
+                close();
+                inputStream = new FileInputStream(file);
+                openFile = file;
+            }
+            return inputStream.getChannel();
+        }
+    }
+
+    //region Private fields
+
+    private final String contentType;
+
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    private long length;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new, empty instance of the JoinedFile.
+     *
+     * @param contentType MIME type of the joined file.
+     */
+    public JoinedFile(String contentType) {
+        this.contentType = contentType;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the length in bytes of the joined file.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Appends the provided bytes. The array must not be modified afterwards.
+     */
+    public void appendBytes(byte[] bytes) {
+        if (bytes.length > 0) {
+            segments.add(new Segment(length, bytes, null, 0, bytes.length));
+            length += bytes.length;
+        }
+    }
+
+    /**
+     * Appends a range of a file. A range which continues the range appended last is merged into
+     * it.
+     *
+     * @param file     File holding the range.
+     * @param position Position in the file of the first byte of the range.
+     * @param count    Number of bytes of the range.
+     */
+    public void appendRange(File file, long position, long count) {
+        if (count <= 0) {
+            return;
+        }
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.bytes == null && last.file.equals(file)
+                && last.filePosition + last.length == position) {
+            last.length += count;
+        } else {
+            segments.add(new Segment(length, null, file, position, count));
+        }
+        length += count;
+    }
+
+    /**
+     * Returns a new Transfer, which has to be closed once no longer needed.
+     */
+    public Transfer openTransfer() {
+        return new Transfer();
+    }
+
+    /**
+     * Writes the whole joined file into the provided file.
+     *
+     * @param output File to write. It is overwritten if it exists.
+     * @throws IOException If a file could not be read or the output could not be written.
+     */
+    public void writeTo(File output) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(output, "rw");
+        Transfer transfer = openTransfer();
+        try {
+            randomAccessFile.setLength(0);
+            FileChannel channel = randomAccessFile.getChannel();
+            long position = 0;
+            while (position < length) {
+                long transferred = transfer.transferTo(position, length - position, channel);
+                if (transferred <= 0) {
+                    throw new IOException("Could not write " + output.getPath());
+                }
+                position += transferred;
+            }
+        } finally {
+            transfer.close();
+            randomAccessFile.close();
+        }
+    }
+
+    //endregion Methods
+}
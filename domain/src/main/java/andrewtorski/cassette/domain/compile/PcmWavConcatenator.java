@@ -0,0 +1,83 @@
+package andrewtorski.cassette.domain.compile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.WavHeader;
+
+/**
+ * Joins WAVE files holding 16 bit PCM of equal formats by copying their samples behind one new
+ * header.
+ */
+public class PcmWavConcatenator {
+
+    /**
+     * MIME type of WAVE files.
+     */
+    public static final String CONTENT_TYPE = "audio/wav";
+
+    //region Methods
+
+    /**
+     * Reads the headers of the provided files, if all of them can be joined by copying.
+     *
+     * @param files WAVE files to join, in order.
+     * @return Headers of the files, or null if any of them is not a 16 bit PCM WAVE file or its
+     * format differs from that of the first file.
+     */
+    public List<WavHeader> readJoinableHeaders(List<File> files) {
+        List<WavHeader> headers = new ArrayList<WavHeader>(files.size());
+        for (File file : files) {
+            WavHeader header;
+            try {
+                FileInputStream inputStream = new FileInputStream(file);
+                try {
+                    header = WavHeader.read(inputStream.getChannel());
+                } finally {
+                    inputStream.close();
+                }
+            } catch (IOException e) {
+                return null;
+            }
+            if (header.getFormatTag() != WavHeader.FORMAT_PCM) {
+                return null;
+            }
+            if (!headers.isEmpty() && !headers.get(0).getPcmFormat().equals(header.getPcmFormat())) {
+                return null;
+            }
+            headers.add(header);
+        }
+        return headers.isEmpty() ? null : headers;
+    }
+
+    /**
+     * Describes the file joining the provided files without reading their samples.
+     *
+     * @param files   WAVE files to join, in order.
+     * @param headers Headers of the files, as returned by {@link #readJoinableHeaders(List)}.
+     * @return Joined WAVE file.
+     */
+    public JoinedFile layout(List<File> files, List<WavHeader> headers) {
+        PcmFormat format = headers.get(0).getPcmFormat();
+        long frameCount = 0;
+        for (WavHeader header : headers) {
+            frameCount += header.getFrameCount();
+        }
+
+        JoinedFile joinedFile = new JoinedFile(CONTENT_TYPE);
+        joinedFile.appendBytes(WavHeader.forPcm(format, frameCount).toBytes());
+        for (int i = 0; i < files.size(); i++) {
+            WavHeader header = headers.get(i);
+            //  Whole frames only, a torn last frame would shift the channels of what follows.
+            joinedFile.appendRange(files.get(i), header.getDataOffset(),
+                    header.getFrameCount() * format.getFrameSize());
+        }
+        return joinedFile;
+    }
+
+    //endregion Methods
+}
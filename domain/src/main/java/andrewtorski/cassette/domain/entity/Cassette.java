@@ -52,6 +52,12 @@ public class Cassette {
      */
     private String compiledFilePath;
 
+    /**
+     * Hash of the inputs from which the compiled audio file was made, the ordered Recordings and
+     * the settings of the compiler. Null if this Cassette was never compiled.
+     */
+    private String compiledInputsHash;
+
     /**
      * Compiled audio file.
      * This file is essentially all Recordings merged into one file.
@@ -65,6 +71,12 @@ public class Cassette {
      */
     private Date dateTimeOfCompilation;
 
+    /**
+     * Date and Time of when this Cassette was last played.
+     * This reference is null, if this Cassette was never played.
+     */
+    private Date dateTimeOfLastPlayback;
+
     /**
      * Number of the Recordings on this Cassette.
      */
@@ -179,6 +191,14 @@ public class Cassette {
         this.isCompiled = wasCompiled;
     }
 
+    public String getCompiledInputsHash() {
+        return compiledInputsHash;
+    }
+
+    public void setCompiledInputsHash(String compiledInputsHash) {
+        this.compiledInputsHash = compiledInputsHash;
+    }
+
     public File getCompiledFile() {
         return compiledFile;
     }
@@ -195,6 +215,14 @@ public class Cassette {
         this.dateTimeOfCompilation = dateTimeOfCompilation;
     }
 
+    public Date getDateTimeOfLastPlayback() {
+        return dateTimeOfLastPlayback;
+    }
+
+    public void setDateTimeOfLastPlayback(Date dateTimeOfLastPlayback) {
+        this.dateTimeOfLastPlayback = dateTimeOfLastPlayback;
+    }
+
     public int getNumberOfRecordings() {
         return numberOfRecordings;
     }
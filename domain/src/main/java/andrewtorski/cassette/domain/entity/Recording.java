@@ -3,6 +3,8 @@ package andrewtorski.cassette.domain.entity;
 import java.io.File;
 import java.util.Date;
 
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
+
 /**
  * Wraps an audio-file with data about a Recording.
  */
@@ -48,6 +50,29 @@ public class Recording {
      */
     private File audioFile;
 
+    /**
+     * Name of the {@link andrewtorski.cassette.domain.audio.AudioStorageFormat} in which the audio
+     * file is kept. Null if the audio file is kept as it was captured.
+     */
+    private String audioStorageFormat;
+
+    /**
+     * Codec of the audio file, as told by the
+     * {@link andrewtorski.cassette.domain.audio.AudioFileProbe}.
+     * Null if the audio file was not probed yet.
+     */
+    private String audioCodec;
+
+    /**
+     * Sample rate of the audio file. Meaningful only if the audio codec is known.
+     */
+    private int audioSampleRate;
+
+    /**
+     * Number of channels of the audio file. Meaningful only if the audio codec is known.
+     */
+    private int audioChannels;
+
     /**
      * Sequence of this Recording in the Cassette.
      * Cassette is compromised of many recordings. First recording will
@@ -109,6 +134,16 @@ public class Recording {
         this.sequenceInTheCassette = this.cassette.incrementAndReturnNumberOfRecordings();
     }
 
+    /**
+     * Constructor which should be used when the capture was finished some time after it started,
+     * e.g. when it was recovered after a crash.
+     */
+    public Recording(File audioFile, int lengthInMiliseconds, Cassette cassette,
+                     Date dateTimeOfRecording) {
+        this(audioFile, lengthInMiliseconds, cassette);
+        this.dateTimeOfRecording = dateTimeOfRecording;
+    }
+
     //endregion Constructors
 
     //region Getters
@@ -149,6 +184,58 @@ public class Recording {
         return audioFile;
     }
 
+    public String getAudioStorageFormat() {
+        return audioStorageFormat;
+    }
+
+    public void setAudioStorageFormat(String audioStorageFormat) {
+        this.audioStorageFormat = audioStorageFormat;
+    }
+
+    /**
+     * Points this Recording at a new audio file, e.g. after it was re-encoded.
+     */
+    public void setAudioFile(File audioFile, String audioStorageFormat) {
+        this.audioFile = audioFile;
+        this.audioFilePath = audioFile.getPath();
+        this.audioStorageFormat = audioStorageFormat;
+        this.audioCodec = null;
+    }
+
+    public String getAudioCodec() {
+        return audioCodec;
+    }
+
+    public int getAudioSampleRate() {
+        return audioSampleRate;
+    }
+
+    public int getAudioChannels() {
+        return audioChannels;
+    }
+
+    /**
+     * Returns what was learned about the audio file when it was probed, or null if it was not
+     * probed since it was last changed.
+     */
+    public AudioFileInfo getAudioFileInfo() {
+        if (audioCodec == null) {
+            return null;
+        }
+        return new AudioFileInfo(audioCodec, audioSampleRate, audioChannels, lengthInMiliseconds);
+    }
+
+    /**
+     * Caches what was learned about the audio file by probing it. The length of this Recording
+     * is set to the probed duration.
+     */
+    public void setAudioFileInfo(AudioFileInfo audioFileInfo) {
+        this.audioCodec = audioFileInfo.getCodec();
+        this.audioSampleRate = audioFileInfo.getSampleRate();
+        this.audioChannels = audioFileInfo.getChannels();
+        this.lengthInMiliseconds = (int) audioFileInfo.getDurationInMilliseconds();
+    }
+
     public int getSequenceInTheCassette() {
         return sequenceInTheCassette;
     }
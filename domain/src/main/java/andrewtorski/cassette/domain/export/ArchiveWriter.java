@@ -0,0 +1,40 @@
+package andrewtorski.cassette.domain.export;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes entries one after another into an archive file.
+ * Entries are stored as they are, without compression, and the archive is complete only after it
+ * is closed.
+ */
+public interface ArchiveWriter extends Closeable {
+
+    /**
+     * Appends an entry holding the content of the provided file.
+     * The content is moved from channel to channel, it never passes through the heap as a whole.
+     *
+     * @param name Name of the entry, using '/' as the separator.
+     * @param file File to store.
+     * @throws IOException If the file could not be read or the archive could not be written.
+     */
+    void putEntry(String name, File file) throws IOException;
+
+    /**
+     * Appends an entry holding the provided bytes.
+     *
+     * @param name         Name of the entry, using '/' as the separator.
+     * @param content      Content of the entry.
+     * @param lastModified Modification time of the entry, in milliseconds since the epoch.
+     * @throws IOException If the archive could not be written.
+     */
+    void putEntry(String name, byte[] content, long lastModified) throws IOException;
+
+    /**
+     * Closes the file without completing the archive and deletes it. Called instead of
+     * {@link #close()} once writing an entry failed, so that no archive is left behind which
+     * looks complete but lacks entries.
+     */
+    void abort();
+}
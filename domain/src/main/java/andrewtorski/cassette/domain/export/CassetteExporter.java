@@ -0,0 +1,115 @@
+package andrewtorski.cassette.domain.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import andrewtorski.cassette.domain.compile.CassetteCompiler;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Writes a Cassette with its Recordings into a single archive.
+ * <p/>
+ * The archive starts with {@code manifest.json}, built by {@link CassetteManifest}, followed by
+ * the audio file of every Recording under {@code recordings/}. Audio is stored uncompressed, as
+ * it hardly compresses anyway, and is moved from channel to channel, so the memory used by an
+ * export does not depend on the length of the Cassette.
+ */
+public class CassetteExporter {
+
+    /**
+     * Kind of the archive to write.
+     */
+    public enum Format {
+        ZIP("zip"),
+        TAR("tar");
+
+        private final String fileExtension;
+
+        Format(String fileExtension) {
+            this.fileExtension = fileExtension;
+        }
+
+        public String getFileExtension() {
+            return fileExtension;
+        }
+    }
+
+    public static final String MANIFEST_ENTRY_NAME = "manifest.json";
+
+    private static final String RECORDINGS_ENTRY_DIRECTORY = "recordings/";
+
+    private final Format format;
+
+    /**
+     * Initializes a new instance of the CassetteExporter.
+     *
+     * @param format Kind of the archive to write.
+     */
+    public CassetteExporter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Exports the provided Cassette.
+     *
+     * @param cassette   Cassette to export.
+     * @param recordings Its Recordings, in any order.
+     * @param output     File into which the archive is written. Overwritten if it exists, and
+     *                   deleted if the export fails.
+     * @throws IOException If an audio file could not be read or the archive could not be written.
+     */
+    public void export(Cassette cassette, List<Recording> recordings, File output)
+            throws IOException {
+        List<Recording> sortedRecordings = CassetteCompiler.orderBySequence(recordings);
+
+        //  Names are settled before anything is written, so the manifest can come first.
+        List<File> audioFiles = new ArrayList<File>(sortedRecordings.size());
+        List<String> audioFileNames = new ArrayList<String>(sortedRecordings.size());
+        for (Recording recording : sortedRecordings) {
+            File audioFile = recording.getAudioFilePath() == null
+                    ? null : new File(recording.getAudioFilePath());
+            if (audioFile == null || !audioFile.isFile()) {
+                audioFiles.add(null);
+                audioFileNames.add(null);
+                continue;
+            }
+            audioFiles.add(audioFile);
+            audioFileNames.add(RECORDINGS_ENTRY_DIRECTORY + entryName(recording, audioFile));
+        }
+
+        ArchiveWriter writer = format == Format.ZIP
+                ? new ZipArchiveWriter(output) : new TarArchiveWriter(output);
+        boolean isComplete = false;
+        try {
+            writer.putEntry(MANIFEST_ENTRY_NAME,
+                    CassetteManifest.build(cassette, sortedRecordings, audioFileNames),
+                    System.currentTimeMillis());
+            for (int i = 0; i < audioFiles.size(); i++) {
+                if (audioFiles.get(i) != null) {
+                    writer.putEntry(audioFileNames.get(i), audioFiles.get(i));
+                }
+            }
+            writer.close();
+            isComplete = true;
+        } finally {
+            if (!isComplete) {
+                writer.abort();
+            }
+        }
+    }
+
+    /**
+     * Names the entry after the position and id of the Recording, keeping the file's extension.
+     */
+    private static String entryName(Recording recording, File audioFile) {
+        String fileName = audioFile.getName();
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot == -1 ? "" : fileName.substring(dot);
+        return String.format(Locale.US, "%04d-%d%s", recording.getSequenceInTheCassette(),
+                recording.getId(), extension);
+    }
+}
@@ -0,0 +1,131 @@
+package andrewtorski.cassette.domain.export;
+
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Builds the JSON document which describes an exported Cassette and its Recordings.
+ * <p/>
+ * Dates are written in ISO 8601, in UTC. Every Recording names the archive entry holding its audio,
+ * or null if its audio file was missing at the time of the export.
+ */
+public final class CassetteManifest {
+
+    /**
+     * Version of the manifest layout, bumped whenever a reader would have to tell them apart.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Private constructor which prevents instantiating this class.
+     */
+    private CassetteManifest() {
+    }
+
+    /**
+     * Builds the manifest.
+     *
+     * @param cassette       Exported Cassette.
+     * @param recordings     Its Recordings, in the order of the export.
+     * @param audioFileNames Name of the entry holding the audio of the Recording at the same index,
+     *                       or null.
+     * @return UTF-8 encoded JSON.
+     */
+    public static byte[] build(Cassette cassette, List<Recording> recordings,
+                               List<String> audioFileNames) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"formatVersion\": ").append(FORMAT_VERSION).append(",\n");
+        json.append("  \"cassette\": {\n");
+        json.append("    \"id\": ").append(cassette.getId()).append(",\n");
+        json.append("    \"title\": ").append(quote(cassette.getTitle())).append(",\n");
+        json.append("    \"description\": ").append(quote(cassette.getDescription())).append(",\n");
+        json.append("    \"dateTimeOfCreation\": ")
+                .append(quote(format(dateFormat, cassette.getDateTimeOfCreation()))).append(",\n");
+        json.append("    \"lengthInMilliseconds\": ").append(cassette.getLength()).append(",\n");
+        json.append("    \"numberOfRecordings\": ").append(recordings.size()).append("\n");
+        json.append("  },\n");
+        json.append("  \"recordings\": [");
+        for (int i = 0; i < recordings.size(); i++) {
+            Recording recording = recordings.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\n");
+            json.append("      \"id\": ").append(recording.getId()).append(",\n");
+            json.append("      \"sequenceInTheCassette\": ")
+                    .append(recording.getSequenceInTheCassette()).append(",\n");
+            json.append("      \"title\": ").append(quote(recording.getTitle())).append(",\n");
+            json.append("      \"description\": ")
+                    .append(quote(recording.getDescripition())).append(",\n");
+            json.append("      \"dateTimeOfRecording\": ")
+                    .append(quote(format(dateFormat, recording.getDateTimeOfRecording())))
+                    .append(",\n");
+            json.append("      \"lengthInMilliseconds\": ")
+                    .append(recording.getLengthInMiliseconds()).append(",\n");
+            json.append("      \"audioStorageFormat\": ")
+                    .append(quote(recording.getAudioStorageFormat())).append(",\n");
+            json.append("      \"audioFile\": ").append(quote(audioFileNames.get(i))).append("\n");
+            json.append("    }");
+        }
+        json.append(recordings.isEmpty() ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+
+        return json.toString().getBytes(CHARSET);
+    }
+
+    //region Private helper methods
+
+    private static String format(SimpleDateFormat dateFormat, Date date) {
+        return date == null ? null : dateFormat.format(date);
+    }
+
+    /**
+     * Returns the provided string as a JSON string literal, or null as the JSON null.
+     */
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder(value.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    //endregion Private helper methods
+}
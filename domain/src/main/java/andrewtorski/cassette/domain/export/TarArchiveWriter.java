@@ -0,0 +1,195 @@
+package andrewtorski.cassette.domain.export;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Writes a POSIX ustar archive.
+ * <p/>
+ * Every entry is a 512 byte header followed by the content padded to a multiple of 512 bytes, so
+ * the content of a file is transferred straight from its channel into the archive. Sizes which do
+ * not fit the octal size field are written in the base-256 encoding understood by GNU and BSD tar.
+ */
+public class TarArchiveWriter implements ArchiveWriter {
+
+    //region Private fields
+
+    private static final int BLOCK_SIZE = 512;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Largest size which fits eleven octal digits.
+     */
+    private static final long MAXIMAL_OCTAL_SIZE = 077777777777L;
+
+    private final File file;
+    private final FileOutputStream outputStream;
+    private final FileChannel channel;
+
+    /**
+     * Header of the next entry; also used, zeroed, for padding.
+     */
+    private final ByteBuffer header = ByteBuffer.allocate(BLOCK_SIZE);
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the TarArchiveWriter.
+     *
+     * @param file File into which the archive is written. Overwritten if it exists.
+     * @throws IOException If the file could not be created.
+     */
+    public TarArchiveWriter(File file) throws IOException {
+        this.file = file;
+        this.outputStream = new FileOutputStream(file);
+        this.channel = outputStream.getChannel();
+    }
+
+    //endregion Constructor
+
+    //region ArchiveWriter
+
+    @Override
+    public void putEntry(String name, File file) throws IOException {
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            FileChannel source = inputStream.getChannel();
+            long size = source.size();
+            writeHeader(name, size, file.lastModified());
+            long position = 0;
+            while (position < size) {
+                long count = source.transferTo(position, size - position, channel);
+                if (count == 0 && source.size() < size) {
+                    throw new IOException(file.getPath() + " shrank while being archived.");
+                }
+                position += count;
+            }
+            writePadding(size);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Override
+    public void putEntry(String name, byte[] content, long lastModified) throws IOException {
+        writeHeader(name, content.length, lastModified);
+        writeFully(ByteBuffer.wrap(content));
+        writePadding(content.length);
+    }
+
+    /**
+     * Writes the two empty blocks which end the archive and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            header.clear();
+            zero(header);
+            writeFully(header);
+            header.clear();
+            writeFully(header);
+            channel.force(false);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    @Override
+    public void abort() {
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            //  The file is deleted anyway.
+        }
+        file.delete();
+    }
+
+    //endregion ArchiveWriter
+
+    //region Private helper methods
+
+    private void writeHeader(String name, long size, long lastModified) throws IOException {
+        byte[] nameBytes = name.getBytes(CHARSET);
+        if (nameBytes.length > 100) {
+            throw new IOException("Entry name is longer than 100 bytes: " + name);
+        }
+
+        header.clear();
+        zero(header);
+        header.put(nameBytes);
+        putOctal(100, 8, 0644);
+        putOctal(108, 8, 0);
+        putOctal(116, 8, 0);
+        if (size <= MAXIMAL_OCTAL_SIZE) {
+            putOctal(124, 12, size);
+        } else {
+            header.put(124, (byte) 0x80);
+            for (int i = 0; i < 8; i++) {
+                header.put(135 - i, (byte) (size >>> (i * 8)));
+            }
+        }
+        putOctal(136, 12, lastModified / 1000);
+        header.put(156, (byte) '0');
+        header.position(257);
+        header.put("ustar".getBytes(CHARSET)).put((byte) 0).put((byte) '0').put((byte) '0');
+
+        //  Checksum is computed with its own field filled with spaces.
+        for (int i = 148; i < 156; i++) {
+            header.put(i, (byte) ' ');
+        }
+        long checksum = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            checksum += header.get(i) & 0xFF;
+        }
+        putOctal(148, 7, checksum);
+
+        header.clear();
+        writeFully(header);
+    }
+
+    /**
+     * Writes the provided value as zero padded octal digits followed by a NUL.
+     */
+    private void putOctal(int offset, int length, long value) {
+        header.put(offset + length - 1, (byte) 0);
+        for (int i = offset + length - 2; i >= offset; i--) {
+            header.put(i, (byte) ('0' + (value & 7)));
+            value >>>= 3;
+        }
+    }
+
+    private void writePadding(long size) throws IOException {
+        int padding = (int) ((BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+        if (padding == 0) {
+            return;
+        }
+        header.clear();
+        zero(header);
+        header.clear();
+        header.limit(padding);
+        writeFully(header);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void zero(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) 0);
+        }
+        buffer.clear();
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,294 @@
+package andrewtorski.cassette.domain.export;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a ZIP archive of stored, uncompressed entries.
+ * <p/>
+ * {@link java.util.zip.ZipOutputStream} insists on pushing every byte through its own stream, so
+ * the format is written here instead. The CRC of a file is computed with one pass over a fixed
+ * buffer before its local header is written; the content itself is then transferred straight
+ * from channel to channel. Entries and archives beyond 4 GB use the ZIP64 extensions. Only the
+ * central directory, a few dozen bytes per entry, is kept in memory until the archive is closed.
+ */
+public class ZipArchiveWriter implements ArchiveWriter {
+
+    //region Private fields
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final short VERSION = 20;
+    private static final short ZIP64_VERSION = 45;
+    private static final short UTF8_NAMES_FLAG = 0x0800;
+    private static final short STORED = 0;
+    private static final short ZIP64_EXTRA_ID = 0x0001;
+
+    private static final long MAXIMAL_32_BIT_VALUE = 0xFFFFFFFFL;
+    private static final int MAXIMAL_16_BIT_VALUE = 0xFFFF;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private final File file;
+    private final FileOutputStream outputStream;
+    private final FileChannel channel;
+
+    /**
+     * Buffer for headers and for computing CRCs.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final CRC32 crc = new CRC32();
+
+    private final Calendar calendar = Calendar.getInstance();
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /**
+     * Number of bytes written so far.
+     */
+    private long position;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the ZipArchiveWriter.
+     *
+     * @param file File into which the archive is written. Overwritten if it exists.
+     * @throws IOException If the file could not be created.
+     */
+    public ZipArchiveWriter(File file) throws IOException {
+        this.file = file;
+        this.outputStream = new FileOutputStream(file);
+        this.channel = outputStream.getChannel();
+    }
+
+    //endregion Constructor
+
+    //region ArchiveWriter
+
+    @Override
+    public void putEntry(String name, File file) throws IOException {
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            FileChannel source = inputStream.getChannel();
+            long size = source.size();
+
+            crc.reset();
+            long read = 0;
+            while (read < size) {
+                buffer.clear();
+                int count = source.read(buffer, read);
+                if (count == -1) {
+                    throw new IOException(file.getPath() + " shrank while being archived.");
+                }
+                crc.update(buffer.array(), 0, count);
+                read += count;
+            }
+
+            Entry entry = newEntry(name, size, crc.getValue(), file.lastModified());
+            writeLocalFileHeader(entry);
+            long transferred = 0;
+            while (transferred < size) {
+                long count = source.transferTo(transferred, size - transferred, channel);
+                if (count == 0 && source.size() < size) {
+                    throw new IOException(file.getPath() + " shrank while being archived.");
+                }
+                transferred += count;
+            }
+            position += size;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Override
+    public void putEntry(String name, byte[] content, long lastModified) throws IOException {
+        crc.reset();
+        crc.update(content, 0, content.length);
+        Entry entry = newEntry(name, content.length, crc.getValue(), lastModified);
+        writeLocalFileHeader(entry);
+        writeFully(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * Writes the central directory and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            long centralDirectoryOffset = position;
+            for (Entry entry : entries) {
+                writeCentralDirectoryHeader(entry);
+            }
+            long centralDirectorySize = position - centralDirectoryOffset;
+
+            boolean isZip64 = entries.size() >= MAXIMAL_16_BIT_VALUE
+                    || centralDirectoryOffset >= MAXIMAL_32_BIT_VALUE
+                    || centralDirectorySize >= MAXIMAL_32_BIT_VALUE;
+            if (isZip64) {
+                long zip64EndOffset = position;
+                buffer.clear();
+                buffer.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE).putLong(44)
+                        .putShort(ZIP64_VERSION).putShort(ZIP64_VERSION)
+                        .putInt(0).putInt(0)
+                        .putLong(entries.size()).putLong(entries.size())
+                        .putLong(centralDirectorySize).putLong(centralDirectoryOffset);
+                buffer.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE).putInt(0)
+                        .putLong(zip64EndOffset).putInt(1);
+                flushBuffer();
+            }
+
+            buffer.clear();
+            buffer.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) Math.min(entries.size(), MAXIMAL_16_BIT_VALUE))
+                    .putShort((short) Math.min(entries.size(), MAXIMAL_16_BIT_VALUE))
+                    .putInt((int) Math.min(centralDirectorySize, MAXIMAL_32_BIT_VALUE))
+                    .putInt((int) Math.min(centralDirectoryOffset, MAXIMAL_32_BIT_VALUE))
+                    .putShort((short) 0);
+            flushBuffer();
+
+            channel.force(false);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    @Override
+    public void abort() {
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            //  The file is deleted anyway.
+        }
+        file.delete();
+    }
+
+    //endregion ArchiveWriter
+
+    //region Private helper methods
+
+    private Entry newEntry(String name, long size, long crc, long lastModified) {
+        Entry entry = new Entry();
+        entry.name = name.getBytes(CHARSET);
+        entry.size = size;
+        entry.crc = crc;
+        entry.offset = position;
+        entry.dosTime = toDosTime(lastModified);
+        entries.add(entry);
+        return entry;
+    }
+
+    private void writeLocalFileHeader(Entry entry) throws IOException {
+        boolean isZip64 = entry.size >= MAXIMAL_32_BIT_VALUE;
+        buffer.clear();
+        buffer.putInt(LOCAL_FILE_HEADER_SIGNATURE)
+                .putShort(isZip64 ? ZIP64_VERSION : VERSION)
+                .putShort(UTF8_NAMES_FLAG)
+                .putShort(STORED)
+                .putInt(entry.dosTime)
+                .putInt((int) entry.crc)
+                .putInt((int) (isZip64 ? MAXIMAL_32_BIT_VALUE : entry.size))
+                .putInt((int) (isZip64 ? MAXIMAL_32_BIT_VALUE : entry.size))
+                .putShort((short) entry.name.length)
+                .putShort((short) (isZip64 ? 20 : 0))
+                .put(entry.name);
+        if (isZip64) {
+            buffer.putShort(ZIP64_EXTRA_ID).putShort((short) 16).putLong(entry.size).putLong(entry.size);
+        }
+        flushBuffer();
+    }
+
+    private void writeCentralDirectoryHeader(Entry entry) throws IOException {
+        boolean isSizeZip64 = entry.size >= MAXIMAL_32_BIT_VALUE;
+        boolean isOffsetZip64 = entry.offset >= MAXIMAL_32_BIT_VALUE;
+        int extraLength = (isSizeZip64 || isOffsetZip64 ? 4 : 0)
+                + (isSizeZip64 ? 16 : 0) + (isOffsetZip64 ? 8 : 0);
+        short version = extraLength > 0 ? ZIP64_VERSION : VERSION;
+
+        buffer.clear();
+        buffer.putInt(CENTRAL_DIRECTORY_HEADER_SIGNATURE)
+                .putShort(version)
+                .putShort(version)
+                .putShort(UTF8_NAMES_FLAG)
+                .putShort(STORED)
+                .putInt(entry.dosTime)
+                .putInt((int) entry.crc)
+                .putInt((int) (isSizeZip64 ? MAXIMAL_32_BIT_VALUE : entry.size))
+                .putInt((int) (isSizeZip64 ? MAXIMAL_32_BIT_VALUE : entry.size))
+                .putShort((short) entry.name.length)
+                .putShort((short) extraLength)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putInt(0)
+                .putInt((int) (isOffsetZip64 ? MAXIMAL_32_BIT_VALUE : entry.offset))
+                .put(entry.name);
+        if (extraLength > 0) {
+            buffer.putShort(ZIP64_EXTRA_ID).putShort((short) (extraLength - 4));
+            if (isSizeZip64) {
+                buffer.putLong(entry.size).putLong(entry.size);
+            }
+            if (isOffsetZip64) {
+                buffer.putLong(entry.offset);
+            }
+        }
+        flushBuffer();
+    }
+
+    private int toDosTime(long time) {
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            position += channel.write(source);
+        }
+    }
+
+    //endregion Private helper methods
+
+    /**
+     * What the central directory has to know about an entry.
+     */
+    private static class Entry {
+        byte[] name;
+        long size;
+        long crc;
+        long offset;
+        int dosTime;
+    }
+}
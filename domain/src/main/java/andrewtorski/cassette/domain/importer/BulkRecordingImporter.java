@@ -0,0 +1,197 @@
+package andrewtorski.cassette.domain.importer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
+import andrewtorski.cassette.domain.audio.AudioFileProbe;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Imports a directory of audio files into a Cassette, creating one Recording per file.
+ * <p/>
+ * The import is a pipeline of three stages. Files are listed and sorted by name, which is the
+ * order of their Recordings in the Cassette. Headers of all files are then probed in parallel
+ * for their durations, nothing is decoded. Meanwhile the results are taken in the listed order,
+ * given consecutive sequence numbers and persisted in batches, each batch going into the
+ * database in chunked transactions instead of a commit per Recording. Time and throughput of every
+ * stage are reported in the returned {@link ImportReport}.
+ * <p/>
+ * Audio files are referenced where they are, they are neither copied nor moved.
+ */
+public class BulkRecordingImporter {
+
+    //region Private fields
+
+    private final RepositoryFacade repositoryFacade;
+    private final AudioFileProbe probe;
+    private final int probingThreads;
+    private final int batchSize;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the BulkRecordingImporter.
+     *
+     * @param repositoryFacade Facade through which the Cassette is read and Recordings persisted.
+     * @param probe            Probe which tells durations of audio files.
+     * @param probingThreads   Number of files probed at the same time.
+     * @param batchSize        Number of Recordings persisted at once.
+     */
+    public BulkRecordingImporter(RepositoryFacade repositoryFacade, AudioFileProbe probe,
+                                 int probingThreads, int batchSize) {
+        if (probingThreads < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("probingThreads and batchSize must be positive.");
+        }
+        this.repositoryFacade = repositoryFacade;
+        this.probe = probe;
+        this.probingThreads = probingThreads;
+        this.batchSize = batchSize;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Imports all files of the provided directory into the Cassette of the provided id.
+     * Subdirectories are not descended into. Files which are not audio the probe understands are
+     * skipped.
+     *
+     * @param directory  Directory to import.
+     * @param cassetteId Identifier of the Cassette into which Recordings are created.
+     * @return Report of the import, or null if no Cassette of provided id exists.
+     * @throws InterruptedException If the importing thread was interrupted. Recordings persisted
+     *                              until then are kept.
+     */
+    public ImportReport importDirectory(File directory, long cassetteId)
+            throws InterruptedException {
+        Cassette cassette = repositoryFacade.get(cassetteId, false);
+        if (cassette == null) {
+            return null;
+        }
+
+        ImportReport report = new ImportReport();
+
+        long listingStart = System.nanoTime();
+        File[] files = listFiles(directory);
+        report.getListing().add(files.length, 0, System.nanoTime() - listingStart);
+
+        ExecutorService executor = Executors.newFixedThreadPool(probingThreads);
+        final AtomicLong lastProbeEnd = new AtomicLong();
+        long probingStart = System.nanoTime();
+        try {
+            List<Future<AudioFileInfo>> probes = new ArrayList<Future<AudioFileInfo>>(files.length);
+            for (final File file : files) {
+                probes.add(executor.submit(new Callable<AudioFileInfo>() {
+                    @Override
+                    public AudioFileInfo call() throws Exception {
+                        try {
+                            return probe.probe(file);
+                        } finally {
+                            long end = System.nanoTime();
+                            long last;
+                            do {
+                                last = lastProbeEnd.get();
+                            } while (end > last && !lastProbeEnd.compareAndSet(last, end));
+                        }
+                    }
+                }));
+            }
+
+            List<Recording> batch = new ArrayList<Recording>(batchSize);
+            List<File> batchFiles = new ArrayList<File>(batchSize);
+            for (int i = 0; i < files.length; i++) {
+                AudioFileInfo info;
+                try {
+                    info = probes.get(i).get();
+                } catch (ExecutionException e) {
+                    report.addSkippedFile(files[i]);
+                    continue;
+                }
+                report.getProbing().add(1, files[i].length(), 0);
+
+                //  Sequence numbers are handed out here, in the listed order, whatever the order
+                //  in which probes finish.
+                Recording recording = new Recording(files[i],
+                        (int) info.getDurationInMilliseconds(), cassette,
+                        new Date(files[i].lastModified()));
+                recording.setAudioFileInfo(info);
+                batch.add(recording);
+                batchFiles.add(files[i]);
+                if (batch.size() == batchSize) {
+                    persist(batch, batchFiles, cassette, report);
+                }
+            }
+            persist(batch, batchFiles, cassette, report);
+        } finally {
+            executor.shutdownNow();
+            report.getProbing().setElapsedNanos(Math.max(0, lastProbeEnd.get() - probingStart));
+        }
+
+        repositoryFacade.update(cassette);
+
+        return report;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private static File[] listFiles(File directory) {
+        File[] entries = directory.listFiles();
+        if (entries == null) {
+            return new File[0];
+        }
+        List<File> files = new ArrayList<File>(entries.length);
+        for (File entry : entries) {
+            if (entry.isFile()) {
+                files.add(entry);
+            }
+        }
+        File[] sortedFiles = files.toArray(new File[files.size()]);
+        Arrays.sort(sortedFiles);
+        return sortedFiles;
+    }
+
+    private void persist(List<Recording> batch, List<File> batchFiles, Cassette cassette,
+                         ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Recording> persistedRecordings = repositoryFacade.createAll(batch);
+        report.getInserting().add(batch.size(), 0, System.nanoTime() - start);
+
+        int imported = 0;
+        for (int i = 0; i < persistedRecordings.size(); i++) {
+            Recording recording = persistedRecordings.get(i);
+            if (recording.getId() == -1) {
+                report.addSkippedFile(batchFiles.get(i));
+                continue;
+            }
+            cassette.setLength(cassette.getLength() + recording.getLengthInMiliseconds());
+            imported++;
+        }
+        report.addImportedRecordings(imported);
+
+        batch.clear();
+        batchFiles.clear();
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,134 @@
+package andrewtorski.cassette.domain.importer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of a {@link BulkRecordingImporter} run, with the throughput of each of its stages.
+ */
+public class ImportReport {
+
+    /**
+     * Work done by one stage of the import.
+     */
+    public static class StageStatistics {
+
+        private final String name;
+        private int items;
+        private long bytes;
+        private long elapsedNanos;
+
+        StageStatistics(String name) {
+            this.name = name;
+        }
+
+        void add(int items, long bytes, long elapsedNanos) {
+            this.items += items;
+            this.bytes += bytes;
+            this.elapsedNanos += elapsedNanos;
+        }
+
+        void setElapsedNanos(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getItems() {
+            return items;
+        }
+
+        /**
+         * Returns the size of the files handled by this stage, where it is meaningful.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getItemsPerSecond() {
+            return elapsedNanos == 0 ? 0 : items * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d items in %.1f ms (%.0f items/s)", name, items,
+                    elapsedNanos / 1e6, getItemsPerSecond());
+        }
+    }
+
+    //region Private fields
+
+    private final StageStatistics listing = new StageStatistics("listing");
+    private final StageStatistics probing = new StageStatistics("probing");
+    private final StageStatistics inserting = new StageStatistics("inserting");
+
+    private final List<File> skippedFiles = new ArrayList<File>();
+
+    private int importedRecordings;
+
+    //endregion Private fields
+
+    //region Getters
+
+    /**
+     * Returns statistics of listing the files to import.
+     */
+    public StageStatistics getListing() {
+        return listing;
+    }
+
+    /**
+     * Returns statistics of probing headers. Probes run in parallel, so the elapsed time is the
+     * wall clock time from the first probe started until the last one finished.
+     */
+    public StageStatistics getProbing() {
+        return probing;
+    }
+
+    /**
+     * Returns statistics of inserting Recordings. The elapsed time is the time spent in batches.
+     */
+    public StageStatistics getInserting() {
+        return inserting;
+    }
+
+    /**
+     * Returns files which were not imported, because they could not be probed or persisted.
+     */
+    public List<File> getSkippedFiles() {
+        return Collections.unmodifiableList(skippedFiles);
+    }
+
+    public int getImportedRecordings() {
+        return importedRecordings;
+    }
+
+    //endregion Getters
+
+    //region Package-private mutators
+
+    void addSkippedFile(File file) {
+        skippedFiles.add(file);
+    }
+
+    void addImportedRecordings(int count) {
+        importedRecordings += count;
+    }
+
+    //endregion Package-private mutators
+
+    @Override
+    public String toString() {
+        return "Imported " + importedRecordings + ", skipped " + skippedFiles.size() + "; "
+                + listing + "; " + probing + "; " + inserting;
+    }
+}
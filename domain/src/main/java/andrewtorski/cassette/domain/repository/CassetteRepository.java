@@ -29,6 +29,16 @@ public interface CassetteRepository {
      */
     Cassette get(final long cassetteId);
 
+    /**
+     * Retrieves Cassettes of provided ids, in the order of the ids, without their associated
+     * Recordings. Ids of which no Cassette exists are skipped.
+     * Cheaper than calling {@link #get(long)} for every id.
+     *
+     * @param cassetteIds Ids of the Cassettes.
+     * @return List of found Cassettes.
+     */
+    List<Cassette> getAll(long[] cassetteIds);
+
     /**
      * Returns a list of all Cassettes present.
      * These Cassettes do not include their associated Recordings.
@@ -57,6 +67,37 @@ public interface CassetteRepository {
      */
     boolean update(Cassette cassette);
 
+    /**
+     * Records that the Cassette was played at provided date and time, without writing anything
+     * else of it. The Cassette's date and time of last playback is updated as well.
+     *
+     * @param cassette Cassette which was played.
+     * @param dateTime Date and time of the playback.
+     * @return Was update successful.
+     */
+    boolean updateDateTimeOfLastPlayback(Cassette cassette, Date dateTime);
+
+    /**
+     * Writes only the compilation state of the Cassette: whether it is compiled, its compiled
+     * file path, the hash of the inputs it was compiled from and its date and time of
+     * compilation. Title, description, length and number of Recordings are left as they are
+     * stored, so a Cassette read before a long compilation does not overwrite later changes.
+     *
+     * @param cassette Cassette carrying the compilation state.
+     * @return Was update successful.
+     */
+    boolean updateCompilation(Cassette cassette);
+
+    /**
+     * Adds the provided difference to the length of the Cassette of provided id as it is stored,
+     * without writing anything else of it, so that concurrent updates of other fields are kept.
+     *
+     * @param cassetteId       Identifier of the Cassette.
+     * @param lengthDifference Milliseconds to add, negative to shorten the Cassette.
+     * @return Was update successful.
+     */
+    boolean addToLength(long cassetteId, int lengthDifference);
+
     /**
      * Deletes Cassette.
      *
@@ -78,6 +119,13 @@ public interface CassetteRepository {
      */
     int count();
 
+    /**
+     * Returns the ChangeNotifier through which the repository publishes ids of Cassettes it
+     * created, updated or deleted. Changes made by the database itself, such as a Cassette being
+     * marked not compiled when its Recordings change, are not published.
+     */
+    ChangeNotifier getChangeNotifier();
+
     //endregion Method stubs
 
 
@@ -0,0 +1,15 @@
+package andrewtorski.cassette.domain.repository;
+
+/**
+ * Is notified of changes made through a repository.
+ */
+public interface ChangeListener {
+
+    /**
+     * Called after changes were committed, on the thread which made them. Implementations which
+     * update the user interface have to post to the main thread themselves.
+     *
+     * @param changes Changed entities, never empty.
+     */
+    void onChange(ChangeSet changes);
+}
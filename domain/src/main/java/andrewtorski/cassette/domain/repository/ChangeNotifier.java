@@ -0,0 +1,142 @@
+package andrewtorski.cassette.domain.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes changes made through one repository to its {@link ChangeListener}s.
+ * <p/>
+ * Repositories publish a change once it was committed, so that listeners which read the changed
+ * entities see them as they were changed. Changes made by one bulk operation are collected in a
+ * {@link Batch} and published together, as one ChangeSet.
+ */
+public class ChangeNotifier {
+
+    /**
+     * Collects changes to be published as one ChangeSet. Not thread safe, a Batch belongs to the
+     * operation which began it.
+     */
+    public final class Batch {
+
+        private final Map<Long, ChangeSet.Type> changes = new LinkedHashMap<Long, ChangeSet.Type>();
+
+        private Batch() {
+        }
+
+        public void created(long id) {
+            ChangeSet.Type previous = changes.get(id);
+            //  An id which was deleted and created again names a different entity, listeners which
+            //  knew the old one have to read it again, as if it was updated.
+            changes.put(id, previous == ChangeSet.Type.DELETED
+                    ? ChangeSet.Type.UPDATED : ChangeSet.Type.CREATED);
+        }
+
+        public void updated(long id) {
+            if (!changes.containsKey(id)) {
+                changes.put(id, ChangeSet.Type.UPDATED);
+            }
+        }
+
+        public void deleted(long id) {
+            ChangeSet.Type previous = changes.get(id);
+            if (previous == ChangeSet.Type.CREATED) {
+                //  Never seen by listeners, nothing to tell them.
+                changes.remove(id);
+            } else {
+                changes.put(id, ChangeSet.Type.DELETED);
+            }
+        }
+
+        /**
+         * Publishes collected changes, if there are any. Must be called after they were
+         * committed.
+         */
+        public void publish() {
+            if (changes.isEmpty()) {
+                return;
+            }
+            int created = 0, updated = 0, deleted = 0;
+            for (ChangeSet.Type type : changes.values()) {
+                if (type == ChangeSet.Type.CREATED) {
+                    created++;
+                } else if (type == ChangeSet.Type.UPDATED) {
+                    updated++;
+                } else {
+                    deleted++;
+                }
+            }
+            long[] createdIds = new long[created], updatedIds = new long[updated],
+                    deletedIds = new long[deleted];
+            created = updated = deleted = 0;
+            for (Map.Entry<Long, ChangeSet.Type> entry : changes.entrySet()) {
+                if (entry.getValue() == ChangeSet.Type.CREATED) {
+                    createdIds[created++] = entry.getKey();
+                } else if (entry.getValue() == ChangeSet.Type.UPDATED) {
+                    updatedIds[updated++] = entry.getKey();
+                } else {
+                    deletedIds[deleted++] = entry.getKey();
+                }
+            }
+            changes.clear();
+            ChangeNotifier.this.publish(new ChangeSet(createdIds, updatedIds, deletedIds));
+        }
+    }
+
+    //region Private fields
+
+    private static final long[] NO_IDS = new long[0];
+
+    private final CopyOnWriteArrayList<ChangeListener> listeners =
+            new CopyOnWriteArrayList<ChangeListener>();
+
+    //endregion Private fields
+
+    //region Methods
+
+    /**
+     * Registers the listener. A listener registered more than once is notified once.
+     */
+    public void addListener(ChangeListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Returns a new, empty Batch.
+     */
+    public Batch beginBatch() {
+        return new Batch();
+    }
+
+    public void publishCreated(long id) {
+        publish(new ChangeSet(new long[]{id}, NO_IDS, NO_IDS));
+    }
+
+    public void publishUpdated(long id) {
+        publish(new ChangeSet(NO_IDS, new long[]{id}, NO_IDS));
+    }
+
+    public void publishDeleted(long id) {
+        publish(new ChangeSet(NO_IDS, NO_IDS, new long[]{id}));
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private void publish(ChangeSet changes) {
+        for (ChangeListener listener : listeners) {
+            listener.onChange(changes);
+        }
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,111 @@
+package andrewtorski.cassette.domain.repository;
+
+import java.util.Arrays;
+
+/**
+ * Ids of entities of one repository which were created, updated or deleted together.
+ * <p/>
+ * Each id appears in at most one of the three groups, changes to one entity within one
+ * notification having been coalesced into the net change.
+ */
+public final class ChangeSet {
+
+    /**
+     * Kind of change which happened to an entity.
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    //region Private fields
+
+    private final long[] createdIds;
+    private final long[] updatedIds;
+    private final long[] deletedIds;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    ChangeSet(long[] createdIds, long[] updatedIds, long[] deletedIds) {
+        this.createdIds = createdIds;
+        this.updatedIds = updatedIds;
+        this.deletedIds = deletedIds;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Returns ids of created entities, in order of creation. The array must not be modified.
+     */
+    public long[] getCreatedIds() {
+        return createdIds;
+    }
+
+    /**
+     * Returns ids of updated entities. The array must not be modified.
+     */
+    public long[] getUpdatedIds() {
+        return updatedIds;
+    }
+
+    /**
+     * Returns ids of deleted entities. The array must not be modified.
+     */
+    public long[] getDeletedIds() {
+        return deletedIds;
+    }
+
+    /**
+     * Returns how the entity of provided id changed, or null if it did not.
+     */
+    public Type getType(long id) {
+        if (contains(createdIds, id)) {
+            return Type.CREATED;
+        }
+        if (contains(updatedIds, id)) {
+            return Type.UPDATED;
+        }
+        if (contains(deletedIds, id)) {
+            return Type.DELETED;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of changed entities.
+     */
+    public int size() {
+        return createdIds.length + updatedIds.length + deletedIds.length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{created=" + Arrays.toString(createdIds)
+                + ", updated=" + Arrays.toString(updatedIds)
+                + ", deleted=" + Arrays.toString(deletedIds) + "}";
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private static boolean contains(long[] ids, long id) {
+        for (long element : ids) {
+            if (element == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,21 @@
+package andrewtorski.cassette.domain.repository;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterator over results which are read lazily from the persistence layer.
+ * Holds on to resources (like an open database cursor) until it is closed, so it has to be closed
+ * once iteration is finished, preferably in a finally block.
+ *
+ * @param <T> Type of the iterated elements.
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Releases all resources held by this iterator.
+     * Calling this method more than once has no effect.
+     */
+    @Override
+    void close();
+}
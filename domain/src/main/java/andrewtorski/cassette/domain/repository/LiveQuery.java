@@ -0,0 +1,192 @@
+package andrewtorski.cassette.domain.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query which is run again, on a background scheduler, whenever changes published by the
+ * repositories it reads from might have changed its result.
+ * <p/>
+ * Re-runs are debounced: a change schedules a run after a quiet period, and every change within
+ * that period postpones it, so a burst of changes costs one run. A run is never postponed for
+ * more than {@link #MAXIMAL_DELAY_FACTOR} quiet periods since the first change, so that a steady
+ * stream of changes still shows.
+ */
+public abstract class LiveQuery<T> implements Subscription {
+
+    /**
+     * How many quiet periods a run may be postponed for at most.
+     */
+    public static final int MAXIMAL_DELAY_FACTOR = 4;
+
+    /**
+     * Forwards changes of one notifier to the query.
+     */
+    private final class NotifierListener implements ChangeListener {
+        final ChangeNotifier notifier;
+
+        NotifierListener(ChangeNotifier notifier) {
+            this.notifier = notifier;
+        }
+
+        @Override
+        public void onChange(ChangeSet changes) {
+            if (!unsubscribed && isAffectedBy(notifier, changes)) {
+                scheduleRun(debounceMillis);
+            }
+        }
+    }
+
+    //region Private fields
+
+    private final ScheduledExecutorService scheduler;
+    private final long debounceMillis;
+    private final QueryObserver<T> observer;
+    private final List<NotifierListener> listeners = new ArrayList<NotifierListener>();
+
+    private volatile boolean unsubscribed;
+
+    /**
+     * Run which is scheduled but not started, or null.
+     */
+    private Future<?> scheduledRun;
+
+    /**
+     * Incremented by every scheduled run, so that a run knows whether it is the one scheduled
+     * last.
+     */
+    private int runGeneration;
+
+    /**
+     * When the first change of those the scheduled run waits for happened, in nanoseconds.
+     */
+    private long firstChangeTime;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the LiveQuery, which does nothing until started.
+     *
+     * @param scheduler      Scheduler on which the query is run.
+     * @param debounceMillis Quiet period after a change, before the query is run again.
+     * @param observer       Observer of the results.
+     */
+    protected LiveQuery(ScheduledExecutorService scheduler, long debounceMillis,
+                        QueryObserver<T> observer) {
+        this.scheduler = scheduler;
+        this.debounceMillis = debounceMillis;
+        this.observer = observer;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Starts listening to the provided notifiers and schedules the first run right away.
+     *
+     * @return This query, as a Subscription.
+     */
+    public Subscription start(ChangeNotifier... notifiers) {
+        for (ChangeNotifier notifier : notifiers) {
+            NotifierListener listener = new NotifierListener(notifier);
+            listeners.add(listener);
+            notifier.addListener(listener);
+        }
+        scheduleRun(0);
+        return this;
+    }
+
+    @Override
+    public void unsubscribe() {
+        unsubscribed = true;
+        for (NotifierListener listener : listeners) {
+            listener.notifier.removeListener(listener);
+        }
+        synchronized (this) {
+            if (scheduledRun != null) {
+                scheduledRun.cancel(false);
+                scheduledRun = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean isUnsubscribed() {
+        return unsubscribed;
+    }
+
+    //endregion Methods
+
+    //region Methods for subclasses
+
+    /**
+     * Runs the query. Called on the scheduler, never concurrently with itself if the scheduler
+     * has a single thread.
+     */
+    protected abstract T run();
+
+    /**
+     * Tells whether the changes might have changed the result. Called on the thread which made
+     * the changes, so it should not read the repositories. Every change counts by default.
+     *
+     * @param notifier Notifier which published the changes.
+     * @param changes  Published changes.
+     */
+    protected boolean isAffectedBy(ChangeNotifier notifier, ChangeSet changes) {
+        return true;
+    }
+
+    //endregion Methods for subclasses
+
+    //region Private helper methods
+
+    private synchronized void scheduleRun(long delayMillis) {
+        if (unsubscribed) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (scheduledRun != null) {
+            long deadline = firstChangeTime
+                    + TimeUnit.MILLISECONDS.toNanos(debounceMillis * MAXIMAL_DELAY_FACTOR);
+            if (!scheduledRun.cancel(false)) {
+                //  Started already, changes made from now on need a run of their own.
+                firstChangeTime = now;
+            } else {
+                delayMillis = Math.max(0, Math.min(delayMillis,
+                        TimeUnit.NANOSECONDS.toMillis(deadline - now)));
+            }
+        } else {
+            firstChangeTime = now;
+        }
+        final int generation = ++runGeneration;
+        scheduledRun = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                runScheduled(generation);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runScheduled(int generation) {
+        synchronized (this) {
+            if (generation == runGeneration) {
+                scheduledRun = null;
+            }
+            if (unsubscribed) {
+                return;
+            }
+        }
+        T result = run();
+        if (!unsubscribed) {
+            observer.onResult(result);
+        }
+    }
+
+    //endregion Private helper methods
+}
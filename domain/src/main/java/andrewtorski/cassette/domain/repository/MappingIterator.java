@@ -0,0 +1,47 @@
+package andrewtorski.cassette.domain.repository;
+
+/**
+ * {@link CloseableIterator} which maps elements of another CloseableIterator one by one, as they
+ * are reached. Closing it closes the mapped iterator.
+ *
+ * @param <S> Type of the mapped elements.
+ * @param <T> Type of the iterated elements.
+ */
+public abstract class MappingIterator<S, T> implements CloseableIterator<T> {
+
+    private final CloseableIterator<S> source;
+
+    /**
+     * Initializes a new instance of the MappingIterator.
+     *
+     * @param source Iterator whose elements are mapped.
+     */
+    public MappingIterator(CloseableIterator<S> source) {
+        this.source = source;
+    }
+
+    /**
+     * Maps a single element of the source iterator.
+     */
+    protected abstract T map(S element);
+
+    @Override
+    public boolean hasNext() {
+        return source.hasNext();
+    }
+
+    @Override
+    public T next() {
+        return map(source.next());
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+}
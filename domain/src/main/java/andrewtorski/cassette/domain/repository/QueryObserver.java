@@ -0,0 +1,16 @@
+package andrewtorski.cassette.domain.repository;
+
+/**
+ * Receives results of an observed query, first the current one and then a new one whenever
+ * the data it was read from changed.
+ */
+public interface QueryObserver<T> {
+
+    /**
+     * Called on the background thread which ran the query. Implementations which update the
+     * user interface have to post to the main thread themselves.
+     *
+     * @param result Result of the query, which may be null if the queried entity does not exist.
+     */
+    void onResult(T result);
+}
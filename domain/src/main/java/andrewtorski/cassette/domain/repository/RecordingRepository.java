@@ -3,8 +3,11 @@ package andrewtorski.cassette.domain.repository;
 import java.util.Date;
 import java.util.List;
 
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
 import andrewtorski.cassette.domain.entity.Cassette;
 import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
 
 /**
  * Defines contract for all implementing classes to realize in order to become a repository
@@ -20,6 +23,16 @@ public interface RecordingRepository {
      */
     Recording create(Recording recording);
 
+    /**
+     * Persists all provided Recordings, batching them into as few transactions as practical.
+     * Meant for creating many Recordings at once, e.g. when importing.
+     *
+     * @param recordings Recordings to persist.
+     * @return Persisted Recordings with their ids updated, in the order they were provided.
+     * Recordings which could not be persisted have an id of -1.
+     */
+    List<Recording> createAll(List<Recording> recordings);
+
     /**
      * Retrivies a Recording of specified id.
      * Returns null if no Recording was found.
@@ -28,6 +41,16 @@ public interface RecordingRepository {
      */
     Recording get(long id);
 
+    /**
+     * Retrieves Recordings of provided ids, in the order of the ids. Ids of which no Recording
+     * exists are skipped.
+     * Cheaper than calling {@link #get(long)} for every id.
+     *
+     * @param ids Identifiers of the Recordings.
+     * @return List of found Recordings.
+     */
+    List<Recording> getAll(long[] ids);
+
     /**
      * Updates the provided Recording.
      *
@@ -86,6 +109,53 @@ public interface RecordingRepository {
      */
     List<Recording> getAllBetweenDatesForCassette(Cassette cassette, Date fromDate, Date toDate);
 
+    /**
+     * Returns an iterator over Recordings which were recorded in the provided date span, newest
+     * first. Recordings are read lazily, one by one, so a span of any size can be walked without
+     * holding all of its Recordings in memory. Returned iterator has to be closed.
+     *
+     * @param fromDate From date.
+     * @param toDate   To date.
+     * @return CloseableIterator of Recordings.
+     */
+    CloseableIterator<Recording> iterateBetweenDates(Date fromDate, Date toDate);
+
+    /**
+     * Returns an iterator over Recordings of the provided Cassette which were recorded in the
+     * provided date span, newest first, read lazily like {@link #iterateBetweenDates(Date, Date)}.
+     * Returned iterator has to be closed.
+     *
+     * @param cassette Cassette for which a search for Recordings is performed.
+     * @param fromDate From date.
+     * @param toDate   To date.
+     * @return CloseableIterator of Recordings.
+     */
+    CloseableIterator<Recording> iterateBetweenDatesForCassette(Cassette cassette, Date fromDate, Date toDate);
+
+    /**
+     * Returns the number and total length of Recordings recorded in the provided date span,
+     * grouped into buckets of the provided span of time.
+     *
+     * @param timeBucket Span of time of a single bucket.
+     * @param fromDate   From date.
+     * @param toDate     To date.
+     * @return RecordingStatistics, oldest bucket first.
+     */
+    RecordingStatistics getStatistics(TimeBucket timeBucket, Date fromDate, Date toDate);
+
+    /**
+     * Returns the number and total length of Recordings of the provided Cassette recorded in the
+     * provided date span, grouped into buckets of the provided span of time.
+     *
+     * @param cassette   Cassette whose Recordings are counted.
+     * @param timeBucket Span of time of a single bucket.
+     * @param fromDate   From date.
+     * @param toDate     To date.
+     * @return RecordingStatistics, oldest bucket first.
+     */
+    RecordingStatistics getStatisticsForCassette(Cassette cassette, TimeBucket timeBucket, Date fromDate,
+                                                 Date toDate);
+
     /**
      * Returns all Recordings which title or description are like the provided search clause.
      *
@@ -98,4 +168,65 @@ public interface RecordingRepository {
      * Returns the number of Recordings present.
      */
     int count();
+
+    /**
+     * Returns the number of Recordings of the Cassette of provided id, 0 if there is no such
+     * Cassette.
+     */
+    int countForCassette(long cassetteId);
+
+    /**
+     * Returns an iterator over audio file paths of all Recordings.
+     * Paths are read lazily, so the whole collection of Recordings is never held in memory.
+     * Returned iterator has to be closed.
+     *
+     * @return CloseableIterator of audio file paths.
+     */
+    CloseableIterator<String> iterateAudioFilePaths();
+
+    /**
+     * Returns a page of Recordings recorded before the provided date, whose audio file is not
+     * kept in the provided storage format. Recordings are ordered by their date of recording,
+     * oldest first.
+     *
+     * @param recordedBefore Date before which returned Recordings were recorded.
+     * @param storageFormat  Name of the storage format to exclude.
+     * @param after          Last Recording of the previous page, or null for the first page.
+     * @param limit          Maximal number of returned Recordings.
+     * @return List of Recordings.
+     */
+    List<Recording> getAllRecordedBeforeNotInStorageFormat(Date recordedBefore, String storageFormat,
+                                                           Recording after, int limit);
+
+    /**
+     * Points the provided Recording at a new audio file, but only if the persisted Recording
+     * still points at the audio file the provided one has. The swap is atomic, readers see either
+     * the old or the new audio file. When the swap is made, the provided Recording is updated
+     * as well.
+     *
+     * @param recording          Recording to update.
+     * @param audioFilePath      New audio file path.
+     * @param audioStorageFormat Name of the storage format of the new audio file.
+     * @return Was the swap made.
+     */
+    boolean swapAudioFile(Recording recording, String audioFilePath, String audioStorageFormat);
+
+    /**
+     * Caches what was learned by probing the audio file of the provided Recording, so that it
+     * does not have to be probed again until its audio file changes. The length of the Recording
+     * is set to the probed duration. When the Recording is updated, the provided Recording is
+     * updated as well.
+     *
+     * @param recording     Recording whose audio file was probed.
+     * @param audioFileInfo Result of the probe.
+     * @return Was the Recording updated.
+     */
+    boolean updateAudioFileInfo(Recording recording, AudioFileInfo audioFileInfo);
+
+    /**
+     * Returns the ChangeNotifier through which the repository publishes ids of Recordings it
+     * created, updated or deleted. Recordings deleted together with their Cassette are not
+     * published, listeners learn of them from the deletion of the Cassette.
+     */
+    ChangeNotifier getChangeNotifier();
 }
@@ -0,0 +1,15 @@
+package andrewtorski.cassette.domain.repository;
+
+/**
+ * Handle of an observed query.
+ */
+public interface Subscription {
+
+    /**
+     * Stops the query from being run again and cancels a run which is scheduled but not started.
+     * A result being delivered while this is called is the last one.
+     */
+    void unsubscribe();
+
+    boolean isUnsubscribed();
+}
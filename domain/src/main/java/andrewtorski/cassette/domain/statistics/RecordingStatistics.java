@@ -0,0 +1,135 @@
+package andrewtorski.cassette.domain.statistics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Number of Recordings and their total length per {@link TimeBucket}, oldest bucket first.
+ * Buckets without Recordings are left out.
+ * <p/>
+ * Kept as parallel arrays of primitives rather than a list of objects, so that a few years of
+ * daily buckets stay small. The arrays are shared, not copied, and must not be modified.
+ */
+public class RecordingStatistics {
+
+    //region Private fields
+
+    private final TimeBucket timeBucket;
+    private final long[] bucketStarts;
+    private final int[] recordingCounts;
+    private final long[] totalLengths;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the RecordingStatistics. All arrays must be equally long.
+     *
+     * @param timeBucket      Span of every bucket.
+     * @param bucketStarts    Start of every bucket, epoch time, ascending.
+     * @param recordingCounts Number of Recordings in every bucket.
+     * @param totalLengths    Total length of Recordings in every bucket, in milliseconds.
+     */
+    public RecordingStatistics(TimeBucket timeBucket, long[] bucketStarts, int[] recordingCounts,
+                               long[] totalLengths) {
+        if (bucketStarts.length != recordingCounts.length || bucketStarts.length != totalLengths.length) {
+            throw new IllegalArgumentException("Arrays differ in length");
+        }
+        this.timeBucket = timeBucket;
+        this.bucketStarts = bucketStarts;
+        this.recordingCounts = recordingCounts;
+        this.totalLengths = totalLengths;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Groups the provided Recordings into buckets one by one. Meant for repositories which keep
+     * their Recordings in memory anyway; persistent ones should group them where they are stored.
+     *
+     * @param timeBucket Span of every bucket.
+     * @param recordings Recordings to group.
+     * @return RecordingStatistics of the Recordings.
+     */
+    public static RecordingStatistics compute(TimeBucket timeBucket, Iterable<Recording> recordings) {
+        Map<Long, long[]> buckets = new TreeMap<Long, long[]>();
+        for (Recording recording : recordings) {
+            long bucketStart = timeBucket.getStart(recording.getDateTimeOfRecording());
+            long[] bucket = buckets.get(bucketStart);
+            if (bucket == null) {
+                bucket = new long[2];
+                buckets.put(bucketStart, bucket);
+            }
+            bucket[0]++;
+            bucket[1] += recording.getLengthInMiliseconds();
+        }
+
+        long[] bucketStarts = new long[buckets.size()];
+        int[] recordingCounts = new int[buckets.size()];
+        long[] totalLengths = new long[buckets.size()];
+        int i = 0;
+        for (Map.Entry<Long, long[]> entry : buckets.entrySet()) {
+            bucketStarts[i] = entry.getKey();
+            recordingCounts[i] = (int) entry.getValue()[0];
+            totalLengths[i] = entry.getValue()[1];
+            i++;
+        }
+        return new RecordingStatistics(timeBucket, bucketStarts, recordingCounts, totalLengths);
+    }
+
+    //endregion Methods
+
+    //region Getters
+
+    public TimeBucket getTimeBucket() {
+        return timeBucket;
+    }
+
+    /**
+     * Returns the number of buckets.
+     */
+    public int size() {
+        return bucketStarts.length;
+    }
+
+    public long[] getBucketStarts() {
+        return bucketStarts;
+    }
+
+    public int[] getRecordingCounts() {
+        return recordingCounts;
+    }
+
+    public long[] getTotalLengths() {
+        return totalLengths;
+    }
+
+    /**
+     * Returns the number of Recordings in all buckets.
+     */
+    public int getRecordingCount() {
+        int count = 0;
+        for (int recordingCount : recordingCounts) {
+            count += recordingCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total length of Recordings in all buckets, in milliseconds.
+     */
+    public long getTotalLength() {
+        long length = 0;
+        for (long totalLength : totalLengths) {
+            length += totalLength;
+        }
+        return length;
+    }
+
+    //endregion Getters
+}
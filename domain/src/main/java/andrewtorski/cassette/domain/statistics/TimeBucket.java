@@ -0,0 +1,42 @@
+package andrewtorski.cassette.domain.statistics;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Span of calendar time into which Recordings are grouped by {@link RecordingStatistics}.
+ * Buckets follow the default time zone, so a day starts at local midnight. Weeks start on Monday.
+ */
+public enum TimeBucket {
+    DAY,
+    WEEK,
+    MONTH;
+
+    /**
+     * Returns the start of the bucket containing the provided date.
+     *
+     * @param date Date within the bucket.
+     * @return Start of the bucket, epoch time.
+     */
+    public long getStart(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        switch (this) {
+            case WEEK:
+                int daysSinceMonday = (calendar.get(Calendar.DAY_OF_WEEK) - Calendar.MONDAY + 7) % 7;
+                calendar.add(Calendar.DAY_OF_MONTH, -daysSinceMonday);
+                break;
+            case MONTH:
+                calendar.set(Calendar.DAY_OF_MONTH, 1);
+                break;
+            default:
+                break;
+        }
+        return calendar.getTimeInMillis();
+    }
+}
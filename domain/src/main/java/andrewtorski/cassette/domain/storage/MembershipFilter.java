@@ -0,0 +1,126 @@
+package andrewtorski.cassette.domain.storage;
+
+/**
+ * Compact, probabilistic set of Strings (a Bloom filter).
+ * <p/>
+ * {@link #mightContain(String)} never answers false for an added element, but may answer true for
+ * an element which was never added, with probability close to the one provided on construction.
+ * Memory used depends only on the expected number of elements, not on their length.
+ */
+public class MembershipFilter {
+
+    //region Private fields
+
+    private static final double LN_2 = Math.log(2);
+
+    /**
+     * Bit array, 64 bits per long.
+     */
+    private final long[] bits;
+
+    /**
+     * Number of addressable bits.
+     */
+    private final long numberOfBits;
+
+    /**
+     * Number of bits set for each added element.
+     */
+    private final int numberOfHashFunctions;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the MembershipFilter sized for the provided number of
+     * elements.
+     *
+     * @param expectedNumberOfElements Number of elements which will be added.
+     * @param falsePositiveProbability Desired probability of false positive answer, from (0, 1).
+     */
+    public MembershipFilter(int expectedNumberOfElements, double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability has to be in (0, 1).");
+        }
+        int n = Math.max(1, expectedNumberOfElements);
+
+        long optimalNumberOfBits = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (LN_2 * LN_2));
+        this.bits = new long[(int) Math.max(1, (optimalNumberOfBits + 63) >>> 6)];
+        this.numberOfBits = (long) bits.length << 6;
+        this.numberOfHashFunctions = Math.max(1, (int) Math.round((double) numberOfBits / n * LN_2));
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Adds the provided element to this filter.
+     */
+    public void add(String element) {
+        int firstHash = firstHash(element), secondHash = secondHash(element);
+        for (int i = 0; i < numberOfHashFunctions; i++) {
+            long index = bitIndex(firstHash + i * secondHash);
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    /**
+     * Returns false if the provided element was surely never added to this filter and true if it
+     * might have been.
+     */
+    public boolean mightContain(String element) {
+        int firstHash = firstHash(element), secondHash = secondHash(element);
+        for (int i = 0; i < numberOfHashFunctions; i++) {
+            long index = bitIndex(firstHash + i * secondHash);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the size of the bit array, in bytes.
+     */
+    public int getSizeInBytes() {
+        return bits.length * 8;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private long bitIndex(int combinedHash) {
+        return (combinedHash & 0xFFFFFFFFL) % numberOfBits;
+    }
+
+    /**
+     * String's own hash code with its bits spread by the MurmurHash3 finalizer.
+     */
+    private static int firstHash(String element) {
+        int h = element.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * FNV-1a hash of the element's characters. Forced to be odd, so that consecutive combined
+     * hashes never collapse into one.
+     */
+    private static int secondHash(String element) {
+        int h = 0x811C9DC5;
+        for (int i = 0, length = element.length(); i < length; i++) {
+            h ^= element.charAt(i);
+            h *= 0x01000193;
+        }
+        return h | 1;
+    }
+
+    //endregion Private helper methods
+}
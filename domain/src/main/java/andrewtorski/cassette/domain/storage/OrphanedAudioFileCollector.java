@@ -0,0 +1,171 @@
+package andrewtorski.cassette.domain.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import andrewtorski.cassette.domain.repository.CloseableIterator;
+import andrewtorski.cassette.domain.repository.RecordingRepository;
+
+/**
+ * Deletes audio files which are no longer referenced by any Recording.
+ * <p/>
+ * Deleting a Cassette removes its Recordings through the cascade, but leaves their audio files on
+ * the disk. This collector streams audio file paths of all Recordings into a
+ * {@link MembershipFilter}, then walks the recordings directory and deletes each file which is
+ * surely not in the filter and was last modified earlier than the grace period ago. A false
+ * positive of the filter only means that an orphaned file survives until the next run.
+ * <p/>
+ * A repository without any Recording next to a directory which is not empty means rather that
+ * the repository lost its data than that every file is orphaned, so nothing is deleted then.
+ * <p/>
+ * Walking the directory is rate limited, so that running the collector in the background does
+ * not compete with audio capture for I/O.
+ */
+public class OrphanedAudioFileCollector {
+
+    //region Private fields
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    /**
+     * Directory holding audio files of Recordings. It must not contain any other files.
+     */
+    private final File recordingsDirectory;
+
+    private final RecordingRepository recordingRepository;
+
+    /**
+     * Minimal age of a file for it to be deleted. Protects files of Recordings which are being
+     * captured, or were captured but are not persisted yet.
+     */
+    private final long gracePeriodInMilliseconds;
+
+    /**
+     * Maximal number of files examined per second.
+     */
+    private final int filesPerSecond;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the OrphanedAudioFileCollector.
+     *
+     * @param recordingsDirectory       Directory holding audio files of Recordings.
+     * @param recordingRepository       Repository of Recordings whose files are kept.
+     * @param gracePeriodInMilliseconds Minimal age of a file for it to be deleted.
+     * @param filesPerSecond            Maximal number of files examined per second, zero or less
+     *                                  for no limit.
+     */
+    public OrphanedAudioFileCollector(File recordingsDirectory, RecordingRepository recordingRepository,
+                                      long gracePeriodInMilliseconds, int filesPerSecond) {
+        this.recordingsDirectory = recordingsDirectory;
+        this.recordingRepository = recordingRepository;
+        this.gracePeriodInMilliseconds = gracePeriodInMilliseconds;
+        this.filesPerSecond = filesPerSecond;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Performs a single collection. Does nothing if the repository holds no Recordings but the
+     * recordings directory is not empty.
+     *
+     * @return Number of bytes reclaimed.
+     * @throws InterruptedException If the collecting thread was interrupted. Files deleted up to
+     *                              that point stay deleted.
+     */
+    public long collect() throws InterruptedException {
+        if (!recordingsDirectory.isDirectory()) {
+            return 0;
+        }
+        if (recordingRepository.count() == 0 && !isEmpty(recordingsDirectory)) {
+            return 0;
+        }
+
+        MembershipFilter referencedPaths = buildReferencedPathsFilter();
+        long modifiedBefore = System.currentTimeMillis() - gracePeriodInMilliseconds;
+        RateLimiter rateLimiter = new RateLimiter(filesPerSecond);
+
+        long bytesReclaimed = 0;
+        Deque<File> directories = new ArrayDeque<File>();
+        directories.push(recordingsDirectory);
+
+        while (!directories.isEmpty()) {
+            File[] children = directories.pop().listFiles();
+            if (children == null) {
+                continue;
+            }
+
+            for (File child : children) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                rateLimiter.acquire();
+
+                if (child.isDirectory()) {
+                    directories.push(child);
+                    continue;
+                }
+                if (child.lastModified() > modifiedBefore
+                        || referencedPaths.mightContain(normalize(child.getPath()))) {
+                    continue;
+                }
+
+                long length = child.length();
+                if (child.delete()) {
+                    bytesReclaimed += length;
+                }
+            }
+        }
+
+        return bytesReclaimed;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    private MembershipFilter buildReferencedPathsFilter() {
+        MembershipFilter filter = new MembershipFilter(recordingRepository.count(), FALSE_POSITIVE_PROBABILITY);
+
+        CloseableIterator<String> audioFilePaths = recordingRepository.iterateAudioFilePaths();
+        try {
+            while (audioFilePaths.hasNext()) {
+                String audioFilePath = audioFilePaths.next();
+                if (audioFilePath != null) {
+                    filter.add(normalize(audioFilePath));
+                }
+            }
+        } finally {
+            audioFilePaths.close();
+        }
+
+        return filter;
+    }
+
+    private static boolean isEmpty(File directory) {
+        String[] names = directory.list();
+        return names == null || names.length == 0;
+    }
+
+    /**
+     * Resolves the path, so that the same file reached through a symbolic link (like /sdcard)
+     * is never mistaken for an unreferenced one.
+     */
+    private static String normalize(String path) {
+        File file = new File(path);
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,53 @@
+package andrewtorski.cassette.domain.storage;
+
+/**
+ * Spaces out operations evenly, so that no more than the configured number of them happens in a
+ * second. Callers block in {@link #acquire()} until they are allowed to proceed.
+ * <p/>
+ * Not thread safe, each worker should have its own instance.
+ */
+public class RateLimiter {
+
+    private static final long NANOSECONDS_IN_SECOND = 1000000000L;
+    private static final long NANOSECONDS_IN_MILLISECOND = 1000000L;
+
+    /**
+     * Minimal time between two permits, zero if unlimited.
+     */
+    private final long intervalInNanoseconds;
+
+    /**
+     * Time at which the next permit becomes available, in terms of System.nanoTime().
+     */
+    private long nextPermitTime;
+
+    /**
+     * Initializes a new instance of the RateLimiter.
+     *
+     * @param permitsPerSecond Number of permits given out per second. Zero or less means no limit.
+     */
+    public RateLimiter(int permitsPerSecond) {
+        this.intervalInNanoseconds = permitsPerSecond > 0 ? NANOSECONDS_IN_SECOND / permitsPerSecond : 0;
+        this.nextPermitTime = System.nanoTime();
+    }
+
+    /**
+     * Blocks until the next operation may be performed.
+     *
+     * @throws InterruptedException If the waiting thread was interrupted.
+     */
+    public void acquire() throws InterruptedException {
+        if (intervalInNanoseconds == 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long waitTime = nextPermitTime - now;
+        if (waitTime > 0) {
+            Thread.sleep(waitTime / NANOSECONDS_IN_MILLISECOND, (int) (waitTime % NANOSECONDS_IN_MILLISECOND));
+            now = nextPermitTime;
+        }
+        //  Idle time is not saved up, so that a long pause is never followed by a burst.
+        nextPermitTime = now + intervalInNanoseconds;
+    }
+}
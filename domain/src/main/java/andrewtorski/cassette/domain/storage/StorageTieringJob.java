@@ -0,0 +1,182 @@
+package andrewtorski.cassette.domain.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import andrewtorski.cassette.domain.audio.AudioReader;
+import andrewtorski.cassette.domain.audio.AudioStorageFormat;
+import andrewtorski.cassette.domain.audio.AudioStorageFormats;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.repository.RecordingRepository;
+
+/**
+ * Re-encodes audio of old Recordings into a smaller storage format.
+ * <p/>
+ * Recordings older than the configured age are read page by page, oldest first. Each audio file
+ * is re-encoded next to the original and the Recording is then swapped onto the new file with a
+ * single, conditional update, so that a Recording edited in the meantime is left alone. The
+ * original file is never deleted here: its modification time is bumped, so it stays playable for
+ * whoever opened it before the swap, and {@link OrphanedAudioFileCollector} removes it once its
+ * grace period passes.
+ * <p/>
+ * Files which no known {@link AudioStorageFormat} can decode, like captures of device codecs,
+ * are skipped.
+ */
+public class StorageTieringJob {
+
+    //region Private fields
+
+    private static final int PAGE_SIZE = 32;
+
+    private static final int FRAMES_PER_BUFFER = 4096;
+
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    private final RecordingRepository recordingRepository;
+
+    /**
+     * Format into which old Recordings are re-encoded.
+     */
+    private final AudioStorageFormat targetFormat;
+
+    /**
+     * Minimal age of a Recording for it to be re-encoded.
+     */
+    private final long minimalAgeInMilliseconds;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the StorageTieringJob.
+     *
+     * @param recordingRepository      Repository of Recordings to re-encode.
+     * @param targetFormat             Format into which old Recordings are re-encoded.
+     * @param minimalAgeInMilliseconds Minimal age of a Recording for it to be re-encoded.
+     */
+    public StorageTieringJob(RecordingRepository recordingRepository, AudioStorageFormat targetFormat,
+                             long minimalAgeInMilliseconds) {
+        this.recordingRepository = recordingRepository;
+        this.targetFormat = targetFormat;
+        this.minimalAgeInMilliseconds = minimalAgeInMilliseconds;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Re-encodes all Recordings which are old enough and not in the target format yet.
+     *
+     * @return Number of bytes saved.
+     * @throws InterruptedException If the running thread was interrupted. Recordings re-encoded
+     *                              up to that point stay re-encoded.
+     */
+    public long run() throws InterruptedException {
+        Date recordedBefore = new Date(System.currentTimeMillis() - minimalAgeInMilliseconds);
+        String targetFormatName = targetFormat.getName();
+        short[] buffer = null;
+
+        long bytesSaved = 0;
+        Recording last = null;
+        List<Recording> page;
+        do {
+            page = recordingRepository.getAllRecordedBeforeNotInStorageFormat(recordedBefore,
+                    targetFormatName, last, PAGE_SIZE);
+
+            for (Recording recording : page) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                File source = new File(recording.getAudioFilePath());
+                AudioReader reader;
+                try {
+                    reader = AudioStorageFormats.createReader(source);
+                } catch (IOException e) {
+                    continue;
+                }
+
+                int requiredLength = FRAMES_PER_BUFFER * reader.getFormat().getChannels();
+                if (buffer == null || buffer.length < requiredLength) {
+                    buffer = new short[requiredLength];
+                }
+
+                bytesSaved += reencode(recording, source, reader, buffer);
+            }
+
+            if (!page.isEmpty()) {
+                last = page.get(page.size() - 1);
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        return bytesSaved;
+    }
+
+    //endregion Methods
+
+    //region Private helper methods
+
+    /**
+     * Re-encodes a single Recording and swaps it onto the new file.
+     *
+     * @return Number of bytes saved, zero if the Recording was left as it was.
+     */
+    private long reencode(Recording recording, File source, AudioReader reader, short[] buffer) {
+        File target = getTargetFile(source);
+        File temporary = new File(target.getPath() + TEMPORARY_FILE_SUFFIX);
+
+        try {
+            try {
+                AudioWriter writer = targetFormat.createWriter(temporary, reader.getFormat());
+                try {
+                    int channels = reader.getFormat().getChannels(), frames;
+                    while ((frames = reader.read(buffer, 0, buffer.length / channels)) > 0) {
+                        writer.write(buffer, 0, frames);
+                    }
+                } finally {
+                    writer.close();
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            temporary.delete();
+            return 0;
+        }
+
+        long sourceLength = source.length(), targetLength = temporary.length();
+        if (targetLength >= sourceLength || !temporary.renameTo(target)) {
+            temporary.delete();
+            return 0;
+        }
+
+        if (!recordingRepository.swapAudioFile(recording, target.getPath(), targetFormat.getName())) {
+            //  Recording was changed or deleted in the meantime.
+            target.delete();
+            return 0;
+        }
+
+        //  Restarts the grace period of the orphaned audio file collector.
+        source.setLastModified(System.currentTimeMillis());
+        return sourceLength - targetLength;
+    }
+
+    /**
+     * Returns the file into which the provided source is re-encoded, e.g.
+     * {@code capture.wav-ima-adpcm.wav} for {@code capture.wav}.
+     */
+    private File getTargetFile(File source) {
+        String name = source.getName();
+        int extensionStart = name.lastIndexOf('.');
+        String baseName = extensionStart > 0 ? name.substring(0, extensionStart) : name;
+        return new File(source.getParentFile(),
+                baseName + "." + targetFormat.getName() + "." + targetFormat.getFileExtension());
+    }
+
+    //endregion Private helper methods
+}
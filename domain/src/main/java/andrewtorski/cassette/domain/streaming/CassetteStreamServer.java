@@ -0,0 +1,714 @@
+package andrewtorski.cassette.domain.streaming;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.Mp4AudioTrack;
+import andrewtorski.cassette.domain.audio.WavHeader;
+import andrewtorski.cassette.domain.compile.AmrFrameConcatenator;
+import andrewtorski.cassette.domain.compile.CassetteCompiler;
+import andrewtorski.cassette.domain.compile.JoinedFile;
+import andrewtorski.cassette.domain.compile.PcmWavConcatenator;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Embedded HTTP server through which Cassettes are played by other devices and by external
+ * players, without copies being exported.
+ * <p/>
+ * Two resources are served for every Cassette, both to GET and HEAD requests, under the
+ * {@link #getBasePath() base path}:
+ * <ul>
+ * <li>{base}/cassettes/{id}/compiled - the compiled file of the Cassette, if it is compiled.</li>
+ * <li>{base}/cassettes/{id}/recordings - the Recordings of the Cassette joined in order, built on the
+ * fly from their files. Only Recordings which may be joined by copying are served this way,
+ * 3GP files holding AMR-NB or WAVE files holding PCM of one format.</li>
+ * </ul>
+ * A single byte range may be requested, as players do when seeking.
+ * <p/>
+ * One thread accepts connections and moves bytes between them and the sockets, none of its
+ * operations block. File data is sent by {@link java.nio.channels.FileChannel#transferTo} in
+ * slices, so that many slow clients share that thread fairly. Parsed requests are handed to a
+ * small pool of workers, because resolving them reads the database and the audio headers.
+ * <p/>
+ * The base path holds a random token issued every time the server is started, and requests
+ * without it are answered as if nothing was found. Only those the user gave a link to may
+ * therefore play Cassettes, and the links stop working once the server is stopped. The server
+ * should still be started only on the user's request.
+ */
+public class CassetteStreamServer {
+
+    //region Private fields
+
+    private static final String THREAD_NAME = "CassetteStreamServer";
+
+    /**
+     * Maximal size of the request line and the headers of one request.
+     */
+    private static final int MAXIMAL_REQUEST_HEAD_SIZE = 8 * 1024;
+
+    /**
+     * Maximal number of bytes sent to one connection before others get their turn.
+     */
+    private static final long MAXIMAL_TRANSFER_SIZE = 256 * 1024;
+
+    private static final Pattern RESOURCE_PATTERN =
+            Pattern.compile("/([0-9a-f]+)/cassettes/(\\d+)/(compiled|recordings)/?");
+
+    /**
+     * Number of random bytes of the token, written in hex.
+     */
+    private static final int TOKEN_SIZE = 16;
+
+    private static final String COMPILED_RESOURCE = "compiled";
+
+    private static final String OCTET_STREAM_CONTENT_TYPE = "application/octet-stream";
+
+    private static final long[] UNSATISFIABLE_RANGE = new long[0];
+
+    /**
+     * Charset of request and response heads.
+     */
+    private static final Charset ASCII = Charset.forName("ISO-8859-1");
+
+    private final RepositoryFacade facade;
+    private final InetAddress bindAddress;
+    private final int requestedPort;
+    private final int workerThreads;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final AmrFrameConcatenator amrConcatenator = new AmrFrameConcatenator();
+    private final PcmWavConcatenator wavConcatenator = new PcmWavConcatenator();
+
+    /**
+     * Connections whose responses were built by workers and are to be sent by the selector.
+     */
+    private final Queue<Connection> respondedConnections = new ConcurrentLinkedQueue<Connection>();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private ExecutorService workers;
+    private volatile String token;
+    private volatile boolean isRunning;
+
+    //endregion Private fields
+
+    //region Constructor
+
+    /**
+     * Initializes a new instance of the CassetteStreamServer, which does not listen until
+     * started.
+     *
+     * @param facade        Facade through which Cassettes and Recordings are read.
+     * @param bindAddress   Address to listen on, or null to listen on all addresses.
+     * @param port          Port to listen on, or 0 to let the system choose one.
+     * @param workerThreads Number of threads which resolve requests.
+     */
+    public CassetteStreamServer(RepositoryFacade facade, InetAddress bindAddress, int port,
+                                int workerThreads) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("workerThreads must be positive.");
+        }
+        this.facade = facade;
+        this.bindAddress = bindAddress;
+        this.requestedPort = port;
+        this.workerThreads = workerThreads;
+    }
+
+    //endregion Constructor
+
+    //region Methods
+
+    /**
+     * Starts listening, under a new {@link #getBasePath() base path}.
+     *
+     * @throws IOException If the port could not be bound.
+     */
+    public synchronized void start() throws IOException {
+        if (isRunning) {
+            return;
+        }
+        token = newToken();
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(new InetSocketAddress(bindAddress, requestedPort));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+
+        workers = Executors.newFixedThreadPool(workerThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, THREAD_NAME + "Worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        isRunning = true;
+        selectorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runSelector();
+            }
+        }, THREAD_NAME);
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * Stops listening and closes all connections, interrupting responses being sent.
+     */
+    public synchronized void stop() {
+        if (!isRunning) {
+            return;
+        }
+        isRunning = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Returns the port the server listens on, which is the one chosen by the system if 0 was
+     * requested.
+     */
+    public int getPort() {
+        return serverChannel == null ? requestedPort : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the path under which Cassettes are served since the server was last started, or
+     * null if it was never started. The path holds the token of that session, so it should be
+     * handed only to players the user chose.
+     */
+    public String getBasePath() {
+        String currentToken = token;
+        return currentToken == null ? null : "/" + currentToken;
+    }
+
+    //endregion Methods
+
+    //region Private helper classes
+
+    /**
+     * State of one client connection. Owned by the selector thread, except while a worker
+     * builds its response, during which the selector does not touch it.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer input = ByteBuffer.allocate(MAXIMAL_REQUEST_HEAD_SIZE);
+        Response response;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Response being sent, made of its head and a range of a JoinedFile.
+     */
+    private static final class Response {
+        final ByteBuffer head;
+        final boolean isKeepAlive;
+        final JoinedFile.Transfer transfer;
+        long position;
+        final long end;
+
+        Response(String head, boolean isKeepAlive, JoinedFile body, long position, long end) {
+            this.head = ByteBuffer.wrap(head.getBytes(ASCII));
+            this.isKeepAlive = isKeepAlive;
+            this.transfer = body == null ? null : body.openTransfer();
+            this.position = position;
+            this.end = end;
+        }
+
+        void close() {
+            if (transfer != null) {
+                try {
+                    transfer.close();
+                } catch (IOException e) {
+                    //  Only read from, nothing is lost.
+                }
+            }
+        }
+    }
+
+    /**
+     * Reported by workers when the request has to be answered with an error status.
+     */
+    private static final class HttpException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        final String extraHeaders;
+
+        HttpException(int status) {
+            this(status, "");
+        }
+
+        HttpException(int status, String extraHeaders) {
+            super(String.valueOf(status));
+            this.status = status;
+            this.extraHeaders = extraHeaders;
+        }
+    }
+
+    //endregion Private helper classes
+
+    //region Private helper methods - selector thread
+
+    private void runSelector() {
+        try {
+            while (isRunning) {
+                selector.select();
+
+                Connection responded;
+                while ((responded = respondedConnections.poll()) != null) {
+                    if (responded.key.isValid()) {
+                        responded.key.interestOps(SelectionKey.OP_WRITE);
+                    } else {
+                        responded.response.close();
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(connection);
+                        } else if (key.isWritable()) {
+                            write(connection);
+                        }
+                    } catch (IOException e) {
+                        close(connection);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            isRunning = false;
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    close((Connection) key.attachment());
+                }
+            }
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.input) < 0) {
+            close(connection);
+            return;
+        }
+        dispatch(connection);
+    }
+
+    /**
+     * Hands the first complete request of the connection to a worker, if one was received.
+     */
+    private void dispatch(final Connection connection) {
+        ByteBuffer input = connection.input;
+        int headEnd = findHeadEnd(input);
+        if (headEnd < 0) {
+            if (!input.hasRemaining()) {
+                respond(connection, new Response(statusHead(431, "", false), false, null, 0, 0));
+            }
+            return;
+        }
+
+        final String head = new String(input.array(), 0, headEnd, ASCII);
+        //  Keeps what follows, which is the start of the next pipelined request.
+        input.flip();
+        input.position(headEnd + 4);
+        input.compact();
+
+        connection.key.interestOps(0);
+        workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                connection.response = createResponse(head);
+                respondedConnections.add(connection);
+                selector.wakeup();
+            }
+        });
+    }
+
+    private void respond(Connection connection, Response response) {
+        connection.response = response;
+        connection.key.interestOps(SelectionKey.OP_WRITE);
+    }
+
+    private void write(Connection connection) throws IOException {
+        Response response = connection.response;
+        if (response.head.hasRemaining()) {
+            connection.channel.write(response.head);
+            if (response.head.hasRemaining()) {
+                return;
+            }
+        }
+
+        long budget = MAXIMAL_TRANSFER_SIZE;
+        while (response.position < response.end && budget > 0) {
+            long transferred = response.transfer.transferTo(response.position,
+                    Math.min(response.end - response.position, budget), connection.channel);
+            if (transferred == 0) {
+                return;
+            }
+            response.position += transferred;
+            budget -= transferred;
+        }
+        if (response.position < response.end) {
+            return;
+        }
+
+        response.close();
+        connection.response = null;
+        if (!response.isKeepAlive) {
+            close(connection);
+            return;
+        }
+        connection.key.interestOps(SelectionKey.OP_READ);
+        dispatch(connection);
+    }
+
+    private static void close(Connection connection) {
+        if (connection.response != null) {
+            connection.response.close();
+            connection.response = null;
+        }
+        connection.key.cancel();
+        closeQuietly(connection.channel);
+    }
+
+    private static int findHeadEnd(ByteBuffer input) {
+        byte[] bytes = input.array();
+        for (int i = 0; i + 3 < input.position(); i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r'
+                    && bytes[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException e) {
+            //  Nothing more can be done.
+        }
+    }
+
+    //endregion Private helper methods - selector thread
+
+    //region Private helper methods - workers
+
+    /**
+     * Builds the response to the request of provided head. Never throws, failures become error
+     * statuses.
+     */
+    private Response createResponse(String head) {
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            return new Response(statusHead(400, "", false), false, null, 0, 0);
+        }
+        String method = requestLine[0];
+        String connectionHeader = getHeader(lines, "Connection");
+        boolean isKeepAlive = requestLine[2].equals("HTTP/1.0")
+                ? "keep-alive".equalsIgnoreCase(connectionHeader)
+                : !"close".equalsIgnoreCase(connectionHeader);
+
+        try {
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                throw new HttpException(405, "Allow: GET, HEAD\r\n");
+            }
+            JoinedFile body = resolve(requestLine[1]);
+            long length = body.getLength();
+            String range = getHeader(lines, "Range");
+            long[] bounds = range == null ? null : parseRange(range, length);
+            if (bounds == UNSATISFIABLE_RANGE) {
+                throw new HttpException(416, "Content-Range: bytes */" + length + "\r\n");
+            }
+
+            long start = bounds == null ? 0 : bounds[0];
+            long end = bounds == null ? length : bounds[1] + 1;
+            StringBuilder builder = new StringBuilder();
+            builder.append(bounds == null ? "HTTP/1.1 200 OK\r\n" : "HTTP/1.1 206 Partial Content\r\n")
+                    .append("Content-Type: ").append(body.getContentType()).append("\r\n")
+                    .append("Content-Length: ").append(end - start).append("\r\n")
+                    .append("Accept-Ranges: bytes\r\n");
+            if (bounds != null) {
+                builder.append("Content-Range: bytes ").append(start).append('-').append(end - 1)
+                        .append('/').append(length).append("\r\n");
+            }
+            builder.append("Connection: ").append(isKeepAlive ? "keep-alive" : "close")
+                    .append("\r\n\r\n");
+
+            if (method.equals("HEAD")) {
+                return new Response(builder.toString(), isKeepAlive, null, 0, 0);
+            }
+            return new Response(builder.toString(), isKeepAlive, body, start, end);
+        } catch (HttpException e) {
+            return new Response(statusHead(e.status, e.extraHeaders, isKeepAlive), isKeepAlive,
+                    null, 0, 0);
+        } catch (IOException e) {
+            return new Response(statusHead(500, "", false), false, null, 0, 0);
+        } catch (RuntimeException e) {
+            return new Response(statusHead(500, "", false), false, null, 0, 0);
+        }
+    }
+
+    /**
+     * Returns the file served under provided request target.
+     */
+    private JoinedFile resolve(String target) throws HttpException, IOException {
+        int queryStart = target.indexOf('?');
+        String path = queryStart < 0 ? target : target.substring(0, queryStart);
+        Matcher matcher = RESOURCE_PATTERN.matcher(path);
+        if (!matcher.matches() || !isToken(matcher.group(1))) {
+            throw new HttpException(404);
+        }
+        long cassetteId;
+        try {
+            cassetteId = Long.parseLong(matcher.group(2));
+        } catch (NumberFormatException e) {
+            throw new HttpException(404);
+        }
+
+        if (matcher.group(3).equals(COMPILED_RESOURCE)) {
+            return resolveCompiled(cassetteId);
+        }
+        return resolveRecordings(cassetteId);
+    }
+
+    /**
+     * Compares in constant time, so that the token cannot be guessed byte by byte from how long
+     * requests take.
+     */
+    private boolean isToken(String candidate) {
+        return MessageDigest.isEqual(token.getBytes(ASCII), candidate.getBytes(ASCII));
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_SIZE];
+        random.nextBytes(bytes);
+        StringBuilder builder = new StringBuilder(TOKEN_SIZE * 2);
+        for (byte b : bytes) {
+            builder.append(String.format(Locale.US, "%02x", b & 0xFF));
+        }
+        return builder.toString();
+    }
+
+    private JoinedFile resolveCompiled(long cassetteId) throws HttpException, IOException {
+        Cassette cassette = facade.get(cassetteId, false);
+        if (cassette == null || !cassette.isCompiled() || cassette.getCompiledFilePath() == null) {
+            throw new HttpException(404);
+        }
+        File file = new File(cassette.getCompiledFilePath());
+        if (!file.isFile()) {
+            throw new HttpException(404);
+        }
+        JoinedFile joinedFile = new JoinedFile(sniffContentType(file));
+        joinedFile.appendRange(file, 0, file.length());
+        return joinedFile;
+    }
+
+    private JoinedFile resolveRecordings(long cassetteId) throws HttpException, IOException {
+        Cassette cassette = facade.get(cassetteId, true);
+        if (cassette == null || cassette.getRecordings() == null
+                || cassette.getRecordings().isEmpty()) {
+            throw new HttpException(404);
+        }
+        List<File> files = new ArrayList<File>();
+        for (Recording recording : CassetteCompiler.orderBySequence(cassette.getRecordings())) {
+            if (recording.getAudioFilePath() == null) {
+                throw new HttpException(404);
+            }
+            files.add(new File(recording.getAudioFilePath()));
+        }
+
+        List<Mp4AudioTrack> tracks = amrConcatenator.readJoinableTracks(files);
+        if (tracks != null) {
+            return amrConcatenator.layout(files, tracks);
+        }
+        List<WavHeader> headers = wavConcatenator.readJoinableHeaders(files);
+        if (headers != null) {
+            return wavConcatenator.layout(files, headers);
+        }
+        //  Other formats have to be decoded, which is what compilation is for.
+        throw new HttpException(415);
+    }
+
+    /**
+     * Parses the value of a Range header.
+     *
+     * @return Inclusive bounds of the range, null if the header is to be ignored, which it is
+     * when it is malformed or asks for more than one range, or {@link #UNSATISFIABLE_RANGE}.
+     */
+    private static long[] parseRange(String value, long length) {
+        value = value.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String specification = value.substring(6).trim();
+        int dash = specification.indexOf('-');
+        if (dash < 0 || specification.indexOf(',') >= 0) {
+            return null;
+        }
+        try {
+            String first = specification.substring(0, dash).trim();
+            String last = specification.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0 || length == 0) {
+                    return UNSATISFIABLE_RANGE;
+                }
+                return new long[]{Math.max(0, length - suffixLength), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return UNSATISFIABLE_RANGE;
+            }
+            return new long[]{start, Math.min(end, length - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String getHeader(String[] lines, String name) {
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0 && lines[i].substring(0, colon).trim().equalsIgnoreCase(name)) {
+                return lines[i].substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    private static String statusHead(int status, String extraHeaders, boolean isKeepAlive) {
+        return String.format(Locale.US, "HTTP/1.1 %d %s\r\nContent-Length: 0\r\n"
+                        + "Accept-Ranges: bytes\r\n%sConnection: %s\r\n\r\n", status,
+                getReasonPhrase(status), extraHeaders, isKeepAlive ? "keep-alive" : "close");
+    }
+
+    private static String getReasonPhrase(int status) {
+        switch (status) {
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 415:
+                return "Unsupported Media Type";
+            case 416:
+                return "Range Not Satisfiable";
+            case 431:
+                return "Request Header Fields Too Large";
+            default:
+                return "Internal Server Error";
+        }
+    }
+
+    /**
+     * Recognizes the container of a compiled file by its first bytes.
+     */
+    private static String sniffContentType(File file) throws IOException {
+        byte[] bytes = new byte[12];
+        int read = 0;
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            int count;
+            while (read < bytes.length && (count = inputStream.read(bytes, read, bytes.length - read)) > 0) {
+                read += count;
+            }
+        } finally {
+            inputStream.close();
+        }
+        if (read < bytes.length) {
+            return OCTET_STREAM_CONTENT_TYPE;
+        }
+        String magic = new String(bytes, ASCII);
+        if (magic.startsWith("RIFF") && magic.endsWith("WAVE")) {
+            return PcmWavConcatenator.CONTENT_TYPE;
+        }
+        if (magic.substring(4, 8).equals("ftyp")) {
+            return AmrFrameConcatenator.CONTENT_TYPE;
+        }
+        return OCTET_STREAM_CONTENT_TYPE;
+    }
+
+    //endregion Private helper methods - workers
+}
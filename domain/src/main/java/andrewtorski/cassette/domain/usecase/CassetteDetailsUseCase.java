@@ -1,9 +1,14 @@
 package andrewtorski.cassette.domain.usecase;
 
+import java.util.List;
+
 import javax.inject.Inject;
 
 import andrewtorski.cassette.domain.RepositoryFacade;
 import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.repository.QueryObserver;
+import andrewtorski.cassette.domain.repository.Subscription;
 
 public class CassetteDetailsUseCase extends AbstractUseCase {
 
@@ -18,4 +23,20 @@ public class CassetteDetailsUseCase extends AbstractUseCase {
         cassette = this.getFacade().get(cassetteId, true);
         return cassette;
     }
+
+    /**
+     * Delivers the Cassette of provided id, without its Recordings, and again whenever it
+     * changes. Results are delivered on a background thread.
+     */
+    public Subscription observeCassette(long cassetteId, QueryObserver<Cassette> observer) {
+        return this.getFacade().observe(cassetteId, observer);
+    }
+
+    /**
+     * Delivers the Recordings of the Cassette of provided id, and again whenever they change.
+     * Results are delivered on a background thread.
+     */
+    public Subscription observeRecordings(long cassetteId, QueryObserver<List<Recording>> observer) {
+        return this.getFacade().observeForCassette(cassetteId, observer);
+    }
 }
@@ -0,0 +1,132 @@
+package andrewtorski.cassette.domain.usecase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+import javax.inject.Inject;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.ImaAdpcmWavStorageFormat;
+import andrewtorski.cassette.domain.compile.CassetteCompiler;
+import andrewtorski.cassette.domain.entity.Cassette;
+
+/**
+ * Exposes functionality of compiling all Recordings of a Cassette into one audio file.
+ */
+public class CompileCassetteUseCase extends AbstractUseCase {
+
+    private static final String PARTIAL_OUTPUT_PREFIX = "-partial-";
+
+    private CassetteCompiler compiler;
+
+    @Inject
+    public CompileCassetteUseCase(RepositoryFacade facade) {
+        this(facade, new CassetteCompiler(new ImaAdpcmWavStorageFormat(), null));
+    }
+
+    public CompileCassetteUseCase(RepositoryFacade facade, CassetteCompiler compiler) {
+        super(facade);
+        this.compiler = compiler;
+    }
+
+    /**
+     * Compiles the Cassette of provided id into the provided file and marks it compiled.
+     * <p/>
+     * Compilation is skipped when the Cassette was already compiled from the same inputs, that is
+     * when the hash of its Recordings and compiler settings equals the one stored with the
+     * compiled file and that file still exists. The existing compiled file is kept then, even if
+     * it is not the provided one.
+     * <p/>
+     * Recordings may change while the Cassette is compiled, which may take minutes. The hash of
+     * its Recordings is therefore computed again afterwards, and the Cassette is marked compiled
+     * only if it still equals the one the file was compiled from. Either way only the compilation
+     * state of the Cassette is written, never its title, length or number of Recordings as read
+     * before the compilation.
+     *
+     * @param cassetteId Identifier of the Cassette to compile.
+     * @param output     File into which the Cassette is compiled.
+     * @return Compiled Cassette, or null if no Cassette of provided id exists.
+     * @throws IOException If any of the Recordings could not be read or the output could not be
+     *                     written, or the compiling thread was interrupted.
+     */
+    public Cassette compile(long cassetteId, File output) throws IOException {
+        return compile(cassetteId, output.getAbsoluteFile().getParentFile(), output.getName(), false);
+    }
+
+    /**
+     * Compiles the Cassette of provided id into a file of the provided directory, named after the
+     * provided base name and the extension of the format the compiler writes, and marks it
+     * compiled. Compilation is skipped like by {@link #compile(long, File)}.
+     *
+     * @param cassetteId Identifier of the Cassette to compile.
+     * @param directory  Directory into which the Cassette is compiled.
+     * @param baseName   Name of the compiled file, without the extension.
+     * @return Compiled Cassette, or null if no Cassette of provided id exists.
+     * @throws IOException If any of the Recordings could not be read or the output could not be
+     *                     written, or the compiling thread was interrupted.
+     */
+    public Cassette compile(long cassetteId, File directory, String baseName) throws IOException {
+        return compile(cassetteId, directory, baseName, true);
+    }
+
+    private Cassette compile(long cassetteId, File directory, String name, boolean isBaseName)
+            throws IOException {
+        Cassette cassette = this.getFacade().get(cassetteId, true);
+        if (cassette == null) {
+            return null;
+        }
+
+        String inputsHash = compiler.hashInputs(cassette.getRecordings());
+        if (isCompiledFrom(cassette, inputsHash)) {
+            cassette.setCompiledFile(new File(cassette.getCompiledFilePath()));
+            if (!cassette.isCompiled()) {
+                //  Inputs were changed since and then changed back.
+                cassette.setCompiled(true);
+                this.getFacade().updateCompilation(cassette);
+            }
+            return cassette;
+        }
+
+        File output = new File(directory, isBaseName
+                ? name + "." + compiler.getFileExtension(cassette.getRecordings()) : name);
+
+        //  Written aside and moved in place once complete, so that an interrupted compilation
+        //  never leaves a truncated file at the path of a previous one.
+        File partialOutput = File.createTempFile(output.getName() + PARTIAL_OUTPUT_PREFIX, null,
+                directory);
+        try {
+            compiler.compile(cassette.getRecordings(), partialOutput);
+            if (!partialOutput.renameTo(output) && !(output.delete() && partialOutput.renameTo(output))) {
+                throw new IOException("Could not move the compiled file to " + output.getPath());
+            }
+        } finally {
+            partialOutput.delete();
+        }
+
+        //  The file is recorded even if it turned out stale, so that it is replaced and deleted
+        //  like any other compiled file rather than leaked.
+        cassette.setCompiled(isUnchangedSince(cassetteId, inputsHash));
+        cassette.setCompiledFile(output);
+        cassette.setCompiledFilePath(output.getPath());
+        cassette.setCompiledInputsHash(inputsHash);
+        cassette.setDateTimeOfCompilation(new Date());
+        this.getFacade().updateCompilation(cassette);
+
+        return cassette;
+    }
+
+    /**
+     * Returns whether the Recordings of the Cassette of provided id still hash to provided value.
+     */
+    private boolean isUnchangedSince(long cassetteId, String inputsHash) {
+        Cassette current = this.getFacade().get(cassetteId, true);
+        return current != null && inputsHash.equals(compiler.hashInputs(current.getRecordings()));
+    }
+
+    private static boolean isCompiledFrom(Cassette cassette, String inputsHash) {
+        String compiledFilePath = cassette.getCompiledFilePath();
+        return inputsHash.equals(cassette.getCompiledInputsHash())
+                && compiledFilePath != null && new File(compiledFilePath).isFile();
+    }
+}
@@ -0,0 +1,43 @@
+package andrewtorski.cassette.domain.usecase;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.export.CassetteExporter;
+
+/**
+ * Exposes functionality of exporting a Cassette with all its Recordings into a single archive.
+ */
+public class ExportCassetteUseCase extends AbstractUseCase {
+
+    @Inject
+    public ExportCassetteUseCase(RepositoryFacade facade) {
+        super(facade);
+    }
+
+    /**
+     * Exports the Cassette of provided id into the provided file.
+     *
+     * @param cassetteId Identifier of the Cassette to export.
+     * @param format     Kind of the archive to write.
+     * @param output     File into which the archive is written. Overwritten if it exists.
+     * @return Exported Cassette, or null if no Cassette of provided id exists.
+     * @throws IOException If any of the audio files could not be read or the archive could not be
+     *                     written.
+     */
+    public Cassette export(long cassetteId, CassetteExporter.Format format, File output)
+            throws IOException {
+        Cassette cassette = this.getFacade().get(cassetteId, true);
+        if (cassette == null) {
+            return null;
+        }
+
+        new CassetteExporter(format).export(cassette, cassette.getRecordings(), output);
+
+        return cassette;
+    }
+}
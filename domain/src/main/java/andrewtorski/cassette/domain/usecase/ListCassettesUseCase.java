@@ -6,6 +6,7 @@ import javax.inject.Inject;
 
 import andrewtorski.cassette.domain.RepositoryFacade;
 import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.repository.ChangeListener;
 
 /**
  * Exposes functionality of listing all present Cassettes.
@@ -20,4 +21,23 @@ public class ListCassettesUseCase extends AbstractUseCase {
     public List<Cassette> cassettes() {
         return this.getFacade().getAll();
     }
+
+    /**
+     * Returns the Cassettes of provided ids which still exist, without their Recordings, read at
+     * once. Used to refresh listed Cassettes after they changed.
+     */
+    public List<Cassette> cassettes(long[] cassetteIds) {
+        return this.getFacade().getAll(cassetteIds);
+    }
+
+    /**
+     * Registers the listener to be told which Cassettes were created, updated or deleted.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        this.getFacade().getCassetteChangeNotifier().addListener(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        this.getFacade().getCassetteChangeNotifier().removeListener(listener);
+    }
 }
@@ -0,0 +1,52 @@
+package andrewtorski.cassette.domain.usecase;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
+import andrewtorski.cassette.domain.audio.AudioFileProbe;
+import andrewtorski.cassette.domain.entity.Recording;
+
+/**
+ * Exposes functionality of telling the duration and format of the audio file of a Recording.
+ * The audio file is probed once, what was learned is cached with the Recording until its audio
+ * file changes.
+ */
+public class ProbeRecordingUseCase extends AbstractUseCase {
+
+    private final AudioFileProbe probe;
+
+    @Inject
+    public ProbeRecordingUseCase(RepositoryFacade facade) {
+        this(facade, new AudioFileProbe());
+    }
+
+    public ProbeRecordingUseCase(RepositoryFacade facade, AudioFileProbe probe) {
+        super(facade);
+        this.probe = probe;
+    }
+
+    /**
+     * Returns the duration and format of the audio file of the provided Recording. If the audio
+     * file was not probed yet, it is probed and the result is persisted, correcting the length
+     * of the Recording and of its Cassette if they were off.
+     *
+     * @param recording Recording whose audio file to probe.
+     * @return What is known about the audio file.
+     * @throws IOException If the audio file could not be read or its format is unknown.
+     */
+    public AudioFileInfo getAudioFileInfo(Recording recording) throws IOException {
+        AudioFileInfo audioFileInfo = recording.getAudioFileInfo();
+        if (audioFileInfo != null) {
+            return audioFileInfo;
+        }
+
+        audioFileInfo = probe.probe(new File(recording.getAudioFilePath()));
+        this.getFacade().updateAudioFileInfo(recording, audioFileInfo);
+
+        return audioFileInfo;
+    }
+}
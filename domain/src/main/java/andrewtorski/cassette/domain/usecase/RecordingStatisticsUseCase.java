@@ -0,0 +1,37 @@
+package andrewtorski.cassette.domain.usecase;
+
+import java.util.Date;
+
+import javax.inject.Inject;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
+
+/**
+ * Exposes per day, per week and per month totals of Recordings, counted where they are stored
+ * rather than by reading every Recording.
+ */
+public class RecordingStatisticsUseCase extends AbstractUseCase {
+
+    @Inject
+    protected RecordingStatisticsUseCase(RepositoryFacade facade) {
+        super(facade);
+    }
+
+    /**
+     * Returns totals of Recordings of all Cassettes recorded in the provided date span.
+     */
+    public RecordingStatistics statistics(TimeBucket timeBucket, Date fromDate, Date toDate) {
+        return this.getFacade().getRecordingStatistics(timeBucket, fromDate, toDate);
+    }
+
+    /**
+     * Returns totals of Recordings of the Cassette of provided id recorded in the provided date
+     * span.
+     */
+    public RecordingStatistics statisticsForCassette(long cassetteId, TimeBucket timeBucket, Date fromDate,
+                                                     Date toDate) {
+        return this.getFacade().getRecordingStatistics(cassetteId, timeBucket, fromDate, toDate);
+    }
+}
@@ -0,0 +1,78 @@
+package andrewtorski.cassette.domain.audio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import andrewtorski.cassette.domain.audio.ImaAdpcmDecoder;
+import andrewtorski.cassette.domain.audio.ImaAdpcmEncoder;
+
+/**
+ * Throughput of IMA ADPCM encoding and decoding of one second of 44.1 kHz mono audio.
+ * <p/>
+ * Run with {@code gradle :domain:benchmark}. A score of N operations per second means the codec
+ * runs N times faster than real time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ImaAdpcmBenchmark {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int SAMPLES_PER_BLOCK = 2041;
+
+    private ImaAdpcmEncoder encoder;
+    private ImaAdpcmDecoder decoder;
+    private short[] pcm;
+    private byte[] encoded;
+    private int blocks;
+
+    @Setup
+    public void setUp() {
+        encoder = new ImaAdpcmEncoder(1, SAMPLES_PER_BLOCK);
+        decoder = new ImaAdpcmDecoder(1, SAMPLES_PER_BLOCK);
+        blocks = SAMPLE_RATE / SAMPLES_PER_BLOCK;
+        pcm = new short[blocks * SAMPLES_PER_BLOCK];
+
+        Random random = new Random(42);
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (8000 * Math.sin(2 * Math.PI * 220 * i / SAMPLE_RATE) + random.nextGaussian() * 300);
+        }
+
+        encoded = new byte[blocks * encoder.getBlockAlign()];
+        for (int block = 0; block < blocks; block++) {
+            encoder.encodeBlock(pcm, block * SAMPLES_PER_BLOCK, SAMPLES_PER_BLOCK, encoded,
+                    block * encoder.getBlockAlign());
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        for (int block = 0; block < blocks; block++) {
+            encoder.encodeBlock(pcm, block * SAMPLES_PER_BLOCK, SAMPLES_PER_BLOCK, encoded,
+                    block * encoder.getBlockAlign());
+        }
+        return encoded;
+    }
+
+    @Benchmark
+    public short[] decode() {
+        for (int block = 0; block < blocks; block++) {
+            decoder.decodeBlock(encoded, block * decoder.getBlockAlign(), pcm, block * SAMPLES_PER_BLOCK);
+        }
+        return pcm;
+    }
+}
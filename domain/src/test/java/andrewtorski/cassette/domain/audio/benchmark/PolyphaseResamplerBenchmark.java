@@ -0,0 +1,65 @@
+package andrewtorski.cassette.domain.audio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import andrewtorski.cassette.domain.audio.PolyphaseResampler;
+
+/**
+ * Throughput of converting one second of mono audio between common capture rates.
+ * <p/>
+ * Run with {@code gradle :domain:benchmark -Pinclude=PolyphaseResampler}. A score of N
+ * operations per second means the conversion runs N times faster than real time. Quality is
+ * checked by PolyphaseResamplerTest.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PolyphaseResamplerBenchmark {
+
+    private static final int FRAMES_PER_BLOCK = 4096;
+
+    @Param({"8000:44100", "44100:16000", "48000:44100"})
+    public String rates;
+
+    private PolyphaseResampler resampler;
+    private short[] input;
+    private short[] output;
+
+    @Setup
+    public void setUp() {
+        String[] parts = rates.split(":");
+        int inputRate = Integer.parseInt(parts[0]), outputRate = Integer.parseInt(parts[1]);
+        resampler = new PolyphaseResampler(inputRate, outputRate, 1);
+
+        input = new short[inputRate];
+        Random random = new Random(42);
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (short) (random.nextGaussian() * 3000);
+        }
+        output = new short[resampler.getMaximalOutputFrames(FRAMES_PER_BLOCK)];
+    }
+
+    @Benchmark
+    public short[] resampleOneSecond() {
+        for (int offset = 0; offset < input.length; offset += FRAMES_PER_BLOCK) {
+            resampler.process(input, offset, Math.min(FRAMES_PER_BLOCK, input.length - offset), output, 0);
+        }
+        return output;
+    }
+}
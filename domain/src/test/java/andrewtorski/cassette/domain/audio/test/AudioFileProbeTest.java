@@ -0,0 +1,240 @@
+package andrewtorski.cassette.domain.audio.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
+import andrewtorski.cassette.domain.audio.AudioFileProbe;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.ImaAdpcmWavStorageFormat;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+
+public class AudioFileProbeTest {
+
+    private File directory;
+    private AudioFileProbe probe;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("probe", "");
+        directory.delete();
+        directory.mkdirs();
+        probe = new AudioFileProbe();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_probe_ImaAdpcmWav() throws IOException {
+        //  Arrange
+        File file = new File(directory, "a.wav");
+        AudioWriter writer = new ImaAdpcmWavStorageFormat().createWriter(file, new PcmFormat(16000, 2));
+        try {
+            writer.write(new short[2 * 8000], 0, 8000);
+        } finally {
+            writer.close();
+        }
+
+        //  Act
+        AudioFileInfo info = probe.probe(file);
+
+        //  Assert
+        Assert.assertEquals(AudioFileInfo.CODEC_IMA_ADPCM, info.getCodec());
+        Assert.assertEquals(16000, info.getSampleRate());
+        Assert.assertEquals(2, info.getChannels());
+        Assert.assertEquals(500, info.getDurationInMilliseconds());
+    }
+
+    @Test
+    public void Test_probe_3gpWithMoovAfterMdat() throws IOException {
+        //  Arrange
+        File file = write("a.3gp", mp4(0, 8000, 10400, "samr", 1));
+
+        //  Act
+        AudioFileInfo info = probe.probe(file);
+
+        //  Assert
+        Assert.assertEquals(AudioFileInfo.CODEC_AMR_NB, info.getCodec());
+        Assert.assertEquals(8000, info.getSampleRate());
+        Assert.assertEquals(1, info.getChannels());
+        Assert.assertEquals(1300, info.getDurationInMilliseconds());
+    }
+
+    @Test
+    public void Test_probe_Mp4WithVersion1MediaHeader() throws IOException {
+        //  Arrange
+        File file = write("a.m4a", mp4(1, 44100, 441000L * 3, "mp4a", 2));
+
+        //  Act
+        AudioFileInfo info = probe.probe(file);
+
+        //  Assert
+        Assert.assertEquals(AudioFileInfo.CODEC_AAC, info.getCodec());
+        Assert.assertEquals(44100, info.getSampleRate());
+        Assert.assertEquals(2, info.getChannels());
+        Assert.assertEquals(30000, info.getDurationInMilliseconds());
+    }
+
+    @Test
+    public void Test_probe_AmrWithConstantFrameType() throws IOException {
+        //  Arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write("#!AMR\n".getBytes("US-ASCII"));
+        for (int i = 0; i < 250; i++) {
+            //  Frame type 7, 12.2 kbit/s, 32 bytes with the header.
+            bytes.write(7 << 3 | 0x04);
+            bytes.write(new byte[31]);
+        }
+
+        //  Act
+        AudioFileInfo info = probe.probe(write("a.amr", bytes.toByteArray()));
+
+        //  Assert
+        Assert.assertEquals(AudioFileInfo.CODEC_AMR_NB, info.getCodec());
+        Assert.assertEquals(8000, info.getSampleRate());
+        Assert.assertEquals(5000, info.getDurationInMilliseconds());
+    }
+
+    @Test
+    public void Test_probe_AmrWithMixedFrameTypesIsWalked() throws IOException {
+        //  Arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write("#!AMR\n".getBytes("US-ASCII"));
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 == 0) {
+                //  Frame type 8, comfort noise, 6 bytes with the header.
+                bytes.write(8 << 3 | 0x04);
+                bytes.write(new byte[5]);
+            } else {
+                //  Frame type 0, 4.75 kbit/s, 13 bytes with the header.
+                bytes.write(0x04);
+                bytes.write(new byte[12]);
+            }
+        }
+
+        //  Act
+        AudioFileInfo info = probe.probe(write("a.amr", bytes.toByteArray()));
+
+        //  Assert
+        Assert.assertEquals(20000, info.getDurationInMilliseconds());
+    }
+
+    @Test(expected = IOException.class)
+    public void Test_probe_UnknownFormatThrows() throws IOException {
+        //  Act
+        probe.probe(write("a.txt", "plain text, no audio".getBytes("US-ASCII")));
+    }
+
+    //region Private helper methods
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(directory, name);
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+        return file;
+    }
+
+    /**
+     * Builds an MP4 file holding a video-less track preceded by a non-sound track, with the moov
+     * box after a large mdat, as MediaRecorder writes them.
+     */
+    private static byte[] mp4(int mdhdVersion, int timescale, long duration, String format,
+                              int channels) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(file);
+        box(out, "ftyp", "3gp4\0\0\0\0isom3gp4".getBytes("US-ASCII"));
+        box(out, "mdat", new byte[100000]);
+
+        byte[] textTrak = box("trak", box("mdia", box("hdlr", handler("text"))));
+
+        ByteArrayOutputStream mdhd = new ByteArrayOutputStream();
+        DataOutputStream mdhdOut = new DataOutputStream(mdhd);
+        mdhdOut.writeInt(mdhdVersion << 24);
+        if (mdhdVersion == 1) {
+            mdhdOut.writeLong(0);
+            mdhdOut.writeLong(0);
+            mdhdOut.writeInt(timescale);
+            mdhdOut.writeLong(duration);
+        } else {
+            mdhdOut.writeInt(0);
+            mdhdOut.writeInt(0);
+            mdhdOut.writeInt(timescale);
+            mdhdOut.writeInt((int) duration);
+        }
+        mdhdOut.writeInt(0);
+
+        ByteArrayOutputStream stsd = new ByteArrayOutputStream();
+        DataOutputStream stsdOut = new DataOutputStream(stsd);
+        stsdOut.writeInt(0);
+        stsdOut.writeInt(1);
+        stsdOut.writeInt(36);
+        stsdOut.write(format.getBytes("US-ASCII"));
+        stsdOut.write(new byte[6]);
+        stsdOut.writeShort(1);
+        stsdOut.write(new byte[8]);
+        stsdOut.writeShort(channels);
+        stsdOut.writeShort(16);
+        stsdOut.writeInt(0);
+        stsdOut.writeInt(timescale << 16);
+
+        byte[] soundTrak = box("trak", concat(box("tkhd", new byte[84]), box("mdia", concat(
+                box("mdhd", mdhd.toByteArray()),
+                box("hdlr", handler("soun")),
+                box("minf", box("stbl", box("stsd", stsd.toByteArray())))))));
+
+        box(out, "moov", concat(box("mvhd", new byte[100]), textTrak, soundTrak));
+        return file.toByteArray();
+    }
+
+    private static byte[] handler(String type) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[8]);
+        bytes.write(type.getBytes("US-ASCII"));
+        bytes.write(new byte[13]);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] box(String type, byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        box(new DataOutputStream(bytes), type, payload);
+        return bytes.toByteArray();
+    }
+
+    private static void box(DataOutputStream out, String type, byte[] payload) throws IOException {
+        out.writeInt(8 + payload.length);
+        out.write(type.getBytes("US-ASCII"));
+        out.write(payload);
+    }
+
+    private static byte[] concat(byte[]... parts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            bytes.write(part);
+        }
+        return bytes.toByteArray();
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,187 @@
+package andrewtorski.cassette.domain.audio.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import andrewtorski.cassette.domain.audio.AudioReader;
+import andrewtorski.cassette.domain.audio.AudioStorageFormat;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.ImaAdpcmDecoder;
+import andrewtorski.cassette.domain.audio.ImaAdpcmEncoder;
+import andrewtorski.cassette.domain.audio.ImaAdpcmWavStorageFormat;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+
+public class ImaAdpcmTest {
+
+    private static final int SAMPLES_PER_BLOCK = 505;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("adpcm", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_encodeBlock_DecodedBlockIsCloseToOriginal() {
+        //  Arrange
+        short[] original = voiceLikeSignal(SAMPLES_PER_BLOCK * 20, 1, 8000);
+        ImaAdpcmEncoder encoder = new ImaAdpcmEncoder(1, SAMPLES_PER_BLOCK);
+        ImaAdpcmDecoder decoder = new ImaAdpcmDecoder(1, SAMPLES_PER_BLOCK);
+        byte[] block = new byte[encoder.getBlockAlign()];
+        short[] decoded = new short[original.length];
+
+        //  Act
+        for (int offset = 0; offset < original.length; offset += SAMPLES_PER_BLOCK) {
+            encoder.encodeBlock(original, offset, SAMPLES_PER_BLOCK, block, 0);
+            decoder.decodeBlock(block, 0, decoded, offset);
+        }
+
+        //  Assert
+        Assert.assertEquals(256, encoder.getBlockAlign());
+        double snr = signalToNoiseRatio(original, decoded, original.length);
+        Assert.assertTrue("SNR was " + snr + " dB", snr > 25);
+    }
+
+    @Test
+    public void Test_encodeBlock_StereoChannelsAreKeptApart() {
+        //  Arrange
+        int frames = SAMPLES_PER_BLOCK;
+        short[] original = new short[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            original[i * 2] = (short) (8000 * Math.sin(2 * Math.PI * 300 * i / 8000));
+            original[i * 2 + 1] = 0;
+        }
+        ImaAdpcmEncoder encoder = new ImaAdpcmEncoder(2, SAMPLES_PER_BLOCK);
+        ImaAdpcmDecoder decoder = new ImaAdpcmDecoder(2, SAMPLES_PER_BLOCK);
+        byte[] block = new byte[encoder.getBlockAlign()];
+        short[] decoded = new short[original.length];
+
+        //  Act
+        encoder.encodeBlock(original, 0, frames, block, 0);
+        decoder.decodeBlock(block, 0, decoded, 0);
+
+        //  Assert
+        for (int i = 0; i < frames; i++) {
+            Assert.assertTrue("Right channel leaked at " + i, Math.abs(decoded[i * 2 + 1]) < 16);
+        }
+    }
+
+    @Test
+    public void Test_storageFormat_RoundTripKeepsLengthAndIsFourTimesSmaller() throws IOException {
+        //  Arrange
+        PcmFormat format = new PcmFormat(8000, 1);
+        short[] original = voiceLikeSignal(8000 * 3 + 123, 1, 8000);
+        File pcmFile = new File(directory, "pcm.wav"), adpcmFile = new File(directory, "adpcm.wav");
+        write(new PcmWavStorageFormat(), pcmFile, format, original);
+
+        //  Act
+        write(new ImaAdpcmWavStorageFormat(), adpcmFile, format, original);
+        short[] decoded = new short[original.length];
+        int framesRead = read(new ImaAdpcmWavStorageFormat(), adpcmFile, decoded);
+
+        //  Assert
+        Assert.assertEquals(original.length, framesRead);
+        double snr = signalToNoiseRatio(original, decoded, original.length);
+        Assert.assertTrue("SNR was " + snr + " dB", snr > 25);
+        double ratio = (double) pcmFile.length() / adpcmFile.length();
+        Assert.assertTrue("Compression ratio was " + ratio, ratio > 3.8);
+    }
+
+    @Test
+    public void Test_createReader_PcmFileIsReadByEitherFormat() throws IOException {
+        //  Arrange
+        PcmFormat format = new PcmFormat(16000, 2);
+        short[] original = voiceLikeSignal(1000, 2, 16000);
+        File file = new File(directory, "pcm.wav");
+        write(new PcmWavStorageFormat(), file, format, original);
+
+        //  Act
+        short[] decoded = new short[original.length];
+        int framesRead = read(new ImaAdpcmWavStorageFormat(), file, decoded);
+
+        //  Assert
+        Assert.assertEquals(1000, framesRead);
+        for (int i = 0; i < original.length; i++) {
+            Assert.assertEquals(original[i], decoded[i]);
+        }
+    }
+
+    //region Private helper methods
+
+    /**
+     * Sum of a few harmonics with a slow amplitude envelope, roughly resembling voiced speech.
+     */
+    private static short[] voiceLikeSignal(int frames, int channels, int sampleRate) {
+        short[] samples = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            double t = (double) i / sampleRate;
+            double envelope = 0.5 + 0.5 * Math.sin(2 * Math.PI * 3 * t);
+            double value = Math.sin(2 * Math.PI * 180 * t) + 0.5 * Math.sin(2 * Math.PI * 360 * t)
+                    + 0.25 * Math.sin(2 * Math.PI * 720 * t);
+            for (int channel = 0; channel < channels; channel++) {
+                samples[i * channels + channel] = (short) (6000 * envelope * value);
+            }
+        }
+        return samples;
+    }
+
+    private static double signalToNoiseRatio(short[] original, short[] decoded, int length) {
+        double signal = 0, noise = 0;
+        for (int i = 0; i < length; i++) {
+            signal += (double) original[i] * original[i];
+            double error = original[i] - decoded[i];
+            noise += error * error;
+        }
+        return 10 * Math.log10(signal / Math.max(noise, 1));
+    }
+
+    private static void write(AudioStorageFormat storageFormat, File file, PcmFormat format,
+                              short[] samples) throws IOException {
+        AudioWriter writer = storageFormat.createWriter(file, format);
+        try {
+            //  Odd sized writes exercise gathering of partial blocks.
+            int channels = format.getChannels(), frames = samples.length / channels;
+            for (int offset = 0; offset < frames; offset += 333) {
+                writer.write(samples, offset * channels, Math.min(333, frames - offset));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static int read(AudioStorageFormat storageFormat, File file, short[] samples) throws IOException {
+        AudioReader reader = storageFormat.createReader(file);
+        try {
+            int channels = reader.getFormat().getChannels(), total = 0, read;
+            while ((read = reader.read(samples, total * channels, samples.length / channels - total)) > 0) {
+                total += read;
+            }
+            return total;
+        } finally {
+            reader.close();
+        }
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,119 @@
+package andrewtorski.cassette.domain.audio.test;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import andrewtorski.cassette.domain.audio.PolyphaseFilterBank;
+import andrewtorski.cassette.domain.audio.PolyphaseResampler;
+
+/**
+ * Quality checks of the PolyphaseResampler. Throughput is measured by PolyphaseResamplerBenchmark.
+ */
+public class PolyphaseResamplerTest {
+
+    @Test
+    public void Test_process_DownsampledToneMatchesIdealTone() {
+        assertToneIsReproduced(44100, 8000, 1000);
+    }
+
+    @Test
+    public void Test_process_UpsampledToneMatchesIdealTone() {
+        assertToneIsReproduced(8000, 44100, 1000);
+    }
+
+    @Test
+    public void Test_process_ToneAboveOutputNyquistIsRejected() {
+        //  Arrange
+        short[] input = tone(44100, 6000, 44100, 0);
+        PolyphaseResampler resampler = new PolyphaseResampler(44100, 8000, 1);
+        short[] output = new short[resampler.getMaximalOutputFrames(input.length)];
+
+        //  Act
+        int frames = resampler.process(input, 0, input.length, output, 0);
+
+        //  Assert
+        double inputLevel = rms(input, 0, input.length), outputLevel = rms(output, 100, frames - 100);
+        double attenuation = 20 * Math.log10(inputLevel / Math.max(outputLevel, 1e-9));
+        Assert.assertTrue("Attenuation was " + attenuation + " dB", attenuation > 60);
+    }
+
+    @Test
+    public void Test_process_StreamingInBlocksEqualsSingleCall() {
+        //  Arrange
+        Random random = new Random(7);
+        short[] input = new short[2 * 10000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (short) (random.nextGaussian() * 3000);
+        }
+        PolyphaseResampler whole = new PolyphaseResampler(22050, 16000, 2);
+        PolyphaseResampler blocks = new PolyphaseResampler(22050, 16000, 2);
+        short[] expected = new short[whole.getMaximalOutputFrames(10000) * 2];
+        short[] actual = new short[expected.length + 64];
+        short[] scratch = new short[blocks.getMaximalOutputFrames(1000) * 2];
+
+        //  Act
+        int expectedFrames = whole.process(input, 0, 10000, expected, 0);
+        int actualFrames = 0;
+        for (int frame = 0; frame < 10000; ) {
+            int size = Math.min(1 + random.nextInt(1000), 10000 - frame);
+            int produced = blocks.process(input, frame * 2, size, scratch, 0);
+            System.arraycopy(scratch, 0, actual, actualFrames * 2, produced * 2);
+            actualFrames += produced;
+            frame += size;
+        }
+
+        //  Assert
+        Assert.assertEquals(expectedFrames, actualFrames);
+        for (int i = 0; i < expectedFrames * 2; i++) {
+            Assert.assertEquals("Sample " + i, expected[i], actual[i]);
+        }
+        Assert.assertTrue(Math.abs(expectedFrames - 10000 * 16000 / 22050) <= 1);
+    }
+
+    //region Private helper methods
+
+    private static void assertToneIsReproduced(int inputRate, int outputRate, double frequency) {
+        //  Arrange
+        int inputFrames = inputRate;
+        PolyphaseResampler resampler = new PolyphaseResampler(inputRate, outputRate, 1);
+        PolyphaseFilterBank bank = resampler.getFilterBank();
+        double delayInSeconds = (bank.getTapsPerPhase() * bank.getInterpolation() - 1)
+                / (2.0 * bank.getInterpolation()) / inputRate;
+        short[] input = tone(inputRate, frequency, inputFrames, 0);
+        short[] output = new short[resampler.getMaximalOutputFrames(inputFrames)];
+
+        //  Act
+        int frames = resampler.process(input, 0, inputFrames, output, 0);
+
+        //  Assert
+        short[] ideal = tone(outputRate, frequency, frames, delayInSeconds);
+        double signal = 0, noise = 0;
+        for (int i = outputRate / 100; i < frames - outputRate / 100; i++) {
+            signal += (double) ideal[i] * ideal[i];
+            noise += (double) (ideal[i] - output[i]) * (ideal[i] - output[i]);
+        }
+        double snr = 10 * Math.log10(signal / Math.max(noise, 1e-9));
+        Assert.assertTrue("SNR was " + snr + " dB", snr > 50);
+    }
+
+    private static short[] tone(int sampleRate, double frequency, int frames, double delayInSeconds) {
+        short[] samples = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            samples[i] = (short) Math.round(10000 * Math.sin(2 * Math.PI * frequency * ((double) i / sampleRate - delayInSeconds)));
+        }
+        return samples;
+    }
+
+    private static double rms(short[] samples, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += (double) samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / (to - from));
+    }
+
+    //endregion Private helper methods
+}
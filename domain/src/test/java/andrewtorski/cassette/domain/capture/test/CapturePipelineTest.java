@@ -0,0 +1,176 @@
+package andrewtorski.cassette.domain.capture.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.AudioReader;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+import andrewtorski.cassette.domain.capture.CapturePipeline;
+import andrewtorski.cassette.domain.capture.CaptureRecovery;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.testutilities.TestCassetteRepository;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+
+public class CapturePipelineTest {
+
+    private static final PcmFormat FORMAT = new PcmFormat(8000, 1);
+
+    private static final int BLOCK_FRAMES = 1000;
+
+    private File directory;
+    private List<Recording> persistedRecordings;
+    private List<IOException> failures;
+    private CapturePipeline pipeline;
+
+    /**
+     * Next sample value handed to the pipeline, so every frame of the stream can be recognized.
+     */
+    private short nextSample;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("pipeline", "");
+        directory.delete();
+        directory.mkdirs();
+        persistedRecordings = new ArrayList<>();
+        failures = new ArrayList<>();
+
+        CaptureRecovery recovery = new CaptureRecovery(new File(directory, "captures"),
+                new File(directory, "recordings"), new File(directory, "recovered"),
+                new RepositoryFacade(new TestCassetteRepository(), new TestRecordingRepository()));
+        Executor sameThreadExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        pipeline = new CapturePipeline(recovery, FORMAT, 800, sameThreadExecutor,
+                new CapturePipeline.Listener() {
+                    @Override
+                    public void onRecordingPersisted(Recording recording) {
+                        persistedRecordings.add(recording);
+                    }
+
+                    @Override
+                    public void onCaptureFailed(IOException e) {
+                        failures.add(e);
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void Test_process_CaptureStartsAndStopsInsideBlocks() throws IOException {
+        //  Arrange
+        processBlock();
+        pipeline.start(1, 1300);
+        pipeline.stop(2700);
+
+        //  Act
+        processBlock();
+        processBlock();
+        processBlock();
+
+        //  Assert
+        Assert.assertTrue(failures.isEmpty());
+        Assert.assertEquals(1, persistedRecordings.size());
+        assertFrames(persistedRecordings.get(0), 1300, 1400);
+    }
+
+    @Test
+    public void Test_process_StartBeforeFirstBlockCapturesFromFirstFrame() throws IOException {
+        //  Arrange
+        pipeline.start(2);
+
+        //  Act
+        processBlock();
+        pipeline.stop(BLOCK_FRAMES);
+        processBlock();
+
+        //  Assert
+        Assert.assertEquals(1, persistedRecordings.size());
+        assertFrames(persistedRecordings.get(0), 0, BLOCK_FRAMES);
+    }
+
+    @Test
+    public void Test_process_StartDuringCaptureFinishesPreviousOne() throws IOException {
+        //  Arrange
+        pipeline.start(1, 0);
+        pipeline.start(3, 500);
+
+        //  Act
+        processBlock();
+        pipeline.close();
+
+        //  Assert
+        Assert.assertEquals(2, persistedRecordings.size());
+        Assert.assertEquals(1, persistedRecordings.get(0).getCassetteId());
+        Assert.assertEquals(3, persistedRecordings.get(1).getCassetteId());
+        assertFrames(persistedRecordings.get(0), 0, 500);
+        assertFrames(persistedRecordings.get(1), 500, 500);
+    }
+
+    @Test
+    public void Test_process_FutureCommandWaitsForItsBlock() {
+        //  Arrange
+        pipeline.start(1, 5 * BLOCK_FRAMES);
+
+        //  Act
+        processBlock();
+
+        //  Assert
+        Assert.assertFalse(pipeline.isCapturing());
+        Assert.assertTrue(pipeline.getFramePositionAt(System.nanoTime()) >= BLOCK_FRAMES);
+    }
+
+    //region Private helper methods
+
+    private void processBlock() {
+        short[] block = new short[BLOCK_FRAMES];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = nextSample++;
+        }
+        pipeline.process(block, 0, BLOCK_FRAMES);
+    }
+
+    private static void assertFrames(Recording recording, int firstFrame, int frameCount)
+            throws IOException {
+        AudioReader reader = new PcmWavStorageFormat().createReader(recording.getAudioFile());
+        try {
+            Assert.assertEquals(frameCount, reader.getFrameCount());
+            short[] pcm = new short[frameCount];
+            Assert.assertEquals(frameCount, reader.read(pcm, 0, frameCount));
+            Assert.assertEquals((short) firstFrame, pcm[0]);
+            Assert.assertEquals((short) (firstFrame + frameCount - 1), pcm[frameCount - 1]);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    //endregion Private helper methods
+}
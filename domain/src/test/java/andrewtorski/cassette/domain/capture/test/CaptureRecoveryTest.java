@@ -0,0 +1,281 @@
+package andrewtorski.cassette.domain.capture.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Date;
+import java.util.List;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.AudioReader;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+import andrewtorski.cassette.domain.capture.CaptureJournal;
+import andrewtorski.cassette.domain.capture.CaptureRecovery;
+import andrewtorski.cassette.domain.capture.SegmentedCaptureWriter;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.testutilities.TestCassetteRepository;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+
+public class CaptureRecoveryTest {
+
+    private static final PcmFormat FORMAT = new PcmFormat(8000, 1);
+
+    private static final int FRAMES_PER_SEGMENT = 800;
+
+    private File directory;
+    private File capturesDirectory;
+    private File recordingsDirectory;
+    private File keptCapturesDirectory;
+    private TestCassetteRepository cassetteRepository;
+    private TestRecordingRepository recordingRepository;
+    private CaptureRecovery recovery;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("capture", "");
+        directory.delete();
+        directory.mkdirs();
+        capturesDirectory = new File(directory, "captures");
+        recordingsDirectory = new File(directory, "recordings");
+        keptCapturesDirectory = new File(directory, "recovered");
+        cassetteRepository = new TestCassetteRepository();
+        recordingRepository = new TestRecordingRepository();
+        recovery = new CaptureRecovery(capturesDirectory, recordingsDirectory, keptCapturesDirectory,
+                new RepositoryFacade(cassetteRepository, recordingRepository));
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void Test_finish_ClosedCaptureBecomesRecording() throws IOException {
+        //  Arrange
+        Cassette cassette = cassetteRepository.get(1);
+        int lengthBefore = cassette.getLength();
+        SegmentedCaptureWriter writer = new SegmentedCaptureWriter(new File(capturesDirectory, "a"),
+                1, FORMAT, FRAMES_PER_SEGMENT);
+        writer.write(ramp(2000), 0, 2000);
+        writer.close();
+
+        //  Act
+        Recording recording = recovery.finish(writer.getCaptureDirectory());
+
+        //  Assert
+        Assert.assertEquals(250, recording.getLengthInMiliseconds());
+        Assert.assertEquals(1, recording.getCassetteId());
+        Assert.assertNotNull(recording.getDateTimeOfRecording());
+        Assert.assertEquals(lengthBefore + 250, cassette.getLength());
+        Assert.assertFalse(writer.getCaptureDirectory().exists());
+        Assert.assertEquals(2000, countFrames(recording.getAudioFile()));
+    }
+
+    @Test
+    public void Test_recoverAll_InterruptedCaptureKeepsSealedSegments() throws IOException {
+        //  Arrange
+        SegmentedCaptureWriter writer = new SegmentedCaptureWriter(new File(capturesDirectory, "a"),
+                2, FORMAT, FRAMES_PER_SEGMENT);
+        writer.write(ramp(2000), 0, 2000);
+        //  The writer is never closed, as if the process was killed. Bytes of the third, unsealed
+        //  segment are followed by a torn write.
+        appendBytes(new File(writer.getCaptureDirectory(), SegmentedCaptureWriter.AUDIO_FILE_NAME),
+                new byte[]{1, 2, 3});
+
+        //  Act
+        List<Recording> recordings = recovery.recoverAll();
+
+        //  Assert
+        Assert.assertEquals(1, recordings.size());
+        Recording recording = recordings.get(0);
+        Assert.assertEquals(2 * FRAMES_PER_SEGMENT, countFrames(recording.getAudioFile()));
+        Assert.assertEquals(200, recording.getLengthInMiliseconds());
+        Assert.assertEquals(1, recordingRepository.getAll().size());
+        Assert.assertEquals(0, capturesDirectory.list().length);
+    }
+
+    @Test
+    public void Test_recoverAll_TornJournalLineIsIgnored() throws IOException {
+        //  Arrange
+        SegmentedCaptureWriter writer = new SegmentedCaptureWriter(new File(capturesDirectory, "a"),
+                1, FORMAT, FRAMES_PER_SEGMENT);
+        writer.write(ramp(1000), 0, 1000);
+        appendBytes(new File(writer.getCaptureDirectory(), SegmentedCaptureWriter.JOURNAL_FILE_NAME),
+                "segment 16".getBytes("US-ASCII"));
+
+        //  Act
+        List<Recording> recordings = recovery.recoverAll();
+
+        //  Assert
+        Assert.assertEquals(1, recordings.size());
+        Assert.assertEquals(FRAMES_PER_SEGMENT, countFrames(recordings.get(0).getAudioFile()));
+    }
+
+    @Test
+    public void Test_recoverAll_CaptureWithoutSealedSegmentIsDiscarded() throws IOException {
+        //  Arrange
+        SegmentedCaptureWriter writer = new SegmentedCaptureWriter(new File(capturesDirectory, "a"),
+                1, FORMAT, FRAMES_PER_SEGMENT);
+        writer.write(ramp(100), 0, 100);
+
+        //  Act
+        List<Recording> recordings = recovery.recoverAll();
+
+        //  Assert
+        Assert.assertTrue(recordings.isEmpty());
+        Assert.assertFalse(writer.getCaptureDirectory().exists());
+        Assert.assertTrue(recordingRepository.getAll().isEmpty());
+    }
+
+    @Test
+    public void Test_recoverAll_CaptureOfMissingCassetteIsKept() throws IOException {
+        //  Arrange
+        SegmentedCaptureWriter writer = new SegmentedCaptureWriter(new File(capturesDirectory, "a"),
+                42, FORMAT, FRAMES_PER_SEGMENT);
+        writer.write(ramp(1000), 0, 1000);
+        writer.close();
+
+        //  Act
+        List<Recording> recordings = recovery.recoverAll();
+
+        //  Assert
+        Assert.assertTrue(recordings.isEmpty());
+        Assert.assertFalse(writer.getCaptureDirectory().exists());
+        List<File> keptCaptureFiles = recovery.getKeptCaptureFiles();
+        Assert.assertEquals(1, keptCaptureFiles.size());
+        Assert.assertEquals(1000, countFrames(keptCaptureFiles.get(0)));
+    }
+
+    @Test
+    public void Test_recoverAll_CaptureMovedBeforeCrashIsStillPersisted() throws IOException {
+        //  Arrange
+        File captureDirectory = new File(capturesDirectory, "a");
+        SegmentedCaptureWriter writer = new SegmentedCaptureWriter(captureDirectory, 1, FORMAT,
+                FRAMES_PER_SEGMENT);
+        writer.write(ramp(1000), 0, 1000);
+        writer.close();
+        recordingsDirectory.mkdirs();
+        new File(captureDirectory, SegmentedCaptureWriter.AUDIO_FILE_NAME)
+                .renameTo(new File(recordingsDirectory, "a.wav"));
+
+        //  Act
+        List<Recording> recordings = recovery.recoverAll();
+
+        //  Assert
+        Assert.assertEquals(1, recordings.size());
+        Assert.assertEquals(1000, countFrames(recordings.get(0).getAudioFile()));
+    }
+
+    @Test
+    public void Test_recoverAll_CapturePersistedBeforeCrashIsNotPersistedAgain() throws IOException {
+        //  Arrange
+        File captureDirectory = new File(capturesDirectory, "a");
+        SegmentedCaptureWriter writer = new SegmentedCaptureWriter(captureDirectory, 1, FORMAT,
+                FRAMES_PER_SEGMENT);
+        writer.write(ramp(1000), 0, 1000);
+        writer.close();
+        Recording persisted = recovery.finish(captureDirectory);
+        //  As if the process died before the capture directory was deleted.
+        File journalFile = new File(captureDirectory, SegmentedCaptureWriter.JOURNAL_FILE_NAME);
+        writer = new SegmentedCaptureWriter(captureDirectory, 1, FORMAT, FRAMES_PER_SEGMENT);
+        writer.write(ramp(1000), 0, 1000);
+        writer.close();
+        new File(captureDirectory, SegmentedCaptureWriter.AUDIO_FILE_NAME).delete();
+        CaptureJournal.appendPersisted(journalFile, persisted.getId());
+
+        //  Act
+        List<Recording> recordings = recovery.recoverAll();
+
+        //  Assert
+        Assert.assertEquals(1, recordings.size());
+        Assert.assertSame(persisted, recordings.get(0));
+        Assert.assertEquals(1, recordingRepository.countForCassette(1));
+        Assert.assertEquals(persisted.getLengthInMiliseconds(), cassetteRepository.get(1).getLength());
+        Assert.assertFalse(captureDirectory.exists());
+    }
+
+    @Test
+    public void Test_recoverAll_CapturePersistedWithoutIdInJournalIsNotPersistedAgain()
+            throws IOException {
+        //  Arrange
+        File captureDirectory = new File(capturesDirectory, "a");
+        SegmentedCaptureWriter writer = new SegmentedCaptureWriter(captureDirectory, 1, FORMAT,
+                FRAMES_PER_SEGMENT);
+        writer.write(ramp(1000), 0, 1000);
+        writer.close();
+        recordingsDirectory.mkdirs();
+        File recordingFile = new File(recordingsDirectory, "a.wav");
+        new File(captureDirectory, SegmentedCaptureWriter.AUDIO_FILE_NAME).renameTo(recordingFile);
+        //  As if the process died right after persisting the Recording.
+        Recording persisted = recordingRepository.create(
+                new Recording(recordingFile, 125, cassetteRepository.get(1), new Date()));
+
+        //  Act
+        List<Recording> recordings = recovery.recoverAll();
+
+        //  Assert
+        Assert.assertEquals(1, recordings.size());
+        Assert.assertSame(persisted, recordings.get(0));
+        Assert.assertEquals(1, recordingRepository.countForCassette(1));
+        Assert.assertFalse(captureDirectory.exists());
+    }
+
+    //region Private helper methods
+
+    private static short[] ramp(int frames) {
+        short[] pcm = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            pcm[i] = (short) i;
+        }
+        return pcm;
+    }
+
+    private static long countFrames(File file) throws IOException {
+        AudioReader reader = new PcmWavStorageFormat().createReader(file);
+        try {
+            short[] pcm = new short[512];
+            long frames = 0;
+            int read;
+            while ((read = reader.read(pcm, 0, 512)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    Assert.assertEquals((short) (frames + i), pcm[i]);
+                }
+                frames += read;
+            }
+            Assert.assertEquals(reader.getFrameCount(), frames);
+            return frames;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void appendBytes(File file, byte[] bytes) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(randomAccessFile.length());
+            randomAccessFile.write(bytes);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    //endregion Private helper methods
+}
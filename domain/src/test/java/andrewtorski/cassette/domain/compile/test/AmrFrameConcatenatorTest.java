@@ -0,0 +1,248 @@
+package andrewtorski.cassette.domain.compile.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Date;
+
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
+import andrewtorski.cassette.domain.audio.AudioFileProbe;
+import andrewtorski.cassette.domain.audio.Mp4AudioTrack;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+import andrewtorski.cassette.domain.compile.AmrFrameConcatenator;
+import andrewtorski.cassette.domain.compile.CassetteCompiler;
+import andrewtorski.cassette.domain.entity.Recording;
+
+public class AmrFrameConcatenatorTest {
+
+    /**
+     * Gap left between chunks of the test files, as an interleaved track would.
+     */
+    private static final int CHUNK_GAP = 7;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("concat", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_compile_AmrRecordingsAreJoinedByCopyingFrames() throws IOException {
+        //  Arrange
+        byte[][] firstFrames = frames(12, 13, 1);
+        byte[][] secondFrames = frames(7, 32, 2);
+        Recording first = recording(0, write3gp("first.3gp", firstFrames, 5, 0));
+        Recording second = recording(1, write3gp("second.3gp", secondFrames, 3, 0));
+        File output = new File(directory, "compiled.3gp");
+        CassetteCompiler compiler = new CassetteCompiler(new PcmWavStorageFormat(), null);
+
+        //  Act
+        long frames = compiler.compile(Arrays.asList(second, first), output);
+
+        //  Assert
+        Assert.assertEquals(19 * 160, frames);
+        Assert.assertEquals("3gp", compiler.getFileExtension(Arrays.asList(second, first)));
+        Mp4AudioTrack track = Mp4AudioTrack.read(output);
+        Assert.assertEquals(19, track.getSampleCount());
+        Assert.assertEquals(3 + 3, track.getChunkCount());
+        Assert.assertEquals(13, track.getSampleSize(0));
+        Assert.assertEquals(32, track.getSampleSize(18));
+        Assert.assertEquals(19 * 160, track.getDuration());
+
+        byte[] expected = concat(concat(firstFrames), concat(secondFrames));
+        byte[] actual = new byte[expected.length];
+        RandomAccessFile file = new RandomAccessFile(output, "r");
+        try {
+            file.seek(track.getChunkOffset(0));
+            file.readFully(actual);
+        } finally {
+            file.close();
+        }
+        Assert.assertTrue(Arrays.equals(expected, actual));
+
+        AudioFileInfo info = new AudioFileProbe().probe(output);
+        Assert.assertEquals(AudioFileInfo.CODEC_AMR_NB, info.getCodec());
+        Assert.assertEquals(380, info.getDurationInMilliseconds());
+    }
+
+    @Test
+    public void Test_readJoinableTracks_DifferingParametersAreNotJoinable() throws IOException {
+        //  Arrange
+        File first = write3gp("first.3gp", frames(4, 13, 1), 2, 0x81FF);
+        File second = write3gp("second.3gp", frames(4, 13, 2), 2, 0x0001);
+
+        //  Act
+        AmrFrameConcatenator concatenator = new AmrFrameConcatenator();
+
+        //  Assert
+        Assert.assertNotNull(concatenator.readJoinableTracks(Arrays.asList(first, first)));
+        Assert.assertNull(concatenator.readJoinableTracks(Arrays.asList(first, second)));
+    }
+
+    @Test
+    public void Test_readJoinableTracks_WavIsNotJoinable() throws IOException {
+        //  Arrange
+        File amr = write3gp("first.3gp", frames(4, 13, 1), 2, 0);
+        File wav = new File(directory, "second.wav");
+        new PcmWavStorageFormat().createWriter(wav,
+                new PcmFormat(8000, 1)).close();
+
+        //  Act
+        AmrFrameConcatenator concatenator = new AmrFrameConcatenator();
+
+        //  Assert
+        Assert.assertNull(concatenator.readJoinableTracks(Arrays.asList(amr, wav)));
+    }
+
+    //region Private helper methods
+
+    private static Recording recording(int sequence, File file) {
+        return new Recording(sequence + 1, 1, "", "", new Date(), 0, file.getPath(), sequence);
+    }
+
+    /**
+     * Returns frames of provided size whose bytes tell the file and frame they come from.
+     */
+    private static byte[][] frames(int count, int size, int seed) {
+        byte[][] frames = new byte[count][size];
+        for (int i = 0; i < count; i++) {
+            //  Header byte of the frame type of this size.
+            frames[i][0] = (byte) ((size == 13 ? 0 : 7) << 3 | 0x04);
+            for (int j = 1; j < size; j++) {
+                frames[i][j] = (byte) (seed * 101 + i * 7 + j);
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Writes a 3GP file as MediaRecorder does, the mdat box first, with chunks of provided number
+     * of frames separated by gaps.
+     */
+    private File write3gp(String name, byte[][] frames, int framesPerChunk, int modeSet)
+            throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(box("ftyp", concat("3gp4".getBytes("US-ASCII"), new byte[4],
+                "isom3gp4".getBytes("US-ASCII"))));
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int chunkCount = (frames.length + framesPerChunk - 1) / framesPerChunk;
+        long[] chunkOffsets = new long[chunkCount];
+        int mdatStart = file.size() + 8;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            data.write(new byte[CHUNK_GAP]);
+            chunkOffsets[chunk] = mdatStart + data.size();
+            for (int i = chunk * framesPerChunk; i < Math.min(frames.length, (chunk + 1) * framesPerChunk); i++) {
+                data.write(frames[i]);
+            }
+        }
+        file.write(box("mdat", data.toByteArray()));
+
+        ByteArrayOutputStream damr = new ByteArrayOutputStream();
+        DataOutputStream damrOut = new DataOutputStream(damr);
+        damrOut.writeBytes("test");
+        damrOut.writeByte(0);
+        damrOut.writeShort(modeSet);
+        damrOut.writeByte(0);
+        damrOut.writeByte(1);
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        DataOutputStream entryOut = new DataOutputStream(entry);
+        entryOut.write(new byte[6]);
+        entryOut.writeShort(1);
+        entryOut.write(new byte[8]);
+        entryOut.writeShort(1);
+        entryOut.writeShort(16);
+        entryOut.writeInt(0);
+        entryOut.writeInt(8000 << 16);
+        entryOut.write(box("damr", damr.toByteArray()));
+
+        ByteArrayOutputStream stsz = new ByteArrayOutputStream();
+        DataOutputStream stszOut = new DataOutputStream(stsz);
+        stszOut.writeInt(0);
+        stszOut.writeInt(0);
+        stszOut.writeInt(frames.length);
+        for (byte[] frame : frames) {
+            stszOut.writeInt(frame.length);
+        }
+        ByteArrayOutputStream stco = new ByteArrayOutputStream();
+        DataOutputStream stcoOut = new DataOutputStream(stco);
+        stcoOut.writeInt(0);
+        stcoOut.writeInt(chunkCount);
+        for (long offset : chunkOffsets) {
+            stcoOut.writeInt((int) offset);
+        }
+        int lastChunkFrames = frames.length - (chunkCount - 1) * framesPerChunk;
+        byte[] stsc = lastChunkFrames == framesPerChunk
+                ? ints(0, 1, 1, framesPerChunk, 1)
+                : ints(0, 2, 1, framesPerChunk, 1, chunkCount, lastChunkFrames, 1);
+
+        byte[] stbl = box("stbl", concat(
+                box("stsd", concat(ints(0, 1), box("samr", entry.toByteArray()))),
+                box("stts", ints(0, 1, frames.length, 160)),
+                box("stsc", stsc),
+                box("stsz", stsz.toByteArray()),
+                box("stco", stco.toByteArray())));
+        byte[] mdia = box("mdia", concat(
+                box("mdhd", ints(0, 0, 0, 8000, frames.length * 160, 0)),
+                box("hdlr", concat(ints(0, 0), "soun".getBytes("US-ASCII"), new byte[13])),
+                box("minf", stbl)));
+        file.write(box("moov", concat(box("mvhd", new byte[100]), box("trak", mdia))));
+
+        File result = new File(directory, name);
+        FileOutputStream outputStream = new FileOutputStream(result);
+        try {
+            outputStream.write(file.toByteArray());
+        } finally {
+            outputStream.close();
+        }
+        return result;
+    }
+
+    private static byte[] ints(int... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] box(String type, byte[] payload) throws IOException {
+        return concat(ints(8 + payload.length), type.getBytes("US-ASCII"), payload);
+    }
+
+    private static byte[] concat(byte[]... parts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            bytes.write(part);
+        }
+        return bytes.toByteArray();
+    }
+
+    //endregion Private helper methods
+}
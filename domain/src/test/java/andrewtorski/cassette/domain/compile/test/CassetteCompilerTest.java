@@ -0,0 +1,112 @@
+package andrewtorski.cassette.domain.compile.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+
+import andrewtorski.cassette.domain.audio.AudioReader;
+import andrewtorski.cassette.domain.audio.AudioStorageFormat;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.ImaAdpcmWavStorageFormat;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+import andrewtorski.cassette.domain.compile.CassetteCompiler;
+import andrewtorski.cassette.domain.entity.Recording;
+
+public class CassetteCompilerTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("compile", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_compile_RecordingsOfDifferentRatesAreJoined() throws IOException {
+        //  Arrange
+        Recording first = recording(0, write("first.wav", new PcmWavStorageFormat(), new PcmFormat(8000, 1), 8000));
+        Recording second = recording(1, write("second.wav", new ImaAdpcmWavStorageFormat(), new PcmFormat(16000, 2), 16000));
+        File output = new File(directory, "compiled.wav");
+        CassetteCompiler compiler = new CassetteCompiler(new PcmWavStorageFormat(), null);
+
+        //  Act
+        long frames = compiler.compile(Arrays.asList(second, first), output);
+
+        //  Assert
+        AudioReader reader = new PcmWavStorageFormat().createReader(output);
+        try {
+            Assert.assertEquals(new PcmFormat(16000, 2), reader.getFormat());
+            Assert.assertEquals(frames, reader.getFrameCount());
+            Assert.assertTrue("Frames: " + frames, Math.abs(frames - 32000) <= 2);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void Test_compile_FixedOutputFormatIsUsed() throws IOException {
+        //  Arrange
+        Recording only = recording(0, write("only.wav", new PcmWavStorageFormat(), new PcmFormat(44100, 2), 44100));
+        File output = new File(directory, "compiled.wav");
+        CassetteCompiler compiler = new CassetteCompiler(new ImaAdpcmWavStorageFormat(), new PcmFormat(8000, 1));
+
+        //  Act
+        long frames = compiler.compile(Arrays.asList(only), output);
+
+        //  Assert
+        AudioReader reader = new ImaAdpcmWavStorageFormat().createReader(output);
+        try {
+            Assert.assertEquals(new PcmFormat(8000, 1), reader.getFormat());
+            Assert.assertTrue("Frames: " + frames, Math.abs(frames - 8000) <= 1);
+        } finally {
+            reader.close();
+        }
+    }
+
+    //region Private helper methods
+
+    private static Recording recording(int sequence, File file) {
+        return new Recording(sequence, 1, "title", "description", new Date(), 1000, file.getPath(), sequence);
+    }
+
+    private File write(String name, AudioStorageFormat storageFormat, PcmFormat format, int frames) throws IOException {
+        File file = new File(directory, name);
+        int channels = format.getChannels();
+        short[] samples = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            for (int channel = 0; channel < channels; channel++) {
+                samples[i * channels + channel] = (short) (4000 * Math.sin(2 * Math.PI * 440 * i / format.getSampleRate()));
+            }
+        }
+        AudioWriter writer = storageFormat.createWriter(file, format);
+        try {
+            writer.write(samples, 0, frames);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    //endregion Private helper methods
+}
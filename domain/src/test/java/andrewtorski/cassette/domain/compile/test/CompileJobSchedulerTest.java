@@ -0,0 +1,191 @@
+package andrewtorski.cassette.domain.compile.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import andrewtorski.cassette.domain.compile.CompileJobScheduler;
+import andrewtorski.cassette.domain.compile.CompileJobScheduler.CompileJob;
+import andrewtorski.cassette.domain.compile.CompileJobScheduler.Priority;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.usecase.CompileCassetteUseCase;
+
+public class CompileJobSchedulerTest {
+
+    private File directory;
+    private File journal;
+    private CompileJobScheduler scheduler;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("scheduler", "");
+        directory.delete();
+        directory.mkdirs();
+        journal = new File(directory, "compile.journal");
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_submit_UserVisibleJobsOvertakeAndRequestsAreMerged() throws Exception {
+        //  Arrange
+        RecordingUseCase useCase = new RecordingUseCase();
+        scheduler = new CompileJobScheduler(useCase, directory, journal, 1);
+        scheduler.start();
+
+        //  Act
+        CompileJob first = scheduler.submit(1, Priority.BACKGROUND);
+        useCase.started.await(5, TimeUnit.SECONDS);
+        CompileJob second = scheduler.submit(2, Priority.BACKGROUND);
+        CompileJob third = scheduler.submit(3, Priority.BACKGROUND);
+        CompileJob thirdAgain = scheduler.submit(3, Priority.USER_VISIBLE);
+        useCase.release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+
+        //  Assert
+        Assert.assertSame(third, thirdAgain);
+        Assert.assertEquals(Priority.USER_VISIBLE, third.getPriority());
+        Assert.assertEquals(Arrays.asList(1L, 3L, 2L), useCase.compiled);
+        CompileJobScheduler.Statistics statistics = scheduler.getStatistics();
+        Assert.assertEquals(3, statistics.getCompletedJobs());
+        Assert.assertEquals(1, statistics.getMergedRequests());
+        Assert.assertEquals(0, statistics.getWaitingJobs());
+        Assert.assertTrue(statistics.getMaximalQueueMillis() >= 0);
+        Assert.assertEquals(0, journal.length());
+    }
+
+    @Test
+    public void Test_cancel_WaitingJobIsNotRun() throws Exception {
+        //  Arrange
+        RecordingUseCase useCase = new RecordingUseCase();
+        scheduler = new CompileJobScheduler(useCase, directory, journal, 1);
+        scheduler.start();
+        CompileJob first = scheduler.submit(1, Priority.BACKGROUND);
+        useCase.started.await(5, TimeUnit.SECONDS);
+        CompileJob second = scheduler.submit(2, Priority.BACKGROUND);
+
+        //  Act
+        second.cancel(false);
+        useCase.release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        //  Assert
+        Assert.assertEquals(Collections.singletonList(1L), useCase.compiled);
+        Assert.assertEquals(1, scheduler.getStatistics().getCancelledJobs());
+        Assert.assertEquals(0, scheduler.getStatistics().getWaitingJobs());
+    }
+
+    @Test
+    public void Test_submit_CassetteIsNotCompiledTwiceAtOnce() throws Exception {
+        //  Arrange
+        RecordingUseCase useCase = new RecordingUseCase();
+        scheduler = new CompileJobScheduler(useCase, directory, journal, 2);
+        scheduler.start();
+        CompileJob first = scheduler.submit(1, Priority.BACKGROUND);
+        useCase.started.await(5, TimeUnit.SECONDS);
+
+        //  Act
+        CompileJob second = scheduler.submit(1, Priority.USER_VISIBLE);
+        Thread.sleep(200);
+        int runningBeforeRelease = useCase.running.get();
+        useCase.release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        //  Assert
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(1, runningBeforeRelease);
+        Assert.assertEquals(1, useCase.maximalRunning.get());
+        Assert.assertEquals(Arrays.asList(1L, 1L), useCase.compiled);
+    }
+
+    @Test
+    public void Test_start_JobsLeftByPreviousProcessAreResumed() throws Exception {
+        //  Arrange
+        RecordingUseCase blockedUseCase = new RecordingUseCase();
+        CompileJobScheduler previous = new CompileJobScheduler(blockedUseCase, directory, journal, 1);
+        previous.start();
+        previous.submit(1, Priority.BACKGROUND);
+        blockedUseCase.started.await(5, TimeUnit.SECONDS);
+        previous.submit(2, Priority.USER_VISIBLE);
+        previous.shutdown();
+
+        RecordingUseCase useCase = new RecordingUseCase();
+        useCase.release.countDown();
+        scheduler = new CompileJobScheduler(useCase, directory, journal, 1);
+
+        //  Act
+        List<CompileJob> resumed = scheduler.start();
+        for (CompileJob job : resumed) {
+            job.get(5, TimeUnit.SECONDS);
+        }
+
+        //  Assert
+        Assert.assertEquals(2, resumed.size());
+        Assert.assertEquals(Arrays.asList(2L, 1L), useCase.compiled);
+    }
+
+    //region Private helper classes
+
+    /**
+     * Records which Cassettes were compiled, holding compilation until released.
+     */
+    private static class RecordingUseCase extends CompileCassetteUseCase {
+
+        final List<Long> compiled = Collections.synchronizedList(new ArrayList<Long>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maximalRunning = new AtomicInteger();
+
+        RecordingUseCase() {
+            super(null, null);
+        }
+
+        @Override
+        public Cassette compile(long cassetteId, File directory, String baseName) throws IOException {
+            int nowRunning = running.incrementAndGet();
+            synchronized (maximalRunning) {
+                maximalRunning.set(Math.max(maximalRunning.get(), nowRunning));
+            }
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted.");
+            } finally {
+                running.decrementAndGet();
+            }
+            compiled.add(cassetteId);
+            return null;
+        }
+    }
+
+    //endregion Private helper classes
+}
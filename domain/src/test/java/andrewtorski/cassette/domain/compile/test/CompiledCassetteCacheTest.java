@@ -0,0 +1,173 @@
+package andrewtorski.cassette.domain.compile.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+import andrewtorski.cassette.domain.compile.CassetteCompiler;
+import andrewtorski.cassette.domain.compile.CompileJobScheduler;
+import andrewtorski.cassette.domain.compile.CompiledCassetteCache;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.testutilities.TestCassetteRepository;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+import andrewtorski.cassette.domain.usecase.CompileCassetteUseCase;
+
+public class CompiledCassetteCacheTest {
+
+    private static final PcmFormat FORMAT = new PcmFormat(8000, 1);
+
+    /**
+     * Size of a compiled Cassette holding one second of 16 bit mono samples at 8 kHz.
+     */
+    private static final long COMPILED_SIZE = 44 + 8000 * 2;
+
+    private File directory;
+    private RepositoryFacade facade;
+    private CompileJobScheduler scheduler;
+    private CompiledCassetteCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("cache", "");
+        directory.delete();
+        directory.mkdirs();
+        facade = new RepositoryFacade(new TestCassetteRepository(), new TestRecordingRepository());
+        for (int cassetteId = 1; cassetteId <= 3; cassetteId++) {
+            File file = write("recording-" + cassetteId + ".wav", 8000);
+            facade.create(new Recording(100 + cassetteId, cassetteId, "title", "description",
+                    new Date(), 1000, file.getPath(), 0));
+        }
+        scheduler = new CompileJobScheduler(
+                new CompileCassetteUseCase(facade, new CassetteCompiler(new PcmWavStorageFormat(), null)),
+                directory, new File(directory, "compile.journal"), 1);
+        scheduler.start();
+        cache = new CompiledCassetteCache(facade, scheduler, 2 * COMPILED_SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_getForPlayback_LeastRecentlyPlayedCassetteIsEvicted() throws Exception {
+        //  Arrange
+        play(1);
+        File second = play(2);
+        play(1);
+
+        //  Act
+        play(3);
+
+        //  Assert
+        Cassette evicted = facade.get(2, false);
+        Assert.assertFalse(evicted.isCompiled());
+        Assert.assertNull(evicted.getCompiledFilePath());
+        Assert.assertFalse(second.exists());
+        Assert.assertTrue(facade.get(1, false).isCompiled());
+        Assert.assertTrue(facade.get(3, false).isCompiled());
+
+        CompiledCassetteCache.Statistics statistics = cache.getStatistics();
+        Assert.assertEquals(1, statistics.getHits());
+        Assert.assertEquals(3, statistics.getMisses());
+        Assert.assertEquals(0.25, statistics.getHitRate(), 1e-9);
+        Assert.assertEquals(1, statistics.getEvictedCassettes());
+        Assert.assertEquals(COMPILED_SIZE, statistics.getBytesEvicted());
+        Assert.assertEquals(2 * COMPILED_SIZE, statistics.getCachedBytes());
+    }
+
+    @Test
+    public void Test_getForPlayback_EvictedCassetteIsCompiledAgain() throws Exception {
+        //  Arrange
+        play(1);
+        play(2);
+        play(3);
+
+        //  Act
+        File first = play(1);
+
+        //  Assert
+        Assert.assertTrue(first.isFile());
+        Assert.assertEquals(COMPILED_SIZE, first.length());
+        Assert.assertEquals(4, cache.getStatistics().getMisses());
+        Assert.assertEquals(2, cache.getStatistics().getEvictedCassettes());
+        Assert.assertFalse(facade.get(2, false).isCompiled());
+    }
+
+    @Test
+    public void Test_trim_BudgetIsKeptAfterBackgroundCompilation() throws Exception {
+        //  Arrange
+        for (int cassetteId = 1; cassetteId <= 3; cassetteId++) {
+            scheduler.submit(cassetteId, CompileJobScheduler.Priority.BACKGROUND).get();
+            Thread.sleep(5);
+        }
+
+        //  Act
+        long evicted = cache.trim();
+
+        //  Assert
+        Assert.assertEquals(COMPILED_SIZE, evicted);
+        Assert.assertFalse(facade.get(1, false).isCompiled());
+        Assert.assertTrue(facade.get(3, false).isCompiled());
+    }
+
+    @Test
+    public void Test_getForPlayback_FileOfCassetteMarkedNotCompiledIsEvicted() throws Exception {
+        //  Arrange
+        File second = play(2);
+        play(1);
+        //  As the trigger does when a Recording of the Cassette changes.
+        facade.get(2, false).setCompiled(false);
+
+        //  Act
+        play(3);
+
+        //  Assert
+        Assert.assertFalse(second.exists());
+        Assert.assertNull(facade.get(2, false).getCompiledFilePath());
+        Assert.assertEquals(1, cache.getStatistics().getEvictedCassettes());
+        Assert.assertEquals(2 * COMPILED_SIZE, cache.getStatistics().getCachedBytes());
+    }
+
+    //region Private helper methods
+
+    /**
+     * Plays the Cassette, waiting afterwards so that the next playback is recorded later.
+     */
+    private File play(long cassetteId) throws Exception {
+        File file = cache.getForPlayback(cassetteId);
+        Thread.sleep(5);
+        return file;
+    }
+
+    private File write(String name, int frames) throws IOException {
+        File file = new File(directory, name);
+        AudioWriter writer = new PcmWavStorageFormat().createWriter(file, FORMAT);
+        try {
+            writer.write(new short[frames], 0, frames);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    //endregion Private helper methods
+}
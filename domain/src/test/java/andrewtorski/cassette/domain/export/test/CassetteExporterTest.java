@@ -0,0 +1,208 @@
+package andrewtorski.cassette.domain.export.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.export.ArchiveWriter;
+import andrewtorski.cassette.domain.export.CassetteExporter;
+import andrewtorski.cassette.domain.export.TarArchiveWriter;
+import andrewtorski.cassette.domain.export.ZipArchiveWriter;
+
+public class CassetteExporterTest {
+
+    private File directory;
+    private Cassette cassette;
+    private List<Recording> recordings;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("export", "");
+        directory.delete();
+        directory.mkdirs();
+
+        cassette = new Cassette(7, "Road \"trip\"", "Line\nbreak", new Date(0), 3000, false, null,
+                null, 3);
+        recordings = new ArrayList<>();
+        recordings.add(new Recording(12, 7, "Second", null, new Date(2000), 1000,
+                writeFile("b.wav", 1500).getPath(), 1));
+        recordings.add(new Recording(11, 7, "First", null, new Date(1000), 1000,
+                writeFile("a.3gp", 513).getPath(), 0));
+        recordings.add(new Recording(13, 7, "Missing", null, new Date(3000), 1000,
+                new File(directory, "gone.wav").getPath(), 2));
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_export_ZipHoldsManifestFollowedByAudioInSequence() throws IOException {
+        //  Arrange
+        File output = new File(directory, "cassette.zip");
+
+        //  Act
+        new CassetteExporter(CassetteExporter.Format.ZIP).export(cassette, recordings, output);
+
+        //  Assert
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        ZipFile zipFile = new ZipFile(output);
+        try {
+            Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+            while (enumeration.hasMoreElements()) {
+                ZipEntry entry = enumeration.nextElement();
+                Assert.assertEquals(ZipEntry.STORED, entry.getMethod());
+                entries.put(entry.getName(), readAll(zipFile.getInputStream(entry)));
+            }
+        } finally {
+            zipFile.close();
+        }
+
+        Assert.assertEquals(Arrays.asList(CassetteExporter.MANIFEST_ENTRY_NAME,
+                "recordings/0000-11.3gp", "recordings/0001-12.wav"),
+                new ArrayList<>(entries.keySet()));
+        assertContent(entries.get("recordings/0000-11.3gp"), 513);
+        assertContent(entries.get("recordings/0001-12.wav"), 1500);
+        assertManifest(new String(entries.get(CassetteExporter.MANIFEST_ENTRY_NAME), "UTF-8"));
+    }
+
+    @Test
+    public void Test_export_TarHoldsManifestFollowedByAudioInSequence() throws IOException {
+        //  Arrange
+        File output = new File(directory, "cassette.tar");
+
+        //  Act
+        new CassetteExporter(CassetteExporter.Format.TAR).export(cassette, recordings, output);
+
+        //  Assert
+        Map<String, byte[]> entries = readTar(output);
+        Assert.assertEquals(Arrays.asList(CassetteExporter.MANIFEST_ENTRY_NAME,
+                "recordings/0000-11.3gp", "recordings/0001-12.wav"),
+                new ArrayList<>(entries.keySet()));
+        assertContent(entries.get("recordings/0000-11.3gp"), 513);
+        assertContent(entries.get("recordings/0001-12.wav"), 1500);
+        assertManifest(new String(entries.get(CassetteExporter.MANIFEST_ENTRY_NAME), "UTF-8"));
+        Assert.assertEquals(0, output.length() % 512);
+    }
+
+    @Test
+    public void Test_abort_IncompleteArchiveIsDeleted() throws IOException {
+        //  Arrange
+        File zipOutput = new File(directory, "cassette.zip");
+        File tarOutput = new File(directory, "cassette.tar");
+        ArchiveWriter zipWriter = new ZipArchiveWriter(zipOutput);
+        ArchiveWriter tarWriter = new TarArchiveWriter(tarOutput);
+        zipWriter.putEntry(CassetteExporter.MANIFEST_ENTRY_NAME, new byte[]{1, 2, 3}, 0);
+        tarWriter.putEntry(CassetteExporter.MANIFEST_ENTRY_NAME, new byte[]{1, 2, 3}, 0);
+
+        //  Act
+        zipWriter.abort();
+        tarWriter.abort();
+
+        //  Assert
+        Assert.assertFalse(zipOutput.exists());
+        Assert.assertFalse(tarOutput.exists());
+    }
+
+    //region Private helper methods
+
+    private static void assertManifest(String manifest) {
+        Assert.assertTrue(manifest.contains("\"title\": \"Road \\\"trip\\\"\""));
+        Assert.assertTrue(manifest.contains("\"description\": \"Line\\nbreak\""));
+        Assert.assertTrue(manifest.contains("\"audioFile\": \"recordings/0000-11.3gp\""));
+        Assert.assertTrue(manifest.contains("\"audioFile\": null"));
+        Assert.assertTrue(manifest.contains("\"dateTimeOfRecording\": \"1970-01-01T00:00:01.000Z\""));
+        Assert.assertTrue(manifest.indexOf("\"First\"") < manifest.indexOf("\"Second\""));
+    }
+
+    private static void assertContent(byte[] content, int expectedLength) {
+        Assert.assertEquals(expectedLength, content.length);
+        for (int i = 0; i < content.length; i++) {
+            Assert.assertEquals((byte) (i * 31 + expectedLength), content[i]);
+        }
+    }
+
+    private File writeFile(String name, int length) throws IOException {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 31 + length);
+        }
+        File file = new File(directory, name);
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+        return file;
+    }
+
+    private static Map<String, byte[]> readTar(File file) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        byte[] tar = readAll(new FileInputStream(file));
+        int offset = 0;
+        while (tar[offset] != 0) {
+            int nameLength = 0;
+            while (nameLength < 100 && tar[offset + nameLength] != 0) {
+                nameLength++;
+            }
+            String name = new String(tar, offset, nameLength, "UTF-8");
+            int size = Integer.parseInt(new String(tar, offset + 124, 11, "US-ASCII"), 8);
+            Assert.assertEquals("ustar", new String(tar, offset + 257, 5, "US-ASCII"));
+
+            int checksum = 0;
+            for (int i = 0; i < 512; i++) {
+                checksum += (i >= 148 && i < 156) ? ' ' : tar[offset + i] & 0xFF;
+            }
+            Assert.assertEquals(checksum,
+                    Integer.parseInt(new String(tar, offset + 148, 6, "US-ASCII"), 8));
+
+            entries.put(name, Arrays.copyOfRange(tar, offset + 512, offset + 512 + size));
+            offset += 512 + (size + 511) / 512 * 512;
+        }
+        return entries;
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,138 @@
+package andrewtorski.cassette.domain.importer.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.AudioFileProbe;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.importer.BulkRecordingImporter;
+import andrewtorski.cassette.domain.importer.ImportReport;
+import andrewtorski.cassette.domain.testutilities.TestCassetteRepository;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+
+public class BulkRecordingImporterTest {
+
+    private static final PcmFormat FORMAT = new PcmFormat(8000, 1);
+
+    private File directory;
+    private TestCassetteRepository cassetteRepository;
+    private TestRecordingRepository recordingRepository;
+    private BulkRecordingImporter importer;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("import", "");
+        directory.delete();
+        directory.mkdirs();
+        cassetteRepository = new TestCassetteRepository();
+        recordingRepository = new TestRecordingRepository();
+        importer = new BulkRecordingImporter(
+                new RepositoryFacade(cassetteRepository, recordingRepository),
+                new AudioFileProbe(), 4, 3);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_importDirectory_RecordingsFollowFileNamesWithProbedLengths() throws Exception {
+        //  Arrange
+        Cassette cassette = cassetteRepository.get(1);
+        int lengthBefore = cassette.getLength();
+        int sequenceBefore = cassette.getNumberOfRecordings();
+        for (int i = 0; i < 8; i++) {
+            writeWav(String.format("%02d.wav", 7 - i), 800 * (7 - i + 1));
+        }
+
+        //  Act
+        ImportReport report = importer.importDirectory(directory, 1);
+
+        //  Assert
+        List<Recording> recordings = recordingRepository.getAllForCassette(cassette);
+        Assert.assertEquals(8, recordings.size());
+        for (int i = 0; i < 8; i++) {
+            Recording recording = recordings.get(i);
+            Assert.assertEquals(String.format("%02d.wav", i), recording.getAudioFile().getName());
+            Assert.assertEquals(100 * (i + 1), recording.getLengthInMiliseconds());
+            Assert.assertEquals(sequenceBefore + i + 1, recording.getSequenceInTheCassette());
+        }
+        Assert.assertEquals(lengthBefore + 3600, cassette.getLength());
+        Assert.assertEquals(8, report.getImportedRecordings());
+        Assert.assertEquals(8, report.getProbing().getItems());
+        Assert.assertEquals(8, report.getInserting().getItems());
+    }
+
+    @Test
+    public void Test_importDirectory_FilesWhichAreNotAudioAreSkipped() throws Exception {
+        //  Arrange
+        Cassette cassette = cassetteRepository.get(2);
+        writeWav("a.wav", 800);
+        File notes = new File(directory, "b.txt");
+        FileOutputStream outputStream = new FileOutputStream(notes);
+        try {
+            outputStream.write("not audio at all".getBytes("US-ASCII"));
+        } finally {
+            outputStream.close();
+        }
+        writeWav("c.wav", 1600);
+
+        //  Act
+        ImportReport report = importer.importDirectory(directory, 2);
+
+        //  Assert
+        List<Recording> recordings = recordingRepository.getAllForCassette(cassette);
+        Assert.assertEquals(2, recordings.size());
+        Assert.assertEquals(recordings.get(0).getSequenceInTheCassette() + 1,
+                recordings.get(1).getSequenceInTheCassette());
+        Assert.assertEquals(2, report.getImportedRecordings());
+        Assert.assertEquals(1, report.getSkippedFiles().size());
+        Assert.assertEquals(notes, report.getSkippedFiles().get(0));
+        Assert.assertEquals(3, report.getListing().getItems());
+    }
+
+    @Test
+    public void Test_importDirectory_MissingCassetteReturnsNull() throws Exception {
+        //  Arrange
+        writeWav("a.wav", 800);
+
+        //  Act
+        ImportReport report = importer.importDirectory(directory, 42);
+
+        //  Assert
+        Assert.assertNull(report);
+    }
+
+    //region Private helper methods
+
+    private void writeWav(String name, int frames) throws IOException {
+        AudioWriter writer = new PcmWavStorageFormat().createWriter(new File(directory, name), FORMAT);
+        try {
+            writer.write(new short[frames], 0, frames);
+        } finally {
+            writer.close();
+        }
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,99 @@
+package andrewtorski.cassette.domain.repository.test;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.repository.ChangeListener;
+import andrewtorski.cassette.domain.repository.ChangeNotifier;
+import andrewtorski.cassette.domain.repository.ChangeSet;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+
+public class ChangeNotifierTest {
+
+    private ChangeNotifier notifier;
+    private List<ChangeSet> published;
+
+    @Before
+    public void setUp() {
+        notifier = new ChangeNotifier();
+        published = new ArrayList<>();
+        notifier.addListener(new ChangeListener() {
+            @Override
+            public void onChange(ChangeSet changes) {
+                published.add(changes);
+            }
+        });
+    }
+
+    @Test
+    public void Test_publish_BatchIsCoalescedIntoNetChanges() {
+        //  Arrange
+        ChangeNotifier.Batch batch = notifier.beginBatch();
+
+        //  Act
+        batch.created(1);
+        batch.updated(1);
+        batch.created(2);
+        batch.deleted(2);
+        batch.updated(3);
+        batch.deleted(3);
+        batch.updated(4);
+        batch.updated(4);
+        batch.publish();
+
+        //  Assert
+        Assert.assertEquals(1, published.size());
+        ChangeSet changes = published.get(0);
+        Assert.assertTrue(Arrays.equals(new long[]{1}, changes.getCreatedIds()));
+        Assert.assertTrue(Arrays.equals(new long[]{4}, changes.getUpdatedIds()));
+        Assert.assertTrue(Arrays.equals(new long[]{3}, changes.getDeletedIds()));
+        Assert.assertNull(changes.getType(2));
+    }
+
+    @Test
+    public void Test_publish_EmptyBatchIsNotPublished() {
+        //  Arrange
+        ChangeNotifier.Batch batch = notifier.beginBatch();
+        batch.created(1);
+        batch.deleted(1);
+
+        //  Act
+        batch.publish();
+
+        //  Assert
+        Assert.assertTrue(published.isEmpty());
+    }
+
+    @Test
+    public void Test_createAll_RepositoryPublishesOneChangeSet() {
+        //  Arrange
+        TestRecordingRepository repository = new TestRecordingRepository();
+        repository.getChangeNotifier().addListener(new ChangeListener() {
+            @Override
+            public void onChange(ChangeSet changes) {
+                published.add(changes);
+            }
+        });
+        List<Recording> recordings = new ArrayList<>();
+        for (int id = 1; id <= 3; id++) {
+            recordings.add(new Recording(id, 1, "title", "description", new Date(), 1000, "/", id));
+        }
+
+        //  Act
+        repository.createAll(recordings);
+        repository.delete(2);
+
+        //  Assert
+        Assert.assertEquals(2, published.size());
+        Assert.assertTrue(Arrays.equals(new long[]{1, 2, 3}, published.get(0).getCreatedIds()));
+        Assert.assertEquals(ChangeSet.Type.DELETED, published.get(1).getType(2));
+    }
+}
@@ -0,0 +1,144 @@
+package andrewtorski.cassette.domain.repository.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.repository.QueryObserver;
+import andrewtorski.cassette.domain.repository.Subscription;
+import andrewtorski.cassette.domain.testutilities.TestCassetteRepository;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+
+public class LiveQueryTest {
+
+    private static final long TIMEOUT_MILLISECONDS = 2000;
+
+    /**
+     * Long enough for any debounced run to have happened.
+     */
+    private static final long QUIET_MILLISECONDS = 600;
+
+    private RepositoryFacade facade;
+    private Subscription subscription;
+
+    @Before
+    public void setUp() {
+        facade = new RepositoryFacade(new TestCassetteRepository(), new TestRecordingRepository());
+    }
+
+    @After
+    public void tearDown() {
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+    }
+
+    @Test
+    public void Test_observe_BurstOfUpdatesIsDeliveredOnce() throws InterruptedException {
+        //  Arrange
+        BlockingQueue<String> titles = new LinkedBlockingQueue<>();
+        subscription = facade.observe(1, titlesOf(titles));
+        String initialTitle = titles.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+        Cassette cassette = facade.get(1, false);
+
+        //  Act
+        for (int i = 0; i < 5; i++) {
+            cassette.setTitle("title " + i);
+            facade.update(cassette);
+        }
+
+        //  Assert
+        Assert.assertNotNull(initialTitle);
+        Assert.assertEquals("title 4", titles.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS));
+        Assert.assertNull(titles.poll(QUIET_MILLISECONDS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void Test_unsubscribe_NothingIsDeliveredAfterwards() throws InterruptedException {
+        //  Arrange
+        BlockingQueue<String> titles = new LinkedBlockingQueue<>();
+        subscription = facade.observe(1, titlesOf(titles));
+        titles.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+        Cassette cassette = facade.get(1, false);
+
+        //  Act
+        cassette.setTitle("changed");
+        facade.update(cassette);
+        subscription.unsubscribe();
+
+        //  Assert
+        Assert.assertTrue(subscription.isUnsubscribed());
+        Assert.assertNull(titles.poll(QUIET_MILLISECONDS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void Test_observeForCassette_CreatedRecordingIsDelivered() throws InterruptedException {
+        //  Arrange
+        final BlockingQueue<List<Recording>> results = new LinkedBlockingQueue<>();
+        subscription = facade.observeForCassette(1, new QueryObserver<List<Recording>>() {
+            @Override
+            public void onResult(List<Recording> result) {
+                results.add(result);
+            }
+        });
+        List<Recording> initialRecordings = results.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+        //  Act
+        facade.create(new Recording(1, 1, "title", "description", new Date(), 1000, "/", 1));
+
+        //  Assert
+        Assert.assertNotNull(initialRecordings);
+        Assert.assertTrue(initialRecordings.isEmpty());
+        List<Recording> recordings = results.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+        Assert.assertNotNull(recordings);
+        Assert.assertEquals(1, recordings.size());
+    }
+
+    @Test
+    public void Test_observeForCassette_RecordingMovedIntoCassetteIsDelivered() throws InterruptedException {
+        //  Arrange
+        facade.create(new Recording(1, 2, "title", "description", new Date(), 1000, "/", 1));
+        final BlockingQueue<List<Recording>> results = new LinkedBlockingQueue<>();
+        subscription = facade.observeForCassette(1, new QueryObserver<List<Recording>>() {
+            @Override
+            public void onResult(List<Recording> result) {
+                results.add(result);
+            }
+        });
+        List<Recording> initialRecordings = results.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+        //  Act
+        facade.update(new Recording(1, 1, "title", "description", new Date(), 1000, "/", 1));
+
+        //  Assert
+        Assert.assertNotNull(initialRecordings);
+        Assert.assertTrue(initialRecordings.isEmpty());
+        List<Recording> recordings = results.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+        Assert.assertNotNull(recordings);
+        Assert.assertEquals(1, recordings.size());
+    }
+
+    //region Private helper methods
+
+    private static QueryObserver<Cassette> titlesOf(final BlockingQueue<String> titles) {
+        return new QueryObserver<Cassette>() {
+            @Override
+            public void onResult(Cassette result) {
+                titles.add(result.getTitle());
+            }
+        };
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,64 @@
+package andrewtorski.cassette.domain.statistics.test;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
+
+public class RecordingStatisticsTest {
+
+    @Test
+    public void Test_getStart_WeekStartsOnMonday() {
+        //  Arrange
+        Date sunday = date(2015, Calendar.AUGUST, 16, 23);
+        Date monday = date(2015, Calendar.AUGUST, 17, 0);
+
+        //  Act
+        long sundayWeekStart = TimeBucket.WEEK.getStart(sunday);
+        long mondayWeekStart = TimeBucket.WEEK.getStart(monday);
+
+        //  Assert
+        Assert.assertEquals(date(2015, Calendar.AUGUST, 10, 0).getTime(), sundayWeekStart);
+        Assert.assertEquals(monday.getTime(), mondayWeekStart);
+    }
+
+    @Test
+    public void Test_compute_GroupsByMonthOldestFirst() {
+        //  Arrange
+        List<Recording> recordings = new ArrayList<>();
+        recordings.add(recording(1, date(2015, Calendar.SEPTEMBER, 1, 10), 300));
+        recordings.add(recording(2, date(2015, Calendar.AUGUST, 31, 23), 200));
+        recordings.add(recording(3, date(2015, Calendar.AUGUST, 1, 0), 100));
+
+        //  Act
+        RecordingStatistics statistics = RecordingStatistics.compute(TimeBucket.MONTH, recordings);
+
+        //  Assert
+        Assert.assertEquals(2, statistics.size());
+        Assert.assertEquals(date(2015, Calendar.AUGUST, 1, 0).getTime(), statistics.getBucketStarts()[0]);
+        Assert.assertEquals(2, statistics.getRecordingCounts()[0]);
+        Assert.assertEquals(300, statistics.getTotalLengths()[0]);
+        Assert.assertEquals(date(2015, Calendar.SEPTEMBER, 1, 0).getTime(), statistics.getBucketStarts()[1]);
+        Assert.assertEquals(1, statistics.getRecordingCounts()[1]);
+        Assert.assertEquals(600, statistics.getTotalLength());
+    }
+
+    private static Recording recording(long id, Date dateTimeOfRecording, int length) {
+        return new Recording(id, 1, "title", "description", dateTimeOfRecording, length, "/", (int) id);
+    }
+
+    private static Date date(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0, 0);
+        return calendar.getTime();
+    }
+}
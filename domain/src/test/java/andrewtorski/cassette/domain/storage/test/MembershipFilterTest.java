@@ -0,0 +1,46 @@
+package andrewtorski.cassette.domain.storage.test;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import andrewtorski.cassette.domain.storage.MembershipFilter;
+
+public class MembershipFilterTest {
+
+    @Test
+    public void Test_mightContain_AddedElementsAreAlwaysFound() {
+        //  Arrange
+        MembershipFilter filter = new MembershipFilter(1000, 0.01);
+
+        //  Act
+        for (int i = 0; i < 1000; i++) {
+            filter.add("/recordings/" + i + ".3gp");
+        }
+
+        //  Assert
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(filter.mightContain("/recordings/" + i + ".3gp"));
+        }
+    }
+
+    @Test
+    public void Test_mightContain_FalsePositiveRateIsNearRequested() {
+        //  Arrange
+        MembershipFilter filter = new MembershipFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.add("/recordings/" + i + ".3gp");
+        }
+
+        //  Act
+        int falsePositives = 0;
+        for (int i = 10000; i < 110000; i++) {
+            if (filter.mightContain("/recordings/" + i + ".3gp")) {
+                falsePositives++;
+            }
+        }
+
+        //  Assert
+        Assert.assertTrue("False positives: " + falsePositives, falsePositives < 2000);
+    }
+}
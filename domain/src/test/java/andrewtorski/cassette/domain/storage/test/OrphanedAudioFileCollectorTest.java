@@ -0,0 +1,135 @@
+package andrewtorski.cassette.domain.storage.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.storage.OrphanedAudioFileCollector;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+
+public class OrphanedAudioFileCollectorTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private File directory;
+    private TestRecordingRepository repository;
+    private Cassette cassette;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("recordings", "");
+        directory.delete();
+        directory.mkdirs();
+        repository = new TestRecordingRepository();
+        cassette = new Cassette("title", "description");
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void Test_collect_OnlyOldUnreferencedFilesAreDeleted() throws Exception {
+        //  Arrange
+        File referenced = writeFile("referenced.3gp", 10, 2 * HOUR);
+        File orphaned = writeFile("nested/orphaned.3gp", 20, 2 * HOUR);
+        File fresh = writeFile("fresh.3gp", 30, 0);
+        repository.create(new Recording(referenced, 1000, cassette));
+        OrphanedAudioFileCollector collector = new OrphanedAudioFileCollector(directory, repository, HOUR, 0);
+
+        //  Act
+        long bytesReclaimed = collector.collect();
+
+        //  Assert
+        Assert.assertEquals(20, bytesReclaimed);
+        Assert.assertTrue(referenced.exists());
+        Assert.assertFalse(orphaned.exists());
+        Assert.assertTrue(fresh.exists());
+        Assert.assertEquals(0, repository.getOpenIterators());
+    }
+
+    @Test
+    public void Test_collect_PathsAreComparedAfterResolving() throws Exception {
+        //  Arrange
+        File referenced = writeFile("referenced.3gp", 10, 2 * HOUR);
+        File roundabout = new File(new File(directory, "nested/.."), "referenced.3gp");
+        repository.create(new Recording(roundabout, 1000, cassette));
+        OrphanedAudioFileCollector collector = new OrphanedAudioFileCollector(directory, repository, HOUR, 0);
+
+        //  Act
+        long bytesReclaimed = collector.collect();
+
+        //  Assert
+        Assert.assertEquals(0, bytesReclaimed);
+        Assert.assertTrue(referenced.exists());
+    }
+
+    @Test
+    public void Test_collect_IsRateLimited() throws Exception {
+        //  Arrange
+        for (int i = 0; i < 5; i++) {
+            writeFile(i + ".3gp", 1, 2 * HOUR);
+        }
+        repository.create(new Recording(writeFile("referenced.3gp", 10, 2 * HOUR), 1000, cassette));
+        OrphanedAudioFileCollector collector = new OrphanedAudioFileCollector(directory, repository, HOUR, 20);
+
+        //  Act
+        long start = System.nanoTime();
+        long bytesReclaimed = collector.collect();
+        long elapsedMilliseconds = (System.nanoTime() - start) / 1000000;
+
+        //  Assert
+        Assert.assertEquals(5, bytesReclaimed);
+        Assert.assertTrue("Took " + elapsedMilliseconds + "ms", elapsedMilliseconds >= 190);
+    }
+
+    @Test
+    public void Test_collect_NothingIsDeletedWithoutAnyRecording() throws Exception {
+        //  Arrange
+        File old = writeFile("old.3gp", 10, 2 * HOUR);
+        OrphanedAudioFileCollector collector = new OrphanedAudioFileCollector(directory, repository, HOUR, 0);
+
+        //  Act
+        long bytesReclaimed = collector.collect();
+
+        //  Assert
+        Assert.assertEquals(0, bytesReclaimed);
+        Assert.assertTrue(old.exists());
+    }
+
+    //region Private helper methods
+
+    private File writeFile(String name, int length, long age) throws IOException {
+        File file = new File(directory, name);
+        file.getParentFile().mkdirs();
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(new byte[length]);
+        } finally {
+            outputStream.close();
+        }
+        file.setLastModified(System.currentTimeMillis() - age);
+        return file;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,135 @@
+package andrewtorski.cassette.domain.storage.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import andrewtorski.cassette.domain.audio.AudioReader;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.ImaAdpcmWavStorageFormat;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.storage.StorageTieringJob;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+
+public class StorageTieringJobTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000;
+
+    private File directory;
+    private TestRecordingRepository repository;
+    private StorageTieringJob job;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("tiering", "");
+        directory.delete();
+        directory.mkdirs();
+        repository = new TestRecordingRepository();
+        job = new StorageTieringJob(repository, new ImaAdpcmWavStorageFormat(), 30 * DAY);
+    }
+
+    @After
+    public void tearDown() {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_run_OldRecordingIsReencodedAndSwapped() throws Exception {
+        //  Arrange
+        File original = writePcmWav("old.wav", 8000);
+        Recording old = createRecording(1, original, 40 * DAY);
+
+        //  Act
+        long bytesSaved = job.run();
+
+        //  Assert
+        Assert.assertEquals(ImaAdpcmWavStorageFormat.NAME, old.getAudioStorageFormat());
+        File reencoded = new File(old.getAudioFilePath());
+        Assert.assertFalse(reencoded.equals(original));
+        Assert.assertEquals(original.length() - reencoded.length(), bytesSaved);
+        Assert.assertTrue("Original has to stay readable after the swap.", original.exists());
+        AudioReader reader = new ImaAdpcmWavStorageFormat().createReader(reencoded);
+        try {
+            Assert.assertEquals(8000, reader.getFrameCount());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void Test_run_YoungAndUndecodableRecordingsAreLeftAlone() throws Exception {
+        //  Arrange
+        Recording young = createRecording(1, writePcmWav("young.wav", 8000), DAY);
+        File capture = new File(directory, "capture.3gp");
+        FileOutputStream outputStream = new FileOutputStream(capture);
+        outputStream.write(new byte[128]);
+        outputStream.close();
+        Recording undecodable = createRecording(2, capture, 40 * DAY);
+
+        //  Act
+        long bytesSaved = job.run();
+
+        //  Assert
+        Assert.assertEquals(0, bytesSaved);
+        Assert.assertNull(young.getAudioStorageFormat());
+        Assert.assertNull(undecodable.getAudioStorageFormat());
+    }
+
+    @Test
+    public void Test_run_SecondRunHasNothingToDo() throws Exception {
+        //  Arrange
+        for (int i = 0; i < 40; i++) {
+            createRecording(i, writePcmWav(i + ".wav", 600), (40 + i % 3) * DAY);
+        }
+        job.run();
+
+        //  Act
+        long bytesSaved = job.run();
+
+        //  Assert
+        Assert.assertEquals(0, bytesSaved);
+        for (Recording recording : repository.getAll()) {
+            Assert.assertEquals(ImaAdpcmWavStorageFormat.NAME, recording.getAudioStorageFormat());
+        }
+    }
+
+    //region Private helper methods
+
+    private Recording createRecording(long id, File audioFile, long age) {
+        Recording recording = new Recording(id, 1, "title", "description",
+                new Date(System.currentTimeMillis() - age), 1000, audioFile.getPath(), (int) id);
+        return repository.create(recording);
+    }
+
+    private File writePcmWav(String name, int frames) throws IOException {
+        File file = new File(directory, name);
+        short[] samples = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            samples[i] = (short) (5000 * Math.sin(2 * Math.PI * 200 * i / 8000));
+        }
+        AudioWriter writer = new PcmWavStorageFormat().createWriter(file, new PcmFormat(8000, 1));
+        try {
+            writer.write(samples, 0, frames);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    //endregion Private helper methods
+}
@@ -0,0 +1,233 @@
+package andrewtorski.cassette.domain.streaming.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.streaming.CassetteStreamServer;
+import andrewtorski.cassette.domain.testutilities.TestCassetteRepository;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+
+public class CassetteStreamServerTest {
+
+    private static final PcmFormat FORMAT = new PcmFormat(8000, 1);
+
+    private File directory;
+    private RepositoryFacade facade;
+    private CassetteStreamServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("streaming", "");
+        directory.delete();
+        directory.mkdirs();
+        facade = new RepositoryFacade(new TestCassetteRepository(), new TestRecordingRepository());
+        server = new CassetteStreamServer(facade, InetAddress.getByName("127.0.0.1"), 0, 2);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_get_RangeOfCompiledFileIsServed() throws Exception {
+        //  Arrange
+        File compiled = write("compiled.wav", 1000, 0);
+        Cassette cassette = facade.get(1, false);
+        cassette.setCompiled(true);
+        cassette.setCompiledFilePath(compiled.getPath());
+        facade.update(cassette);
+        byte[] expected = Arrays.copyOfRange(readAll(new FileInputStream(compiled)), 100, 200);
+
+        //  Act
+        HttpURLConnection connection = open("/cassettes/1/compiled");
+        connection.setRequestProperty("Range", "bytes=100-199");
+
+        //  Assert
+        Assert.assertEquals(206, connection.getResponseCode());
+        Assert.assertEquals("audio/wav", connection.getContentType());
+        Assert.assertEquals("bytes 100-199/" + compiled.length(),
+                connection.getHeaderField("Content-Range"));
+        Assert.assertTrue(Arrays.equals(expected, readAll(connection.getInputStream())));
+    }
+
+    @Test
+    public void Test_get_RecordingsAreJoinedIntoOneWaveFile() throws Exception {
+        //  Arrange
+        facade.create(new Recording(101, 2, "title", "description", new Date(), 100,
+                write("second.wav", 300, 2000).getPath(), 1));
+        facade.create(new Recording(100, 2, "title", "description", new Date(), 100,
+                write("first.wav", 500, 1000).getPath(), 0));
+
+        //  Act
+        HttpURLConnection connection = open("/cassettes/2/recordings");
+        byte[] body = readAll(connection.getInputStream());
+
+        //  Assert
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("bytes", connection.getHeaderField("Accept-Ranges"));
+        Assert.assertEquals(44 + 800 * 2, body.length);
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(800 * 2, buffer.getInt(40));
+        Assert.assertEquals(1000, buffer.getShort(44));
+        Assert.assertEquals(2000, buffer.getShort(44 + 500 * 2));
+    }
+
+    @Test
+    public void Test_get_ConcurrentRangeRequestsAreAllServed() throws Exception {
+        //  Arrange
+        final File compiled = write("compiled.wav", 100000, 0);
+        Cassette cassette = facade.get(1, false);
+        cassette.setCompiled(true);
+        cassette.setCompiledFilePath(compiled.getPath());
+        facade.update(cassette);
+        final byte[] content = readAll(new FileInputStream(compiled));
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+
+        //  Act
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            final int start = i * 3000;
+            results.add(clients.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    HttpURLConnection connection = open("/cassettes/1/compiled");
+                    connection.setRequestProperty("Range", "bytes=" + start + "-");
+                    byte[] body = readAll(connection.getInputStream());
+                    return connection.getResponseCode() == 206 && Arrays.equals(body,
+                            Arrays.copyOfRange(content, start, content.length));
+                }
+            }));
+        }
+
+        //  Assert
+        for (Future<Boolean> result : results) {
+            Assert.assertTrue(result.get());
+        }
+        clients.shutdown();
+    }
+
+    @Test
+    public void Test_get_UnsatisfiableRangeAndMissingCassette() throws Exception {
+        //  Arrange
+        File compiled = write("compiled.wav", 10, 0);
+        Cassette cassette = facade.get(1, false);
+        cassette.setCompiled(true);
+        cassette.setCompiledFilePath(compiled.getPath());
+        facade.update(cassette);
+
+        //  Act
+        HttpURLConnection unsatisfiable = open("/cassettes/1/compiled");
+        unsatisfiable.setRequestProperty("Range", "bytes=1000-");
+        HttpURLConnection missing = open("/cassettes/2/compiled");
+
+        //  Assert
+        Assert.assertEquals(416, unsatisfiable.getResponseCode());
+        Assert.assertEquals("bytes */" + compiled.length(),
+                unsatisfiable.getHeaderField("Content-Range"));
+        Assert.assertEquals(404, missing.getResponseCode());
+    }
+
+    @Test
+    public void Test_get_RequestWithoutTokenIsNotServed() throws Exception {
+        //  Arrange
+        File compiled = write("compiled.wav", 10, 0);
+        Cassette cassette = facade.get(1, false);
+        cassette.setCompiled(true);
+        cassette.setCompiledFilePath(compiled.getPath());
+        facade.update(cassette);
+        String basePath = server.getBasePath();
+        char last = basePath.charAt(basePath.length() - 1);
+        String wrongBasePath = basePath.substring(0, basePath.length() - 1) + (last == '0' ? '1' : '0');
+
+        //  Act
+        int withoutToken = openWithBasePath("/cassettes/1/compiled").getResponseCode();
+        int wrongToken = openWithBasePath(wrongBasePath + "/cassettes/1/compiled").getResponseCode();
+        int currentToken = open("/cassettes/1/compiled").getResponseCode();
+        server.stop();
+        server.start();
+        int previousToken = openWithBasePath(basePath + "/cassettes/1/compiled").getResponseCode();
+
+        //  Assert
+        Assert.assertEquals(404, withoutToken);
+        Assert.assertEquals(404, wrongToken);
+        Assert.assertEquals(200, currentToken);
+        Assert.assertEquals(404, previousToken);
+    }
+
+    //region Private helper methods
+
+    private HttpURLConnection open(String path) throws IOException {
+        return openWithBasePath(server.getBasePath() + path);
+    }
+
+    private HttpURLConnection openWithBasePath(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path)
+                .openConnection();
+    }
+
+    private File write(String name, int frames, int value) throws IOException {
+        File file = new File(directory, name);
+        short[] samples = new short[frames];
+        Arrays.fill(samples, (short) value);
+        AudioWriter writer = new PcmWavStorageFormat().createWriter(file, FORMAT);
+        try {
+            writer.write(samples, 0, frames);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, count);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return outputStream.toByteArray();
+    }
+
+    //endregion Private helper methods
+}
@@ -6,11 +6,14 @@ import java.util.List;
 
 import andrewtorski.cassette.domain.entity.Cassette;
 import andrewtorski.cassette.domain.repository.CassetteRepository;
+import andrewtorski.cassette.domain.repository.ChangeNotifier;
 
 public class TestCassetteRepository implements CassetteRepository {
 
     ArrayList<Cassette> cassetteList = new ArrayList<>();
 
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+
 
     public TestCassetteRepository() {
         cassetteList.addAll(SampleDataProvider.getCassettes());
@@ -24,6 +27,7 @@ public class TestCassetteRepository implements CassetteRepository {
     @Override
     public Cassette create(Cassette cassette) {
         cassetteList.add(cassette);
+        changeNotifier.publishCreated(cassette.getId());
         return cassette;
     }
 
@@ -47,6 +51,18 @@ public class TestCassetteRepository implements CassetteRepository {
         return null;
     }
 
+    @Override
+    public List<Cassette> getAll(long[] cassetteIds) {
+        List<Cassette> foundCassettes = new ArrayList<>(cassetteIds.length);
+        for (long id : cassetteIds) {
+            Cassette cassette = get(id);
+            if (cassette != null) {
+                foundCassettes.add(cassette);
+            }
+        }
+        return foundCassettes;
+    }
+
     /**
      * Returns a list of all Cassettes present.
      * These Cassettes do not include their associated Recordings.
@@ -87,6 +103,7 @@ public class TestCassetteRepository implements CassetteRepository {
             foundCassette = cassetteList.get(i);
             if (foundCassette.getId() == cassette.getId()) {
                 cassetteList.set(i, cassette);
+                changeNotifier.publishUpdated(cassette.getId());
                 return true;
             }
         }
@@ -94,6 +111,43 @@ public class TestCassetteRepository implements CassetteRepository {
         return false;
     }
 
+    @Override
+    public boolean updateDateTimeOfLastPlayback(Cassette cassette, Date dateTime) {
+        Cassette foundCassette = get(cassette.getId());
+        if (foundCassette == null) {
+            return false;
+        }
+        foundCassette.setDateTimeOfLastPlayback(dateTime);
+        cassette.setDateTimeOfLastPlayback(dateTime);
+        changeNotifier.publishUpdated(cassette.getId());
+        return true;
+    }
+
+    @Override
+    public boolean updateCompilation(Cassette cassette) {
+        Cassette foundCassette = get(cassette.getId());
+        if (foundCassette == null) {
+            return false;
+        }
+        foundCassette.setCompiled(cassette.isCompiled());
+        foundCassette.setCompiledFilePath(cassette.getCompiledFilePath());
+        foundCassette.setCompiledInputsHash(cassette.getCompiledInputsHash());
+        foundCassette.setDateTimeOfCompilation(cassette.getDateTimeOfCompilation());
+        changeNotifier.publishUpdated(cassette.getId());
+        return true;
+    }
+
+    @Override
+    public boolean addToLength(long cassetteId, int lengthDifference) {
+        Cassette foundCassette = get(cassetteId);
+        if (foundCassette == null) {
+            return false;
+        }
+        foundCassette.setLength(foundCassette.getLength() + lengthDifference);
+        changeNotifier.publishUpdated(cassetteId);
+        return true;
+    }
+
     /**
      * Deletes Cassette.
      *
@@ -118,6 +172,7 @@ public class TestCassetteRepository implements CassetteRepository {
             foundCassette = cassetteList.get(i);
             if (foundCassette.getId() == id) {
                 cassetteList.remove(i);
+                changeNotifier.publishDeleted(id);
                 return true;
             }
         }
@@ -132,4 +187,9 @@ public class TestCassetteRepository implements CassetteRepository {
     public int count() {
         return cassetteList.size();
     }
+
+    @Override
+    public ChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
 }
@@ -0,0 +1,307 @@
+package andrewtorski.cassette.domain.testutilities;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import andrewtorski.cassette.domain.audio.AudioFileInfo;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.repository.ChangeNotifier;
+import andrewtorski.cassette.domain.repository.CloseableIterator;
+import andrewtorski.cassette.domain.repository.RecordingRepository;
+import andrewtorski.cassette.domain.statistics.RecordingStatistics;
+import andrewtorski.cassette.domain.statistics.TimeBucket;
+
+/**
+ * In-memory RecordingRepository backed by a list.
+ */
+public class TestRecordingRepository implements RecordingRepository {
+
+    ArrayList<Recording> recordingList = new ArrayList<>();
+
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+
+    /**
+     * Number of iterators which were handed out but not closed yet.
+     */
+    private int openIterators;
+
+    @Override
+    public Recording create(Recording recording) {
+        recordingList.add(recording);
+        changeNotifier.publishCreated(recording.getId());
+        return recording;
+    }
+
+    @Override
+    public List<Recording> createAll(List<Recording> recordings) {
+        recordingList.addAll(recordings);
+        ChangeNotifier.Batch batch = changeNotifier.beginBatch();
+        for (Recording recording : recordings) {
+            batch.created(recording.getId());
+        }
+        batch.publish();
+        return recordings;
+    }
+
+    @Override
+    public Recording get(long id) {
+        for (Recording recording : recordingList) {
+            if (recording.getId() == id) {
+                return recording;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Recording> getAll(long[] ids) {
+        List<Recording> foundRecordings = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Recording recording = get(id);
+            if (recording != null) {
+                foundRecordings.add(recording);
+            }
+        }
+        return foundRecordings;
+    }
+
+    @Override
+    public boolean update(Recording recording) {
+        for (int i = 0; i < recordingList.size(); i++) {
+            if (recordingList.get(i).getId() == recording.getId()) {
+                recordingList.set(i, recording);
+                changeNotifier.publishUpdated(recording.getId());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean delete(Recording recording) {
+        if (!recordingList.remove(recording)) {
+            return false;
+        }
+        changeNotifier.publishDeleted(recording.getId());
+        return true;
+    }
+
+    @Override
+    public boolean delete(long id) {
+        return delete(get(id));
+    }
+
+    @Override
+    public List<Recording> getAll() {
+        return recordingList;
+    }
+
+    @Override
+    public List<Recording> getAllForCassette(Cassette cassette) {
+        List<Recording> result = new ArrayList<>();
+        for (Recording recording : recordingList) {
+            if (recording.getCassetteId() == cassette.getId()) {
+                result.add(recording);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Recording> getAllBetweenDatesForCassette(Date fromDate, Date toDate) {
+        return null;
+    }
+
+    @Override
+    public List<Recording> getAllBetweenDatesForCassette(Cassette cassette, Date fromDate, Date toDate) {
+        return null;
+    }
+
+    @Override
+    public CloseableIterator<Recording> iterateBetweenDates(Date fromDate, Date toDate) {
+        return iterateNewestFirst(null, fromDate, toDate);
+    }
+
+    @Override
+    public CloseableIterator<Recording> iterateBetweenDatesForCassette(Cassette cassette, Date fromDate, Date toDate) {
+        return iterateNewestFirst(cassette, fromDate, toDate);
+    }
+
+    @Override
+    public RecordingStatistics getStatistics(TimeBucket timeBucket, Date fromDate, Date toDate) {
+        return RecordingStatistics.compute(timeBucket, recordedBetween(null, fromDate, toDate));
+    }
+
+    @Override
+    public RecordingStatistics getStatisticsForCassette(Cassette cassette, TimeBucket timeBucket, Date fromDate,
+                                                        Date toDate) {
+        return RecordingStatistics.compute(timeBucket, recordedBetween(cassette, fromDate, toDate));
+    }
+
+    @Override
+    public List<Recording> getAllWhichTitleOrDescriptionIsLike(String searchClause) {
+        return null;
+    }
+
+    @Override
+    public int count() {
+        return recordingList.size();
+    }
+
+    @Override
+    public int countForCassette(long cassetteId) {
+        int count = 0;
+        for (Recording recording : recordingList) {
+            if (recording.getCassetteId() == cassetteId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public CloseableIterator<String> iterateAudioFilePaths() {
+        openIterators++;
+        final Iterator<Recording> iterator = recordingList.iterator();
+        return new CloseableIterator<String>() {
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return iterator.next().getAudioFilePath();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    openIterators--;
+                }
+            }
+        };
+    }
+
+    @Override
+    public List<Recording> getAllRecordedBeforeNotInStorageFormat(Date recordedBefore, String storageFormat,
+                                                                  Recording after, int limit) {
+        List<Recording> result = new ArrayList<>();
+        for (Recording recording : recordingList) {
+            if (recording.getDateTimeOfRecording().before(recordedBefore)
+                    && !storageFormat.equals(recording.getAudioStorageFormat())
+                    && (after == null || compareByDateAndId(recording, after) > 0)) {
+                result.add(recording);
+            }
+        }
+        Collections.sort(result, new Comparator<Recording>() {
+            @Override
+            public int compare(Recording lhs, Recording rhs) {
+                return compareByDateAndId(lhs, rhs);
+            }
+        });
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    @Override
+    public boolean swapAudioFile(Recording recording, String audioFilePath, String audioStorageFormat) {
+        if (!recordingList.contains(recording)) {
+            return false;
+        }
+        recording.setAudioFile(new File(audioFilePath), audioStorageFormat);
+        changeNotifier.publishUpdated(recording.getId());
+        return true;
+    }
+
+    @Override
+    public boolean updateAudioFileInfo(Recording recording, AudioFileInfo audioFileInfo) {
+        if (!recordingList.contains(recording)) {
+            return false;
+        }
+        recording.setAudioFileInfo(audioFileInfo);
+        changeNotifier.publishUpdated(recording.getId());
+        return true;
+    }
+
+    @Override
+    public ChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
+    public int getOpenIterators() {
+        return openIterators;
+    }
+
+    /**
+     * Returns Recordings of the provided Cassette, or of all Cassettes if it is null, recorded in
+     * the provided date span.
+     */
+    private List<Recording> recordedBetween(Cassette cassette, Date fromDate, Date toDate) {
+        List<Recording> result = new ArrayList<>();
+        for (Recording recording : recordingList) {
+            Date dateTimeOfRecording = recording.getDateTimeOfRecording();
+            if ((cassette == null || recording.getCassetteId() == cassette.getId())
+                    && !dateTimeOfRecording.before(fromDate) && !dateTimeOfRecording.after(toDate)) {
+                result.add(recording);
+            }
+        }
+        return result;
+    }
+
+    private CloseableIterator<Recording> iterateNewestFirst(Cassette cassette, Date fromDate, Date toDate) {
+        List<Recording> result = recordedBetween(cassette, fromDate, toDate);
+        Collections.sort(result, new Comparator<Recording>() {
+            @Override
+            public int compare(Recording lhs, Recording rhs) {
+                return compareByDateAndId(rhs, lhs);
+            }
+        });
+        openIterators++;
+        final Iterator<Recording> iterator = result.iterator();
+        return new CloseableIterator<Recording>() {
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Recording next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    openIterators--;
+                }
+            }
+        };
+    }
+
+    private static int compareByDateAndId(Recording lhs, Recording rhs) {
+        int byDate = lhs.getDateTimeOfRecording().compareTo(rhs.getDateTimeOfRecording());
+        return byDate != 0 ? byDate : Long.valueOf(lhs.getId()).compareTo(rhs.getId());
+    }
+}
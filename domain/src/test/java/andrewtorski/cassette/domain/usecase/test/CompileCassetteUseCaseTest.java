@@ -0,0 +1,209 @@
+package andrewtorski.cassette.domain.usecase.test;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import andrewtorski.cassette.domain.RepositoryFacade;
+import andrewtorski.cassette.domain.audio.AudioWriter;
+import andrewtorski.cassette.domain.audio.PcmFormat;
+import andrewtorski.cassette.domain.audio.PcmWavStorageFormat;
+import andrewtorski.cassette.domain.compile.CassetteCompiler;
+import andrewtorski.cassette.domain.entity.Cassette;
+import andrewtorski.cassette.domain.entity.Recording;
+import andrewtorski.cassette.domain.testutilities.TestCassetteRepository;
+import andrewtorski.cassette.domain.testutilities.TestRecordingRepository;
+import andrewtorski.cassette.domain.usecase.CompileCassetteUseCase;
+
+public class CompileCassetteUseCaseTest {
+
+    private static final PcmFormat FORMAT = new PcmFormat(8000, 1);
+
+    private File directory;
+    private RepositoryFacade facade;
+    private CompileCassetteUseCase useCase;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("compile", "");
+        directory.delete();
+        directory.mkdirs();
+        facade = new RepositoryFacade(new TestCassetteRepository(), new TestRecordingRepository());
+        useCase = new CompileCassetteUseCase(facade,
+                new CassetteCompiler(new PcmWavStorageFormat(), null));
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void Test_compile_UnchangedInputsAreNotCompiledAgain() throws IOException {
+        //  Arrange
+        facade.create(recording(101, 0, write("first.wav", 800)));
+        facade.create(recording(102, 1, write("second.wav", 1600)));
+        File firstOutput = new File(directory, "compiled.wav");
+        File secondOutput = new File(directory, "compiled-again.wav");
+
+        //  Act
+        Cassette compiled = useCase.compile(1, firstOutput);
+        String inputsHash = compiled.getCompiledInputsHash();
+        Cassette compiledAgain = useCase.compile(1, secondOutput);
+
+        //  Assert
+        Assert.assertNotNull(inputsHash);
+        Assert.assertTrue(compiledAgain.isCompiled());
+        Assert.assertEquals(inputsHash, compiledAgain.getCompiledInputsHash());
+        Assert.assertEquals(firstOutput.getPath(), compiledAgain.getCompiledFilePath());
+        Assert.assertFalse(secondOutput.exists());
+    }
+
+    @Test
+    public void Test_compile_ChangedRecordingIsCompiledAgain() throws IOException {
+        //  Arrange
+        facade.create(recording(101, 0, write("first.wav", 800)));
+        File firstOutput = new File(directory, "compiled.wav");
+        File secondOutput = new File(directory, "compiled-again.wav");
+        String inputsHash = useCase.compile(1, firstOutput).getCompiledInputsHash();
+        write("first.wav", 2400);
+
+        //  Act
+        Cassette compiledAgain = useCase.compile(1, secondOutput);
+
+        //  Assert
+        Assert.assertFalse(inputsHash.equals(compiledAgain.getCompiledInputsHash()));
+        Assert.assertEquals(secondOutput.getPath(), compiledAgain.getCompiledFilePath());
+        Assert.assertTrue(secondOutput.isFile());
+    }
+
+    @Test
+    public void Test_compile_AddedRecordingIsCompiledAgain() throws IOException {
+        //  Arrange
+        facade.create(recording(101, 0, write("first.wav", 800)));
+        File firstOutput = new File(directory, "compiled.wav");
+        File secondOutput = new File(directory, "compiled-again.wav");
+        useCase.compile(1, firstOutput);
+        facade.create(recording(102, 1, write("second.wav", 800)));
+
+        //  Act
+        Cassette compiledAgain = useCase.compile(1, secondOutput);
+
+        //  Assert
+        Assert.assertEquals(secondOutput.getPath(), compiledAgain.getCompiledFilePath());
+        Assert.assertTrue(secondOutput.isFile());
+    }
+
+    @Test
+    public void Test_compile_MissingCompiledFileIsCompiledAgain() throws IOException {
+        //  Arrange
+        facade.create(recording(101, 0, write("first.wav", 800)));
+        File output = new File(directory, "compiled.wav");
+        useCase.compile(1, output);
+        output.delete();
+
+        //  Act
+        useCase.compile(1, output);
+
+        //  Assert
+        Assert.assertTrue(output.isFile());
+    }
+
+    @Test
+    public void Test_compile_BaseNameGetsExtensionOfStorageFormat() throws IOException {
+        //  Arrange
+        facade.create(recording(101, 0, write("first.wav", 800)));
+
+        //  Act
+        Cassette compiled = useCase.compile(1, directory, "compiled");
+
+        //  Assert
+        File output = new File(directory, "compiled.wav");
+        Assert.assertEquals(output.getPath(), compiled.getCompiledFilePath());
+        Assert.assertTrue(output.isFile());
+    }
+
+    @Test
+    public void Test_compile_RecordingAddedDuringCompilationLeavesCassetteNotCompiled() throws IOException {
+        //  Arrange
+        facade.create(recording(101, 0, write("first.wav", 800)));
+        final Recording added = recording(102, 1, write("second.wav", 800));
+        useCase = new CompileCassetteUseCase(facade,
+                new CassetteCompiler(new PcmWavStorageFormat(), null) {
+                    @Override
+                    public long compile(List<Recording> recordings, File output) throws IOException {
+                        long length = super.compile(recordings, output);
+                        facade.create(added);
+                        return length;
+                    }
+                });
+        File output = new File(directory, "compiled.wav");
+
+        //  Act
+        Cassette compiled = useCase.compile(1, output);
+
+        //  Assert
+        Assert.assertFalse(compiled.isCompiled());
+        Assert.assertFalse(facade.get(1, false).isCompiled());
+        Assert.assertEquals(output.getPath(), facade.get(1, false).getCompiledFilePath());
+    }
+
+    @Test
+    public void Test_compile_TitleChangedDuringCompilationIsKept() throws IOException {
+        //  Arrange
+        facade.create(recording(101, 0, write("first.wav", 800)));
+        final Cassette edited = new Cassette(1, "Edited title", "", new Date(), 12000, false, "/",
+                new Date(), 2);
+        useCase = new CompileCassetteUseCase(facade,
+                new CassetteCompiler(new PcmWavStorageFormat(), null) {
+                    @Override
+                    public long compile(List<Recording> recordings, File output) throws IOException {
+                        long length = super.compile(recordings, output);
+                        facade.update(edited);
+                        return length;
+                    }
+                });
+        File output = new File(directory, "compiled.wav");
+
+        //  Act
+        useCase.compile(1, output);
+
+        //  Assert
+        Cassette stored = facade.get(1, false);
+        Assert.assertEquals("Edited title", stored.getTitle());
+        Assert.assertTrue(stored.isCompiled());
+        Assert.assertEquals(output.getPath(), stored.getCompiledFilePath());
+    }
+
+    //region Private helper methods
+
+    private static Recording recording(long id, int sequence, File file) {
+        return new Recording(id, 1, "title", "description", new Date(), 100, file.getPath(), sequence);
+    }
+
+    private File write(String name, int frames) throws IOException {
+        File file = new File(directory, name);
+        AudioWriter writer = new PcmWavStorageFormat().createWriter(file, FORMAT);
+        try {
+            writer.write(new short[frames], 0, frames);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    //endregion Private helper methods
+}